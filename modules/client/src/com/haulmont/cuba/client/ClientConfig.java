@@ -64,6 +64,13 @@ public interface ClientConfig extends Config {
     int getMaxUploadSizeMb();
     void setMaxUploadSizeMb(int value);
 
+    /**
+     * @return number of instances requested from the middleware at once by {@code DataManager.loadStream()}
+     */
+    @Property("cuba.loadStreamPageSize")
+    @DefaultInt(500)
+    int getLoadStreamPageSize();
+
     @Factory(factory = UniqueConstraintViolationPatternFactory.class)
     @Source(type = SourceType.DATABASE)
     @Property("cuba.uniqueConstraintViolationPattern")
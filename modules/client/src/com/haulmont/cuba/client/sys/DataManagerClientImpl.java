@@ -18,11 +18,13 @@
 package com.haulmont.cuba.client.sys;
 
 import com.haulmont.chile.core.model.MetaClass;
+import com.haulmont.cuba.client.ClientConfig;
 import com.haulmont.cuba.core.app.DataService;
 import com.haulmont.cuba.core.entity.BaseGenericIdEntity;
 import com.haulmont.cuba.core.entity.Entity;
 import com.haulmont.cuba.core.entity.KeyValueEntity;
 import com.haulmont.cuba.core.global.*;
+import com.haulmont.cuba.core.sys.PagedLoadSpliterator;
 import org.springframework.stereotype.Component;
 
 import javax.annotation.Nonnull;
@@ -32,6 +34,7 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
 import java.util.Set;
+import java.util.stream.Stream;
 
 @Component(DataManager.NAME)
 public class DataManagerClientImpl implements DataManager {
@@ -45,6 +48,9 @@ public class DataManagerClientImpl implements DataManager {
     @Inject
     protected EntityStates entityStates;
 
+    @Inject
+    protected ClientConfig clientConfig;
+
     @Nullable
     @Override
     public <E extends Entity> E load(LoadContext<E> context) {
@@ -57,6 +63,12 @@ public class DataManagerClientImpl implements DataManager {
         return dataService.loadList(context);
     }
 
+    @Override
+    public <E extends Entity> Stream<E> loadStream(LoadContext<E> context) {
+        // a cursor cannot be held open across remote calls, so pages are requested one by one
+        return PagedLoadSpliterator.stream(context, clientConfig.getLoadStreamPageSize(), dataService::loadList);
+    }
+
     @Override
     public long getCount(LoadContext<? extends Entity> context) {
         return dataService.getCount(context);
@@ -24,6 +24,7 @@ import com.haulmont.cuba.core.global.*;
 import com.haulmont.cuba.core.sys.AppContext;
 import com.haulmont.cuba.core.sys.remoting.LocalFileExchangeService;
 import com.haulmont.cuba.core.sys.remoting.discovery.ServerSelector;
+import org.apache.commons.codec.binary.Hex;
 import org.apache.http.HttpEntity;
 import org.apache.http.HttpResponse;
 import org.apache.http.HttpStatus;
@@ -44,6 +45,9 @@ import javax.inject.Inject;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InterruptedIOException;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.function.Supplier;
 
 import static com.haulmont.bali.util.Preconditions.checkNotNullArgument;
@@ -135,7 +139,8 @@ public class FileLoaderClientImpl implements FileLoader {
                     + "?s=" + userSessionSource.getUserSession().getId()
                     + "&f=" + fd.toUrlParam();
 
-            try (InputStream inputStream = inputStreamSupplier.get()) {
+            MessageDigest digest = createContentDigest();
+            try (InputStream inputStream = new DigestInputStream(inputStreamSupplier.get(), digest)) {
                 InputStreamProgressEntity.UploadProgressListener progressListener = null;
                 if (streamingListener != null) {
                     progressListener = streamingListener::onStreamingProgressChanged;
@@ -154,6 +159,7 @@ public class FileLoaderClientImpl implements FileLoader {
 
                     int statusCode = response.getStatusLine().getStatusCode();
                     if (statusCode == HttpStatus.SC_OK) {
+                        fd.setContentHash(Hex.encodeHexString(digest.digest()));
                         break;
                     } else {
                         log.debug("Unable to upload file to {}\n{}", url, response.getStatusLine());
@@ -183,7 +189,17 @@ public class FileLoaderClientImpl implements FileLoader {
     protected void saveStreamLocally(FileDescriptor fd, Supplier<InputStream> inputStream) throws FileStorageException {
         // cannot be injected since there is no implementation for Desktop
         LocalFileExchangeService localFileExchangeService = AppBeans.get(LocalFileExchangeService.NAME);
-        localFileExchangeService.uploadFile(inputStream.get(), fd);
+        MessageDigest digest = createContentDigest();
+        localFileExchangeService.uploadFile(new DigestInputStream(inputStream.get(), digest), fd);
+        fd.setContentHash(Hex.encodeHexString(digest.digest()));
+    }
+
+    protected MessageDigest createContentDigest() {
+        try {
+            return MessageDigest.getInstance(CONTENT_HASH_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException("Unable to compute content hash", e);
+        }
     }
 
     protected InputStream openStreamLocally(FileDescriptor fd) throws FileStorageException {
@@ -17,6 +17,7 @@
 package com.haulmont.cuba.client.sys.config;
 
 import com.haulmont.cuba.core.app.ConfigStorageService;
+import com.haulmont.cuba.core.config.ConfigHandler;
 import com.haulmont.cuba.core.config.ConfigPersister;
 import com.haulmont.cuba.core.config.SourceType;
 import com.haulmont.cuba.core.sys.AppContext;
@@ -100,12 +101,21 @@ public class ConfigPersisterClientImpl implements ConfigPersister {
                     cache.remove(name);
                 }
                 getConfigStorage().setDbProperty(name, value);
+                if (caching) {
+                    ConfigHandler.invalidateCachedValues();
+                }
                 break;
             default:
                 throw new UnsupportedOperationException("Unsupported config source type: " + sourceType);
         }
     }
 
+    @Override
+    public boolean isCacheable(SourceType sourceType) {
+        // DB-stored properties can be changed on the middleware without notification unless they are cached here
+        return sourceType == SourceType.APP || (sourceType == SourceType.DATABASE && caching);
+    }
+
     protected ConfigStorageService getConfigStorage() {
         return configStorageService;
     }
@@ -54,6 +54,7 @@ create table SYS_FILE (
     EXT varchar(20),
     FILE_SIZE bigint,
     CREATE_DATE timestamp,
+    CONTENT_HASH varchar(64),
     --
     primary key (ID)
 )^
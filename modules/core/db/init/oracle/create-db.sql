@@ -175,6 +175,7 @@ create table SYS_FILE (
     EXT varchar2(20 char),
     FILE_SIZE number(19),
     CREATE_DATE timestamp,
+    CONTENT_HASH varchar2(64 char),
     primary key(ID)
 )^
 
@@ -0,0 +1 @@
+alter table SYS_FILE add CONTENT_HASH varchar(64)^
@@ -26,6 +26,7 @@ import javax.persistence.LockModeType;
 import javax.persistence.TemporalType;
 import java.util.List;
 import java.util.Date;
+import java.util.stream.Stream;
 
 /**
  * Interface used to control query execution.
@@ -82,6 +83,19 @@ public interface Query {
     @CheckReturnValue
     Object getFirstResult();
 
+    /**
+     * Execute a SELECT query and return the query results as a lazily populated Stream backed by a database cursor.
+     * <br>Rows are fetched from the JDBC driver in portions of {@code fetchSize}, so the whole result set is never
+     * held in memory. The returned stream must be closed to release the cursor, and it must be consumed inside the
+     * transaction in which it was opened.
+     *
+     * @param fetchSize number of rows fetched from the database in one round trip
+     * @return a stream of the results
+     * @throws IllegalStateException if called for a Java Persistence query language UPDATE or DELETE statement
+     */
+    @CheckReturnValue
+    Stream getResultStream(int fetchSize);
+
     /**
      * Execute an update or delete statement.
      *
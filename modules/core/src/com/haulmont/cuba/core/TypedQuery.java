@@ -26,6 +26,7 @@ import javax.persistence.LockModeType;
 import javax.persistence.TemporalType;
 import java.util.Date;
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * Type-safe extension of Query interface.
@@ -42,6 +43,9 @@ public interface TypedQuery<T> extends Query {
     @Nullable
     T getFirstResult();
 
+    @Override
+    Stream<T> getResultStream(int fetchSize);
+
     @Override
     TypedQuery<T> setMaxResults(int maxResults);
 
@@ -40,7 +40,7 @@ public abstract class AbstractBeansMetadata {
     private static final Logger log = LoggerFactory.getLogger(AbstractBeansMetadata.class);
 
     protected List<String> beansToIgnore = Arrays.asList("cubaDataSource", "entityManagerFactory", "hibernateSessionFactory",
-            "mailSendTaskExecutor", "scheduler", "sqlSession", "sqlSessionFactory", "transactionManager",
+            "mailSendTaskExecutor", "entityLogWriteTaskExecutor", "scheduler", "sqlSession", "sqlSessionFactory", "transactionManager",
             "cuba_ServerInfoService", "cuba_LoginService", "cuba_AuthenticationService", "cuba_TrustedClientService",
             "cuba_LocalizedMessageService");
 
@@ -17,6 +17,8 @@
 
 package com.haulmont.cuba.core.app;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.Sets;
 import com.haulmont.bali.util.Preconditions;
 import com.haulmont.chile.core.model.MetaClass;
@@ -28,6 +30,8 @@ import com.haulmont.cuba.core.entity.*;
 import com.haulmont.cuba.core.global.*;
 import com.haulmont.cuba.core.sys.SecurityTokenManager;
 import com.haulmont.cuba.core.sys.persistence.CubaEntityFetchGroup;
+import com.haulmont.cuba.security.global.UserSession;
+import com.haulmont.cuba.security.role.RoleDefinition;
 import org.eclipse.persistence.queries.FetchGroup;
 import org.eclipse.persistence.queries.FetchGroupTracker;
 import org.springframework.stereotype.Component;
@@ -35,6 +39,7 @@ import org.springframework.util.StringUtils;
 
 import javax.inject.Inject;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
 
 import static com.haulmont.cuba.core.entity.BaseEntityInternalAccess.*;
 import static java.lang.String.format;
@@ -68,6 +73,21 @@ public class AttributeSecuritySupport {
     @Inject
     protected EntityStates entityStates;
 
+    @Inject
+    protected UserSessionSource userSessionSource;
+
+    /**
+     * Paths of not permitted view properties by the joined role of a session, and then by the undefined access policy
+     * and the view signature.
+     * <p>
+     * Keys are {@link RoleDefinition} instances compared by identity. They are valid keys only because a joined role
+     * must not be modified after it is set to a session: permissions are changed by building a new role definition
+     * and passing it to {@link UserSession#setJoinedRole(RoleDefinition)}, which leads to a new cache entry. Entries
+     * of role definitions no longer used by any session are collected with them.
+     */
+    protected Cache<RoleDefinition, Cache<String, Set<String>>> notPermittedPathsCache =
+            CacheBuilder.newBuilder().weakKeys().build();
+
     /**
      * Removes restricted attributes from a view.
      *
@@ -83,18 +103,51 @@ public class AttributeSecuritySupport {
         View restrictedView = new View(view.getEntityClass(),
                 StringUtils.isEmpty(view.getName()) ? "" : view.getName() + "_restricted",
                 false); // do not include system properties in constructor because they will be copied later if exist
-        copyViewConsideringPermissions(view, restrictedView);
+        copyViewConsideringPermissions(view, restrictedView, "", getNotPermittedPaths(view));
         return restrictedView;
     }
 
-    private void copyViewConsideringPermissions(View srcView, View dstView) {
-        MetaClass metaClass = metadata.getClassNN(srcView.getEntityClass());
+    protected Set<String> getNotPermittedPaths(View view) {
+        int cacheMaxSize = config.getRestrictedViewCacheMaxSize();
+        UserSession userSession = userSessionSource.getUserSession();
+        if (cacheMaxSize <= 0 || userSession.getJoinedRole() == null) {
+            Set<String> paths = new HashSet<>();
+            collectNotPermittedPaths(view, "", paths);
+            return paths;
+        }
+        try {
+            Cache<String, Set<String>> roleCache = notPermittedPathsCache.get(userSession.getJoinedRole(),
+                    () -> CacheBuilder.newBuilder().maximumSize(cacheMaxSize).build());
+            String key = userSession.getPermissionUndefinedAccessPolicy() + ":" + view.getSignature();
+            return roleCache.get(key, () -> {
+                Set<String> paths = new HashSet<>();
+                collectNotPermittedPaths(view, "", paths);
+                return Collections.unmodifiableSet(paths);
+            });
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Error checking attribute permissions for view " + view, e.getCause());
+        }
+    }
+
+    private void collectNotPermittedPaths(View view, String prefix, Set<String> paths) {
+        MetaClass metaClass = metadata.getClassNN(view.getEntityClass());
+        for (ViewProperty property : view.getProperties()) {
+            if (!security.isEntityAttrReadPermitted(metaClass, property.getName())) {
+                paths.add(prefix + property.getName());
+            } else if (property.getView() != null) {
+                collectNotPermittedPaths(property.getView(), prefix + property.getName() + ".", paths);
+            }
+        }
+    }
+
+    private void copyViewConsideringPermissions(View srcView, View dstView, String prefix, Set<String> notPermittedPaths) {
         for (ViewProperty property : srcView.getProperties()) {
-            if (security.isEntityAttrReadPermitted(metaClass, property.getName())) {
+            String path = prefix + property.getName();
+            if (!notPermittedPaths.contains(path)) {
                 View viewCopy = null;
                 if (property.getView() != null) {
                     viewCopy = new View(property.getView().getEntityClass(), property.getView().getName() + "(restricted)", false);
-                    copyViewConsideringPermissions(property.getView(), viewCopy);
+                    copyViewConsideringPermissions(property.getView(), viewCopy, path + ".", notPermittedPaths);
                 }
                 dstView.addProperty(property.getName(), viewCopy, property.getFetchMode());
             }
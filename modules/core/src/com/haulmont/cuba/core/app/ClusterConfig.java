@@ -66,4 +66,19 @@ public interface ClusterConfig extends Config {
     @Property("cuba.cluster.messageSendingQueueCapacity")
     @DefaultInt(Integer.MAX_VALUE)
     int getClusterMessageSendingQueueCapacity();
+
+    /**
+     * @return time window in milliseconds in which asynchronously sent messages are collected to be sent to the
+     * cluster members in one compressed batch. 0 (by default) means that each message is sent separately
+     */
+    @Property("cuba.cluster.messageBatchingInterval")
+    @DefaultInt(0)
+    int getMessageBatchingInterval();
+
+    /**
+     * @return Maximum number of messages in one batch. The batch is sent immediately when this number is reached
+     */
+    @Property("cuba.cluster.messageBatchMaxSize")
+    @DefaultInt(500)
+    int getMessageBatchMaxSize();
 }
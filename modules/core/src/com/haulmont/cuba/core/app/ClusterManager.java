@@ -38,16 +38,17 @@ import org.springframework.context.event.EventListener;
 import org.springframework.core.annotation.Order;
 import org.springframework.stereotype.Component;
 
+import javax.annotation.Nullable;
 import javax.annotation.PostConstruct;
 import javax.inject.Inject;
 import javax.management.MBeanServer;
 import java.io.*;
 import java.lang.management.ManagementFactory;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
 
 /**
  * Standard implementation of middleware clustering based on JGroups.
@@ -65,6 +66,12 @@ public class ClusterManager implements ClusterManagerAPI {
 
     protected ThreadPoolExecutor executor;
 
+    protected ScheduledExecutorService batchScheduler;
+
+    protected final Object batchLock = new Object();
+
+    protected List<Serializable> pendingMessages = new ArrayList<>();
+
     @Inject
     protected Resources resources;
 
@@ -90,9 +97,17 @@ public class ClusterManager implements ClusterManagerAPI {
                 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(clusterConfig.getClusterMessageSendingQueueCapacity()),
                 new ThreadFactoryBuilder().setNameFormat("ClusterManagerMessageSender-%d").build(),
                 (r, executor) -> {
-                    SendMessageRunnable sendMessageRunnable = (SendMessageRunnable) r;
-                    log.info("Queue capacity is exceeded. Message: {}: {}", sendMessageRunnable.message.getClass(), sendMessageRunnable.message);
+                    if (r instanceof SendBatchRunnable) {
+                        log.info("Queue capacity is exceeded. Batch of {} messages", ((SendBatchRunnable) r).messages.size());
+                    } else {
+                        SendMessageRunnable sendMessageRunnable = (SendMessageRunnable) r;
+                        log.info("Queue capacity is exceeded. Message: {}: {}", sendMessageRunnable.message.getClass(), sendMessageRunnable.message);
+                    }
                 });
+        if (clusterConfig.getMessageBatchingInterval() > 0) {
+            batchScheduler = Executors.newSingleThreadScheduledExecutor(
+                    new ThreadFactoryBuilder().setNameFormat("ClusterManagerMessageBatcher-%d").setDaemon(true).build());
+        }
     }
 
     @EventListener(AppContextInitializedEvent.class)
@@ -105,6 +120,10 @@ public class ClusterManager implements ClusterManagerAPI {
 
     @EventListener(AppContextStoppedEvent.class)
     protected void applicationStopped() {
+        if (batchScheduler != null) {
+            batchScheduler.shutdown();
+            flushBatch();
+        }
         executor.shutdown();
         stop();
     }
@@ -117,12 +136,48 @@ public class ClusterManager implements ClusterManagerAPI {
         Boolean sync = forceSyncSending.get();
         if (sync != null && sync) {
             internalSend(message, true);
+        } else if (batchScheduler != null) {
+            log.trace("Adding message: {}: {} to the batch", message.getClass(), message);
+            addToBatch(message);
         } else {
             log.trace("Submitting message: {}: {} to send asynchronously", message.getClass(), message);
             executor.execute(new SendMessageRunnable(message));
         }
     }
 
+    protected void addToBatch(Serializable message) {
+        List<Serializable> batch = null;
+        synchronized (batchLock) {
+            pendingMessages.add(message);
+            if (pendingMessages.size() >= clusterConfig.getMessageBatchMaxSize()) {
+                batch = pendingMessages;
+                pendingMessages = new ArrayList<>();
+            } else if (pendingMessages.size() == 1) {
+                try {
+                    batchScheduler.schedule(this::flushBatch, clusterConfig.getMessageBatchingInterval(), TimeUnit.MILLISECONDS);
+                } catch (RejectedExecutionException e) {
+                    // the application is stopping, pending messages are sent by applicationStopped()
+                    log.debug("Unable to schedule sending of the batch", e);
+                }
+            }
+        }
+        if (batch != null) {
+            executor.execute(new SendBatchRunnable(batch));
+        }
+    }
+
+    protected void flushBatch() {
+        List<Serializable> batch;
+        synchronized (batchLock) {
+            if (pendingMessages.isEmpty()) {
+                return;
+            }
+            batch = pendingMessages;
+            pendingMessages = new ArrayList<>();
+        }
+        executor.execute(new SendBatchRunnable(batch));
+    }
+
     @Override
     public void sendSync(Serializable message) {
         if (channel == null)
@@ -131,7 +186,64 @@ public class ClusterManager implements ClusterManagerAPI {
         internalSend(message, true);
     }
 
+    @Override
+    public void send(String member, Serializable message) {
+        if (channel == null)
+            return;
+
+        Address address = findMember(member);
+        if (address == null) {
+            log.debug("Member {} is not in the current view, message {} is dropped", member, message);
+            return;
+        }
+        Boolean sync = forceSyncSending.get();
+        if (sync != null && sync) {
+            internalSend(message, address, true);
+        } else {
+            log.trace("Submitting message: {}: {} to send asynchronously to {}", message.getClass(), message, member);
+            executor.execute(new SendMessageRunnable(message, address));
+        }
+    }
+
+    @Override
+    public List<String> getMembers() {
+        View view = currentView;
+        if (view == null || channel == null)
+            return Collections.emptyList();
+
+        List<String> members = new ArrayList<>(view.size());
+        for (Address address : view.getMembers()) {
+            members.add(address.toString());
+        }
+        return members;
+    }
+
+    @Nullable
+    @Override
+    public String getLocalMember() {
+        JChannel channel = this.channel;
+        Address address = channel != null ? channel.getAddress() : null;
+        return address != null ? address.toString() : null;
+    }
+
+    @Nullable
+    protected Address findMember(String member) {
+        View view = currentView;
+        if (view == null)
+            return null;
+
+        for (Address address : view.getMembers()) {
+            if (address.toString().equals(member))
+                return address;
+        }
+        return null;
+    }
+
     protected void internalSend(Serializable message, boolean sync) {
+        internalSend(message, null, sync);
+    }
+
+    protected void internalSend(Serializable message, @Nullable Address destination, boolean sync) {
         StopWatch sw = new Slf4JStopWatch(String.format("sendClusterMessage(%s)", message.getClass().getSimpleName()));
         try {
             byte[] bytes;
@@ -146,13 +258,13 @@ public class ClusterManager implements ClusterManagerAPI {
             if (stat != null) {
                 stat.updateSent(bytes.length);
             }
-            Message msg = new Message()
+            Message msg = new Message(destination)
                     .setBuffer(bytes);
             if (sync) {
                 msg.setFlag(Message.Flag.RSVP);
             }
             try {
-                channel.send(msg);
+                sendToChannel(msg);
             } catch (Exception e) {
                 log.error("Error sending message", e);
             }
@@ -161,6 +273,79 @@ public class ClusterManager implements ClusterManagerAPI {
         }
     }
 
+    protected void internalSendBatch(List<Serializable> messages) {
+        List<Serializable> coalesced = coalesceMessages(messages);
+        if (coalesced.size() == 1) {
+            internalSend(coalesced.get(0), false);
+            return;
+        }
+        StopWatch sw = new Slf4JStopWatch("sendClusterMessageBatch");
+        try {
+            int count = 0;
+            ByteArrayOutputStream bos = new ByteArrayOutputStream();
+            try (DataOutputStream out = new DataOutputStream(new DeflaterOutputStream(bos))) {
+                for (Serializable message : coalesced) {
+                    byte[] bytes;
+                    try {
+                        bytes = SerializationSupport.serialize(message);
+                    } catch (Exception e) {
+                        log.error("Cluster message serialization error", e);
+                        continue;
+                    }
+                    out.writeInt(bytes.length);
+                    out.write(bytes);
+                    count++;
+
+                    MessageStat stat = messagesStat.get(message.getClass().getName());
+                    if (stat != null) {
+                        stat.updateSentInBatch(bytes.length);
+                    }
+                }
+            } catch (IOException e) {
+                log.error("Error compressing cluster message batch", e);
+                return;
+            }
+
+            byte[] bytes = SerializationSupport.serialize(new MessageBatch(count, bos.toByteArray()));
+            log.debug("Sending batch of {} messages ({} bytes)", count, bytes.length);
+            try {
+                sendToChannel(new Message().setBuffer(bytes));
+            } catch (Exception e) {
+                log.error("Error sending message batch", e);
+            }
+        } finally {
+            sw.stop();
+        }
+    }
+
+    protected void sendToChannel(Message msg) throws Exception {
+        JChannel channel = this.channel;
+        if (channel != null) {
+            channel.send(msg);
+        }
+    }
+
+    /**
+     * Removes repeated {@link IdempotentClusterMessage}s keeping the last of equal messages, so their effect on
+     * receiving nodes is not moved before other messages.
+     */
+    protected List<Serializable> coalesceMessages(List<Serializable> messages) {
+        Set<Serializable> idempotentMessages = new HashSet<>();
+        Deque<Serializable> result = new ArrayDeque<>(messages.size());
+        for (ListIterator<Serializable> it = messages.listIterator(messages.size()); it.hasPrevious(); ) {
+            Serializable message = it.previous();
+            if (message instanceof IdempotentClusterMessage && !idempotentMessages.add(message)) {
+                MessageStat stat = messagesStat.get(message.getClass().getName());
+                if (stat != null) {
+                    stat.updateCoalesced();
+                }
+                continue;
+            }
+            result.addFirst(message);
+        }
+        return new ArrayList<>(result);
+    }
+
     @Override
     public boolean getSyncSendingForCurrentThread() {
         return forceSyncSending.get() == null ? false : forceSyncSending.get();
@@ -275,7 +460,11 @@ public class ClusterManager implements ClusterManagerAPI {
 
     @Override
     public int getMessagesCount() {
-        return executor.getQueue().size();
+        int pendingCount;
+        synchronized (batchLock) {
+            pendingCount = pendingMessages.size();
+        }
+        return executor.getQueue().size() + pendingCount;
     }
 
     @Override
@@ -342,9 +531,11 @@ public class ClusterManager implements ClusterManagerAPI {
             MessageStat stat = entry.getValue();
             if (stat != null) {
                 messagesStats
-                        .append(String.format("Class: %s; received: %s, %s bytes; sent: %s, %s bytes\n",
+                        .append(String.format("Class: %s; received: %s, %s bytes; sent: %s, %s bytes; " +
+                                        "sent in batches: %s, coalesced: %s\n",
                                 entry.getKey(), stat.getReceivedMessages(), stat.getReceivedBytes(),
-                                stat.getSentMessages(), stat.getSentBytes()));
+                                stat.getSentMessages(), stat.getSentBytes(),
+                                stat.getBatchedMessages(), stat.getCoalescedMessages()));
             }
         }
         return messagesStats.toString();
@@ -399,22 +590,53 @@ public class ClusterManager implements ClusterManagerAPI {
                 log.debug("Null buffer received");
                 return;
             }
-            StopWatch sw = new Slf4JStopWatch();
-            String simpleClassName = null;
+            Serializable data;
             try {
-                Serializable data;
-                try {
-                    data = (Serializable) SerializationSupport.deserialize(bytes);
-                } catch (Exception e) {
-                    log.error("Cluster message deserialization error", e);
-                    throw new RuntimeException("Cluster message deserialization error", e);
+                data = (Serializable) SerializationSupport.deserialize(bytes);
+            } catch (Exception e) {
+                log.error("Cluster message deserialization error", e);
+                throw new RuntimeException("Cluster message deserialization error", e);
+            }
+            if (data instanceof MessageBatch) {
+                receiveBatch((MessageBatch) data);
+            } else {
+                dispatch(data, bytes.length);
+            }
+        }
+
+        protected void receiveBatch(MessageBatch batch) {
+            log.debug("Received batch of {} messages", batch.size);
+            try (DataInputStream in = new DataInputStream(new InflaterInputStream(new ByteArrayInputStream(batch.data)))) {
+                for (int i = 0; i < batch.size; i++) {
+                    byte[] bytes = new byte[in.readInt()];
+                    in.readFully(bytes);
+
+                    Serializable data;
+                    try {
+                        data = (Serializable) SerializationSupport.deserialize(bytes);
+                    } catch (Exception e) {
+                        log.error("Cluster message deserialization error", e);
+                        continue;
+                    }
+                    try {
+                        dispatch(data, bytes.length);
+                    } catch (RuntimeException e) {
+                        log.error("Error processing cluster message {}", data.getClass(), e);
+                    }
                 }
+            } catch (IOException e) {
+                log.error("Error reading cluster message batch", e);
+            }
+        }
+
+        protected void dispatch(Serializable data, int length) {
+            StopWatch sw = new Slf4JStopWatch();
+            try {
                 String className = data.getClass().getName();
-                simpleClassName = data.getClass().getSimpleName();
-                log.debug("Received message: {}: {} ({} bytes)", data.getClass(), data, bytes.length);
+                log.debug("Received message: {}: {} ({} bytes)", data.getClass(), data, length);
                 MessageStat stat = messagesStat.get(className);
                 if (stat != null) {
-                    stat.updateReceived(bytes.length);
+                    stat.updateReceived(length);
                 }
                 @SuppressWarnings("unchecked")
                 ClusterListener<Serializable> listener = listeners.get(className);
@@ -422,7 +644,7 @@ public class ClusterManager implements ClusterManagerAPI {
                     listener.receive(data);
                 }
             } finally {
-                sw.stop(String.format("receiveClusterMessage(%s)", simpleClassName));
+                sw.stop(String.format("receiveClusterMessage(%s)", data.getClass().getSimpleName()));
             }
         }
 
@@ -521,14 +743,48 @@ public class ClusterManager implements ClusterManagerAPI {
 
     protected class SendMessageRunnable implements Runnable {
         protected Serializable message;
+        protected Address destination;
 
         public SendMessageRunnable(Serializable message) {
             this.message = message;
         }
 
+        public SendMessageRunnable(Serializable message, Address destination) {
+            this.message = message;
+            this.destination = destination;
+        }
+
+        @Override
+        public void run() {
+            internalSend(message, destination, false);
+        }
+    }
+
+    protected class SendBatchRunnable implements Runnable {
+        protected List<Serializable> messages;
+
+        public SendBatchRunnable(List<Serializable> messages) {
+            this.messages = messages;
+        }
+
         @Override
         public void run() {
-            internalSend(message, false);
+            internalSendBatch(messages);
+        }
+    }
+
+    /**
+     * Frame containing several messages compressed together.
+     */
+    protected static class MessageBatch implements Serializable {
+        private static final long serialVersionUID = 4523158207693117035L;
+
+        protected int size;
+        protected byte[] data;
+
+        public MessageBatch(int size, byte[] data) {
+            this.size = size;
+            this.data = data;
         }
     }
 
@@ -537,6 +793,8 @@ public class ClusterManager implements ClusterManagerAPI {
         protected LongAdder receivedBytes = new LongAdder();
         protected LongAdder receivedMessages = new LongAdder();
         protected LongAdder sentMessages = new LongAdder();
+        protected LongAdder batchedMessages = new LongAdder();
+        protected LongAdder coalescedMessages = new LongAdder();
 
         public void updateReceived(int bytes) {
             receivedMessages.increment();
@@ -548,6 +806,23 @@ public class ClusterManager implements ClusterManagerAPI {
             sentBytes.add(bytes);
         }
 
+        public void updateSentInBatch(int bytes) {
+            updateSent(bytes);
+            batchedMessages.increment();
+        }
+
+        public void updateCoalesced() {
+            coalescedMessages.increment();
+        }
+
+        public long getBatchedMessages() {
+            return batchedMessages.longValue();
+        }
+
+        public long getCoalescedMessages() {
+            return coalescedMessages.longValue();
+        }
+
         public long getSentBytes() {
             return sentBytes.longValue();
         }
@@ -16,7 +16,10 @@
  */
 package com.haulmont.cuba.core.app;
 
+import javax.annotation.Nullable;
 import java.io.Serializable;
+import java.util.Collections;
+import java.util.List;
 
 /**
  * Interface defining methods for communication in a middleware cluster.
@@ -39,6 +42,36 @@ public interface ClusterManagerAPI {
      */
     void sendSync(Serializable message);
 
+    /**
+     * Send a message to the given cluster member asynchronously, unless synchronous sending is forced for the
+     * current thread. The message is dropped if the member is not in the current view.
+     * <p>
+     * The default implementation sends the message to all active cluster nodes.
+     *
+     * @param member  member name as returned by {@link #getMembers()}
+     * @param message serializable message
+     */
+    default void send(String member, Serializable message) {
+        send(message);
+    }
+
+    /**
+     * @return names of active cluster members in the order of the current view, including the current node.
+     * Empty list if the cluster is not started or the implementation does not expose its members.
+     */
+    default List<String> getMembers() {
+        return Collections.emptyList();
+    }
+
+    /**
+     * @return name of the current node in the cluster or null if the cluster is not started or the implementation
+     * does not expose its members
+     */
+    @Nullable
+    default String getLocalMember() {
+        return null;
+    }
+
     /**
      * @return whether the synchronous sending is forced for the current thread
      * @see #setSyncSendingForCurrentThread(boolean)
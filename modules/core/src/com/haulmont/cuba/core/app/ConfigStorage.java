@@ -20,6 +20,7 @@ import com.haulmont.bali.db.QueryRunner;
 import com.haulmont.bali.db.ResultSetHandler;
 import com.haulmont.bali.util.Preconditions;
 import com.haulmont.cuba.core.*;
+import com.haulmont.cuba.core.config.ConfigHandler;
 import com.haulmont.cuba.core.entity.Config;
 import com.haulmont.cuba.core.global.AppBeans;
 import com.haulmont.cuba.core.global.Metadata;
@@ -28,15 +29,12 @@ import org.slf4j.LoggerFactory;
 
 import org.springframework.stereotype.Component;
 import javax.inject.Inject;
-import java.io.Serializable;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 /**
  * Supports configuration parameters framework functionality.
@@ -50,16 +48,22 @@ public class ConfigStorage implements ConfigStorageAPI {
 
     protected ClusterManagerAPI clusterManager;
 
-    protected Map<String, String> cache;
-
-    protected ReadWriteLock lock = new ReentrantReadWriteLock();
-    protected Lock readLock = lock.readLock();
-    protected Lock writeLock = lock.writeLock();
+    protected volatile Map<String, String> cache;
 
     private static final Logger log = LoggerFactory.getLogger(ConfigStorage.class);
 
-    private static class InvalidateCacheMsg implements Serializable {
+    private static class InvalidateCacheMsg implements IdempotentClusterMessage {
         private static final long serialVersionUID = -3116358584797500962L;
+
+        @Override
+        public boolean equals(Object o) {
+            return o != null && getClass() == o.getClass();
+        }
+
+        @Override
+        public int hashCode() {
+            return getClass().hashCode();
+        }
     }
     
     @Inject
@@ -79,48 +83,32 @@ public class ConfigStorage implements ConfigStorageAPI {
         clusterManager.send(new InvalidateCacheMsg());
     }
 
-    private void internalClearCache() {
-        writeLock.lock();
-        try {
-            cache = null;
-        } finally {
-            writeLock.unlock();
-        }
+    private synchronized void internalClearCache() {
+        cache = null;
+        ConfigHandler.invalidateCachedValues();
     }
 
     @Override
     public Map<String, String> getDbProperties() {
-        readLock.lock();
-        try {
-            loadCache();
-            return new HashMap<>(cache);
-        } finally {
-            readLock.unlock();
-        }
+        return new HashMap<>(loadCache());
     }
 
     @Override
     public String getDbProperty(String name) {
-        readLock.lock();
-        try {
-            loadCache();
-            return cache.get(name);
-        } finally {
-            readLock.unlock();
-        }
+        return loadCache().get(name);
     }
 
-    protected void loadCache() {
-        if (cache == null) {
-            lock.readLock().unlock();
-            lock.writeLock().lock();
-            try {
-                if (cache == null) {
+    protected Map<String, String> loadCache() {
+        Map<String, String> properties = cache;
+        if (properties == null) {
+            synchronized (this) {
+                properties = cache;
+                if (properties == null) {
                     log.info("Loading DB-stored app properties cache");
                     // Don't use transactions here because of loop possibility from EntityLog
                     QueryRunner queryRunner = new QueryRunner(persistence.getDataSource());
                     try {
-                        cache = queryRunner.query("select NAME, VALUE_ from SYS_CONFIG",
+                        properties = queryRunner.query("select NAME, VALUE_ from SYS_CONFIG",
                                 new ResultSetHandler<Map<String, String>>() {
                                     @Override
                                     public Map<String, String> handle(ResultSet rs) throws SQLException {
@@ -134,12 +122,12 @@ public class ConfigStorage implements ConfigStorageAPI {
                     } catch (SQLException e) {
                         throw new RuntimeException("Error loading DB-stored app properties cache", e);
                     }
+                    properties = Collections.unmodifiableMap(properties);
+                    cache = properties;
                 }
-            } finally {
-                lock.readLock().lock();
-                lock.writeLock().unlock();
             }
         }
+        return properties;
     }
 
     @Override
@@ -17,6 +17,7 @@
 
 package com.haulmont.cuba.core.app;
 
+import com.google.common.collect.Iterators;
 import com.haulmont.chile.core.model.MetaClass;
 import com.haulmont.chile.core.model.MetaProperty;
 import com.haulmont.cuba.core.entity.*;
@@ -32,6 +33,8 @@ import javax.inject.Inject;
 import javax.validation.ConstraintViolation;
 import javax.validation.Validator;
 import java.util.*;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 @Component(DataManager.NAME)
 public class DataManagerBean implements DataManager {
@@ -80,6 +83,24 @@ public class DataManagerBean implements DataManager {
         return entities;
     }
 
+    @Override
+    public <E extends Entity> Stream<E> loadStream(LoadContext<E> context) {
+        MetaClass metaClass = metadata.getClassNN(context.getMetaClass());
+        DataStore storage = storeFactory.get(getStoreName(metaClass));
+        Stream<E> entities = storage.loadStream(context);
+        if (Stores.getAdditional().isEmpty() || context.getView() == null)
+            return entities;
+
+        Iterator<List<E>> chunks = Iterators.partition(entities.iterator(), serverConfig.getLoadStreamFetchSize());
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(chunks, Spliterator.ORDERED), false)
+                .map(chunk -> {
+                    readCrossDataStoreReferences(chunk, context.getView(), metaClass, context.isJoinTransaction());
+                    return chunk;
+                })
+                .flatMap(List::stream)
+                .onClose(entities::close);
+    }
+
     @Override
     public long getCount(LoadContext<? extends Entity> context) {
         MetaClass metaClass = metadata.getClassNN(context.getMetaClass());
@@ -265,6 +286,7 @@ public class DataManagerBean implements DataManager {
         newCtx.setDiscardCommitted(context.isDiscardCommitted());
         newCtx.setAuthorizationRequired(context.isAuthorizationRequired());
         newCtx.setJoinTransaction(context.isJoinTransaction());
+        newCtx.setBulkMode(context.isBulkMode());
         newCtx.setValidationMode(context.getValidationMode());
         newCtx.setValidationGroups(context.getValidationGroups());
         return newCtx;
@@ -398,6 +420,12 @@ public class DataManagerBean implements DataManager {
             return dataManager.loadList(context);
         }
 
+        @Override
+        public <E extends Entity> Stream<E> loadStream(LoadContext<E> context) {
+            context.setAuthorizationRequired(true);
+            return dataManager.loadStream(context);
+        }
+
         @Override
         public List<KeyValueEntity> loadValues(ValueLoadContext context) {
             context.setAuthorizationRequired(true);
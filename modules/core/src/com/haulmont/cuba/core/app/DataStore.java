@@ -18,13 +18,17 @@ package com.haulmont.cuba.core.app;
 
 import com.haulmont.cuba.core.entity.Entity;
 import com.haulmont.cuba.core.entity.KeyValueEntity;
+import com.haulmont.cuba.core.global.AppBeans;
 import com.haulmont.cuba.core.global.CommitContext;
+import com.haulmont.cuba.core.global.Configuration;
 import com.haulmont.cuba.core.global.LoadContext;
 import com.haulmont.cuba.core.global.ValueLoadContext;
+import com.haulmont.cuba.core.sys.PagedLoadSpliterator;
 
 import javax.annotation.Nullable;
 import java.util.List;
 import java.util.Set;
+import java.util.stream.Stream;
 
 /**
  * Interface defining methods for storing and loading entities in a persistent storage.
@@ -47,6 +51,17 @@ public interface DataStore {
      */
     <E extends Entity> List<E> loadList(LoadContext<E> context);
 
+    /**
+     * Loads entity instances as a stream. The stream must be closed by the caller.
+     * <p>The default implementation loads instances page by page through {@link #loadList(LoadContext)},
+     * data stores able to hold a database cursor should override it.</p>
+     * @return a stream of instances
+     */
+    default <E extends Entity> Stream<E> loadStream(LoadContext<E> context) {
+        ServerConfig serverConfig = AppBeans.get(Configuration.class).getConfig(ServerConfig.class);
+        return PagedLoadSpliterator.stream(context, serverConfig.getLoadStreamFetchSize(), this::loadList);
+    }
+
     /**
      * Returns the number of entity instances for the given query passed in the {@link LoadContext}.
      * @return number of instances in the storage
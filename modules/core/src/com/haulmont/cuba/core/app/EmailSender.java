@@ -28,6 +28,7 @@ import org.perf4j.StopWatch;
 import org.perf4j.slf4j.Slf4JStopWatch;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.mail.MailSendException;
 import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.stereotype.Component;
 
@@ -42,6 +43,10 @@ import javax.mail.internet.*;
 import java.io.*;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 @Component(EmailSenderAPI.NAME)
 public class EmailSender implements EmailSenderAPI {
@@ -72,6 +77,48 @@ public class EmailSender implements EmailSenderAPI {
         log.info("Email '{}' to '{}' has been sent successfully", msg.getSubject(), sendingMessage.getAddress());
     }
 
+    @Override
+    public Map<SendingMessage, Exception> sendEmails(List<SendingMessage> sendingMessages) {
+        Map<SendingMessage, Exception> failures = new HashMap<>();
+        Map<MimeMessage, SendingMessage> mimeMessages = new LinkedHashMap<>();
+        for (SendingMessage sendingMessage : sendingMessages) {
+            try {
+                mimeMessages.put(createMimeMessage(sendingMessage), sendingMessage);
+            } catch (MessagingException | RuntimeException e) {
+                failures.put(sendingMessage, e);
+            }
+        }
+        if (mimeMessages.isEmpty()) {
+            return failures;
+        }
+
+        StopWatch sw = new Slf4JStopWatch("EmailSender.sendBatch");
+        try {
+            // JavaMailSender sends all messages passed in one call over the same transport
+            mailSender.send(mimeMessages.keySet().toArray(new MimeMessage[0]));
+        } catch (MailSendException e) {
+            Map<Object, Exception> failedMessages = e.getFailedMessages();
+            if (failedMessages.isEmpty()) {
+                mimeMessages.values().forEach(sendingMessage -> failures.put(sendingMessage, e));
+            } else {
+                failedMessages.forEach((mimeMessage, exception) ->
+                        failures.put(mimeMessages.get(mimeMessage), exception));
+            }
+        } catch (RuntimeException e) {
+            mimeMessages.values().forEach(sendingMessage -> failures.put(sendingMessage, e));
+        } finally {
+            sw.stop();
+        }
+
+        for (SendingMessage sendingMessage : mimeMessages.values()) {
+            if (!failures.containsKey(sendingMessage)) {
+                log.info("Email '{}' to '{}' has been sent successfully",
+                        sendingMessage.getCaption(), sendingMessage.getAddress());
+            }
+        }
+        return failures;
+    }
+
     @Override
     public void updateSession() {
         if (mailSender instanceof CubaMailSender)
@@ -20,6 +20,9 @@ package com.haulmont.cuba.core.app;
 import com.haulmont.cuba.core.entity.SendingMessage;
 
 import javax.mail.MessagingException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
  * Adapter to javax.mail email sending API.
@@ -39,5 +42,23 @@ public interface EmailSenderAPI {
      */
     void sendEmail(SendingMessage sendingMessage) throws MessagingException;
 
+    /**
+     * Sends emails over a single connection to the mail server if possible.
+     * Message bodies and attachments' content must be loaded from file storage.
+     *
+     * @return exceptions of the messages which have not been delivered, empty map if all messages have been sent
+     */
+    default Map<SendingMessage, Exception> sendEmails(List<SendingMessage> sendingMessages) {
+        Map<SendingMessage, Exception> failures = new HashMap<>();
+        for (SendingMessage sendingMessage : sendingMessages) {
+            try {
+                sendEmail(sendingMessage);
+            } catch (Exception e) {
+                failures.put(sendingMessage, e);
+            }
+        }
+        return failures;
+    }
+
     void updateSession();
 }
\ No newline at end of file
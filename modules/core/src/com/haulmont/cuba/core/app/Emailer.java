@@ -17,8 +17,10 @@
 package com.haulmont.cuba.core.app;
 
 import com.google.common.base.Strings;
+import com.google.common.collect.Lists;
 import com.haulmont.cuba.core.EntityManager;
 import com.haulmont.cuba.core.Persistence;
+import com.haulmont.cuba.core.Query;
 import com.haulmont.cuba.core.Transaction;
 import com.haulmont.cuba.core.TypedQuery;
 import com.haulmont.cuba.core.entity.FileDescriptor;
@@ -26,6 +28,7 @@ import com.haulmont.cuba.core.entity.SendingAttachment;
 import com.haulmont.cuba.core.entity.SendingMessage;
 import com.haulmont.cuba.core.global.*;
 import com.haulmont.cuba.core.sys.AppContext;
+import com.haulmont.cuba.core.sys.persistence.DbmsSpecificFactory;
 import com.haulmont.cuba.security.app.Authentication;
 import com.sun.mail.smtp.SMTPAddressFailedException;
 import org.apache.commons.io.FilenameUtils;
@@ -41,11 +44,14 @@ import javax.annotation.Nullable;
 import javax.annotation.Resource;
 import javax.inject.Inject;
 import javax.mail.internet.AddressException;
+import javax.persistence.TemporalType;
 import java.io.Serializable;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 @Component(EmailerAPI.NAME)
 public class Emailer implements EmailerAPI {
@@ -58,6 +64,8 @@ public class Emailer implements EmailerAPI {
 
     protected AtomicInteger callCount = new AtomicInteger(0);
 
+    protected final Map<String, DomainSendingWindow> domainSendingWindows = new HashMap<>();
+
     @Resource(name = "mailSendTaskExecutor")
     protected TaskExecutor mailSendTaskExecutor;
 
@@ -195,12 +203,16 @@ public class Emailer implements EmailerAPI {
         return sendingMessageList;
     }
 
-    protected void sendSendingMessage(SendingMessage sendingMessage) {
+    protected void checkSendingMessage(SendingMessage sendingMessage) {
         Objects.requireNonNull(sendingMessage, "sendingMessage is null");
         Objects.requireNonNull(sendingMessage.getAddress(), "sendingMessage.address is null");
         Objects.requireNonNull(sendingMessage.getCaption(), "sendingMessage.caption is null");
         Objects.requireNonNull(sendingMessage.getContentText(), "sendingMessage.contentText is null");
         Objects.requireNonNull(sendingMessage.getFrom(), "sendingMessage.from is null");
+    }
+
+    protected void sendSendingMessage(SendingMessage sendingMessage) {
+        checkSendingMessage(sendingMessage);
         try {
             emailSender.sendEmail(sendingMessage);
             markAsSent(sendingMessage);
@@ -214,6 +226,42 @@ public class Emailer implements EmailerAPI {
         }
     }
 
+    protected void sendSendingMessages(List<SendingMessage> sendingMessages) {
+        List<SendingMessage> validMessages = new ArrayList<>(sendingMessages.size());
+        List<SendingMessage> sentMessages = new ArrayList<>();
+        List<SendingMessage> messagesToRetry = new ArrayList<>();
+        List<SendingMessage> nonSentMessages = new ArrayList<>();
+
+        for (SendingMessage sendingMessage : sendingMessages) {
+            try {
+                checkSendingMessage(sendingMessage);
+                validMessages.add(sendingMessage);
+            } catch (NullPointerException e) {
+                log.error("Unable to send email " + sendingMessage, e);
+                nonSentMessages.add(sendingMessage);
+            }
+        }
+
+        Map<SendingMessage, Exception> failures = emailSender.sendEmails(validMessages);
+        for (SendingMessage sendingMessage : validMessages) {
+            Exception e = failures.get(sendingMessage);
+            if (e == null) {
+                sentMessages.add(sendingMessage);
+            } else {
+                log.warn("Unable to send email to '" + sendingMessage.getAddress() + "'", e);
+                if (isNeedToRetry(e)) {
+                    messagesToRetry.add(sendingMessage);
+                } else {
+                    nonSentMessages.add(sendingMessage);
+                }
+            }
+        }
+
+        markAsSent(sentMessages);
+        returnToQueue(messagesToRetry);
+        markAsNonSent(nonSentMessages);
+    }
+
     protected void persistAndSendEmail(EmailInfo emailInfo) throws EmailException {
         Objects.requireNonNull(emailInfo.getAddresses(), "addresses are null");
         Objects.requireNonNull(emailInfo.getCaption(), "caption is null");
@@ -313,8 +361,15 @@ public class Emailer implements EmailerAPI {
     protected String sendQueuedEmails() {
         List<SendingMessage> messagesToSend = loadEmailsToSend();
 
-        for (SendingMessage msg : messagesToSend) {
-            submitExecutorTask(msg);
+        int batchSize = config.getSendingBatchSize();
+        if (batchSize > 1) {
+            for (List<SendingMessage> batch : Lists.partition(messagesToSend, batchSize)) {
+                submitExecutorTask(new ArrayList<>(batch));
+            }
+        } else {
+            for (SendingMessage msg : messagesToSend) {
+                submitExecutorTask(msg);
+            }
         }
 
         if (messagesToSend.isEmpty()) {
@@ -354,6 +409,22 @@ public class Emailer implements EmailerAPI {
         }
     }
 
+    protected void submitExecutorTask(List<SendingMessage> messages) {
+        try {
+            Runnable mailSendTask = new EmailBatchSendTask(messages);
+            mailSendTaskExecutor.execute(mailSendTask);
+        } catch (RejectedExecutionException e) {
+            returnToQueue(messages);
+        } catch (Exception e) {
+            log.error("Exception while sending emails: ", e);
+            if (isNeedToRetry(e)) {
+                returnToQueue(messages);
+            } else {
+                markAsNonSent(messages);
+            }
+        }
+    }
+
     protected List<SendingMessage> loadEmailsToSend() {
         Date sendTimeoutTime = DateUtils.addSeconds(timeSource.currentTimestamp(), -config.getSendingTimeoutSec());
 
@@ -361,28 +432,43 @@ public class Emailer implements EmailerAPI {
 
         try (Transaction tx = persistence.createTransaction()) {
             EntityManager em = persistence.getEntityManager();
-            TypedQuery<SendingMessage> query = em.createQuery(
-                    "select sm from sys$SendingMessage sm" +
-                            " where sm.status = :statusQueue or (sm.status = :statusSending and sm.updateTs < :time)" +
-                            " order by sm.createTs",
-                    SendingMessage.class
-            );
-            query.setParameter("statusQueue", SendingStatus.QUEUE.getId());
-            query.setParameter("time", sendTimeoutTime);
-            query.setParameter("statusSending", SendingStatus.SENDING.getId());
+
+            String skipLockedClause = DbmsSpecificFactory.getDbmsFeatures().getSkipLockedSelectClause();
+            List<UUID> lockedIds = skipLockedClause != null ?
+                    lockEmailsToSend(em, sendTimeoutTime, skipLockedClause) : null;
+
+            TypedQuery<SendingMessage> query;
+            if (lockedIds != null) {
+                // messages are already locked by this transaction and skipped by concurrent ones
+                query = em.createQuery(
+                        "select sm from sys$SendingMessage sm where sm.id in :ids order by sm.createTs",
+                        SendingMessage.class
+                );
+                query.setParameter("ids", lockedIds);
+            } else {
+                query = em.createQuery(
+                        "select sm from sys$SendingMessage sm" +
+                                " where sm.status = :statusQueue or (sm.status = :statusSending and sm.updateTs < :time)" +
+                                " order by sm.createTs",
+                        SendingMessage.class
+                );
+                query.setParameter("statusQueue", SendingStatus.QUEUE.getId());
+                query.setParameter("time", sendTimeoutTime);
+                query.setParameter("statusSending", SendingStatus.SENDING.getId());
+                query.setMaxResults(config.getMessageQueueCapacity());
+            }
 
             View view = metadata.getViewRepository().getView(SendingMessage.class, "sendingMessage.loadFromQueue");
             view.setLoadPartialEntities(true); // because SendingAttachment.content has FetchType.LAZY
             query.setView(view);
 
-            query.setMaxResults(config.getMessageQueueCapacity());
-
-            List<SendingMessage> resList = query.getResultList();
+            List<SendingMessage> resList = lockedIds == null || !lockedIds.isEmpty() ?
+                    query.getResultList() : Collections.emptyList();
 
             for (SendingMessage msg : resList) {
                 if (shouldMarkNotSent(msg)) {
                     msg.setStatus(SendingStatus.NOTSENT);
-                } else {
+                } else if (acquireDomainPermit(msg)) {
                     msg.setStatus(SendingStatus.SENDING);
                     emailsToSend.add(msg);
                 }
@@ -396,6 +482,80 @@ public class Emailer implements EmailerAPI {
         return emailsToSend;
     }
 
+    /**
+     * Locks queued messages in the current transaction skipping the messages locked by concurrent transactions,
+     * so that messages are not sent twice when several nodes of a cluster process the queue.
+     *
+     * @return ids of the locked messages
+     */
+    protected List<UUID> lockEmailsToSend(EntityManager em, Date sendTimeoutTime, String skipLockedClause) {
+        Query query = em.createNativeQuery("select ID from SYS_SENDING_MESSAGE" +
+                " where DELETE_TS is null and (STATUS = ?1 or (STATUS = ?2 and UPDATE_TS < ?3))" +
+                " order by CREATE_TS " + String.format(skipLockedClause, config.getMessageQueueCapacity()));
+        query.setParameter(1, SendingStatus.QUEUE.getId());
+        query.setParameter(2, SendingStatus.SENDING.getId());
+        query.setParameter(3, sendTimeoutTime, TemporalType.TIMESTAMP);
+
+        List<UUID> ids = new ArrayList<>();
+        for (Object id : query.getResultList()) {
+            ids.add(id instanceof UUID ? (UUID) id : UUID.fromString(id.toString()));
+        }
+        return ids;
+    }
+
+    /**
+     * Counts the message against {@link EmailerConfig#getMaxMessagesPerDomainPerMinute()} for each domain
+     * of its recipients. The counters are local to this node and are not shared with other cluster members.
+     *
+     * @return false if the limit of any domain is exhausted, and the message must stay in the queue
+     */
+    protected boolean acquireDomainPermit(SendingMessage msg) {
+        int limit = config.getMaxMessagesPerDomainPerMinute();
+        if (limit <= 0) {
+            return true;
+        }
+
+        Set<String> domains = new HashSet<>();
+        collectRecipientDomains(msg.getAddress(), domains);
+        collectRecipientDomains(msg.getCc(), domains);
+        collectRecipientDomains(msg.getBcc(), domains);
+
+        long now = timeSource.currentTimeMillis();
+        synchronized (domainSendingWindows) {
+            for (String domain : domains) {
+                DomainSendingWindow window = domainSendingWindows.get(domain);
+                if (window != null && !window.isExpired(now) && window.count >= limit) {
+                    log.debug("Sending rate limit for domain '{}' is exceeded, email to '{}' stays in the queue",
+                            domain, msg.getAddress());
+                    return false;
+                }
+            }
+            for (String domain : domains) {
+                DomainSendingWindow window = domainSendingWindows.get(domain);
+                if (window == null || window.isExpired(now)) {
+                    window = new DomainSendingWindow(now);
+                    domainSendingWindows.put(domain, window);
+                }
+                window.count++;
+            }
+            domainSendingWindows.values().removeIf(window -> window.isExpired(now));
+        }
+        return true;
+    }
+
+    protected void collectRecipientDomains(@Nullable String addresses, Set<String> domains) {
+        if (StringUtils.isBlank(addresses)) {
+            return;
+        }
+        for (String address : addresses.split("[,;]")) {
+            String domain = StringUtils.substringAfterLast(address, "@");
+            domain = StringUtils.removeEnd(domain.trim(), ">").toLowerCase();
+            if (!domain.isEmpty()) {
+                domains.add(domain);
+            }
+        }
+    }
+
     @Override
     public String loadContentText(SendingMessage sendingMessage) {
         SendingMessage msg;
@@ -530,55 +690,64 @@ public class Emailer implements EmailerAPI {
     }
 
     protected void returnToQueue(SendingMessage sendingMessage) {
-        try (Transaction tx = persistence.createTransaction()) {
-            EntityManager em = persistence.getEntityManager();
-            SendingMessage msg = em.merge(sendingMessage);
+        returnToQueue(Collections.singletonList(sendingMessage));
+    }
 
+    protected void returnToQueue(List<SendingMessage> sendingMessages) {
+        updateMessages(sendingMessages, msg -> {
             msg.setAttemptsMade(msg.getAttemptsMade() + 1);
             msg.setStatus(SendingStatus.QUEUE);
-            if (config.isFileStorageUsed()) {
-                msg.setContentText(null);
-            }
-
-            tx.commit();
-        } catch (Exception e) {
-            log.error("Error returning message to '{}' to the queue", sendingMessage.getAddress(), e);
-        }
+        }, "returning to the queue");
     }
 
     protected void markAsSent(SendingMessage sendingMessage) {
-        try (Transaction tx = persistence.createTransaction()) {
-            EntityManager em = persistence.getEntityManager();
-            SendingMessage msg = em.merge(sendingMessage);
+        markAsSent(Collections.singletonList(sendingMessage));
+    }
 
+    protected void markAsSent(List<SendingMessage> sendingMessages) {
+        Date dateSent = timeSource.currentTimestamp();
+        updateMessages(sendingMessages, msg -> {
             msg.setStatus(SendingStatus.SENT);
             msg.setAttemptsMade(msg.getAttemptsMade() + 1);
-            msg.setDateSent(timeSource.currentTimestamp());
-            if (config.isFileStorageUsed()) {
-                msg.setContentText(null);
-            }
-
-            tx.commit();
-        } catch (Exception e) {
-            log.error("Error marking message to '{}' as sent", sendingMessage.getAddress(), e);
-        }
+            msg.setDateSent(dateSent);
+        }, "marking as sent");
     }
 
     protected void markAsNonSent(SendingMessage sendingMessage) {
-        try (Transaction tx = persistence.createTransaction()) {
-            EntityManager em = persistence.getEntityManager();
-            SendingMessage msg = em.merge(sendingMessage);
+        markAsNonSent(Collections.singletonList(sendingMessage));
+    }
 
+    protected void markAsNonSent(List<SendingMessage> sendingMessages) {
+        updateMessages(sendingMessages, msg -> {
             msg.setStatus(SendingStatus.NOTSENT);
             msg.setAttemptsMade(msg.getAttemptsMade() + 1);
-            if (config.isFileStorageUsed()) {
-                msg.setContentText(null);
-            }
-
+        }, "marking as not sent");
+    }
 
+    /**
+     * Applies the update to the stored state of the messages in one transaction. Messages are loaded by ids instead
+     * of merging, so the content loaded from file storage is not written back to the database.
+     */
+    protected void updateMessages(List<SendingMessage> sendingMessages, Consumer<SendingMessage> update,
+                                  String operation) {
+        if (sendingMessages.isEmpty()) {
+            return;
+        }
+        Integer maxIdsBatchSize = DbmsSpecificFactory.getDbmsFeatures().getMaxIdsBatchSize();
+        int batchSize = maxIdsBatchSize != null ? maxIdsBatchSize : sendingMessages.size();
+        try (Transaction tx = persistence.createTransaction()) {
+            EntityManager em = persistence.getEntityManager();
+            for (List<SendingMessage> batch : Lists.partition(sendingMessages, batchSize)) {
+                List<UUID> ids = batch.stream().map(SendingMessage::getId).collect(Collectors.toList());
+                em.createQuery("select sm from sys$SendingMessage sm where sm.id in :ids", SendingMessage.class)
+                        .setParameter("ids", ids)
+                        .getResultList()
+                        .forEach(update);
+            }
             tx.commit();
         } catch (Exception e) {
-            log.error("Error marking message to '{}' as not sent", sendingMessage.getAddress(), e);
+            log.error("Error {} messages to '{}'", operation,
+                    sendingMessages.stream().map(SendingMessage::getAddress).collect(Collectors.joining(", ")), e);
         }
     }
 
@@ -680,7 +849,9 @@ public class Emailer implements EmailerAPI {
     }
 
     protected boolean isNeedToRetry(Exception e) {
-        if (e instanceof MailSendException) {
+        if (e instanceof SMTPAddressFailedException) {
+            return false;
+        } else if (e instanceof MailSendException) {
             if (e.getCause() instanceof SMTPAddressFailedException) {
                 return false;
             }
@@ -771,6 +942,48 @@ public class Emailer implements EmailerAPI {
         }
     }
 
+    protected static class EmailBatchSendTask implements Runnable {
+
+        private List<SendingMessage> sendingMessages;
+        private static final Logger log = LoggerFactory.getLogger(EmailBatchSendTask.class);
+
+        public EmailBatchSendTask(List<SendingMessage> messages) {
+            sendingMessages = messages;
+        }
+
+        @Override
+        public void run() {
+            try {
+                Authentication authentication = AppBeans.get(Authentication.NAME);
+                Emailer emailer = AppBeans.get(EmailerAPI.NAME);
+
+                authentication.begin(emailer.getEmailerLogin());
+                try {
+                    emailer.sendSendingMessages(sendingMessages);
+                } finally {
+                    authentication.end();
+                }
+            } catch (Exception e) {
+                log.error("Exception while sending emails: ", e);
+            }
+        }
+    }
+
+    protected static class DomainSendingWindow {
+        protected static final long DURATION_MS = 60_000;
+
+        protected final long start;
+        protected int count;
+
+        protected DomainSendingWindow(long start) {
+            this.start = start;
+        }
+
+        protected boolean isExpired(long now) {
+            return now - start >= DURATION_MS;
+        }
+    }
+
     protected static class MessagePersistingContext {
         public final List<FileDescriptor> files = new ArrayList<>();
 
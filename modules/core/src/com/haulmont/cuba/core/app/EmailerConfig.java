@@ -161,6 +161,27 @@ public interface EmailerConfig extends Config {
     @DefaultInt(240)
     int getSendingTimeoutSec();
 
+    /**
+     * Max number of queued messages sent by one task of the sending executor over a single SMTP connection.
+     * Statuses of these messages are updated in one transaction.
+     */
+    @Property("cuba.email.sendingBatchSize")
+    @DefaultInt(10)
+    int getSendingBatchSize();
+
+    /**
+     * Max number of queued messages sent to recipients of the same domain per minute. Messages exceeding the limit
+     * stay in the queue until the next scheduler tick. 0 means no limit.
+     * <p>
+     * The limit is counted in memory of each middleware node, so in a cluster where several nodes process
+     * the queue, the total rate can be up to the number of nodes times this value.
+     */
+    @Property("cuba.email.maxMessagesPerDomainPerMinute")
+    @DefaultInt(0)
+    int getMaxMessagesPerDomainPerMinute();
+
+    void setMaxMessagesPerDomainPerMinute(int maxMessagesPerDomainPerMinute);
+
     /**
      * All emails go to this address if {@link #getSendAllToAdmin()} is enabled, regardless of actual recipient.
      */
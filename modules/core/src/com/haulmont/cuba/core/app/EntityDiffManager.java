@@ -85,8 +85,9 @@ public class EntityDiffManager {
 
         checkNotNull(second, "Diff could not be create for null snapshot");
 
-        // Extract views
-        View firstView = first != null ? snapshotAPI.extractView(first) : null;
+        // Extract views, the view of the first snapshot is needed only if it differs from the second one
+        View firstView = first != null && !Objects.equals(first.getViewXml(), second.getViewXml()) ?
+                snapshotAPI.extractView(first) : null;
         View secondView = snapshotAPI.extractView(second);
 
         // Get view for diff
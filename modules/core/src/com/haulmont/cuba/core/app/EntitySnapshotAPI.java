@@ -55,6 +55,17 @@ public interface EntitySnapshotAPI {
      */
     void migrateSnapshots(MetaClass metaClass, Object id, Map<Class, Class> classMapping);
 
+    /**
+     * Converts stored snapshots to the current format: legacy XML snapshots to JSON, and, if
+     * {@link ServerConfig#getEntitySnapshotCompression()} is on, uncompressed snapshots to compressed ones.
+     * Each batch is converted in a separate transaction, so the method can be invoked by a scheduled task
+     * or JMX while the application is running.
+     *
+     * @param batchSize number of snapshots converted in one transaction
+     * @return number of converted snapshots
+     */
+    int convertSnapshots(int batchSize);
+
     /**
      * Create snapshot for Entity and store it to database
      *
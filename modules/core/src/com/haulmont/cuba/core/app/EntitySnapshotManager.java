@@ -31,13 +31,24 @@ import com.haulmont.cuba.core.sys.CubaXStream;
 import com.haulmont.cuba.security.entity.User;
 import com.thoughtworks.xstream.XStream;
 import com.thoughtworks.xstream.mapper.MapperWrapper;
+import org.apache.commons.io.IOUtils;
 import org.dom4j.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
 
 import javax.annotation.Nullable;
 import javax.inject.Inject;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 import static java.lang.String.format;
@@ -45,6 +56,13 @@ import static java.lang.String.format;
 @Component(EntitySnapshotAPI.NAME)
 public class EntitySnapshotManager implements EntitySnapshotAPI {
 
+    private static final Logger log = LoggerFactory.getLogger(EntitySnapshotManager.class);
+
+    /**
+     * Prefix of Base64-encoded deflated content of snapshots and views.
+     */
+    protected static final String COMPRESSED_PREFIX = "deflate:";
+
     @Inject
     protected Persistence persistence;
 
@@ -75,6 +93,9 @@ public class EntitySnapshotManager implements EntitySnapshotAPI {
     @Inject
     protected DataManager dataManager;
 
+    @Inject
+    protected ServerConfig serverConfig;
+
     @Override
     public List<EntitySnapshot> getSnapshots(MetaClass metaClass, Object id) {
         metaClass = extendedEntities.getOriginalOrThisMetaClass(metaClass);
@@ -171,10 +192,18 @@ public class EntitySnapshotManager implements EntitySnapshotAPI {
 
     @Override
     public Entity extractEntity(EntitySnapshot snapshot) {
-        String rawResult = snapshot.getSnapshotXml();
+        return extractEntity(snapshot, false);
+    }
+
+    /**
+     * @param allAttributes whether to restore the attributes that are skipped in legacy XML snapshots when they
+     *                      are shown, i.e. {@code updateTs}, {@code updatedBy}, {@code createTs} and {@code createdBy}
+     */
+    protected Entity extractEntity(EntitySnapshot snapshot, boolean allAttributes) {
+        String rawResult = decode(snapshot.getSnapshotXml());
         BaseGenericIdEntity entity;
         if (isXml(rawResult)) {
-            entity = (BaseGenericIdEntity) fromXML(snapshot.getSnapshotXml());
+            entity = (BaseGenericIdEntity) fromXML(rawResult, allAttributes);
         } else {
             entity = entitySerializationAPI.entityFromJson(rawResult, metadata.getClass(snapshot.getEntityMetaClass()));
         }
@@ -183,7 +212,7 @@ public class EntitySnapshotManager implements EntitySnapshotAPI {
 
     @Override
     public View extractView(EntitySnapshot snapshot) {
-        String rawResult = snapshot.getViewXml();
+        String rawResult = decode(snapshot.getViewXml());
         View view;
         if (isXml(rawResult)) {
             view = (View) fromXML(rawResult);
@@ -198,7 +227,105 @@ public class EntitySnapshotManager implements EntitySnapshotAPI {
         return diffManager.getDifference(first, second);
     }
 
+    @Override
+    public int convertSnapshots(int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("batchSize must be positive");
+        }
+
+        boolean compression = serverConfig.getEntitySnapshotCompression();
+        String queryString = compression ?
+                "select s from sys$EntitySnapshot s where s.snapshotXml not like :pattern order by s.id" :
+                "select s from sys$EntitySnapshot s where s.snapshotXml like :pattern order by s.id";
+        String pattern = compression ? COMPRESSED_PREFIX + "%" : "<%";
+
+        int converted = 0;
+        // snapshots which cannot be converted stay in the result set, so they are skipped by offset
+        int skipped = 0;
+        int loaded;
+        do {
+            try (Transaction tx = persistence.createTransaction()) {
+                EntityManager em = persistence.getEntityManager();
+                List<EntitySnapshot> snapshots = em.createQuery(queryString, EntitySnapshot.class)
+                        .setParameter("pattern", pattern)
+                        .setFirstResult(skipped)
+                        .setMaxResults(batchSize)
+                        .getResultList();
+                loaded = snapshots.size();
+                for (EntitySnapshot snapshot : snapshots) {
+                    if (convertSnapshot(snapshot)) {
+                        converted++;
+                    } else {
+                        skipped++;
+                    }
+                }
+                tx.commit();
+            }
+            log.debug("Converted {} entity snapshots, skipped {}", converted, skipped);
+        } while (loaded == batchSize);
+
+        if (skipped > 0) {
+            log.warn("{} entity snapshots could not be converted", skipped);
+        }
+        return converted;
+    }
+
+    protected boolean convertSnapshot(EntitySnapshot snapshot) {
+        String snapshotContent;
+        String viewContent;
+        try {
+            // converted snapshot replaces the stored one, so it must keep all attributes
+            snapshotContent = entitySerializationAPI.toJson(extractEntity(snapshot, true));
+            viewContent = viewSerializationAPI.toJson(extractView(snapshot), ViewSerializationOption.COMPACT_FORMAT);
+        } catch (RuntimeException e) {
+            log.warn("Unable to convert entity snapshot {}", snapshot.getId(), e);
+            return false;
+        }
+        snapshot.setSnapshotXml(encode(snapshotContent));
+        snapshot.setViewXml(encode(viewContent));
+        return true;
+    }
+
+    /**
+     * Compresses the content if it is required by {@link ServerConfig#getEntitySnapshotCompression()}.
+     */
+    protected String encode(String content) {
+        if (!serverConfig.getEntitySnapshotCompression()) {
+            return content;
+        }
+        byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+        ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length / 4 + 16);
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        try (DeflaterOutputStream stream = new DeflaterOutputStream(out, deflater)) {
+            stream.write(bytes);
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to compress snapshot content", e);
+        } finally {
+            deflater.end();
+        }
+        return COMPRESSED_PREFIX + Base64.getEncoder().encodeToString(out.toByteArray());
+    }
+
+    /**
+     * Returns JSON or XML content regardless of whether it was stored compressed.
+     */
+    protected String decode(String content) {
+        if (content == null || !content.startsWith(COMPRESSED_PREFIX)) {
+            return content;
+        }
+        byte[] bytes = Base64.getDecoder().decode(content.substring(COMPRESSED_PREFIX.length()));
+        try (InputStream stream = new InflaterInputStream(new ByteArrayInputStream(bytes))) {
+            return IOUtils.toString(stream, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to decompress snapshot content", e);
+        }
+    }
+
     protected Object fromXML(String xml) {
+        return fromXML(xml, false);
+    }
+
+    protected Object fromXML(String xml, boolean allAttributes) {
         final List exclUpdateFields = Arrays.asList("updateTs", "updatedBy");
         XStream xStream = new CubaXStream() {
             @Override
@@ -211,7 +338,8 @@ public class EntitySnapshotManager implements EntitySnapshotAPI {
                             return false;
                         }
                         if (fieldName != null) {
-                            if (exclUpdateFields.contains(fieldName)
+                            if (!allAttributes
+                                    && exclUpdateFields.contains(fieldName)
                                     && Updatable.class.isAssignableFrom(definedIn)) {
                                 return false;
                             }
@@ -229,8 +357,10 @@ public class EntitySnapshotManager implements EntitySnapshotAPI {
         };
         XStream.setupDefaultSecurity(xStream);
         xStream.allowTypeHierarchy(Serializable.class);
-        xStream.omitField(BaseGenericIdEntity.class, "createTs");
-        xStream.omitField(BaseGenericIdEntity.class, "createdBy");
+        if (!allAttributes) {
+            xStream.omitField(BaseGenericIdEntity.class, "createTs");
+            xStream.omitField(BaseGenericIdEntity.class, "createdBy");
+        }
 
         return xStream.fromXML(xml);
     }
@@ -395,8 +525,8 @@ public class EntitySnapshotManager implements EntitySnapshotAPI {
         EntitySnapshot snapshot = metadata.create(EntitySnapshot.class);
         snapshot.setObjectEntityId(referenceToEntitySupport.getReferenceId(entity));
         snapshot.setEntityMetaClass(metaClass.getName());
-        snapshot.setViewXml(viewSerializationAPI.toJson(view, ViewSerializationOption.COMPACT_FORMAT));
-        snapshot.setSnapshotXml(entitySerializationAPI.toJson(entity));
+        snapshot.setViewXml(encode(viewSerializationAPI.toJson(view, ViewSerializationOption.COMPACT_FORMAT)));
+        snapshot.setSnapshotXml(encode(entitySerializationAPI.toJson(entity)));
         snapshot.setSnapshotDate(snapshotDate);
         snapshot.setAuthor(author);
 
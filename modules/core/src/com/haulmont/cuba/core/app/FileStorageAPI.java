@@ -17,9 +17,17 @@
 package com.haulmont.cuba.core.app;
 
 import com.haulmont.cuba.core.entity.FileDescriptor;
+import com.haulmont.cuba.core.global.FileLoader;
 import com.haulmont.cuba.core.global.FileStorageException;
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.BoundedInputStream;
 
+import java.io.IOException;
 import java.io.InputStream;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 
 /**
  * Interface to store and load files defined by {@link FileDescriptor}s.
@@ -27,6 +35,11 @@ import java.io.InputStream;
 public interface FileStorageAPI {
     String NAME = "cuba_FileStorage";
 
+    /**
+     * Algorithm of the hash returned by {@link #saveStreamWithHash(FileDescriptor, InputStream)}.
+     */
+    String CONTENT_HASH_ALGORITHM = FileLoader.CONTENT_HASH_ALGORITHM;
+
     /**
      * Save an InputStream contents into file storage.
      * @param fileDescr             file descriptor
@@ -37,6 +50,28 @@ public interface FileStorageAPI {
      */
     long saveStream(FileDescriptor fileDescr, InputStream inputStream) throws FileStorageException;
 
+    /**
+     * Save an InputStream contents into file storage computing a content hash along the way.
+     * The hash is also set to {@link FileDescriptor#getContentHash()}.
+     * @param fileDescr             file descriptor
+     * @param inputStream           input stream, must be closed in the calling code
+     * @return                      hex-encoded SHA-256 hash of the saved contents
+     * @throws IllegalArgumentException if arguments are incorrect
+     * @throws FileStorageException     if something goes wrong
+     */
+    default String saveStreamWithHash(FileDescriptor fileDescr, InputStream inputStream) throws FileStorageException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance(CONTENT_HASH_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException("Unable to compute content hash", e);
+        }
+        saveStream(fileDescr, new DigestInputStream(inputStream, digest));
+        String hash = Hex.encodeHexString(digest.digest());
+        fileDescr.setContentHash(hash);
+        return hash;
+    }
+
     /**
      * Save a byte array into file storage.
      * @param fileDescr             file descriptor
@@ -63,6 +98,42 @@ public interface FileStorageAPI {
      */
     InputStream openStream(FileDescriptor fileDescr) throws FileStorageException;
 
+    /**
+     * Return the size of a file contents as stored in the file storage.
+     * <p>The default implementation returns the size from the file descriptor.
+     * @param fileDescr             file descriptor
+     * @return                      size in bytes, or -1 if unknown
+     * @throws IllegalArgumentException if arguments are incorrect
+     * @throws FileStorageException     if something goes wrong
+     */
+    default long getFileSize(FileDescriptor fileDescr) throws FileStorageException {
+        Long size = fileDescr.getSize();
+        return size != null ? size : -1;
+    }
+
+    /**
+     * Return an input stream to load a range of a file contents, e.g. for partial downloads.
+     * @param fileDescr             file descriptor
+     * @param offset                number of bytes to skip from the beginning of the file
+     * @param length                maximum number of bytes to read
+     * @return                      input stream, must be closed after use
+     * @throws IllegalArgumentException if arguments are incorrect
+     * @throws FileStorageException     if something goes wrong
+     */
+    default InputStream openStream(FileDescriptor fileDescr, long offset, long length) throws FileStorageException {
+        if (offset < 0 || length < 0) {
+            throw new IllegalArgumentException("Offset and length must not be negative");
+        }
+        InputStream inputStream = openStream(fileDescr);
+        try {
+            IOUtils.skipFully(inputStream, offset);
+        } catch (IOException e) {
+            IOUtils.closeQuietly(inputStream);
+            throw new FileStorageException(FileStorageException.Type.IO_EXCEPTION, fileDescr.getId().toString(), e);
+        }
+        return new BoundedInputStream(inputStream, length);
+    }
+
     /**
      * Load a file contents into byte array.
      * @param fileDescr             file descriptor
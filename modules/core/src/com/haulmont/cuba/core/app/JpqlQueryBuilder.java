@@ -20,6 +20,7 @@ package com.haulmont.cuba.core.app;
 import com.google.common.base.Strings;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Maps;
+import com.haulmont.bali.util.Preconditions;
 import com.haulmont.bali.util.StringHelper;
 import com.haulmont.chile.core.model.MetaClass;
 import com.haulmont.chile.core.model.MetaProperty;
@@ -58,6 +59,7 @@ public class JpqlQueryBuilder {
     protected String[] noConversionParams;
     protected Condition condition;
     protected Sort sort;
+    protected List<Object> keysetValues;
 
     protected String entityName;
     protected List<String> valueProperties;
@@ -136,6 +138,11 @@ public class JpqlQueryBuilder {
         return this;
     }
 
+    public JpqlQueryBuilder setKeysetValues(List<Object> keysetValues) {
+        this.keysetValues = keysetValues;
+        return this;
+    }
+
     public JpqlQueryBuilder setPreviousResults(UUID sessionId, int queryKey) {
         this.previousResults = true;
         this.sessionId = sessionId;
@@ -201,8 +208,13 @@ public class JpqlQueryBuilder {
                     resultQuery = String.format("select e from %s e where e.%s = :entityId", entityName, getPrimaryKeyProperty().getName());
                     resultParameters = Maps.newHashMap(ImmutableMap.of("entityId", id));
                 } else if (ids != null && !ids.isEmpty()) {
-                    resultQuery = String.format("select e from %s e where e.%s in :entityIds", entityName, getPrimaryKeyProperty().getName());
-                    resultParameters = Maps.newHashMap(ImmutableMap.of("entityIds", ids));
+                    MetaProperty primaryKeyProperty = getPrimaryKeyProperty();
+                    if (primaryKeyProperty.getRange().isClass()) {
+                        buildEmbeddedIdsQuery(primaryKeyProperty);
+                    } else {
+                        resultQuery = String.format("select e from %s e where e.%s in :entityIds", entityName, primaryKeyProperty.getName());
+                        resultParameters = Maps.newHashMap(ImmutableMap.of("entityIds", ids));
+                    }
                 } else {
                     resultQuery = String.format("select e from %s e", entityName);
                     resultParameters = Collections.emptyMap();
@@ -210,16 +222,47 @@ public class JpqlQueryBuilder {
             }
         }
         applyFiltering();
+        applyKeyset();
         applySorting();
         restrictByPreviousResults();
     }
 
+    /**
+     * JPQL has no row value constructors, so composite ids are compared one by one and combined by "OR".
+     */
+    protected void buildEmbeddedIdsQuery(MetaProperty primaryKeyProperty) {
+        StringBuilder sb = new StringBuilder(String.format("select e from %s e where ", entityName));
+        resultParameters = new HashMap<>();
+        for (int i = 0; i < ids.size(); i++) {
+            if (i > 0) {
+                sb.append(" or ");
+            }
+            String paramName = "entityId" + i;
+            sb.append("e.").append(primaryKeyProperty.getName()).append(" = :").append(paramName);
+            resultParameters.put(paramName, ids.get(i));
+        }
+        resultQuery = sb.toString();
+    }
+
     protected void applySorting() {
         if (sort != null) {
             resultQuery = sortJpqlGenerator.processQuery(entityName, valueProperties, resultQuery, sort);
         }
     }
 
+    protected void applyKeyset() {
+        if (keysetValues != null) {
+            // value queries cannot be paged by keyset: ValueLoadContext.Query has no keyset values
+            Preconditions.checkNotNullArgument(entityName, "Keyset pagination requires an entity query");
+            Map<String, Object> parameters = resultParameters == null ? new HashMap<>() : new HashMap<>(resultParameters);
+            resultQuery = sortJpqlGenerator.processKeysetQuery(entityName, resultQuery, sort, keysetValues, parameters);
+            resultParameters = parameters;
+            if (sort == null || sort.getOrders().isEmpty()) {
+                sort = Sort.by(metadata.getTools().getPrimaryKeyName(metadata.getClassNN(entityName)));
+            }
+        }
+    }
+
     protected void applyFiltering() {
         if (condition != null) {
             Set<String> nonNullParamNames = queryParameters.entrySet().stream()
@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2008-2020 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.core.app;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.haulmont.cuba.core.sys.AppContext;
+import com.haulmont.cuba.core.sys.SecurityContext;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * INTERNAL.
+ * Bounded thread pool used by {@link RdbmsStore} to load batches of instances by ids in parallel.
+ * The number of threads is defined by {@link ServerConfig#getParallelLoadByIdsThreads()}.
+ */
+@Component(LoadByIdsExecutor.NAME)
+public class LoadByIdsExecutor {
+
+    public static final String NAME = "cuba_LoadByIdsExecutor";
+
+    protected static final ThreadLocal<Boolean> workerThread = new ThreadLocal<>();
+
+    @Inject
+    protected ServerConfig serverConfig;
+
+    protected ThreadPoolExecutor executor;
+
+    /**
+     * @return true if parallel loading is enabled and the current thread is not a worker of this executor
+     */
+    public boolean isParallelLoadEnabled() {
+        return serverConfig.getParallelLoadByIdsThreads() > 1 && workerThread.get() == null;
+    }
+
+    /**
+     * Executes the given tasks in parallel propagating the current security context, and waits for their completion.
+     *
+     * @return results in the order of tasks
+     */
+    public <T> List<T> invokeAll(List<Callable<T>> tasks) {
+        SecurityContext securityContext = AppContext.getSecurityContext();
+        List<Callable<T>> wrappedTasks = new ArrayList<>(tasks.size());
+        for (Callable<T> task : tasks) {
+            wrappedTasks.add(() -> {
+                AppContext.setSecurityContext(securityContext);
+                workerThread.set(Boolean.TRUE);
+                try {
+                    return task.call();
+                } finally {
+                    workerThread.remove();
+                    AppContext.setSecurityContext(null);
+                }
+            });
+        }
+
+        List<Future<T>> futures;
+        try {
+            futures = getExecutor().invokeAll(wrappedTasks);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while loading instances by ids", e);
+        }
+
+        List<T> results = new ArrayList<>(futures.size());
+        for (Future<T> future : futures) {
+            try {
+                results.add(future.get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted while loading instances by ids", e);
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                } else if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                throw new RuntimeException("Error loading instances by ids", cause);
+            }
+        }
+        return results;
+    }
+
+    protected synchronized ThreadPoolExecutor getExecutor() {
+        int threads = Math.max(serverConfig.getParallelLoadByIdsThreads(), 1);
+        if (executor == null) {
+            executor = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>(),
+                    new ThreadFactoryBuilder().setNameFormat("LoadByIds-%d").setDaemon(true).build());
+            executor.allowCoreThreadTimeOut(true);
+        } else if (executor.getMaximumPoolSize() != threads) {
+            if (threads > executor.getMaximumPoolSize()) {
+                executor.setMaximumPoolSize(threads);
+                executor.setCorePoolSize(threads);
+            } else {
+                executor.setCorePoolSize(threads);
+                executor.setMaximumPoolSize(threads);
+            }
+        }
+        return executor;
+    }
+
+    @PreDestroy
+    protected synchronized void shutdown() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+}
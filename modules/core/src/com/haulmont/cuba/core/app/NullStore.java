@@ -30,6 +30,7 @@ import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.stream.Stream;
 
 /**
  * INTERNAL.
@@ -56,6 +57,11 @@ public class NullStore implements DataStore {
         return Collections.emptyList();
     }
 
+    @Override
+    public <E extends Entity> Stream<E> loadStream(LoadContext<E> context) {
+        return Stream.empty();
+    }
+
     @Override
     public long getCount(LoadContext<? extends Entity> context) {
         return 0;
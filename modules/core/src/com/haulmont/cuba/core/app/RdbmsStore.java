@@ -16,6 +16,7 @@
 
 package com.haulmont.cuba.core.app;
 
+import com.google.common.collect.Iterators;
 import com.google.common.collect.Lists;
 import com.haulmont.bali.util.Preconditions;
 import com.haulmont.chile.core.model.MetaClass;
@@ -31,6 +32,7 @@ import com.haulmont.cuba.core.entity.contracts.Id;
 import com.haulmont.cuba.core.global.*;
 import com.haulmont.cuba.core.sys.EntityFetcher;
 import com.haulmont.cuba.core.sys.EntityReferencesNormalizer;
+import com.haulmont.cuba.core.sys.persistence.DbmsFeatures;
 import com.haulmont.cuba.core.sys.persistence.DbmsSpecificFactory;
 import com.haulmont.cuba.core.sys.persistence.EntityChangedEventInfo;
 import com.haulmont.cuba.core.sys.persistence.EntityChangedEventManager;
@@ -47,11 +49,15 @@ import org.springframework.stereotype.Component;
 
 import javax.annotation.Nullable;
 import javax.inject.Inject;
+import javax.persistence.FlushModeType;
 import javax.persistence.NoResultException;
 import java.util.*;
+import java.util.concurrent.Callable;
 import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * INTERNAL.
@@ -113,6 +119,9 @@ public class RdbmsStore implements DataStore {
     @Inject
     protected EntityReferencesNormalizer entityReferencesNormalizer;
 
+    @Inject
+    protected LoadByIdsExecutor loadByIdsExecutor;
+
     protected String storeName;
 
     public RdbmsStore(String storeName) {
@@ -231,9 +240,18 @@ public class RdbmsStore implements DataStore {
             View view = createRestrictedView(context);
 
             List<E> entities;
-            Integer maxIdsBatchSize = DbmsSpecificFactory.getDbmsFeatures(storeName).getMaxIdsBatchSize();
+            DbmsFeatures dbmsFeatures = DbmsSpecificFactory.getDbmsFeatures(storeName);
+            Integer maxIdsBatchSize = dbmsFeatures.getMaxIdsBatchSize();
             if (!context.getIds().isEmpty() && entityHasEmbeddedId(metaClass)) {
-                entities = loadListBySingleIds(context, em, view);
+                int maxEmbeddedIdsBatchSize = dbmsFeatures.getMaxEmbeddedIdsBatchSize();
+                if (maxEmbeddedIdsBatchSize > 1) {
+                    entities = loadListByBatchesOfIds(context, em, view,
+                            getIdsBatchSize(context, maxEmbeddedIdsBatchSize));
+                } else {
+                    entities = loadListBySingleIds(context, em, view);
+                }
+            } else if (!context.getIds().isEmpty() && isParallelLoadByIds(context)) {
+                entities = loadListByBatchesOfIds(context, em, view, getIdsBatchSize(context, maxIdsBatchSize));
             } else if (!context.getIds().isEmpty() && maxIdsBatchSize != null && context.getIds().size() > maxIdsBatchSize) {
                 entities = loadListByBatchesOfIds(context, em, view, maxIdsBatchSize);
             } else {
@@ -280,6 +298,104 @@ public class RdbmsStore implements DataStore {
         return resultList;
     }
 
+    @Override
+    @SuppressWarnings("unchecked")
+    public <E extends Entity> Stream<E> loadStream(LoadContext<E> context) {
+        if (log.isDebugEnabled())
+            log.debug("loadStream: metaClass=" + context.getMetaClass() + ", view=" + context.getView()
+                    + (context.getPrevQueries().isEmpty() ? "" : ", from selected")
+                    + ", query=" + context.getQuery());
+
+        MetaClass metaClass = metadata.getClassNN(context.getMetaClass());
+
+        if (isAuthorizationRequired(context) && !isEntityOpPermitted(metaClass, EntityOp.READ)) {
+            log.debug("reading of {} not permitted, returning empty stream", metaClass);
+            return Stream.empty();
+        }
+
+        if (!context.getIds().isEmpty()) {
+            // the list of identifiers is already in memory, so there is nothing to gain from a cursor
+            return loadList(context).stream();
+        }
+
+        queryResultsManager.savePreviousQueryResults(context);
+
+        int fetchSize = serverConfig.getLoadStreamFetchSize();
+        Transaction tx = getLoadTransaction(context.isJoinTransaction());
+        EntityManager em;
+        View view;
+        Stream<E> entities;
+        try {
+            em = persistence.getEntityManager(storeName);
+            em.setSoftDeletion(context.isSoftDeletion());
+
+            view = createRestrictedView(context);
+            Query query = createQuery(em, context, false, false);
+            query.setView(view);
+            entities = query.getResultStream(fetchSize);
+        } catch (RuntimeException e) {
+            tx.close();
+            throw e;
+        }
+
+        Iterator<List<E>> chunks = Iterators.partition(entities.iterator(), fetchSize);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(chunks, Spliterator.ORDERED), false)
+                .map(chunk -> processLoadedChunk(context, em, view, new ArrayList<>(chunk)))
+                .flatMap(List::stream)
+                .onClose(() -> {
+                    try {
+                        entities.close();
+                        tx.commit();
+                    } finally {
+                        tx.close();
+                    }
+                });
+    }
+
+    /**
+     * Applies the same processing to a portion of streamed entities as {@link #loadList(LoadContext)} applies to the
+     * whole result list, and detaches the entities to keep the persistence context small.
+     */
+    @SuppressWarnings("unchecked")
+    protected <E extends Entity> List<E> processLoadedChunk(LoadContext<E> context, EntityManager em, View view,
+                                                            List<E> chunk) {
+        if (needToFilterByInMemoryReadConstraints(context)) {
+            security.filterByConstraints((Collection<Entity>) chunk);
+        }
+        if (chunk.isEmpty()) {
+            return chunk;
+        }
+
+        if (chunk.get(0) instanceof BaseGenericIdEntity && context.isLoadDynamicAttributes()) {
+            dynamicAttributesManagerAPI.fetchDynamicAttributes((List<BaseGenericIdEntity>) chunk,
+                    collectEntityClassesWithDynamicAttributes(context.getView()));
+        }
+
+        boolean needToApplyInMemoryReadConstraints = needToApplyInMemoryReadConstraints(context);
+        if (needToApplyInMemoryReadConstraints) {
+            security.calculateFilteredData((Collection<Entity>) chunk);
+        }
+
+        attributeSecurity.onLoad(chunk, view);
+
+        if (context.isJoinTransaction()) {
+            em.flush();
+        }
+        for (E entity : chunk) {
+            detachEntity(em, entity, view);
+        }
+
+        if (needToApplyInMemoryReadConstraints) {
+            security.applyConstraints((Collection<Entity>) chunk);
+        }
+
+        if (isAuthorizationRequired(context)) {
+            attributeSecurity.afterLoad(chunk);
+        }
+
+        return chunk;
+    }
+
     protected boolean entityHasEmbeddedId(MetaClass metaClass) {
         MetaProperty pkProperty = metadataTools.getPrimaryKeyProperty(metaClass);
         return pkProperty == null || pkProperty.getRange().isClass();
@@ -316,6 +432,9 @@ public class RdbmsStore implements DataStore {
     @SuppressWarnings("unchecked")
     protected <E extends Entity> List<E> loadListByBatchesOfIds(LoadContext<E> context, EntityManager em, View view, int batchSize) {
         List<List<Object>> partitions = Lists.partition((List<Object>) context.getIds(), batchSize);
+        if (partitions.size() > 1 && isParallelLoadByIds(context)) {
+            return loadListByBatchesOfIdsInParallel(context, view, partitions);
+        }
 
         List<E> entities = new ArrayList<>(context.getIds().size());
         for (List partition : partitions) {
@@ -331,6 +450,53 @@ public class RdbmsStore implements DataStore {
         return entities;
     }
 
+    /**
+     * Loads each batch of ids in a separate read-only transaction using {@link LoadByIdsExecutor}.
+     * Returned instances are detached.
+     */
+    protected <E extends Entity> List<E> loadListByBatchesOfIdsInParallel(LoadContext<E> context, View view,
+                                                                           List<List<Object>> partitions) {
+        List<Callable<List<E>>> tasks = new ArrayList<>(partitions.size());
+        for (List<Object> partition : partitions) {
+            @SuppressWarnings("unchecked")
+            LoadContext<E> contextCopy = (LoadContext<E>) context.copy();
+            contextCopy.setIds(partition);
+
+            tasks.add(() -> {
+                TransactionParams txParams = new TransactionParams().setReadOnly(true);
+                try (Transaction tx = persistence.createTransaction(storeName, txParams)) {
+                    EntityManager em = persistence.getEntityManager(storeName);
+                    em.setSoftDeletion(context.isSoftDeletion());
+
+                    Query query = createQuery(em, contextCopy, false, false);
+                    query.setView(view);
+                    List<E> list = executeQuery(query, false);
+
+                    tx.commit();
+                    return list;
+                }
+            });
+        }
+
+        List<E> entities = new ArrayList<>(context.getIds().size());
+        for (List<E> list : loadByIdsExecutor.invokeAll(tasks)) {
+            entities.addAll(list);
+        }
+        return entities;
+    }
+
+    protected boolean isParallelLoadByIds(LoadContext<?> context) {
+        return !context.isJoinTransaction() && loadByIdsExecutor.isParallelLoadEnabled();
+    }
+
+    protected int getIdsBatchSize(LoadContext<?> context, @Nullable Integer maxIdsBatchSize) {
+        int batchSize = maxIdsBatchSize != null ? maxIdsBatchSize : Integer.MAX_VALUE;
+        if (isParallelLoadByIds(context)) {
+            batchSize = Math.min(batchSize, Math.max(serverConfig.getParallelLoadByIdsBatchSize(), 1));
+        }
+        return batchSize;
+    }
+
     @Override
     public long getCount(LoadContext<? extends Entity> context) {
         if (log.isDebugEnabled())
@@ -351,6 +517,8 @@ public class RdbmsStore implements DataStore {
         if (context.getQuery() == null) {
             context.setQuery(LoadContext.createQuery(null));
         }
+        // the number of instances is counted regardless of the current keyset page
+        context.getQuery().setKeysetValues(null);
         if (StringUtils.isBlank(context.getQuery().getQueryString())) {
             context.getQuery().setQueryString("select e from " + metaClass.getName() + " e");
         }
@@ -427,8 +595,13 @@ public class RdbmsStore implements DataStore {
 
             List<BaseGenericIdEntity> entitiesToStoreDynamicAttributes = new ArrayList<>();
 
+            Collection<Entity> commitInstances = getCommitInstances(context);
+
             // persist new
-            for (Entity entity : context.getCommitInstances()) {
+            // parallel lists keep the commit order of instances
+            List<Entity> persistedInstances = new ArrayList<>();
+            List<View> persistedViews = new ArrayList<>();
+            for (Entity entity : commitInstances) {
                 if (entityStates.isNew(entity)) {
                     if (isAuthorizationRequired(context)) {
                         attributeSecurity.beforePersist(entity);
@@ -441,9 +614,8 @@ public class RdbmsStore implements DataStore {
                         checkOperationPermitted(entity, EntityOp.CREATE);
 
                     if (!context.isDiscardCommitted()) {
-                        View view = getViewFromContextOrNull(context, entity);
-                        entityFetcher.fetch(entity, view, true);
-                        attributeSecurity.afterPersist(entity, view);
+                        persistedInstances.add(entity);
+                        persistedViews.add(getViewFromContextOrNull(context, entity));
                     }
 
                     if (entityHasDynamicAttributes(entity)) {
@@ -456,8 +628,21 @@ public class RdbmsStore implements DataStore {
                 }
             }
 
+            // detached references of all persisted instances are reloaded together
+            entityFetcher.fetch(persistedInstances, persistedViews, true);
+            for (int i = 0; i < persistedInstances.size(); i++) {
+                attributeSecurity.afterPersist(persistedInstances.get(i), persistedViews.get(i));
+            }
+
+            if (context.isBulkMode()) {
+                loadDetachedInstances(em, commitInstances);
+            }
+
             // merge the rest - instances can be detached or not
-            for (Entity entity : context.getCommitInstances()) {
+            Map<Entity, Entity> mergedInstances = new LinkedHashMap<>();
+            List<Entity> mergedList = new ArrayList<>();
+            List<View> mergedViews = new ArrayList<>();
+            for (Entity entity : commitInstances) {
                 if (!entityStates.isNew(entity)) {
                     if (isAuthorizationRequired(context)) {
                         security.assertToken(entity);
@@ -469,25 +654,30 @@ public class RdbmsStore implements DataStore {
 
                     Entity merged = em.merge(entity);
                     saved.add(merged);
+                    mergedInstances.put(entity, merged);
+                    mergedList.add(merged);
+                    mergedViews.add(getViewFromContext(context, entity));
+                }
+            }
 
-                    entityFetcher.fetch(merged, getViewFromContext(context, entity));
-                    attributeSecurity.afterMerge(merged);
+            entityFetcher.fetch(mergedList, mergedViews, false);
+            for (Map.Entry<Entity, Entity> entry : mergedInstances.entrySet()) {
+                Entity entity = entry.getKey();
+                Entity merged = entry.getValue();
+                attributeSecurity.afterMerge(merged);
 
-                    if (isAuthorizationRequired(context))
-                        checkOperationPermitted(merged, EntityOp.UPDATE);
+                if (isAuthorizationRequired(context))
+                    checkOperationPermitted(merged, EntityOp.UPDATE);
 
-                    if (entityHasDynamicAttributes(entity)) {
-                        BaseGenericIdEntity originalBaseGenericIdEntity = (BaseGenericIdEntity) entity;
-                        BaseGenericIdEntity mergedBaseGenericIdEntity = (BaseGenericIdEntity) merged;
-                        mergeDynamicAttributes(originalBaseGenericIdEntity, mergedBaseGenericIdEntity);
-                        entitiesToStoreDynamicAttributes.add(mergedBaseGenericIdEntity);
-                    }
+                if (entityHasDynamicAttributes(entity)) {
+                    BaseGenericIdEntity originalBaseGenericIdEntity = (BaseGenericIdEntity) entity;
+                    BaseGenericIdEntity mergedBaseGenericIdEntity = (BaseGenericIdEntity) merged;
+                    mergeDynamicAttributes(originalBaseGenericIdEntity, mergedBaseGenericIdEntity);
+                    entitiesToStoreDynamicAttributes.add(mergedBaseGenericIdEntity);
                 }
             }
 
-            for (BaseGenericIdEntity entity : entitiesToStoreDynamicAttributes) {
-                dynamicAttributesManagerAPI.storeDynamicAttributes(entity);
-            }
+            dynamicAttributesManagerAPI.storeDynamicAttributes(entitiesToStoreDynamicAttributes);
 
             // remove
             for (Entity entity : context.getRemoveInstances()) {
@@ -576,9 +766,7 @@ public class RdbmsStore implements DataStore {
 
         if (!identityEntitiesToStoreDynamicAttributes.isEmpty()) {
             try (Transaction tx = getSaveTransaction(storeName, context.isJoinTransaction())) {
-                for (BaseGenericIdEntity entity : identityEntitiesToStoreDynamicAttributes) {
-                    dynamicAttributesManagerAPI.storeDynamicAttributes(entity);
-                }
+                dynamicAttributesManagerAPI.storeDynamicAttributes(identityEntitiesToStoreDynamicAttributes);
                 tx.commit();
             }
         }
@@ -607,6 +795,68 @@ public class RdbmsStore implements DataStore {
         return context.isDiscardCommitted() ? Collections.emptySet() : resultEntities;
     }
 
+    protected Collection<Entity> getCommitInstances(CommitContext context) {
+        if (!context.isBulkMode()) {
+            return context.getCommitInstances();
+        }
+        Map<MetaClass, List<Entity>> instancesByMetaClass = new LinkedHashMap<>();
+        for (Entity entity : context.getCommitInstances()) {
+            instancesByMetaClass.computeIfAbsent(entity.getMetaClass(), k -> new ArrayList<>()).add(entity);
+        }
+        List<Entity> result = new ArrayList<>(context.getCommitInstances().size());
+        for (List<Entity> instances : instancesByMetaClass.values()) {
+            result.addAll(instances);
+        }
+        return result;
+    }
+
+    /**
+     * Loads detached instances to be merged into the persistence context by one query per entity and batch of ids,
+     * so merging does not load them one by one.
+     */
+    protected void loadDetachedInstances(EntityManager em, Collection<Entity> instances) {
+        Map<MetaClass, List<Object>> idsByMetaClass = new LinkedHashMap<>();
+        for (Entity entity : instances) {
+            if (!entityStates.isNew(entity) && entityStates.isDetached(entity) && entity.getId() != null) {
+                MetaClass metaClass = metadata.getExtendedEntities().getEffectiveMetaClass(entity.getMetaClass());
+                idsByMetaClass.computeIfAbsent(metaClass, k -> new ArrayList<>()).add(entity.getId());
+            }
+        }
+
+        int batchSize = Math.max(serverConfig.getBulkCommitBatchSize(), 1);
+        Integer maxIdsBatchSize = DbmsSpecificFactory.getDbmsFeatures(storeName).getMaxIdsBatchSize();
+        if (maxIdsBatchSize != null) {
+            batchSize = Math.min(batchSize, maxIdsBatchSize);
+        }
+
+        boolean softDeletion = em.isSoftDeletion();
+        // merge finds soft deleted instances too
+        em.setSoftDeletion(false);
+        try {
+            for (Map.Entry<MetaClass, List<Object>> entry : idsByMetaClass.entrySet()) {
+                MetaClass metaClass = entry.getKey();
+                List<Object> ids = entry.getValue();
+                String pkName = metadataTools.getPrimaryKeyName(metaClass);
+                if (ids.size() < 2
+                        || pkName == null
+                        || metadataTools.hasCompositePrimaryKey(metaClass)
+                        || BaseDbGeneratedIdEntity.class.isAssignableFrom(metaClass.getJavaClass())
+                        || metadataTools.isCacheable(metaClass)) {
+                    continue;
+                }
+                String queryString = String.format("select e from %s e where e.%s in :ids", metaClass.getName(), pkName);
+                for (int i = 0; i < ids.size(); i += batchSize) {
+                    em.createQuery(queryString)
+                            .setParameter("ids", ids.subList(i, Math.min(i + batchSize, ids.size())))
+                            .setFlushMode(FlushModeType.COMMIT)
+                            .getResultList();
+                }
+            }
+        } finally {
+            em.setSoftDeletion(softDeletion);
+        }
+    }
+
     protected void reloadIfUnfetched(Set<Entity> resultEntities, CommitContext context) {
         if (context.getViews().isEmpty())
             return;
@@ -761,7 +1011,8 @@ public class RdbmsStore implements DataStore {
                     .setQueryParameters(contextQuery.getParameters())
                     .setNoConversionParams(contextQuery.getNoConversionParams());
             if (!countQuery) {
-                queryBuilder.setSort(contextQuery.getSort());
+                queryBuilder.setSort(contextQuery.getSort())
+                        .setKeysetValues(contextQuery.getKeysetValues());
             }
         }
 
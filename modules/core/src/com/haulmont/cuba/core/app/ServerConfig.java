@@ -111,6 +111,49 @@ public interface ServerConfig extends Config {
     @DefaultInt(1)
     int getUserSessionTouchTimeoutSec();
 
+    /**
+     * If set to true, a user session is stored only on its owner and backup cluster members chosen by its id instead
+     * of all members. Other members fetch the session from owners on demand and keep it in the near-cache for
+     * {@link #getUserSessionNearCacheTimeoutSec()}. Last used timestamps are sent to owners aggregated.
+     * <p>
+     * Methods of {@link UserSessionsAPI} iterating over sessions return only sessions stored on the current member.
+     */
+    @Property("cuba.userSessionPartitioning")
+    @DefaultBoolean(false)
+    boolean getUserSessionPartitioning();
+
+    /**
+     * Number of cluster members keeping a copy of a user session in addition to its owner,
+     * if {@link #getUserSessionPartitioning()} is on.
+     */
+    @Property("cuba.userSessionBackupCount")
+    @DefaultInt(1)
+    int getUserSessionBackupCount();
+
+    /**
+     * Time in seconds a user session fetched from its owners is kept by a member after it was last used there,
+     * if {@link #getUserSessionPartitioning()} is on.
+     */
+    @Property("cuba.userSessionNearCacheTimeoutSec")
+    @DefaultInt(60)
+    int getUserSessionNearCacheTimeoutSec();
+
+    /**
+     * Time in milliseconds to wait for owners to return a user session missing on the current member,
+     * if {@link #getUserSessionPartitioning()} is on.
+     */
+    @Property("cuba.userSessionFetchTimeoutMs")
+    @DefaultInt(2000)
+    int getUserSessionFetchTimeoutMs();
+
+    /**
+     * Time in milliseconds during which a user session that was not found by its owners is not requested again,
+     * if {@link #getUserSessionPartitioning()} is on. 0 means that the session is requested on every access.
+     */
+    @Property("cuba.userSessionNotFoundCacheTimeoutMs")
+    @DefaultInt(1000)
+    int getUserSessionNotFoundCacheTimeoutMs();
+
     /**
      * @return DB scripts directory.
      * Does not end with "/"
@@ -292,6 +335,97 @@ public interface ServerConfig extends Config {
     @DefaultBoolean(true)
     boolean getUseReadOnlyTransactionForLoad();
 
+    /**
+     * @return number of rows fetched from the database in one round trip and processed at once by
+     * {@code DataManager.loadStream()}
+     */
+    @Property("cuba.loadStreamFetchSize")
+    @DefaultInt(500)
+    int getLoadStreamFetchSize();
+
+    /**
+     * @return number of threads loading batches of instances in parallel when {@code DataManager.loadList()} is
+     * invoked with a collection of ids outside of the current transaction. Each batch is loaded in a separate
+     * read-only transaction. 0 or 1 means that batches are loaded sequentially.
+     */
+    @Property("cuba.parallelLoadByIdsThreads")
+    @DefaultInt(0)
+    int getParallelLoadByIdsThreads();
+
+    /**
+     * @return maximum number of ids loaded by one query when batches of ids are loaded in parallel
+     */
+    @Property("cuba.parallelLoadByIdsBatchSize")
+    @DefaultInt(1000)
+    int getParallelLoadByIdsBatchSize();
+
+    /**
+     * @return whether the results of previous queries used by "apply to selected" filters are saved into
+     * SYS_QUERY_RESULT by a single {@code INSERT ... SELECT} statement executed on the database side instead of
+     * loading all ids to the middleware
+     */
+    @Property("cuba.queryResultsInsertSelect")
+    @DefaultBoolean(false)
+    boolean getQueryResultsInsertSelect();
+
+    /**
+     * @return maximum number of fetch group descriptions kept in memory by {@code FetchGroupManager}.
+     * 0 disables the cache.
+     */
+    @Property("cuba.fetchGroupCacheMaxSize")
+    @DefaultInt(1000)
+    int getFetchGroupCacheMaxSize();
+
+    /**
+     * @return maximum number of results of in-memory constraints cached per user session, constraint, entity id
+     * and version. 0 disables the cache.
+     * <p>
+     * Enable it only if in-memory constraints depend on local attributes of versioned entities and the user
+     * session, because changes of referenced entities do not change the version.
+     */
+    @Property("cuba.inMemoryConstraintsResultCacheMaxSize")
+    @DefaultInt(0)
+    int getInMemoryConstraintsResultCacheMaxSize();
+
+    /**
+     * @return maximum number of view structures for which not permitted attributes are remembered per role
+     * of a user session by {@code AttributeSecuritySupport}. 0 disables the cache.
+     */
+    @Property("cuba.restrictedViewCacheMaxSize")
+    @DefaultInt(500)
+    int getRestrictedViewCacheMaxSize();
+
+    /**
+     * @return maximum number of ids in one query loading detached instances before merging them
+     * in a {@code CommitContext} committed in bulk mode
+     */
+    @Property("cuba.bulkCommitBatchSize")
+    @DefaultInt(1000)
+    int getBulkCommitBatchSize();
+
+    /**
+     * @return maximum number of entity ids in one query loading or storing dynamic attribute values
+     */
+    @Property("cuba.dynamicAttributesBatchSize")
+    @DefaultInt(1000)
+    int getDynamicAttributesBatchSize();
+
+    /**
+     * @return whether new entity snapshots and views are stored compressed.
+     * Compressed snapshots can be read regardless of this setting.
+     */
+    @Property("cuba.entitySnapshotCompression")
+    @DefaultBoolean(false)
+    boolean getEntitySnapshotCompression();
+
+    /**
+     * @return maximum number of distinct role combinations for which joined role definitions are shared
+     * between user sessions. 0 disables sharing.
+     */
+    @Property("cuba.joinedRolesCacheMaxSize")
+    @DefaultInt(1000)
+    int getJoinedRolesCacheMaxSize();
+
     /**
      * @return if true, sequences for BaseLongIdEntity and BaseIntegerIdEntity subclasses are created in data stores
      * of these entities. Otherwise (by default), sequences for all entities are created in the main data store.
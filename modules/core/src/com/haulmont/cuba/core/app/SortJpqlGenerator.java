@@ -25,8 +25,11 @@ import com.haulmont.cuba.core.sys.persistence.DbmsSpecificFactory;
 import org.slf4j.Logger;
 import org.springframework.stereotype.Component;
 
+import javax.annotation.Nullable;
 import javax.inject.Inject;
 import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 import static com.haulmont.bali.util.Preconditions.checkNotNullArgument;
@@ -36,6 +39,9 @@ public class SortJpqlGenerator {
     public static final String NAME = "cuba_SortJpqlGenerator";
     private static final Logger log = org.slf4j.LoggerFactory.getLogger(SortJpqlGenerator.class);
 
+    protected static final Pattern ORDERING_CLAUSE_PATTERN =
+            Pattern.compile("(\\s+(asc|desc))?(\\s+nulls\\s+(first|last))?$", Pattern.CASE_INSENSITIVE);
+
     @Inject
     protected Metadata metadata;
     @Inject
@@ -81,6 +87,151 @@ public class SortJpqlGenerator {
         return transformQuery(queryString, sortExpressions, asc);
     }
 
+    /**
+     * Restricts the query to the rows following the given position in the sort order, emulating the row value
+     * comparison {@code (k1, k2, ..., id) > (:v1, :v2, ..., :id)} which is not available in JPQL.
+     *
+     * @param entityName    name of the loaded entity
+     * @param queryString   query to restrict
+     * @param sort          sort of the query, or null if the query is sorted by identifier only
+     * @param keysetValues  values of the sort properties followed by the identifier, which can be omitted if
+     *                      the sort contains it
+     * @param parameters    map to which the generated parameters are added
+     * @return transformed query string
+     */
+    public String processKeysetQuery(String entityName, String queryString, @Nullable Sort sort,
+                                     List<Object> keysetValues, Map<String, Object> parameters) {
+        MetaClass metaClass = metadata.getClassNN(entityName);
+        if (metadataTools.hasCompositePrimaryKey(metaClass)) {
+            throw new UnsupportedOperationException("Keyset pagination is not supported for entities with composite primary key");
+        }
+        String pkName = metadataTools.getPrimaryKeyName(metaClass);
+        if (pkName == null) {
+            throw new IllegalStateException(String.format("Entity %s has no primary key", entityName));
+        }
+
+        boolean asc = true;
+        List<MetaPropertyPath> keyProperties = new ArrayList<>();
+        if (sort != null && !sort.getOrders().isEmpty()) {
+            Set<Sort.Direction> directions = sort.getOrders().stream()
+                    .map(Sort.Order::getDirection)
+                    .collect(Collectors.toSet());
+            if (directions.size() > 1) {
+                throw new UnsupportedOperationException("Sorting by multiple properties in different directions is not supported");
+            }
+            asc = directions.iterator().next() == Sort.Direction.ASC;
+
+            for (Sort.Order order : sort.getOrders()) {
+                MetaPropertyPath metaPropertyPath = metaClass.getPropertyPath(order.getProperty());
+                checkNotNullArgument(metaPropertyPath, "Could not resolve property path '%s' in '%s'", order.getProperty(), metaClass);
+                if (!isKeysetProperty(metaPropertyPath)) {
+                    throw new IllegalArgumentException(String.format(
+                            "Keyset pagination supports sorting by persistent datatype attributes of '%s' only, got '%s'",
+                            metaClass, order.getProperty()));
+                }
+                keyProperties.add(metaPropertyPath);
+            }
+        }
+        MetaPropertyPath idPropertyPath = Objects.requireNonNull(metaClass.getPropertyPath(pkName));
+        if (!keyProperties.contains(idPropertyPath)) {
+            keyProperties.add(idPropertyPath);
+        } else if (keysetValues.size() == keyProperties.size() + 1) {
+            // the identifier can be passed last even if the sort already contains it
+            keysetValues = keysetValues.subList(0, keyProperties.size());
+        }
+
+        if (keyProperties.size() != keysetValues.size()) {
+            throw new IllegalArgumentException(String.format("Keyset pagination requires %d values for %s, got %d",
+                    keyProperties.size(), keyProperties, keysetValues.size()));
+        }
+
+        List<String> keyExpressions = new ArrayList<>(keyProperties.size());
+        List<String> valueExpressions = new ArrayList<>(keyProperties.size());
+        for (int i = 0; i < keyProperties.size(); i++) {
+            if (keysetValues.get(i) == null) {
+                throw new IllegalArgumentException(String.format(
+                        "Keyset pagination does not support null values, got null for '%s'", keyProperties.get(i)));
+            }
+            String keyExpression = getKeysetExpression(keyProperties.get(i), asc);
+            keyExpressions.add(keyExpression);
+            valueExpressions.add(getKeysetValueExpression(keyProperties.get(i), keyExpression, keysetParamName(i)));
+            parameters.put(keysetParamName(i), keysetValues.get(i));
+        }
+
+        String operator = asc ? ">" : "<";
+        StringBuilder where = new StringBuilder("(");
+        for (int i = 0; i < keyExpressions.size(); i++) {
+            if (i > 0) {
+                where.append(" or ");
+            }
+            where.append("(");
+            for (int j = 0; j < i; j++) {
+                where.append(keyExpressions.get(j)).append(" = ").append(valueExpressions.get(j)).append(" and ");
+            }
+            where.append(keyExpressions.get(i)).append(" ").append(operator).append(" ").append(valueExpressions.get(i));
+            where.append(")");
+        }
+        where.append(")");
+
+        QueryTransformer transformer = queryTransformerFactory.transformer(queryString);
+        transformer.addWhere(where.toString());
+        return transformer.getResult();
+    }
+
+    protected boolean isKeysetProperty(MetaPropertyPath metaPropertyPath) {
+        MetaProperty[] metaProperties = metaPropertyPath.getMetaProperties();
+        for (int i = 0; i < metaProperties.length - 1; i++) {
+            if (!metadataTools.isEmbedded(metaProperties[i])) {
+                return false;
+            }
+        }
+        MetaProperty metaProperty = metaPropertyPath.getMetaProperty();
+        return metadataTools.isPersistent(metaPropertyPath)
+                && !metaProperty.getRange().isClass()
+                && !metadataTools.isLob(metaProperty);
+    }
+
+    /**
+     * Returns the expression compared in the keyset predicate: the sort expression of the attribute produced by
+     * {@link JpqlSortExpressionProvider} without ordering clauses, so rows are compared the same way they are sorted.
+     */
+    protected String getKeysetExpression(MetaPropertyPath metaPropertyPath, boolean sortDirectionAsc) {
+        String sortExpression = getDatatypePropertySortExpression(metaPropertyPath, sortDirectionAsc);
+        return ORDERING_CLAUSE_PATTERN.matcher(sortExpression.trim()).replaceFirst("");
+    }
+
+    /**
+     * Returns the expression of the keyset parameter, e.g. {@code upper(:_keyset0)} for {@code upper({E}.name)}.
+     * The attribute is located in the sort expression as a whole path token built from the parsed sort property,
+     * so a path that is a prefix of another one, e.g. {@code {E}.name} in {@code {E}.nameSuffix}, is not matched.
+     */
+    protected String getKeysetValueExpression(MetaPropertyPath metaPropertyPath, String keyExpression, String paramName) {
+        String propertyExpression = String.format("{E}.%s", metaPropertyPath.toPathString());
+        if (keyExpression.equals(propertyExpression)) {
+            return ":" + paramName;
+        }
+
+        Matcher matcher = Pattern.compile(Pattern.quote(propertyExpression) + "(?![\\w.$])").matcher(keyExpression);
+        int count = 0;
+        int start = -1;
+        int end = -1;
+        while (matcher.find()) {
+            count++;
+            start = matcher.start();
+            end = matcher.end();
+        }
+        if (count != 1) {
+            throw new IllegalArgumentException(String.format(
+                    "Keyset pagination requires the sort expression of '%s' to contain '%s' exactly once, got '%s'",
+                    metaPropertyPath, propertyExpression, keyExpression));
+        }
+        return keyExpression.substring(0, start) + ":" + paramName + keyExpression.substring(end);
+    }
+
+    protected String keysetParamName(int index) {
+        return "_keyset" + index;
+    }
+
     protected List<String> getUniqueSortExpression(List<String> sortExpressions, MetaClass metaClass, boolean asc) {
         String pkName = metadataTools.getPrimaryKeyName(metaClass);
 
@@ -17,8 +17,12 @@
 
 package com.haulmont.cuba.core.app.dynamicattributes;
 
+import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.HashMultimap;
+import com.google.common.collect.HashMultiset;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Multimap;
+import com.google.common.collect.Multiset;
 import com.haulmont.chile.core.model.MetaClass;
 import com.haulmont.chile.core.model.MetaProperty;
 import com.haulmont.cuba.core.EntityManager;
@@ -27,8 +31,11 @@ import com.haulmont.cuba.core.Transaction;
 import com.haulmont.cuba.core.TypedQuery;
 import com.haulmont.cuba.core.app.ClusterListenerAdapter;
 import com.haulmont.cuba.core.app.ClusterManagerAPI;
+import com.haulmont.cuba.core.app.IdempotentClusterMessage;
+import com.haulmont.cuba.core.app.ServerConfig;
 import com.haulmont.cuba.core.entity.*;
 import com.haulmont.cuba.core.global.*;
+import com.haulmont.cuba.core.sys.persistence.DbmsSpecificFactory;
 import com.haulmont.cuba.security.entity.EntityOp;
 import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.lang3.BooleanUtils;
@@ -39,7 +46,7 @@ import org.springframework.stereotype.Component;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import javax.inject.Inject;
-import java.io.Serializable;
+import javax.persistence.FlushModeType;
 import java.util.*;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.stream.Collectors;
@@ -48,6 +55,10 @@ import static java.lang.String.format;
 
 @Component(DynamicAttributesManagerAPI.NAME)
 public class DynamicAttributesManager implements DynamicAttributesManagerAPI {
+    /**
+     * @deprecated the number of entities loaded at once is defined by {@link ServerConfig#getDynamicAttributesBatchSize()}
+     */
+    @Deprecated
     public static final int MAX_ENTITIES_FOR_ATTRIBUTE_VALUES_BATCH = 100;
 
     private static final Logger log = LoggerFactory.getLogger(DynamicAttributesManager.class);
@@ -73,6 +84,9 @@ public class DynamicAttributesManager implements DynamicAttributesManagerAPI {
     @Inject
     protected Security security;
 
+    @Inject
+    protected ServerConfig serverConfig;
+
     protected ClusterManagerAPI clusterManager;
 
     protected ReentrantLock loadCacheLock = new ReentrantLock();
@@ -201,6 +215,70 @@ public class DynamicAttributesManager implements DynamicAttributesManagerAPI {
         }
     }
 
+    @Override
+    public void storeDynamicAttributes(Collection<? extends BaseGenericIdEntity> entities) {
+        if (entities.isEmpty()) {
+            return;
+        }
+        try (Transaction tx = persistence.getTransaction()) {
+            loadStoredAttributeValues(entities);
+            for (BaseGenericIdEntity entity : entities) {
+                doStoreDynamicAttributes(entity);
+            }
+            tx.commit();
+        }
+    }
+
+    /**
+     * Loads existing attribute values of the entities into the persistence context by a few queries,
+     * so merging the values does not load them one by one.
+     */
+    protected void loadStoredAttributeValues(Collection<? extends BaseGenericIdEntity> entities) {
+        Set<UUID> ids = new LinkedHashSet<>();
+        for (BaseGenericIdEntity entity : entities) {
+            Map<String, CategoryAttributeValue> dynamicAttributes = entity.getDynamicAttributes();
+            if (dynamicAttributes == null) {
+                continue;
+            }
+            for (CategoryAttributeValue value : dynamicAttributes.values()) {
+                if (!BaseEntityInternalAccess.isNew(value) && BaseEntityInternalAccess.isDetached(value)) {
+                    ids.add(value.getId());
+                    if (value.getChildValues() != null) {
+                        for (CategoryAttributeValue childValue : value.getChildValues()) {
+                            if (!BaseEntityInternalAccess.isNew(childValue)) {
+                                ids.add(childValue.getId());
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        if (ids.size() < 2) {
+            return;
+        }
+        EntityManager em = persistence.getEntityManager();
+        boolean softDeletion = em.isSoftDeletion();
+        // merge finds soft deleted values too
+        em.setSoftDeletion(false);
+        try {
+            for (List<UUID> batch : Lists.partition(new ArrayList<>(ids), getIdsBatchSize())) {
+                em.createQuery("select cav from sys$CategoryAttributeValue cav where cav.id in :ids",
+                        CategoryAttributeValue.class)
+                        .setParameter("ids", batch)
+                        .setFlushMode(FlushModeType.COMMIT)
+                        .getResultList();
+            }
+        } finally {
+            em.setSoftDeletion(softDeletion);
+        }
+    }
+
+    protected int getIdsBatchSize() {
+        int batchSize = Math.max(serverConfig.getDynamicAttributesBatchSize(), 1);
+        Integer maxIdsBatchSize = DbmsSpecificFactory.getDbmsFeatures().getMaxIdsBatchSize();
+        return maxIdsBatchSize == null ? batchSize : Math.min(batchSize, maxIdsBatchSize);
+    }
+
     @Override
     public <E extends BaseGenericIdEntity> void fetchDynamicAttributes(List<E> entities, @Nonnull Set<Class> dependentClasses) {
         Set<BaseGenericIdEntity> toProcess = new HashSet<>();
@@ -274,15 +352,18 @@ public class DynamicAttributesManager implements DynamicAttributesManagerAPI {
                     //copy transient fields (for nested CAVs as well)
                     mergedCategoryAttributeValue.setTransientEntityValue(categoryAttributeValue.getTransientEntityValue());
                     mergedCategoryAttributeValue.setTransientCollectionValue(categoryAttributeValue.getTransientCollectionValue());
-                    if (BooleanUtils.isTrue(categoryAttributeValue.getCategoryAttribute().getIsCollection()) && categoryAttributeValue.getChildValues() != null) {
+                    if (BooleanUtils.isTrue(categoryAttributeValue.getCategoryAttribute().getIsCollection())
+                            && categoryAttributeValue.getChildValues() != null
+                            && mergedCategoryAttributeValue.getChildValues() != null) {
+                        Map<UUID, CategoryAttributeValue> mergedChildCAVs = new HashMap<>();
+                        for (CategoryAttributeValue mergedChildCAV : mergedCategoryAttributeValue.getChildValues()) {
+                            mergedChildCAVs.put(mergedChildCAV.getId(), mergedChildCAV);
+                        }
                         for (CategoryAttributeValue childCAV : categoryAttributeValue.getChildValues()) {
-                            for (CategoryAttributeValue mergedChildCAV : mergedCategoryAttributeValue.getChildValues()) {
-                                if (mergedChildCAV.getId().equals(childCAV.getId())) {
-                                    mergedChildCAV.setTransientEntityValue(childCAV.getTransientEntityValue());
-                                    break;
-                                }
+                            CategoryAttributeValue mergedChildCAV = mergedChildCAVs.get(childCAV.getId());
+                            if (mergedChildCAV != null) {
+                                mergedChildCAV.setTransientEntityValue(childCAV.getTransientEntityValue());
                             }
-
                         }
                     }
 
@@ -310,7 +391,8 @@ public class DynamicAttributesManager implements DynamicAttributesManagerAPI {
         EntityManager em = persistence.getEntityManager();
 
         List<Object> collectionValue = categoryAttributeValue.getTransientCollectionValue();
-        List<Object> newCollectionValue = new ArrayList<>(collectionValue);
+        Set<Object> collectionValueSet = new HashSet<>(collectionValue);
+        Multiset<Object> existingValues = HashMultiset.create();
 
         //remove existing child CategoryAttributeValues that are not in the CategoryAttributeValue.collectionValue property
         if (categoryAttributeValue.getChildValues() != null) {
@@ -318,16 +400,24 @@ public class DynamicAttributesManager implements DynamicAttributesManagerAPI {
                 boolean isChildDeleted = existingChildCategoryAttributeValue.getDeleteTs() != null;
                 if (!isChildDeleted) {
                     Object value = existingChildCategoryAttributeValue.getValue();
-                    if (!collectionValue.contains(value)) {
+                    if (!collectionValueSet.contains(value)) {
                         em.remove(existingChildCategoryAttributeValue);
                     }
-                    newCollectionValue.remove(value);
+                    existingValues.add(value);
                 }
             }
         } else {
             categoryAttributeValue.setChildValues(new LinkedList<>());
         }
 
+        //each existing child value stands for one occurrence of the value in the collection
+        List<Object> newCollectionValue = new ArrayList<>();
+        for (Object value : collectionValue) {
+            if (!existingValues.remove(value)) {
+                newCollectionValue.add(value);
+            }
+        }
+
         //newCollectionValue now contains only the values that were added but not persisted yet
         for (Object value : newCollectionValue) {
             CategoryAttributeValue childCAV = metadata.create(CategoryAttributeValue.class);
@@ -365,17 +455,11 @@ public class DynamicAttributesManager implements DynamicAttributesManagerAPI {
                 .map(e -> referenceToEntitySupport.getReferenceId(e))
                 .collect(Collectors.toList());
 
-        Multimap<Object, CategoryAttributeValue> allAttributeValues = HashMultimap.create();
+        Multimap<Object, CategoryAttributeValue> allAttributeValues = ArrayListMultimap.create();
 
-        List<Object> currentIds = new ArrayList<>();
-        for (Object id : ids) {
-            currentIds.add(id);
-            if (currentIds.size() >= MAX_ENTITIES_FOR_ATTRIBUTE_VALUES_BATCH) {
-                handleAttributeValuesForIds(metaClass, currentIds, allAttributeValues);
-                currentIds = new ArrayList<>();
-            }
+        for (List<Object> currentIds : Lists.partition(ids, getIdsBatchSize())) {
+            handleAttributeValuesForIds(metaClass, currentIds, allAttributeValues);
         }
-        handleAttributeValuesForIds(metaClass, currentIds, allAttributeValues);
 
         for (BaseGenericIdEntity entity : entities) {
             Collection<CategoryAttributeValue> entityAttributeValues = allAttributeValues.get(referenceToEntitySupport.getReferenceId(entity));
@@ -458,8 +542,11 @@ public class DynamicAttributesManager implements DynamicAttributesManagerAPI {
                             cav.setTransientCollectionValue(value);
                         });
 
+                Set<UUID> idsOfCollectionType = cavsOfCollectionTypeWithChildren.stream()
+                        .map(BaseUuidEntity::getId)
+                        .collect(Collectors.toSet());
                 attributeValues.addAll(resultList.stream()
-                        .filter(cav -> !cavsOfCollectionTypeWithChildren.contains(cav))
+                        .filter(cav -> !idsOfCollectionType.contains(cav.getId()))
                         .collect(Collectors.toList()));
 
                 attributeValues.addAll(cavsOfCollectionTypeWithChildren);
@@ -541,7 +628,17 @@ public class DynamicAttributesManager implements DynamicAttributesManagerAPI {
                 .getResultList();
     }
 
-    private static class ReloadCacheMsg implements Serializable {
+    private static class ReloadCacheMsg implements IdempotentClusterMessage {
         private static final long serialVersionUID = -3116358584797500962L;
+
+        @Override
+        public boolean equals(Object o) {
+            return o != null && getClass() == o.getClass();
+        }
+
+        @Override
+        public int hashCode() {
+            return getClass().hashCode();
+        }
     }
 }
\ No newline at end of file
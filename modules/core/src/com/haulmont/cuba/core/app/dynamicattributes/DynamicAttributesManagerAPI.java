@@ -65,4 +65,15 @@ public interface DynamicAttributesManagerAPI {
      * Store dynamic attributes from the entity to database
      */
     void storeDynamicAttributes(BaseGenericIdEntity entity);
+
+    /**
+     * Store dynamic attributes from the entities to database. The default implementation stores each entity
+     * separately, the platform implementation loads existing values of all entities by a few queries
+     * instead of one query per value.
+     */
+    default void storeDynamicAttributes(Collection<? extends BaseGenericIdEntity> entities) {
+        for (BaseGenericIdEntity entity : entities) {
+            storeDynamicAttributes(entity);
+        }
+    }
 }
\ No newline at end of file
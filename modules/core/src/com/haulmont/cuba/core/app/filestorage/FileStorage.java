@@ -16,32 +16,34 @@
  */
 package com.haulmont.cuba.core.app.filestorage;
 
-import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.haulmont.cuba.core.app.FileStorageAPI;
 import com.haulmont.cuba.core.app.ServerConfig;
 import com.haulmont.cuba.core.entity.FileDescriptor;
 import com.haulmont.cuba.core.global.*;
-import com.haulmont.cuba.core.sys.AppContext;
-import com.haulmont.cuba.core.sys.SecurityContext;
 import com.haulmont.cuba.security.global.UserSession;
+import org.apache.commons.codec.binary.Hex;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.BoundedInputStream;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
 
 import javax.annotation.PostConstruct;
-import javax.annotation.PreDestroy;
 import javax.inject.Inject;
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.text.SimpleDateFormat;
-import java.util.ArrayList;
-import java.util.Calendar;
-import java.util.List;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.*;
 
 import static com.haulmont.bali.util.Preconditions.checkNotNullArgument;
 
@@ -50,6 +52,8 @@ public class FileStorage implements FileStorageAPI {
 
     private static final Logger log = LoggerFactory.getLogger(FileStorage.class);
 
+    protected static final int BUFFER_SIZE = 64 * 1024;
+
     @Inject
     protected UserSessionSource userSessionSource;
 
@@ -61,9 +65,6 @@ public class FileStorage implements FileStorageAPI {
 
     protected boolean isImmutableFileStorage;
 
-    protected ExecutorService writeExecutor = Executors.newFixedThreadPool(5,
-            new ThreadFactoryBuilder().setNameFormat("FileStorageWriter-%d").build());
-
     protected volatile File[] storageRoots;
 
     @PostConstruct
@@ -100,12 +101,25 @@ public class FileStorage implements FileStorageAPI {
 
     @Override
     public long saveStream(final FileDescriptor fileDescr, final InputStream inputStream) throws FileStorageException {
+        return internalSaveStream(fileDescr, inputStream).size;
+    }
+
+    @Override
+    public String saveStreamWithHash(FileDescriptor fileDescr, InputStream inputStream) throws FileStorageException {
+        return internalSaveStream(fileDescr, inputStream).hash;
+    }
+
+    /**
+     * Reads the stream once and writes each chunk into the primary and all accessible secondary storages,
+     * computing the content hash along the way. The hash is set to {@link FileDescriptor#getContentHash()},
+     * so it is persisted when the descriptor is committed.
+     * Failures of secondary storages are logged and don't affect saving into the primary storage.
+     */
+    protected SavedFile internalSaveStream(FileDescriptor fileDescr, InputStream inputStream) throws FileStorageException {
         checkFileDescriptor(fileDescr);
 
         File[] roots = getStorageRoots();
 
-        // Store to primary storage
-
         checkStorageDefined(roots, fileDescr);
         checkPrimaryStorageAccessible(roots, fileDescr);
 
@@ -116,25 +130,52 @@ public class FileStorage implements FileStorageAPI {
         final File file = new File(dir, getFileName(fileDescr));
         checkFileExists(file);
 
-        long size = 0;
-        OutputStream os = null;
-        try {
-            os = FileUtils.openOutputStream(file);
-            size = IOUtils.copyLarge(inputStream, os);
-            os.flush();
+        Map<File, FileChannel> copies = new LinkedHashMap<>();
+        long size;
+        MessageDigest digest = createContentDigest();
+        try (FileChannel channel = openForWrite(file)) {
+            openCopies(roots, fileDescr, copies);
+
+            size = 0;
+            ReadableByteChannel source = Channels.newChannel(inputStream);
+            ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+            while (source.read(buffer) >= 0) {
+                buffer.flip();
+                digest.update(buffer.array(), 0, buffer.limit());
+                writeFully(channel, buffer);
+                writeCopies(fileDescr, copies, buffer);
+                size += buffer.limit();
+                buffer.clear();
+            }
             writeLog(file, false);
         } catch (IOException e) {
-            IOUtils.closeQuietly(os);
             FileUtils.deleteQuietly(file);
+            for (Map.Entry<File, FileChannel> entry : copies.entrySet()) {
+                IOUtils.closeQuietly(entry.getValue());
+                FileUtils.deleteQuietly(entry.getKey());
+            }
 
             throw new FileStorageException(FileStorageException.Type.IO_EXCEPTION, file.getAbsolutePath(), e);
-        } finally {
-            IOUtils.closeQuietly(os);
         }
 
-        // Copy file to secondary storages asynchronously
+        for (Map.Entry<File, FileChannel> entry : copies.entrySet()) {
+            File fileCopy = entry.getKey();
+            try {
+                entry.getValue().close();
+                writeLog(fileCopy, false);
+            } catch (IOException e) {
+                FileUtils.deleteQuietly(fileCopy);
+                log.error("Error saving {} into {} : {}", fileDescr, fileCopy.getAbsolutePath(), e.getMessage());
+            }
+        }
+
+        String hash = Hex.encodeHexString(digest.digest());
+        fileDescr.setContentHash(hash);
+
+        return new SavedFile(size, hash);
+    }
 
-        final SecurityContext securityContext = AppContext.getSecurityContext();
+    protected void openCopies(File[] roots, FileDescriptor fileDescr, Map<File, FileChannel> copies) {
         for (int i = 1; i < roots.length; i++) {
             if (!roots[i].exists()) {
                 log.error("Error saving {} into {} : directory doesn't exist", fileDescr, roots[i]);
@@ -142,25 +183,49 @@ public class FileStorage implements FileStorageAPI {
             }
 
             File copyDir = getStorageDir(roots[i], fileDescr);
-            final File fileCopy = new File(copyDir, getFileName(fileDescr));
-
-            writeExecutor.submit(new Runnable() {
-                @Override
-                public void run() {
-                    try {
-                        AppContext.setSecurityContext(securityContext);
-                        FileUtils.copyFile(file, fileCopy, true);
-                        writeLog(fileCopy, false);
-                    } catch (Exception e) {
-                        log.error("Error saving {} into {} : {}", fileDescr, fileCopy.getAbsolutePath(), e.getMessage());
-                    } finally {
-                        AppContext.setSecurityContext(null);
-                    }
-                }
-            });
+            copyDir.mkdirs();
+            File fileCopy = new File(copyDir, getFileName(fileDescr));
+            try {
+                copies.put(fileCopy, openForWrite(fileCopy));
+            } catch (IOException e) {
+                log.error("Error saving {} into {} : {}", fileDescr, fileCopy.getAbsolutePath(), e.getMessage());
+            }
+        }
+    }
+
+    protected void writeCopies(FileDescriptor fileDescr, Map<File, FileChannel> copies, ByteBuffer buffer) {
+        Iterator<Map.Entry<File, FileChannel>> iterator = copies.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<File, FileChannel> entry = iterator.next();
+            buffer.rewind();
+            try {
+                writeFully(entry.getValue(), buffer);
+            } catch (IOException e) {
+                iterator.remove();
+                IOUtils.closeQuietly(entry.getValue());
+                FileUtils.deleteQuietly(entry.getKey());
+                log.error("Error saving {} into {} : {}", fileDescr, entry.getKey().getAbsolutePath(), e.getMessage());
+            }
+        }
+    }
+
+    protected FileChannel openForWrite(File file) throws IOException {
+        return FileChannel.open(file.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    protected void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
         }
+    }
 
-        return size;
+    protected MessageDigest createContentDigest() {
+        try {
+            return MessageDigest.getInstance(CONTENT_HASH_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException("Unable to compute content hash", e);
+        }
     }
 
     protected void checkFileExists(File file) throws FileStorageException {
@@ -256,6 +321,46 @@ public class FileStorage implements FileStorageAPI {
 
     @Override
     public InputStream openStream(FileDescriptor fileDescr) throws FileStorageException {
+        return readFromRoots(fileDescr, FileUtils::openInputStream);
+    }
+
+    @Override
+    public InputStream openStream(FileDescriptor fileDescr, long offset, long length) throws FileStorageException {
+        if (offset < 0 || length < 0) {
+            throw new IllegalArgumentException("Offset and length must not be negative");
+        }
+        return readFromRoots(fileDescr, file -> {
+            FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+            try {
+                channel.position(offset);
+            } catch (IOException e) {
+                IOUtils.closeQuietly(channel);
+                throw e;
+            }
+            return new BoundedInputStream(Channels.newInputStream(channel), length);
+        });
+    }
+
+    @Override
+    public byte[] loadFile(FileDescriptor fileDescr) throws FileStorageException {
+        // reads directly into an array of the file size
+        return readFromRoots(fileDescr, file -> Files.readAllBytes(file.toPath()));
+    }
+
+    @Override
+    public long getFileSize(FileDescriptor fileDescr) throws FileStorageException {
+        return readFromRoots(fileDescr, File::length);
+    }
+
+    /**
+     * Reads the file of the given descriptor from the first storage root where it exists and can be read.
+     *
+     * @param fileDescr file descriptor
+     * @param reader    function reading the file
+     * @return result of the reader
+     * @throws FileStorageException if the file does not exist in any root or cannot be read
+     */
+    protected <T> T readFromRoots(FileDescriptor fileDescr, StoredFileReader<T> reader) throws FileStorageException {
         checkFileDescriptor(fileDescr);
 
         File[] roots = getStorageRoots();
@@ -264,7 +369,7 @@ public class FileStorage implements FileStorageAPI {
             throw new FileStorageException(FileStorageException.Type.FILE_NOT_FOUND, fileDescr.getId().toString());
         }
 
-        InputStream inputStream = null;
+        IOException exception = null;
         for (File root : roots) {
             File dir = getStorageDir(root, fileDescr);
 
@@ -275,30 +380,18 @@ public class FileStorage implements FileStorageAPI {
             }
 
             try {
-                inputStream = FileUtils.openInputStream(file);
-                break;
+                return reader.read(file);
             } catch (IOException e) {
-                log.error("Error opening input stream for " + file, e);
+                log.error("Error reading " + file, e);
+                exception = e;
             }
         }
-        if (inputStream != null)
-            return inputStream;
+        if (exception != null)
+            throw new FileStorageException(FileStorageException.Type.IO_EXCEPTION, fileDescr.getId().toString(), exception);
         else
             throw new FileStorageException(FileStorageException.Type.FILE_NOT_FOUND, fileDescr.getId().toString());
     }
 
-    @Override
-    public byte[] loadFile(FileDescriptor fileDescr) throws FileStorageException {
-        InputStream inputStream = openStream(fileDescr);
-        try {
-            return IOUtils.toByteArray(inputStream);
-        } catch (IOException e) {
-            throw new FileStorageException(FileStorageException.Type.IO_EXCEPTION, fileDescr.getId().toString(), e);
-        } finally {
-            IOUtils.closeQuietly(inputStream);
-        }
-    }
-
     @Override
     public boolean fileExists(FileDescriptor fileDescr) {
         checkFileDescriptor(fileDescr);
@@ -336,8 +429,17 @@ public class FileStorage implements FileStorageAPI {
         return fileDescriptor.getId().toString() + "." + fileDescriptor.getExtension();
     }
 
-    @PreDestroy
-    protected void stopWriteExecutor() {
-        writeExecutor.shutdown();
+    protected interface StoredFileReader<T> {
+        T read(File file) throws IOException;
+    }
+
+    protected static class SavedFile {
+        protected final long size;
+        protected final String hash;
+
+        protected SavedFile(long size, String hash) {
+            this.size = size;
+            this.hash = hash;
+        }
     }
 }
\ No newline at end of file
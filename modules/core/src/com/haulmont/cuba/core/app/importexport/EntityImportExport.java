@@ -233,6 +233,7 @@ public class EntityImportExport implements EntityImportExportAPI {
             processReferenceInfo(referenceInfo, commitContext, loadedEntities);
         }
 
+        List<BaseGenericIdEntity> entitiesWithDynamicAttributes = new ArrayList<>();
         for (Entity commitInstance : commitContext.getCommitInstances()) {
             if (!PersistenceHelper.isNew(commitInstance)) {
                 if (commitInstance instanceof SoftDelete && ((SoftDelete) commitInstance).isDeleted()) {
@@ -240,9 +241,10 @@ public class EntityImportExport implements EntityImportExportAPI {
                 }
             }
             if (entityHasDynamicAttributes(commitInstance)) {
-                dynamicAttributesManagerAPI.storeDynamicAttributes((BaseGenericIdEntity) commitInstance);
+                entitiesWithDynamicAttributes.add((BaseGenericIdEntity) commitInstance);
             }
         }
+        dynamicAttributesManagerAPI.storeDynamicAttributes(entitiesWithDynamicAttributes);
 
         if (validate) {
             commitContext.setValidationMode(CommitContext.ValidationMode.ALWAYS_VALIDATE);
@@ -18,22 +18,38 @@
 package com.haulmont.cuba.core.app.queryresults;
 
 import com.haulmont.bali.db.QueryRunner;
+import com.haulmont.chile.core.model.MetaClass;
+import com.haulmont.chile.core.model.MetaProperty;
 import com.haulmont.cuba.core.*;
 import com.haulmont.cuba.core.app.ClusterManagerAPI;
 import com.haulmont.cuba.core.app.JpqlQueryBuilder;
+import com.haulmont.cuba.core.app.ServerConfig;
 import com.haulmont.cuba.core.global.*;
 import com.haulmont.cuba.core.sys.AppContext;
 import com.haulmont.cuba.core.sys.QueryHolder;
 import com.haulmont.cuba.core.sys.persistence.DbTypeConverter;
+import com.haulmont.cuba.core.sys.persistence.DbmsSpecificFactory;
 import com.haulmont.cuba.security.app.UserSessionsAPI;
 import com.haulmont.cuba.security.global.UserSession;
+import org.apache.commons.lang3.StringUtils;
+import org.eclipse.persistence.internal.databaseaccess.DatabaseCall;
+import org.eclipse.persistence.internal.databaseaccess.DatabasePlatform;
+import org.eclipse.persistence.internal.sessions.AbstractRecord;
+import org.eclipse.persistence.internal.sessions.AbstractSession;
+import org.eclipse.persistence.jpa.JpaEntityManager;
+import org.eclipse.persistence.jpa.JpaQuery;
+import org.eclipse.persistence.queries.DatabaseQuery;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
 
 import javax.inject.Inject;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 /**
@@ -68,6 +84,9 @@ public class QueryResultsManager implements QueryResultsManagerAPI {
 
     protected static final int INACTIVE_DELETION_MAX = 100000;
 
+    protected static final Pattern SELECT_ID_PATTERN =
+            Pattern.compile("^(\\s*SELECT\\s+(?:DISTINCT\\s+)?)([\\w.\"]+)(\\s+FROM\\s)", Pattern.CASE_INSENSITIVE);
+
     @Override
     public void savePreviousQueryResults(LoadContext loadContext) {
         List<LoadContext.Query> prevQueries = loadContext.getPrevQueries();
@@ -86,30 +105,22 @@ public class QueryResultsManager implements QueryResultsManagerAPI {
         if (resultsAlreadySaved(queryKey, contextQuery))
             return;
 
+        if (configuration.getConfig(ServerConfig.class).getQueryResultsInsertSelect() && canInsertSelect(loadContext)) {
+            try {
+                insertSelect(loadContext, contextQuery, queryKey);
+                return;
+            } catch (UnsupportedOperationException e) {
+                log.debug("Unable to save query results on the database side, loading ids instead: {}", e.getMessage());
+            }
+        }
+
         List idList;
         Transaction tx = persistence.createTransaction();
         try {
             EntityManager em = persistence.getEntityManager();
             em.setSoftDeletion(loadContext.isSoftDeletion());
 
-            QueryTransformer transformer = QueryTransformerFactory.createTransformer(contextQuery.getQueryString());
-            transformer.replaceWithSelectId(metadata.getTools().getPrimaryKeyName(metadata.getClassNN(entityName)));
-            transformer.removeOrderBy();
-            String queryString = transformer.getResult();
-
-            JpqlQueryBuilder queryBuilder = AppBeans.get(JpqlQueryBuilder.NAME);
-
-            queryBuilder.setQueryString(queryString)
-                    .setEntityName(entityName)
-                    .setCondition(contextQuery.getCondition())
-                    .setSort(contextQuery.getSort())
-                    .setQueryParameters(contextQuery.getParameters())
-                    .setNoConversionParams(contextQuery.getNoConversionParams());
-
-            if (prevQueries.size() > 1) {
-                queryBuilder.setPreviousResults(userSessionSource.getUserSession().getId(), loadContext.getQueryKey());
-            }
-            Query query = queryBuilder.getQuery(em);
+            Query query = createIdsQuery(em, loadContext, contextQuery);
 
             String logMsg = "Load previous query results: " + JpqlQueryBuilder.printQuery(query.getQueryString());
             log.debug(logMsg);
@@ -127,6 +138,153 @@ public class QueryResultsManager implements QueryResultsManagerAPI {
         insert(queryKey, idList);
     }
 
+    protected Query createIdsQuery(EntityManager em, LoadContext loadContext, LoadContext.Query contextQuery) {
+        List<LoadContext.Query> prevQueries = loadContext.getPrevQueries();
+        String entityName = loadContext.getMetaClass();
+
+        QueryTransformer transformer = QueryTransformerFactory.createTransformer(contextQuery.getQueryString());
+        transformer.replaceWithSelectId(metadata.getTools().getPrimaryKeyName(metadata.getClassNN(entityName)));
+        transformer.removeOrderBy();
+        String queryString = transformer.getResult();
+
+        JpqlQueryBuilder queryBuilder = AppBeans.get(JpqlQueryBuilder.NAME);
+
+        queryBuilder.setQueryString(queryString)
+                .setEntityName(entityName)
+                .setCondition(contextQuery.getCondition())
+                .setSort(contextQuery.getSort())
+                .setQueryParameters(contextQuery.getParameters())
+                .setNoConversionParams(contextQuery.getNoConversionParams());
+
+        if (prevQueries.size() > 1) {
+            queryBuilder.setPreviousResults(userSessionSource.getUserSession().getId(), loadContext.getQueryKey());
+        }
+        return queryBuilder.getQuery(em);
+    }
+
+    /**
+     * @return false if the query is restricted by previous results and the DBMS cannot insert rows selected from the
+     * same table, so the results should be saved by loading ids
+     */
+    protected boolean canInsertSelect(LoadContext loadContext) {
+        return loadContext.getPrevQueries().size() <= 1
+                || DbmsSpecificFactory.getDbmsFeatures().supportsInsertSelectFromTargetTable();
+    }
+
+    /**
+     * Translates the query of ids to SQL and fills SYS_QUERY_RESULT with a single {@code INSERT ... SELECT}
+     * statement, so the ids are not loaded to the middleware.
+     */
+    protected void insertSelect(LoadContext loadContext, LoadContext.Query contextQuery, int queryKey) {
+        UUID userSessionId = userSessionSource.getUserSession().getId();
+        DbTypeConverter converter = persistence.getDbTypeConverter();
+        String userSessionIdStr = converter.getSqlObject(userSessionId).toString();
+        MetaClass metaClass = metadata.getClassNN(loadContext.getMetaClass());
+        MetaProperty primaryKeyProperty = metadata.getTools().getPrimaryKeyProperty(metaClass);
+        if (primaryKeyProperty == null) {
+            throw new IllegalStateException("No primary key in " + metaClass);
+        }
+        String columnName = getEntityIdColumn(primaryKeyProperty.getJavaType());
+        // the query reads the results being replaced if it is restricted by them
+        boolean readsPreviousResults = loadContext.getPrevQueries().size() > 1;
+
+        long start = System.currentTimeMillis();
+        String logMsg = "Insert query results on the database side for " + userSessionId + " / " + queryKey;
+        log.debug(logMsg);
+
+        try (Transaction tx = persistence.createTransaction()) {
+            EntityManager em = persistence.getEntityManager();
+            em.setSoftDeletion(loadContext.isSoftDeletion());
+
+            NativeSelect select = translateToNative(em, createIdsQuery(em, loadContext, contextQuery));
+            String deleteSql = "delete from SYS_QUERY_RESULT where SESSION_ID = '" + userSessionIdStr
+                    + "' and QUERY_KEY = ";
+            String insertSql = "insert into SYS_QUERY_RESULT (SESSION_ID, QUERY_KEY, " + columnName + ") select '"
+                    + userSessionIdStr + "', %d, q_." + NativeSelect.ID_ALIAS + " from (%s) q_";
+
+            Connection connection = em.getConnection();
+            QueryRunner runner = new QueryRunner();
+            int count;
+            if (!readsPreviousResults) {
+                runner.update(connection, deleteSql + queryKey);
+                count = select.executeUpdate(connection, String.format(insertSql, queryKey, select.getSql()));
+            } else {
+                // insert new rows under a staging key, replace the old rows by the key and move the new rows back
+                int stagingKey = getStagingQueryKey(queryKey);
+                runner.update(connection, deleteSql + stagingKey);
+                count = select.executeUpdate(connection, String.format(insertSql, stagingKey, select.getSql()));
+                runner.update(connection, deleteSql + queryKey);
+                runner.update(connection, "update SYS_QUERY_RESULT set QUERY_KEY = " + queryKey
+                        + " where SESSION_ID = '" + userSessionIdStr + "' and QUERY_KEY = " + stagingKey);
+            }
+            tx.commit();
+
+            log.debug("Done in " + (System.currentTimeMillis() - start) + "ms, inserted " + count + " rows: " + logMsg);
+        } catch (SQLException e) {
+            throw new RuntimeException("Error inserting query results", e);
+        }
+    }
+
+    /**
+     * Translates the JPQL query to SQL with parameters bound the same way as EclipseLink binds them.
+     */
+    protected NativeSelect translateToNative(EntityManager em, Query query) {
+        JpaQuery<?> jpaQuery = (JpaQuery<?>) query.getDelegate();
+        AbstractSession session = (AbstractSession) ((JpaEntityManager) em.getDelegate()).getActiveSession();
+
+        DatabaseQuery databaseQuery = (DatabaseQuery) jpaQuery.getDatabaseQuery().clone();
+
+        List<Object> argumentValues = new ArrayList<>();
+        for (String argument : databaseQuery.getArguments()) {
+            argumentValues.add(StringUtils.isNumeric(argument) ?
+                    jpaQuery.getParameterValue(Integer.parseInt(argument)) : jpaQuery.getParameterValue(argument));
+        }
+        AbstractRecord translationRow = databaseQuery.rowFromArguments(argumentValues, session);
+        databaseQuery.prepareCall(session, translationRow);
+
+        // arguments of additional criteria are taken from the session properties on execution
+        if (databaseQuery.getDescriptor() != null
+                && databaseQuery.getDescriptor().getQueryManager().hasAdditionalCriteriaArguments()) {
+            throw new UnsupportedOperationException("Additional criteria with arguments are not supported");
+        }
+
+        if (!(databaseQuery.getCall() instanceof DatabaseCall)) {
+            throw new UnsupportedOperationException("Unsupported query call: " + databaseQuery.getCall());
+        }
+        DatabaseCall call = (DatabaseCall) databaseQuery.getCall();
+        call.translate(translationRow, null, session);
+
+        // give the only selected column a name to refer to it from the outer select
+        Matcher matcher = SELECT_ID_PATTERN.matcher(call.getSQLString());
+        if (!matcher.find()) {
+            throw new UnsupportedOperationException("Unsupported SQL: " + call.getSQLString());
+        }
+        String sql = matcher.replaceFirst("$1$2 AS " + NativeSelect.ID_ALIAS + "$3");
+
+        return new NativeSelect(sql, new ArrayList<>(call.getParameters()), session);
+    }
+
+    /**
+     * @return key which stores new results while the query reads the previous results of the given key.
+     * Query keys are non-negative counters of the user session, so a negative key can't clash with them.
+     */
+    protected int getStagingQueryKey(int queryKey) {
+        return -queryKey - 1;
+    }
+
+    protected String getEntityIdColumn(Class<?> idType) {
+        if (String.class.equals(idType)) {
+            return "STRING_ENTITY_ID";
+        } else if (Long.class.equals(idType)) {
+            return "LONG_ENTITY_ID";
+        } else if (Integer.class.equals(idType)) {
+            return "INT_ENTITY_ID";
+        } else if (UUID.class.equals(idType)) {
+            return "ENTITY_ID";
+        }
+        throw new IllegalStateException("Unsupported primary key type: " + idType);
+    }
+
     protected boolean resultsAlreadySaved(Integer queryKey, LoadContext.Query query) {
         LinkedHashMap<Integer, QueryHolder> recentQueries =
                 userSessionSource.getUserSession().getAttribute("_recentQueries");
@@ -259,7 +417,14 @@ public class QueryResultsManager implements QueryResultsManagerAPI {
             log.debug("Processing " + INACTIVE_DELETION_MAX + " records, run again for the rest");
         }
 
-        Set<UUID> sessionIds = userSessions.getUserSessionsStream().map(UserSession::getId).collect(Collectors.toSet());
+        Set<UUID> sessionIds;
+        try {
+            // sessions can be stored on other cluster members in the partitioned mode
+            sessionIds = userSessions.getClusterUserSessionsStream().map(UserSession::getId).collect(Collectors.toSet());
+        } catch (IllegalStateException e) {
+            log.warn("Unable to get user sessions of all cluster members, query results are not deleted: {}", e.getMessage());
+            return;
+        }
 
         List<Long> ids = new ArrayList<>();
         int i = 0;
@@ -278,6 +443,41 @@ public class QueryResultsManager implements QueryResultsManagerAPI {
             delete(ids);
     }
 
+    /**
+     * SQL select of ids with parameter values.
+     */
+    protected static class NativeSelect {
+
+        protected static final String ID_ALIAS = "QR_ID";
+
+        protected final String sql;
+        protected final List<Object> parameters;
+        protected final AbstractSession session;
+
+        protected NativeSelect(String sql, List<Object> parameters, AbstractSession session) {
+            this.sql = sql;
+            this.parameters = parameters;
+            this.session = session;
+        }
+
+        public String getSql() {
+            return sql;
+        }
+
+        /**
+         * Executes the statement containing this select as the only source of parameters.
+         */
+        public int executeUpdate(Connection connection, String statementSql) throws SQLException {
+            DatabasePlatform platform = (DatabasePlatform) session.getPlatform();
+            try (PreparedStatement statement = connection.prepareStatement(statementSql)) {
+                for (int i = 0; i < parameters.size(); i++) {
+                    platform.setParameterValueInDatabaseCall(parameters.get(i), statement, i + 1, session);
+                }
+                return statement.executeUpdate();
+            }
+        }
+    }
+
     protected void delete(List<Long> ids) {
         log.debug("Deleting " + ids.size() + " records");
         String str = ids.stream().map(String::valueOf).collect(Collectors.joining(","));
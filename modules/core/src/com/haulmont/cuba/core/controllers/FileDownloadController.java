@@ -29,12 +29,14 @@ import com.haulmont.cuba.security.app.UserSessionsAPI;
 import com.haulmont.cuba.security.global.UserSession;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.BoundedInputStream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 
+import javax.annotation.Nullable;
 import javax.inject.Inject;
 import javax.servlet.ServletOutputStream;
 import javax.servlet.http.HttpServletRequest;
@@ -42,6 +44,9 @@ import javax.servlet.http.HttpServletResponse;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
 import java.util.UUID;
 
 /**
@@ -85,12 +90,48 @@ public class FileDownloadController {
             response.setIntHeader("Expires", -1);
             response.setHeader("Content-Type", FileTypesHelper.DEFAULT_MIME_TYPE);
 
+            long fileSize;
+            try {
+                fileSize = fd != null ? fileStorage.getFileSize(fd) : file.length();
+            } catch (FileStorageException e) {
+                log.error("Unable to download file", e);
+                response.sendError(e.getType().getHttpStatus());
+                return;
+            }
+            long[] range = null;
+            if (fileSize >= 0) {
+                response.setHeader("Accept-Ranges", "bytes");
+                String rangeHeader = request.getHeader("Range");
+                if (rangeHeader != null) {
+                    range = parseRange(rangeHeader, fileSize);
+                    if (range == null) {
+                        response.setHeader("Content-Range", "bytes */" + fileSize);
+                        response.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                        return;
+                    }
+                    if (range[0] == 0 && range[1] == fileSize - 1) {
+                        range = null;
+                    }
+                }
+            }
+
             InputStream is = null;
             ServletOutputStream os = null;
             try {
-                is = fd != null ? fileStorage.openStream(fd) : FileUtils.openInputStream(file);
+                if (range != null) {
+                    long length = range[1] - range[0] + 1;
+                    is = fd != null ? fileStorage.openStream(fd, range[0], length) : openFileRange(file, range[0], length);
+                    response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                    response.setHeader("Content-Range", "bytes " + range[0] + "-" + range[1] + "/" + fileSize);
+                    response.setHeader("Content-Length", String.valueOf(length));
+                } else {
+                    is = fd != null ? fileStorage.openStream(fd) : FileUtils.openInputStream(file);
+                    if (fileSize >= 0) {
+                        response.setHeader("Content-Length", String.valueOf(fileSize));
+                    }
+                }
                 os = response.getOutputStream();
-                IOUtils.copy(is, os);
+                IOUtils.copyLarge(is, os);
                 os.flush();
             } catch (FileStorageException e) {
                 log.error("Unable to download file", e);
@@ -107,6 +148,53 @@ public class FileDownloadController {
         }
     }
 
+    /**
+     * Parses a single byte range of the {@code Range} header. Multiple or malformed ranges are not supported
+     * and result in the range of the whole file.
+     *
+     * @return first and last byte positions, or null if the range is not satisfiable
+     */
+    @Nullable
+    protected long[] parseRange(String rangeHeader, long fileSize) {
+        if (!rangeHeader.startsWith("bytes=") || rangeHeader.indexOf(',') >= 0) {
+            return new long[]{0, fileSize - 1};
+        }
+        String spec = rangeHeader.substring("bytes=".length()).trim();
+        int dash = spec.indexOf('-');
+        if (dash < 0) {
+            return new long[]{0, fileSize - 1};
+        }
+        long start, end;
+        try {
+            if (dash == 0) {
+                // suffix range: last N bytes
+                long suffixLength = Long.parseLong(spec.substring(1));
+                start = Math.max(fileSize - suffixLength, 0);
+                end = fileSize - 1;
+            } else {
+                start = Long.parseLong(spec.substring(0, dash));
+                end = dash == spec.length() - 1 ? fileSize - 1 : Math.min(Long.parseLong(spec.substring(dash + 1)), fileSize - 1);
+            }
+        } catch (NumberFormatException e) {
+            return new long[]{0, fileSize - 1};
+        }
+        if (start > end || start >= fileSize) {
+            return null;
+        }
+        return new long[]{start, end};
+    }
+
+    protected InputStream openFileRange(File file, long offset, long length) throws IOException {
+        FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        try {
+            channel.position(offset);
+        } catch (IOException e) {
+            IOUtils.closeQuietly(channel);
+            throw e;
+        }
+        return new BoundedInputStream(Channels.newInputStream(channel), length);
+    }
+
     protected UserSession getSession(HttpServletRequest request, HttpServletResponse response) throws IOException {
         UUID sessionId;
         try {
@@ -0,0 +1,42 @@
+/*
+ * Copyright (c) 2008-2020 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.core.jmx;
+
+import com.haulmont.cuba.core.app.EntitySnapshotAPI;
+import com.haulmont.cuba.security.app.Authenticated;
+import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.springframework.stereotype.Component;
+
+import javax.inject.Inject;
+
+@Component("cuba_EntitySnapshotSupportMBean")
+public class EntitySnapshotSupport implements EntitySnapshotSupportMBean {
+
+    @Inject
+    protected EntitySnapshotAPI entitySnapshotAPI;
+
+    @Authenticated
+    @Override
+    public String convertSnapshots(int batchSize) {
+        try {
+            int count = entitySnapshotAPI.convertSnapshots(batchSize);
+            return String.format("Converted %d snapshots", count);
+        } catch (Exception e) {
+            return ExceptionUtils.getStackTrace(e);
+        }
+    }
+}
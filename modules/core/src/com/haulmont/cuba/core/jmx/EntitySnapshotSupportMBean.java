@@ -0,0 +1,35 @@
+/*
+ * Copyright (c) 2008-2020 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.core.jmx;
+
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedOperationParameter;
+import org.springframework.jmx.export.annotation.ManagedOperationParameters;
+import org.springframework.jmx.export.annotation.ManagedResource;
+
+/**
+ * JMX interface for converting stored entity snapshots by {@link com.haulmont.cuba.core.app.EntitySnapshotAPI}.
+ */
+@ManagedResource(description = "Converts stored entity snapshots to the current format")
+public interface EntitySnapshotSupportMBean {
+
+    @ManagedOperation(description = "Convert legacy XML snapshots to JSON, and uncompressed snapshots to compressed " +
+            "ones if cuba.entitySnapshotCompression is on")
+    @ManagedOperationParameters({@ManagedOperationParameter(name = "batchSize",
+            description = "Number of snapshots converted in one transaction")})
+    String convertSnapshots(int batchSize);
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) 2008-2020 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.haulmont.cuba.core.jmx;
+
+import com.haulmont.cuba.core.sys.FetchGroupManager;
+import org.springframework.stereotype.Component;
+
+import javax.inject.Inject;
+
+@Component("cuba_FetchGroupCacheSupportMBean")
+public class FetchGroupCacheSupport implements FetchGroupCacheSupportMBean {
+    @Inject
+    protected FetchGroupManager fetchGroupManager;
+
+    @Override
+    public long getMaxSize() {
+        return fetchGroupManager.getCacheMaxSize();
+    }
+
+    @Override
+    public long getSize() {
+        return fetchGroupManager.getCacheSize();
+    }
+
+    @Override
+    public long getHitCount() {
+        return fetchGroupManager.getCacheStats().hitCount();
+    }
+
+    @Override
+    public long getMissCount() {
+        return fetchGroupManager.getCacheStats().missCount();
+    }
+
+    @Override
+    public double getHitRate() {
+        return fetchGroupManager.getCacheStats().hitRate();
+    }
+
+    @Override
+    public String evictAll() {
+        fetchGroupManager.invalidateCache();
+        return "Done";
+    }
+}
@@ -0,0 +1,36 @@
+/*
+ * Copyright (c) 2008-2020 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.haulmont.cuba.core.jmx;
+
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+
+@ManagedResource(description = "Provides statistics of in-memory row-level constraints")
+public interface InMemoryConstraintsSupportMBean {
+
+    @ManagedAttribute(description = "Current number of cached constraint results")
+    long getResultCacheSize();
+
+    @ManagedOperation(description = "Print the number of evaluations and evaluation time per constraint")
+    String printStatistics();
+
+    @ManagedOperation(description = "Reset evaluation statistics")
+    String resetStatistics();
+
+    @ManagedOperation(description = "Discard all cached constraint results")
+    String clearResultCache();
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright (c) 2008-2020 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.core.jmx;
+
+import com.haulmont.cuba.core.sys.jpql.QueryTreeCache;
+import org.springframework.stereotype.Component;
+
+import javax.inject.Inject;
+
+@Component("cuba_JpqlParseCacheSupportMBean")
+public class JpqlParseCacheSupport implements JpqlParseCacheSupportMBean {
+    @Inject
+    protected QueryTreeCache queryTreeCache;
+
+    @Override
+    public long getMaxSize() {
+        return queryTreeCache.getMaxSize();
+    }
+
+    @Override
+    public long getSize() {
+        return queryTreeCache.getSize();
+    }
+
+    @Override
+    public long getHitCount() {
+        return queryTreeCache.getStats().hitCount();
+    }
+
+    @Override
+    public long getMissCount() {
+        return queryTreeCache.getStats().missCount();
+    }
+
+    @Override
+    public double getHitRate() {
+        return queryTreeCache.getStats().hitRate();
+    }
+
+    @Override
+    public String evictAll() {
+        queryTreeCache.invalidateAll();
+        return "Done";
+    }
+}
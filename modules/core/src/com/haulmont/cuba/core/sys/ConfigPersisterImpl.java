@@ -76,6 +76,12 @@ public class ConfigPersisterImpl implements ConfigPersister {
         }
     }
 
+    @Override
+    public boolean isCacheable(SourceType sourceType) {
+        // app properties and DB-stored properties invalidate cached values on change
+        return sourceType == SourceType.APP || sourceType == SourceType.DATABASE;
+    }
+
     protected ConfigStorageAPI getConfigStorageAPI() {
         return (ConfigStorageAPI) applicationContext.getBean(ConfigStorageAPI.NAME);
     }
@@ -22,14 +22,18 @@ import com.haulmont.chile.core.model.MetaProperty;
 import com.haulmont.cuba.core.EntityManager;
 import com.haulmont.cuba.core.Persistence;
 import com.haulmont.cuba.core.Transaction;
+import com.haulmont.cuba.core.entity.BaseDbGeneratedIdEntity;
 import com.haulmont.cuba.core.entity.EmbeddableEntity;
 import com.haulmont.cuba.core.entity.Entity;
 import com.haulmont.cuba.core.global.*;
+import com.haulmont.cuba.core.sys.persistence.DbmsSpecificFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
 
+import javax.annotation.Nullable;
 import javax.inject.Inject;
+import javax.persistence.FlushModeType;
 import java.util.*;
 import java.util.function.Consumer;
 
@@ -43,6 +47,8 @@ public class EntityFetcher {
 
     private static final Logger log = LoggerFactory.getLogger(EntityFetcher.class);
 
+    protected static final int MAX_RELOAD_BATCH_SIZE = 500;
+
     @Inject
     protected Metadata metadata;
 
@@ -101,8 +107,45 @@ public class EntityFetcher {
         fetch(instance, view, new HashMap<>(), optimizeForDetached);
     }
 
-    @SuppressWarnings("unchecked")
+    /**
+     * Fetch a number of instances by their views.
+     * <p>
+     * Unlike fetching the instances one by one, detached references encountered in all graphs are collected,
+     * grouped by entity and reloaded by one query for each group. The loaded instances then replace the detached
+     * references and are fetched in turn.
+     *
+     * @param instances           instances to fetch, in the order they are processed
+     * @param views               views of the instances, by the same index. Instances with null views are skipped.
+     * @param optimizeForDetached if true, detached objects encountered in the graph will be first checked whether all
+     *                            required attributes are already loaded, and reloaded only when needed.
+     *                            If the argument is false, all detached objects are reloaded anyway.
+     */
+    public void fetch(List<? extends Entity> instances, List<View> views, boolean optimizeForDetached) {
+        if (instances.size() != views.size())
+            throw new IllegalArgumentException("Number of views does not match the number of instances");
+
+        Map<Instance, Set<View>> visited = new HashMap<>();
+        ReloadBatch batch = new ReloadBatch();
+        for (int i = 0; i < instances.size(); i++) {
+            View view = views.get(i);
+            if (view != null) {
+                fetch(instances.get(i), view, visited, optimizeForDetached, batch);
+            }
+        }
+        while (!batch.isEmpty()) {
+            for (Map.Entry<MetaClass, List<ReloadRequest>> entry : batch.drain().entrySet()) {
+                reload(entry.getKey(), entry.getValue(), visited, optimizeForDetached, batch);
+            }
+        }
+    }
+
     protected void fetch(Entity entity, View view, Map<Instance, Set<View>> visited, boolean optimizeForDetached) {
+        fetch(entity, view, visited, optimizeForDetached, null);
+    }
+
+    @SuppressWarnings("unchecked")
+    protected void fetch(Entity entity, View view, Map<Instance, Set<View>> visited, boolean optimizeForDetached,
+                         @Nullable ReloadBatch batch) {
         Set<View> views = visited.get(entity);
         if (views == null) {
             views = new HashSet<>();
@@ -131,7 +174,7 @@ public class EntityFetcher {
                         if (item instanceof Entity) {
                             Entity e = (Entity) item;
                             if (entityStates.isDetached(e)) {
-                                fetchReloaded(e, propertyView, visited, optimizeForDetached, managed -> {
+                                fetchReloaded(e, propertyView, visited, optimizeForDetached, batch, managed -> {
                                     if (value instanceof List) {
                                         List list = (List) value;
                                         list.set(list.indexOf(e), managed);
@@ -142,18 +185,18 @@ public class EntityFetcher {
                                     }
                                 });
                             } else {
-                                fetch((Entity) item, propertyView, visited, optimizeForDetached);
+                                fetch((Entity) item, propertyView, visited, optimizeForDetached, batch);
                             }
                         }
                     }
                 } else if (value instanceof Entity) {
                     Entity e = (Entity) value;
                     if (!metaProperty.isReadOnly() && entityStates.isDetached(e) && !(e instanceof EmbeddableEntity)) {
-                        fetchReloaded(e, propertyView, visited, optimizeForDetached, managed -> {
+                        fetchReloaded(e, propertyView, visited, optimizeForDetached, batch, managed -> {
                                     entity.setValue(property.getName(), managed);
                         });
                     } else {
-                        fetch(e, propertyView, visited, optimizeForDetached);
+                        fetch(e, propertyView, visited, optimizeForDetached, batch);
                     }
                 }
             }
@@ -182,7 +225,115 @@ public class EntityFetcher {
         }
     }
 
+    protected void fetchReloaded(Entity entity, View view, Map<Instance, Set<View>> visited, boolean optimizeForDetached,
+                                 @Nullable ReloadBatch batch, Consumer<Entity> managedEntityConsumer) {
+        if (batch == null) {
+            fetchReloaded(entity, view, visited, optimizeForDetached, managedEntityConsumer);
+        } else if (!optimizeForDetached || needReloading(entity, view)) {
+            batch.add(metadata.getExtendedEntities().getEffectiveMetaClass(entity.getMetaClass()),
+                    new ReloadRequest(entity, view, managedEntityConsumer));
+        }
+    }
+
+    protected void reload(MetaClass metaClass, List<ReloadRequest> requests, Map<Instance, Set<View>> visited,
+                          boolean optimizeForDetached, ReloadBatch batch) {
+        String storeName = metadata.getTools().getStoreName(metaClass);
+        if (storeName == null) {
+            return;
+        }
+        if (log.isTraceEnabled()) {
+            log.trace("Loading " + requests.size() + " detached instances of " + metaClass);
+        }
+        try (Transaction tx = persistence.getTransaction(storeName)) {
+            EntityManager em = persistence.getEntityManager(storeName);
+            Map<Object, Entity> managedInstances = loadManaged(em, storeName, metaClass, requests);
+            for (ReloadRequest request : requests) {
+                Entity managed = managedInstances.get(request.entity.getId());
+                if (managed != null) { // the instance here can be null if it has been deleted
+                    request.managedEntityConsumer.accept(managed);
+                    fetch(managed, request.view, visited, optimizeForDetached, batch);
+                }
+            }
+            tx.commit();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    protected Map<Object, Entity> loadManaged(EntityManager em, String storeName, MetaClass metaClass,
+                                              List<ReloadRequest> requests) {
+        Set<Object> ids = new LinkedHashSet<>();
+        for (ReloadRequest request : requests) {
+            ids.add(request.entity.getId());
+        }
+        Map<Object, Entity> result = new HashMap<>();
+        String pkName = metadata.getTools().getPrimaryKeyName(metaClass);
+        if (ids.size() == 1
+                || pkName == null
+                || metadata.getTools().hasCompositePrimaryKey(metaClass)
+                || BaseDbGeneratedIdEntity.class.isAssignableFrom(metaClass.getJavaClass())
+                || metadata.getTools().isCacheable(metaClass)) {
+            // single instances and cached entities are found by id without querying the database for all
+            for (Object id : ids) {
+                Entity managed = em.find(metaClass.getJavaClass(), id);
+                if (managed != null) {
+                    result.put(id, managed);
+                }
+            }
+            return result;
+        }
+
+        Integer maxIdsBatchSize = DbmsSpecificFactory.getDbmsFeatures(storeName).getMaxIdsBatchSize();
+        int batchSize = maxIdsBatchSize == null ? MAX_RELOAD_BATCH_SIZE : Math.min(maxIdsBatchSize, MAX_RELOAD_BATCH_SIZE);
+        String queryString = String.format("select e from %s e where e.%s in :ids", metaClass.getName(), pkName);
+        List<Object> idList = new ArrayList<>(ids);
+        for (int i = 0; i < idList.size(); i += batchSize) {
+            List<Entity> list = em.createQuery(queryString)
+                    .setParameter("ids", idList.subList(i, Math.min(i + batchSize, idList.size())))
+                    .setFlushMode(FlushModeType.COMMIT)
+                    .getResultList();
+            for (Entity managed : list) {
+                result.put(managed.getId(), managed);
+            }
+        }
+        return result;
+    }
+
     protected boolean needReloading(Entity entity, View view) {
         return !entityStates.isLoadedWithView(entity, view);
     }
+
+    protected static class ReloadRequest {
+
+        protected final Entity entity;
+        protected final View view;
+        protected final Consumer<Entity> managedEntityConsumer;
+
+        protected ReloadRequest(Entity entity, View view, Consumer<Entity> managedEntityConsumer) {
+            this.entity = entity;
+            this.view = view;
+            this.managedEntityConsumer = managedEntityConsumer;
+        }
+    }
+
+    /**
+     * Detached instances waiting to be reloaded, grouped by meta-class.
+     */
+    protected static class ReloadBatch {
+
+        protected Map<MetaClass, List<ReloadRequest>> requests = new LinkedHashMap<>();
+
+        protected void add(MetaClass metaClass, ReloadRequest request) {
+            requests.computeIfAbsent(metaClass, k -> new ArrayList<>()).add(request);
+        }
+
+        protected boolean isEmpty() {
+            return requests.isEmpty();
+        }
+
+        protected Map<MetaClass, List<ReloadRequest>> drain() {
+            Map<MetaClass, List<ReloadRequest>> result = requests;
+            requests = new LinkedHashMap<>();
+            return result;
+        }
+    }
 }
@@ -17,16 +17,21 @@
 
 package com.haulmont.cuba.core.sys;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
 import com.haulmont.bali.util.Preconditions;
 import com.haulmont.chile.core.model.MetaClass;
 import com.haulmont.chile.core.model.MetaProperty;
 import com.haulmont.chile.core.model.MetaPropertyPath;
 import com.haulmont.chile.core.model.Range;
+import com.haulmont.cuba.core.app.ServerConfig;
 import com.haulmont.cuba.core.entity.BaseUuidEntity;
 import com.haulmont.cuba.core.entity.EmbeddableEntity;
 import com.haulmont.cuba.core.entity.Entity;
 import com.haulmont.cuba.core.entity.SoftDelete;
 import com.haulmont.cuba.core.global.*;
+import com.haulmont.cuba.core.sys.events.AppContextInitializedEvent;
 import org.apache.commons.lang3.StringUtils;
 import org.eclipse.persistence.config.QueryHints;
 import org.eclipse.persistence.jpa.JpaQuery;
@@ -35,10 +40,13 @@ import org.eclipse.persistence.queries.FetchGroup;
 import org.eclipse.persistence.queries.LoadGroup;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
 import org.springframework.stereotype.Component;
 import org.springframework.util.ClassUtils;
 
 import javax.annotation.Nullable;
+import javax.annotation.PostConstruct;
 import javax.inject.Inject;
 import java.lang.reflect.Method;
 import java.util.*;
@@ -60,6 +68,29 @@ public class FetchGroupManager {
     @Inject
     private ViewRepository viewRepository;
 
+    @Inject
+    private ServerConfig serverConfig;
+
+    private Cache<FetchGroupKey, FetchGroupDescription> cache;
+
+    private boolean cacheEnabled;
+
+    @PostConstruct
+    protected void init() {
+        int maxSize = serverConfig.getFetchGroupCacheMaxSize();
+        cacheEnabled = maxSize > 0;
+        cache = CacheBuilder.newBuilder()
+                .maximumSize(Math.max(maxSize, 0))
+                .recordStats()
+                .build();
+    }
+
+    @EventListener(AppContextInitializedEvent.class)
+    @Order(Events.HIGHEST_PLATFORM_PRECEDENCE + 20)
+    protected void onMetadataInitialized() {
+        invalidateCache();
+    }
+
     public void setView(JpaQuery query, String queryString, @Nullable View view, boolean singleResultExpected) {
         Preconditions.checkNotNullArgument(query, "query is null");
         if (view != null) {
@@ -128,10 +159,53 @@ public class FetchGroupManager {
         }
     }
 
+    /**
+     * Returns the fetch group description for the given query and view. Descriptions are cached by the query
+     * with normalized whitespace, the structure of the view and the flags, so the returned object is shared
+     * and must not be modified by the caller.
+     */
     public FetchGroupDescription calculateFetchGroup(String queryString,
                                                      View view,
                                                      boolean singleResultExpected,
                                                      boolean useFetchGroup) {
+        if (!cacheEnabled) {
+            return doCalculateFetchGroup(queryString, view, singleResultExpected, useFetchGroup);
+        }
+        FetchGroupKey key = new FetchGroupKey(StringUtils.normalizeSpace(queryString), view.getSignature(),
+                singleResultExpected, useFetchGroup);
+        FetchGroupDescription description = cache.getIfPresent(key);
+        if (description == null) {
+            description = doCalculateFetchGroup(queryString, view, singleResultExpected, useFetchGroup);
+            cache.put(key, description);
+        }
+        return description;
+    }
+
+    /**
+     * Discards all cached fetch group descriptions. Invoked when views or metadata are reloaded.
+     */
+    public void invalidateCache() {
+        if (cache != null) {
+            cache.invalidateAll();
+        }
+    }
+
+    public CacheStats getCacheStats() {
+        return cache.stats();
+    }
+
+    public long getCacheSize() {
+        return cache.size();
+    }
+
+    public long getCacheMaxSize() {
+        return serverConfig.getFetchGroupCacheMaxSize();
+    }
+
+    private FetchGroupDescription doCalculateFetchGroup(String queryString,
+                                                        View view,
+                                                        boolean singleResultExpected,
+                                                        boolean useFetchGroup) {
         Set<FetchGroupField> fetchGroupFields = new LinkedHashSet<>();
         processView(view, null, fetchGroupFields, useFetchGroup);
 
@@ -507,4 +581,40 @@ public class FetchGroupManager {
             return path();
         }
     }
-}
\ No newline at end of file
+
+    protected static class FetchGroupKey {
+        private final String query;
+        private final String viewSignature;
+        private final boolean singleResultExpected;
+        private final boolean useFetchGroup;
+
+        public FetchGroupKey(String query, String viewSignature, boolean singleResultExpected, boolean useFetchGroup) {
+            this.query = query;
+            this.viewSignature = viewSignature;
+            this.singleResultExpected = singleResultExpected;
+            this.useFetchGroup = useFetchGroup;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+
+            FetchGroupKey that = (FetchGroupKey) o;
+
+            return singleResultExpected == that.singleResultExpected
+                    && useFetchGroup == that.useFetchGroup
+                    && query.equals(that.query)
+                    && viewSignature.equals(that.viewSignature);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = query.hashCode();
+            result = 31 * result + viewSignature.hashCode();
+            result = 31 * result + (singleResultExpected ? 1 : 0);
+            result = 31 * result + (useFetchGroup ? 1 : 0);
+            return result;
+        }
+    }
+}
@@ -0,0 +1,183 @@
+/*
+ * Copyright (c) 2008-2020 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.haulmont.cuba.core.sys;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.haulmont.cuba.core.app.ServerConfig;
+import com.haulmont.cuba.core.entity.Entity;
+import com.haulmont.cuba.core.entity.Versioned;
+import com.haulmont.cuba.core.global.ReferenceToEntitySupport;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Nullable;
+import javax.annotation.PostConstruct;
+import javax.inject.Inject;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * INTERNAL.
+ * Keeps results and timing statistics of in-memory constraints evaluated by {@link PersistenceSecurityImpl}.
+ * <p>
+ * Results are cached per user session, constraint, entity id and version if
+ * {@link ServerConfig#getInMemoryConstraintsResultCacheMaxSize()} is greater than 0. Only instances of
+ * {@link Versioned} entities are cached, because the version is the only indication of their change.
+ */
+@Component(InMemoryConstraintsResults.NAME)
+public class InMemoryConstraintsResults {
+
+    public static final String NAME = "cuba_InMemoryConstraintsResults";
+
+    @Inject
+    protected ServerConfig serverConfig;
+
+    @Inject
+    protected ReferenceToEntitySupport referenceToEntitySupport;
+
+    protected Cache<ResultKey, Boolean> cache;
+
+    protected boolean cacheEnabled;
+
+    protected Map<String, Statistics> statistics = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    protected void init() {
+        int maxSize = serverConfig.getInMemoryConstraintsResultCacheMaxSize();
+        cacheEnabled = maxSize > 0;
+        cache = CacheBuilder.newBuilder()
+                .maximumSize(Math.max(maxSize, 0))
+                .expireAfterAccess(serverConfig.getUserSessionExpirationTimeoutSec(), TimeUnit.SECONDS)
+                .build();
+    }
+
+    /**
+     * @return cached result of the constraint for the entity or null if there is no result
+     */
+    @Nullable
+    public Boolean getResult(UUID sessionId, String constraint, Entity entity) {
+        ResultKey key = createKey(sessionId, constraint, entity);
+        return key != null ? cache.getIfPresent(key) : null;
+    }
+
+    public void putResult(UUID sessionId, String constraint, Entity entity, boolean result) {
+        ResultKey key = createKey(sessionId, constraint, entity);
+        if (key != null) {
+            cache.put(key, result);
+        }
+    }
+
+    public long getCacheSize() {
+        return cache.size();
+    }
+
+    public void clearCache() {
+        cache.invalidateAll();
+    }
+
+    /**
+     * Registers evaluation of a constraint for a number of entities.
+     *
+     * @param constraint    constraint description
+     * @param entitiesCount number of evaluated entities
+     * @param nanos         evaluation time
+     */
+    public void registerEvaluation(String constraint, int entitiesCount, long nanos) {
+        Statistics stat = statistics.computeIfAbsent(constraint, k -> new Statistics());
+        stat.calls.increment();
+        stat.entities.add(entitiesCount);
+        stat.nanos.add(nanos);
+    }
+
+    public String printStatistics() {
+        List<Map.Entry<String, Statistics>> entries = new ArrayList<>(statistics.entrySet());
+        entries.sort(Comparator.comparingLong((Map.Entry<String, Statistics> e) -> e.getValue().nanos.sum()).reversed());
+
+        StringBuilder sb = new StringBuilder();
+        sb.append("Calls\tEntities\tTotal ms\tAvg us per entity\tConstraint\n");
+        for (Map.Entry<String, Statistics> entry : entries) {
+            Statistics stat = entry.getValue();
+            long entities = stat.entities.sum();
+            long nanos = stat.nanos.sum();
+            sb.append(stat.calls.sum()).append('\t')
+                    .append(entities).append('\t')
+                    .append(TimeUnit.NANOSECONDS.toMillis(nanos)).append('\t')
+                    .append(entities > 0 ? TimeUnit.NANOSECONDS.toMicros(nanos / entities) : 0).append('\t')
+                    .append(entry.getKey()).append('\n');
+        }
+        return sb.toString();
+    }
+
+    public void resetStatistics() {
+        statistics.clear();
+    }
+
+    @Nullable
+    protected ResultKey createKey(UUID sessionId, String constraint, Entity entity) {
+        if (!cacheEnabled || !(entity instanceof Versioned)) {
+            return null;
+        }
+        Object version = ((Versioned) entity).getVersion();
+        Object id = referenceToEntitySupport.getReferenceId(entity);
+        if (version == null || id == null) {
+            return null;
+        }
+        return new ResultKey(sessionId, constraint, entity.getMetaClass().getName(), id, version);
+    }
+
+    protected static class Statistics {
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder entities = new LongAdder();
+        private final LongAdder nanos = new LongAdder();
+    }
+
+    protected static class ResultKey {
+        private final UUID sessionId;
+        private final String constraint;
+        private final String entityName;
+        private final Object id;
+        private final Object version;
+
+        public ResultKey(UUID sessionId, String constraint, String entityName, Object id, Object version) {
+            this.sessionId = sessionId;
+            this.constraint = constraint;
+            this.entityName = entityName;
+            this.id = id;
+            this.version = version;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+
+            ResultKey that = (ResultKey) o;
+
+            return sessionId.equals(that.sessionId)
+                    && constraint.equals(that.constraint)
+                    && entityName.equals(that.entityName)
+                    && id.equals(that.id)
+                    && version.equals(that.version);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(sessionId, constraint, entityName, id, version);
+        }
+    }
+}
@@ -34,7 +34,10 @@ import com.haulmont.cuba.core.sys.jpql.JpqlSyntaxException;
 import com.haulmont.cuba.security.entity.ConstraintOperationType;
 import com.haulmont.cuba.security.entity.EntityOp;
 import com.haulmont.cuba.security.global.UserSession;
+import com.haulmont.cuba.security.group.AccessConstraint;
+import com.haulmont.cuba.security.group.ConstraintPredicate;
 import com.haulmont.cuba.security.group.ConstraintValidationResult;
+import com.haulmont.cuba.security.group.GroovyConstraintPredicate;
 import com.haulmont.cuba.security.group.JpqlAccessConstraint;
 import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.lang3.StringUtils;
@@ -44,12 +47,15 @@ import org.codehaus.groovy.runtime.MethodClosure;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nullable;
 import javax.inject.Inject;
 import java.io.Serializable;
 import java.text.ParseException;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.BiPredicate;
 import java.util.function.Predicate;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 import static java.lang.String.format;
@@ -58,6 +64,22 @@ import static java.lang.String.format;
 public class PersistenceSecurityImpl extends SecurityImpl implements PersistenceSecurity {
     private final Logger log = LoggerFactory.getLogger(PersistenceSecurityImpl.class);
 
+    protected static final Pattern IMPORT_PATTERN = Pattern.compile("\\bimport\\b\\s+");
+
+    /**
+     * Applies a constraint's script to each instance of {@code __entities__} in a single script run.
+     * Exceptions are returned as results to report them per instance.
+     */
+    protected static final String BULK_SCRIPT_PREFIX = "def __constraint__ = { __entity__ ->\n";
+    protected static final String BULK_SCRIPT_SUFFIX = "\n}\n" +
+            "__entities__.collect { __item__ ->\n" +
+            "    try {\n" +
+            "        __constraint__(__item__)\n" +
+            "    } catch (Exception __e__) {\n" +
+            "        __e__\n" +
+            "    }\n" +
+            "}";
+
     @Inject
     protected SecurityTokenManager securityTokenManager;
 
@@ -76,6 +98,11 @@ public class PersistenceSecurityImpl extends SecurityImpl implements Persistence
     @Inject
     protected EntityStates entityStates;
 
+    @Inject
+    protected InMemoryConstraintsResults constraintsResults;
+
+    protected Set<String> nonBulkScripts = ConcurrentHashMap.newKeySet();
+
     @Override
     public boolean applyConstraints(Query query) {
         QueryParser parser = QueryTransformerFactory.createParser(query.getQueryString());
@@ -136,10 +163,14 @@ public class PersistenceSecurityImpl extends SecurityImpl implements Persistence
 
     @Override
     public boolean filterByConstraints(Collection<Entity> entities) {
+        Set<Entity> notPermitted = findNotPermittedInMemory(entities);
+        if (notPermitted.isEmpty()) {
+            return false;
+        }
         boolean filtered = false;
         for (Iterator<Entity> iterator = entities.iterator(); iterator.hasNext(); ) {
             Entity entity = iterator.next();
-            if (isNotPermittedInMemory(entity)) {
+            if (notPermitted.contains(entity)) {
                 //we ignore situations when the collection is immutable
                 iterator.remove();
                 filtered = true;
@@ -166,13 +197,17 @@ public class PersistenceSecurityImpl extends SecurityImpl implements Persistence
 
     @Override
     public void calculateFilteredData(Entity entity) {
-        calculateFilteredData(entity, new HashSet<>(), false);
+        calculateFilteredData(Collections.singletonList(entity));
     }
 
     @Override
     public void calculateFilteredData(Collection<Entity> entities) {
+        Set<Entity> graph = Collections.newSetFromMap(new IdentityHashMap<>());
+        entities.forEach(entity -> collectEntityGraph(entity, graph));
+        Set<Entity> notPermitted = findNotPermittedInMemory(graph);
+
         Set<EntityId> handled = new LinkedHashSet<>();
-        entities.forEach(entity -> calculateFilteredData(entity, handled, false));
+        entities.forEach(entity -> calculateFilteredData(entity, handled, false, notPermitted));
     }
 
     @Override
@@ -342,13 +377,24 @@ public class PersistenceSecurityImpl extends SecurityImpl implements Persistence
         }
     }
 
-    @SuppressWarnings("unchecked")
     protected boolean calculateFilteredData(Entity entity, Set<EntityId> handled, boolean checkPermitted) {
+        return calculateFilteredData(entity, handled, checkPermitted, null);
+    }
+
+    /**
+     * @param notPermitted instances that do not conform to in-memory constraints, found in advance for the whole
+     *                     graph by {@link #findNotPermittedInMemory(Collection)}. If null, constraints are evaluated
+     *                     for each instance separately.
+     */
+    @SuppressWarnings("unchecked")
+    protected boolean calculateFilteredData(Entity entity, Set<EntityId> handled, boolean checkPermitted,
+                                            @Nullable Set<Entity> notPermitted) {
         if (referenceToEntitySupport.getReferenceId(entity) == null) {
             return false;
         }
         MetaClass metaClass = entity.getMetaClass();
-        if (isNotPermittedInMemory(entity) && checkPermitted) {
+        if (checkPermitted
+                && (notPermitted != null ? notPermitted.contains(entity) : isNotPermittedInMemory(entity))) {
             return true;
         }
         EntityId entityId = new EntityId(referenceToEntitySupport.getReferenceId(entity), metaClass.getName());
@@ -364,7 +410,7 @@ public class PersistenceSecurityImpl extends SecurityImpl implements Persistence
                     if (value instanceof Collection) {
                         Set filtered = new LinkedHashSet();
                         for (Entity item : (Collection<Entity>) value) {
-                            if (calculateFilteredData(item, handled, true)) {
+                            if (calculateFilteredData(item, handled, true, notPermitted)) {
                                 filtered.add(referenceToEntitySupport.getReferenceId(item));
                             }
                         }
@@ -373,7 +419,7 @@ public class PersistenceSecurityImpl extends SecurityImpl implements Persistence
                         }
                     } else if (value instanceof Entity) {
                         Entity valueEntity = (Entity) value;
-                        if (calculateFilteredData(valueEntity, handled, true)) {
+                        if (calculateFilteredData(valueEntity, handled, true, notPermitted)) {
                             securityTokenManager.addFiltered(baseGenericIdEntity, property.getName(),
                                     referenceToEntitySupport.getReferenceId(valueEntity));
                         }
@@ -411,6 +457,93 @@ public class PersistenceSecurityImpl extends SecurityImpl implements Persistence
                 .allMatch(c -> ((Predicate<Entity>) c.getPredicate()).test(entity));
     }
 
+    /**
+     * Collects instances reachable from the given one by loaded persistent attributes, the same way as
+     * {@link #calculateFilteredData(Entity, Set, boolean, Set)} traverses them.
+     */
+    protected void collectEntityGraph(Entity entity, Set<Entity> graph) {
+        if (referenceToEntitySupport.getReferenceId(entity) == null || !graph.add(entity)) {
+            return;
+        }
+        if (entity instanceof BaseGenericIdEntity) {
+            for (MetaProperty property : entity.getMetaClass().getProperties()) {
+                if (property.getRange().isClass()
+                        && metadataTools.isPersistent(property)
+                        && PersistenceHelper.isLoaded(entity, property.getName())) {
+                    Object value = entity.getValue(property.getName());
+                    if (value instanceof Collection) {
+                        for (Object item : (Collection) value) {
+                            if (item instanceof Entity) {
+                                collectEntityGraph((Entity) item, graph);
+                            }
+                        }
+                    } else if (value instanceof Entity) {
+                        collectEntityGraph((Entity) value, graph);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Evaluates in-memory READ constraints for all given instances at once: instances are grouped by entity and
+     * each constraint is applied to the whole group.
+     *
+     * @return identity set of instances that do not conform to the constraints
+     */
+    protected Set<Entity> findNotPermittedInMemory(Collection<? extends Entity> entities) {
+        Set<Entity> notPermitted = Collections.newSetFromMap(new IdentityHashMap<>());
+
+        Map<MetaClass, List<Entity>> entitiesByClass = new LinkedHashMap<>();
+        for (Entity entity : entities) {
+            entitiesByClass.computeIfAbsent(entity.getMetaClass(), k -> new ArrayList<>()).add(entity);
+        }
+
+        for (Map.Entry<MetaClass, List<Entity>> entry : entitiesByClass.entrySet()) {
+            List<AccessConstraint> constraints = getConstraints(entry.getKey())
+                    .filter(c -> c.isInMemory() && c.getOperation() == EntityOp.READ)
+                    .collect(Collectors.toList());
+
+            List<Entity> candidates = entry.getValue();
+            for (AccessConstraint constraint : constraints) {
+                if (candidates.isEmpty()) {
+                    break;
+                }
+                boolean[] results = testInMemory(constraint, candidates);
+                List<Entity> permitted = new ArrayList<>(candidates.size());
+                for (int i = 0; i < results.length; i++) {
+                    if (results[i]) {
+                        permitted.add(candidates.get(i));
+                    } else {
+                        notPermitted.add(candidates.get(i));
+                    }
+                }
+                candidates = permitted;
+            }
+        }
+        return notPermitted;
+    }
+
+    @SuppressWarnings("unchecked")
+    protected boolean[] testInMemory(AccessConstraint constraint, List<Entity> entities) {
+        long start = System.nanoTime();
+
+        ConstraintPredicate predicate = constraint.getPredicate();
+        boolean[] results;
+        if (predicate instanceof GroovyConstraintPredicate) {
+            results = evaluateConstraintScript(entities, ((GroovyConstraintPredicate) predicate).getGroovyScript());
+        } else {
+            results = new boolean[entities.size()];
+            for (int i = 0; i < results.length; i++) {
+                results[i] = predicate.test(entities.get(i));
+            }
+        }
+
+        constraintsResults.registerEvaluation(constraint.getEntityType() + ": " + predicate,
+                entities.size(), System.nanoTime() - start);
+        return results;
+    }
+
     protected boolean isNotPermittedInMemory(Entity entity) {
         //noinspection unchecked
         return !getConstraints(entity.getMetaClass())
@@ -420,20 +553,93 @@ public class PersistenceSecurityImpl extends SecurityImpl implements Persistence
 
     @Override
     public Object evaluateConstraintScript(Entity entity, String groovyScript) {
-        String metaClassName = entity.getMetaClass().getName();
-        if (StringUtils.isNotBlank(groovyScript)) {
+        if (StringUtils.isBlank(groovyScript)) {
+            return true;
+        }
+        UUID sessionId = userSessionSource.getUserSession().getId();
+        Boolean cached = constraintsResults.getResult(sessionId, groovyScript, entity);
+        if (cached != null) {
+            return cached;
+        }
+        boolean result;
+        try {
+            result = isConstraintScriptResultPermitted(entity, runGroovyScript(entity, groovyScript));
+        } catch (Exception e) {
+            result = isConstraintScriptResultPermitted(entity, e);
+        }
+        constraintsResults.putResult(sessionId, groovyScript, entity, result);
+        return result;
+    }
+
+    /**
+     * Evaluates the constraint's script for all given instances. The script is compiled and run once for
+     * the whole list if possible.
+     *
+     * @return results in the order of instances
+     */
+    protected boolean[] evaluateConstraintScript(List<Entity> entities, String groovyScript) {
+        boolean[] results = new boolean[entities.size()];
+        if (StringUtils.isBlank(groovyScript)) {
+            Arrays.fill(results, true);
+            return results;
+        }
+
+        UUID sessionId = userSessionSource.getUserSession().getId();
+        List<Entity> toEvaluate = new ArrayList<>();
+        List<Integer> toEvaluateIndexes = new ArrayList<>();
+        for (int i = 0; i < results.length; i++) {
+            Boolean cached = constraintsResults.getResult(sessionId, groovyScript, entities.get(i));
+            if (cached != null) {
+                results[i] = cached;
+            } else {
+                toEvaluate.add(entities.get(i));
+                toEvaluateIndexes.add(i);
+            }
+        }
+        if (toEvaluate.isEmpty()) {
+            return results;
+        }
+
+        List<Object> values = null;
+        if (toEvaluate.size() > 1 && !nonBulkScripts.contains(groovyScript)) {
             try {
-                Object result = runGroovyScript(entity, groovyScript);
-                if (Boolean.FALSE.equals(result)) {
-                    log.trace("Entity does not match security constraint. Entity class [{}]. Entity [{}].",
-                            metaClassName, entity.getId());
-                    return false;
-                }
+                values = runGroovyScript(toEvaluate, groovyScript);
             } catch (Exception e) {
-                log.error("An error occurred while applying constraint's Groovy script. The entity has been filtered out." +
-                        "Entity class [{}]. Entity [{}].", metaClassName, entity.getId(), e);
-                return false;
+                log.debug("Unable to apply constraint's Groovy script to a collection, it will be applied " +
+                        "to each entity separately. Script: {}", groovyScript, e);
+                nonBulkScripts.add(groovyScript);
+            }
+        }
+
+        for (int i = 0; i < toEvaluate.size(); i++) {
+            Entity entity = toEvaluate.get(i);
+            boolean result;
+            if (values != null) {
+                result = isConstraintScriptResultPermitted(entity, values.get(i));
+            } else {
+                try {
+                    result = isConstraintScriptResultPermitted(entity, runGroovyScript(entity, groovyScript));
+                } catch (Exception e) {
+                    result = isConstraintScriptResultPermitted(entity, e);
+                }
             }
+            results[toEvaluateIndexes.get(i)] = result;
+            constraintsResults.putResult(sessionId, groovyScript, entity, result);
+        }
+        return results;
+    }
+
+    protected boolean isConstraintScriptResultPermitted(Entity entity, @Nullable Object result) {
+        String metaClassName = entity.getMetaClass().getName();
+        if (result instanceof Exception) {
+            log.error("An error occurred while applying constraint's Groovy script. The entity has been filtered out." +
+                    "Entity class [{}]. Entity [{}].", metaClassName, entity.getId(), result);
+            return false;
+        }
+        if (Boolean.FALSE.equals(result)) {
+            log.trace("Entity does not match security constraint. Entity class [{}]. Entity [{}].",
+                    metaClassName, entity.getId());
+            return false;
         }
         return true;
     }
@@ -462,6 +668,23 @@ public class PersistenceSecurityImpl extends SecurityImpl implements Persistence
         return scripting.evaluateGroovy(groovyScript.replace("{E}", "__entity__"), context);
     }
 
+    protected List<Object> runGroovyScript(List<Entity> entities, String groovyScript) {
+        if (IMPORT_PATTERN.matcher(groovyScript).find()) {
+            throw new IllegalArgumentException("Scripts with imports cannot be wrapped into a closure");
+        }
+        Map<String, Object> context = new HashMap<>();
+        context.put("__entities__", entities);
+        context.put("parse", new MethodClosure(this, "parseValue"));
+        context.put("userSession", userSessionSource.getUserSession());
+        fillGroovyConstraintsContext(context);
+        List<Object> values = scripting.evaluateGroovy(
+                BULK_SCRIPT_PREFIX + groovyScript.replace("{E}", "__entity__") + BULK_SCRIPT_SUFFIX, context);
+        if (values == null || values.size() != entities.size()) {
+            throw new IllegalStateException("Unexpected result of constraint's Groovy script applied to a collection");
+        }
+        return values;
+    }
+
     /**
      * Override if you need specific context variables in Groovy constraints.
      *
@@ -43,6 +43,7 @@ import org.eclipse.persistence.internal.jpa.EJBQueryImpl;
 import org.eclipse.persistence.jpa.JpaQuery;
 import org.eclipse.persistence.queries.DatabaseQuery;
 import org.eclipse.persistence.queries.ObjectLevelReadQuery;
+import org.eclipse.persistence.queries.ScrollableCursor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.config.BeanDefinition;
@@ -56,6 +57,8 @@ import java.time.ZoneId;
 import java.util.*;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Implementation of {@link TypedQuery} interface based on EclipseLink.
@@ -528,6 +531,55 @@ public class QueryImpl<T> implements TypedQuery<T> {
         }
     }
 
+    @Override
+    public Stream<T> getResultStream(int fetchSize) {
+        if (log.isDebugEnabled())
+            log.debug(queryString.replaceAll("[\\t\\n\\x0B\\f\\r]", " "));
+
+        singleResultExpected = false;
+
+        JpaQuery<T> query = getQuery();
+        query.setHint(QueryHints.SCROLLABLE_CURSOR, HintValues.TRUE);
+        query.setHint(QueryHints.JDBC_FETCH_SIZE, fetchSize);
+        preExecute(query);
+
+        ScrollableCursor cursor;
+        try {
+            setupTLProperties();
+            // EclipseLink returns the cursor itself as a single result of a cursored query
+            cursor = (ScrollableCursor) query.getSingleResult();
+        } finally {
+            clearTLProperties();
+        }
+
+        Iterator<T> iterator = new Iterator<T>() {
+            @Override
+            public boolean hasNext() {
+                return cursor.hasNext();
+            }
+
+            @Override
+            public T next() {
+                // batch-fetched references are read lazily while iterating, so they need the same TL properties
+                try {
+                    setupTLProperties();
+                    @SuppressWarnings("unchecked")
+                    T item = (T) cursor.next();
+                    if (item instanceof Entity) {
+                        for (View view : views) {
+                            entityFetcher.fetch((Entity) item, view);
+                        }
+                    }
+                    return item;
+                } finally {
+                    clearTLProperties();
+                }
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED), false)
+                .onClose(cursor::close);
+    }
+
     @Override
     public int executeUpdate() {
         JpaQuery<T> jpaQuery = getQuery();
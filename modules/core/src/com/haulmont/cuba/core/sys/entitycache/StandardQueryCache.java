@@ -18,6 +18,7 @@ package com.haulmont.cuba.core.sys.entitycache;
 
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalNotification;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 import org.slf4j.Logger;
@@ -29,17 +30,19 @@ import javax.inject.Inject;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
-import java.util.concurrent.CopyOnWriteArrayList;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
 
+/**
+ * Query cache based on Guava cache.
+ * <p>
+ * Keys of cached queries are indexed by related entity types in concurrent sets, so adding, removing and
+ * invalidating queries by type does not require global locking. The index is pruned by the removal listener of
+ * the cache when queries are removed for any reason, including eviction and invalidation.
+ */
 @Component(QueryCache.NAME)
 public class StandardQueryCache implements QueryCache {
 
     protected Cache<QueryKey, QueryResult> data;
-    protected ConcurrentMap<String, CopyOnWriteArrayList<QueryKey>> typeIndex = new ConcurrentHashMap<>();
-    protected ReadWriteLock lock = new ReentrantReadWriteLock();
+    protected ConcurrentMap<String, Set<QueryKey>> typeIndex = new ConcurrentHashMap<>();
 
     @Inject
     protected QueryCacheConfig queryCacheConfig;
@@ -48,7 +51,10 @@ public class StandardQueryCache implements QueryCache {
 
     @PostConstruct
     protected void init() {
-        data = CacheBuilder.newBuilder().maximumSize(queryCacheConfig.getQueryCacheMaxSize()).build();
+        data = CacheBuilder.newBuilder()
+                .maximumSize(queryCacheConfig.getQueryCacheMaxSize())
+                .removalListener(this::onRemoval)
+                .build();
     }
 
     @Override
@@ -58,21 +64,19 @@ public class StandardQueryCache implements QueryCache {
 
     @Override
     public void put(QueryKey queryKey, QueryResult queryResult) {
-        Lock readLock = lock.readLock();
-        readLock.lock();
-        try {
-            data.put(queryKey, queryResult);
-
-            for (String type : queryResult.getRelatedTypes()) {
-                CopyOnWriteArrayList<QueryKey> keys = typeIndex.get(type);
-                if (keys == null) {
-                    typeIndex.putIfAbsent(type, new CopyOnWriteArrayList<>());
-                    keys = typeIndex.get(type);
+        // a query must not be visible in the cache without being indexed, so index it before putting;
+        // after putting, restore the index entries which could be removed by the listener of a previous value,
+        // unless the query has already been evicted
+        addToIndex(queryKey, queryResult);
+        data.put(queryKey, queryResult);
+        for (String type : queryResult.getRelatedTypes()) {
+            typeIndex.compute(type, (t, keys) -> {
+                Set<QueryKey> result = keys != null ? keys : ConcurrentHashMap.newKeySet();
+                if (data.asMap().get(queryKey) == queryResult) {
+                    result.add(queryKey);
                 }
-                keys.add(queryKey);
-            }
-        } finally {
-            readLock.unlock();
+                return result.isEmpty() ? null : result;
+            });
         }
     }
 
@@ -89,77 +93,41 @@ public class StandardQueryCache implements QueryCache {
 
     @Override
     public void invalidate(QueryKey queryKey) {
-        Lock readLock = lock.readLock();
-        readLock.lock();
-        try {
-            log.debug("Invalidate query by key {}", queryKey.printDescription());
-            data.invalidate(queryKey);
-        } finally {
-            readLock.unlock();
-        }
+        log.debug("Invalidate query by key {}", queryKey.printDescription());
+        data.invalidate(queryKey);
     }
 
     @Override
     public void invalidate(String typeName) {
-        Lock readLock = lock.readLock();
-        readLock.lock();
-        try {
-            CopyOnWriteArrayList<QueryKey> keys = typeIndex.get(typeName);
-            if (keys == null) return;
-            log.debug("Invalidate cache for type {}", typeName);
-            Arrays.stream(keys.toArray()).forEach(it -> data.invalidate(it));
-        } finally {
-            readLock.unlock();
-        }
+        Set<QueryKey> keys = typeIndex.get(typeName);
+        if (keys == null || keys.isEmpty()) return;
+        log.debug("Invalidate cache for type {}", typeName);
+        data.invalidateAll(new ArrayList<>(keys));
     }
 
     @Override
     public void invalidate(Set<String> typeNames) {
-        Lock readLock = lock.readLock();
-        readLock.lock();
-        try {
-            typeNames.forEach(typeName -> {
-                        CopyOnWriteArrayList<QueryKey> keys = typeIndex.get(typeName);
-                        if (keys == null) return;
-                        log.debug("Invalidate cache for type {}", typeName);
-                        Arrays.stream(keys.toArray()).forEach(it -> data.invalidate(it));
-                    }
-            );
-        } finally {
-            readLock.unlock();
-        }
+        typeNames.forEach(this::invalidate);
     }
 
     @Override
     public QueryKey invalidate(UUID queryId) {
-        Lock readLock = lock.readLock();
-        readLock.lock();
-        try {
-            Set<QueryKey> keys = Sets.newHashSet(data.asMap().keySet());
-            for (QueryKey key : keys) {
-                if (Objects.equals(queryId, key.getId())) {
-                    log.debug("Invalidate query by identifier {}", queryId);
-                    data.invalidate(key);
-                    return key;
-                }
+        Set<QueryKey> keys = Sets.newHashSet(data.asMap().keySet());
+        for (QueryKey key : keys) {
+            if (Objects.equals(queryId, key.getId())) {
+                log.debug("Invalidate query by identifier {}", queryId);
+                data.invalidate(key);
+                return key;
             }
-        } finally {
-            readLock.unlock();
         }
         return null;
     }
 
     @Override
     public void invalidateAll() {
-        Lock writeLock = lock.writeLock();
-        writeLock.lock();
-        try {
-            log.debug("Invalidate all cache");
-            data.invalidateAll();
-            typeIndex.clear();
-        } finally {
-            writeLock.unlock();
-        }
+        log.debug("Invalidate all cache");
+        // the index is cleaned up by the removal listener
+        data.invalidateAll();
     }
 
     @Override
@@ -176,4 +144,37 @@ public class StandardQueryCache implements QueryCache {
     public Map<QueryKey, QueryResult> asMap() {
         return Maps.newHashMap(data.asMap());
     }
+
+    protected void addToIndex(QueryKey queryKey, QueryResult queryResult) {
+        for (String type : queryResult.getRelatedTypes()) {
+            typeIndex.compute(type, (t, keys) -> {
+                Set<QueryKey> result = keys != null ? keys : ConcurrentHashMap.newKeySet();
+                result.add(queryKey);
+                return result;
+            });
+        }
+    }
+
+    /**
+     * Removes the key of a removed query from the index. Sets of types without queries are removed from the index
+     * too. All modifications of a type entry are performed atomically, so a key can't be added to a set which has
+     * just been removed.
+     */
+    protected void onRemoval(RemovalNotification<QueryKey, QueryResult> notification) {
+        QueryKey queryKey = notification.getKey();
+        QueryResult removed = notification.getValue();
+        if (queryKey == null || removed == null) {
+            return;
+        }
+        for (String type : removed.getRelatedTypes()) {
+            typeIndex.computeIfPresent(type, (t, keys) -> {
+                // the same key could be put again with a result related to the same type
+                QueryResult current = data.asMap().get(queryKey);
+                if (current == null || !current.getRelatedTypes().contains(t)) {
+                    keys.remove(queryKey);
+                }
+                return keys.isEmpty() ? null : keys;
+            });
+        }
+    }
 }
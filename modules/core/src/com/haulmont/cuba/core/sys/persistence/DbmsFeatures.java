@@ -18,6 +18,7 @@
 package com.haulmont.cuba.core.sys.persistence;
 
 import javax.annotation.Nullable;
+import java.sql.Types;
 import java.util.Map;
 
 /**
@@ -110,4 +111,38 @@ public interface DbmsFeatures {
     default Integer getMaxIdsBatchSize() {
         return null;
     }
+
+    /**
+     * @return maximum number of composite (embedded) ids that can be combined by "OR" in one query.
+     * A value less than 2 (by default) means that instances with composite ids are loaded one by one
+     */
+    default int getMaxEmbeddedIdsBatchSize() {
+        return 0;
+    }
+
+    /**
+     * @return true if {@code INSERT ... SELECT} statements can read rows of the table they insert into,
+     * otherwise such rows are loaded to the middleware and inserted by separate statements
+     */
+    default boolean supportsInsertSelectFromTargetTable() {
+        return false;
+    }
+
+    /**
+     * @return clause appended to a native select statement to lock the selected rows skipping the rows locked by
+     * other transactions, or null if not supported.
+     * <p>The clause should contain %d placeholder that will be replaced by the maximum number of selected rows.
+     */
+    @Nullable
+    default String getSkipLockedSelectClause() {
+        return null;
+    }
+
+    /**
+     * @return JDBC type used to bind values of unlimited string columns (CLOB, TEXT, VARCHAR(MAX)) in native statements
+     * @see java.sql.Types
+     */
+    default int getUnlimitedStringSqlType() {
+        return Types.LONGVARCHAR;
+    }
 }
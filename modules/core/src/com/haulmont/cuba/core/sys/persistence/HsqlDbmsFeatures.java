@@ -77,4 +77,14 @@ public class HsqlDbmsFeatures implements DbmsFeatures {
     public boolean supportsLobSortingAndFiltering() {
         return true;
     }
+
+    @Override
+    public int getMaxEmbeddedIdsBatchSize() {
+        return 100;
+    }
+
+    @Override
+    public boolean supportsInsertSelectFromTargetTable() {
+        return true;
+    }
 }
\ No newline at end of file
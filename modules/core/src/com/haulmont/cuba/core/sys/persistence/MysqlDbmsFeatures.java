@@ -81,4 +81,9 @@ public class MysqlDbmsFeatures implements DbmsFeatures {
     public boolean supportsLobSortingAndFiltering() {
         return true;
     }
-}
\ No newline at end of file
+
+    @Override
+    public int getMaxEmbeddedIdsBatchSize() {
+        return 100;
+    }
+}
@@ -21,6 +21,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nullable;
+import java.sql.Types;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -87,4 +88,19 @@ public class OracleDbmsFeatures implements DbmsFeatures {
     public Integer getMaxIdsBatchSize() {
         return 1000;
     }
+
+    @Override
+    public int getMaxEmbeddedIdsBatchSize() {
+        return 100;
+    }
+
+    @Override
+    public boolean supportsInsertSelectFromTargetTable() {
+        return true;
+    }
+
+    @Override
+    public int getUnlimitedStringSqlType() {
+        return Types.CLOB;
+    }
 }
\ No newline at end of file
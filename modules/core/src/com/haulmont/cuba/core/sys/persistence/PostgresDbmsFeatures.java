@@ -77,4 +77,20 @@ public class PostgresDbmsFeatures implements DbmsFeatures {
     public boolean supportsLobSortingAndFiltering() {
         return true;
     }
-}
\ No newline at end of file
+
+    @Nullable
+    @Override
+    public String getSkipLockedSelectClause() {
+        return "limit %d for update skip locked";
+    }
+
+    @Override
+    public int getMaxEmbeddedIdsBatchSize() {
+        return 100;
+    }
+
+    @Override
+    public boolean supportsInsertSelectFromTargetTable() {
+        return true;
+    }
+}
@@ -82,6 +82,8 @@ public class EntityLog implements EntityLogAPI {
     protected DataManager dataManager;
     @Inject
     protected ServerConfig serverConfig;
+    @Inject
+    protected EntityLogAsyncWriter entityLogAsyncWriter;
 
     protected volatile boolean loaded;
     protected EntityLogConfig config;
@@ -222,6 +224,10 @@ public class EntityLog implements EntityLogAPI {
     }
 
     protected void saveItem(EntityLogItem item) {
+        if (config.getAsync()) {
+            saveItemAsync(item);
+            return;
+        }
         String storeName = metadataTools.getStoreName(metadata.getClassNN(item.getEntity()));
         if (item.getDbGeneratedIdEntity() == null) {
             if (Stores.isMain(storeName)) {
@@ -251,13 +257,31 @@ public class EntityLog implements EntityLogAPI {
         }
     }
 
+    /**
+     * Hands the item over to {@link EntityLogAsyncWriter} after commit of the current transaction.
+     * Audit fields are set here because the writer thread has no security context.
+     */
+    protected void saveItemAsync(EntityLogItem item) {
+        item.setCreateTs(timeSource.currentTimestamp());
+        item.setCreatedBy(auditInfoProvider.getCurrentUserLogin());
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCommit() {
+                if (item.getDbGeneratedIdEntity() != null) {
+                    item.setObjectEntityId(item.getDbGeneratedIdEntity().getId().getNN());
+                }
+                entityLogAsyncWriter.enqueue(item);
+            }
+        });
+    }
+
     @Override
-    public synchronized boolean isEnabled() {
+    public boolean isEnabled() {
         return config.getEnabled() && isLoggingForCurrentThread();
     }
 
     @Override
-    public synchronized void setEnabled(boolean enabled) {
+    public void setEnabled(boolean enabled) {
         if (enabled != config.getEnabled()) {
             config.setEnabled(enabled);
         }
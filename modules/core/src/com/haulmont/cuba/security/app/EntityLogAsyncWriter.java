@@ -0,0 +1,302 @@
+/*
+ * Copyright (c) 2008-2020 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.security.app;
+
+import com.haulmont.bali.db.QueryRunner;
+import com.haulmont.cuba.core.EntityManager;
+import com.haulmont.cuba.core.Persistence;
+import com.haulmont.cuba.core.Transaction;
+import com.haulmont.cuba.core.entity.ReferenceToEntity;
+import com.haulmont.cuba.core.global.Configuration;
+import com.haulmont.cuba.core.global.GlobalConfig;
+import com.haulmont.cuba.core.sys.events.AppContextStoppedEvent;
+import com.haulmont.cuba.core.sys.persistence.DbTypeConverter;
+import com.haulmont.cuba.core.sys.persistence.DbmsSpecificFactory;
+import com.haulmont.cuba.core.sys.serialization.SerializationSupport;
+import com.haulmont.cuba.security.entity.EntityLogItem;
+import org.apache.commons.io.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import javax.inject.Inject;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * INTERNAL.
+ * Write-behind queue used by {@link EntityLog} in asynchronous mode (see {@link EntityLogConfig#getAsync()}).
+ * <p>
+ * Items are enqueued after commit of the business transaction and saved with JDBC batch inserts by a task running
+ * in the {@code entityLogWriteTaskExecutor} bean. If the queue is full or the writer is stopped, items are saved
+ * synchronously in the committing thread.
+ * <p>
+ * When the application stops, the writer task is finished and the items remaining in the queue are saved
+ * synchronously. Items which cannot be saved after several attempts are spooled to files in the {@code entitylog}
+ * subdirectory of {@link GlobalConfig#getDataDir()} and saved later. The queue itself is kept in memory, so items
+ * waiting in it are lost if the JVM crashes; use the synchronous mode if every change must survive a crash.
+ */
+@Component(EntityLogAsyncWriter.NAME)
+public class EntityLogAsyncWriter {
+
+    public static final String NAME = "cuba_EntityLogAsyncWriter";
+
+    private static final Logger log = LoggerFactory.getLogger(EntityLogAsyncWriter.class);
+
+    protected static final String INSERT_SQL = "insert into SEC_ENTITY_LOG (ID, CREATE_TS, CREATED_BY, SYS_TENANT_ID, " +
+            "EVENT_TS, USER_ID, CHANGE_TYPE, ENTITY, ENTITY_ID, STRING_ENTITY_ID, INT_ENTITY_ID, LONG_ENTITY_ID, " +
+            "ENTITY_INSTANCE_NAME, CHANGES) values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    protected static final int MAX_ATTEMPTS = 5;
+
+    protected static final String SPOOL_FILE_SUFFIX = ".spool";
+
+    @Inject
+    protected Persistence persistence;
+
+    @Resource(name = "entityLogWriteTaskExecutor")
+    protected AsyncTaskExecutor taskExecutor;
+
+    protected EntityLogConfig config;
+
+    protected File spoolDir;
+
+    protected BlockingQueue<EntityLogItem> queue;
+
+    protected Future<?> writerTask;
+
+    protected volatile boolean stopped;
+
+    @Inject
+    public EntityLogAsyncWriter(Configuration configuration) {
+        config = configuration.getConfig(EntityLogConfig.class);
+        spoolDir = new File(configuration.getConfig(GlobalConfig.class).getDataDir(), "entitylog");
+        queue = new LinkedBlockingQueue<>(Math.max(config.getAsyncQueueCapacity(), 1));
+    }
+
+    /**
+     * Adds the item to the queue. Must be invoked after the business transaction is committed.
+     */
+    public void enqueue(EntityLogItem item) {
+        if (!stopped) {
+            startWriterIfNeeded();
+            if (queue.offer(item)) {
+                return;
+            }
+            log.debug("EntityLog queue is full, saving item synchronously");
+        }
+        writeWithRetry(Collections.singletonList(item));
+    }
+
+    /**
+     * @return number of items waiting to be saved
+     */
+    public int getQueueSize() {
+        return queue.size();
+    }
+
+    protected synchronized void startWriterIfNeeded() {
+        if (writerTask == null && !stopped) {
+            writerTask = taskExecutor.submit(this::processQueue);
+        }
+    }
+
+    protected void processQueue() {
+        List<EntityLogItem> batch = new ArrayList<>();
+        while (!stopped) {
+            try {
+                EntityLogItem item = queue.poll(1, TimeUnit.SECONDS);
+                if (item == null) {
+                    processSpool();
+                    continue;
+                }
+                batch.add(item);
+                queue.drainTo(batch, Math.max(config.getAsyncBatchSize(), 1) - 1);
+                writeWithRetry(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (Throwable e) {
+                log.error("Error saving EntityLog items", e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    protected void writeWithRetry(List<EntityLogItem> items) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                write(items);
+                return;
+            } catch (RuntimeException e) {
+                if (attempt >= MAX_ATTEMPTS || stopped) {
+                    log.error("Unable to save {} EntityLog items, spooling them to {}", items.size(), spoolDir, e);
+                    spool(items);
+                    return;
+                }
+                log.warn("Error saving EntityLog items, attempt {} of {}: {}", attempt, MAX_ATTEMPTS, e.toString());
+                try {
+                    Thread.sleep(getRetryDelay(attempt));
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    spool(items);
+                    return;
+                }
+            }
+        }
+    }
+
+    protected long getRetryDelay(int attempt) {
+        return 100L << attempt;
+    }
+
+    /**
+     * Saves the items to a file to be written to the database later by {@link #processSpool()}.
+     */
+    protected void spool(List<EntityLogItem> items) {
+        File tmpFile = new File(spoolDir, UUID.randomUUID().toString() + ".tmp");
+        try {
+            FileUtils.forceMkdir(spoolDir);
+            FileUtils.writeByteArrayToFile(tmpFile, SerializationSupport.serialize(new ArrayList<>(items)));
+            Files.move(tmpFile.toPath(), new File(spoolDir, tmpFile.getName().replace(".tmp", SPOOL_FILE_SUFFIX)).toPath(),
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | RuntimeException e) {
+            log.error("Unable to spool EntityLog items, they are lost: {}", items, e);
+            FileUtils.deleteQuietly(tmpFile);
+        }
+    }
+
+    /**
+     * Writes items of spooled files to the database. Stops at the first failure, so the remaining files are
+     * processed next time.
+     */
+    @SuppressWarnings("unchecked")
+    protected void processSpool() {
+        File[] files = spoolDir.listFiles((dir, name) -> name.endsWith(SPOOL_FILE_SUFFIX));
+        if (files == null || files.length == 0) {
+            return;
+        }
+        Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+        for (File file : files) {
+            List<EntityLogItem> items;
+            try {
+                items = (List<EntityLogItem>) SerializationSupport.deserialize(FileUtils.readFileToByteArray(file));
+            } catch (IOException | RuntimeException e) {
+                log.error("Unable to read spooled EntityLog items from {}", file, e);
+                continue;
+            }
+            try {
+                write(items);
+            } catch (RuntimeException e) {
+                log.warn("Error saving spooled EntityLog items: {}", e.toString());
+                return;
+            }
+            FileUtils.deleteQuietly(file);
+            log.info("Saved {} spooled EntityLog items from {}", items.size(), file);
+        }
+    }
+
+    protected void write(List<EntityLogItem> items) {
+        DbTypeConverter converter = persistence.getDbTypeConverter();
+        int uuidType = converter.getSqlType(UUID.class);
+        int dateType = converter.getSqlType(Date.class);
+        // CHANGES is an unlimited text column: CLOB, TEXT or VARCHAR(MAX) depending on the DBMS
+        int changesType = DbmsSpecificFactory.getDbmsFeatures().getUnlimitedStringSqlType();
+        int[] paramTypes = new int[]{uuidType, dateType, Types.VARCHAR, Types.VARCHAR,
+                dateType, uuidType, Types.VARCHAR, Types.VARCHAR, uuidType, Types.VARCHAR, Types.INTEGER, Types.BIGINT,
+                Types.VARCHAR, changesType};
+
+        Object[][] params = new Object[items.size()][];
+        for (int i = 0; i < items.size(); i++) {
+            EntityLogItem item = items.get(i);
+            ReferenceToEntity entityRef = item.getEntityRef();
+            params[i] = new Object[]{
+                    converter.getSqlObject(item.getId()),
+                    converter.getSqlObject(item.getCreateTs()),
+                    item.getCreatedBy(),
+                    item.getSysTenantId(),
+                    converter.getSqlObject(item.getEventTs()),
+                    item.getUser() != null ? converter.getSqlObject(item.getUser().getId()) : null,
+                    item.getType() != null ? item.getType().getId() : null,
+                    item.getEntity(),
+                    entityRef != null ? converter.getSqlObject(entityRef.getEntityId()) : null,
+                    entityRef != null ? entityRef.getStringEntityId() : null,
+                    entityRef != null ? entityRef.getIntEntityId() : null,
+                    entityRef != null ? entityRef.getLongEntityId() : null,
+                    item.getEntityInstanceName(),
+                    item.getChanges()
+            };
+        }
+
+        try (Transaction tx = persistence.createTransaction()) {
+            EntityManager em = persistence.getEntityManager();
+            new QueryRunner().batch(em.getConnection(), INSERT_SQL, params, paramTypes);
+            tx.commit();
+        } catch (SQLException e) {
+            throw new RuntimeException("Error saving EntityLog items", e);
+        }
+    }
+
+    /**
+     * Waits for the writer task to finish its current batch and saves the items remaining in the queue.
+     * Items enqueued after this method is called are saved synchronously.
+     */
+    @EventListener(AppContextStoppedEvent.class)
+    @PreDestroy
+    public void stop() {
+        Future<?> writerTask;
+        synchronized (this) {
+            if (stopped) {
+                return;
+            }
+            stopped = true;
+            writerTask = this.writerTask;
+        }
+        if (writerTask != null) {
+            try {
+                writerTask.get(5, TimeUnit.SECONDS);
+            } catch (TimeoutException e) {
+                log.warn("EntityLog writer has not finished in 5 seconds");
+            } catch (ExecutionException e) {
+                log.error("EntityLog writer has failed", e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        List<EntityLogItem> items = new ArrayList<>();
+        queue.drainTo(items);
+        if (!items.isEmpty()) {
+            log.info("Saving {} remaining EntityLog items", items.size());
+            int batchSize = Math.max(config.getAsyncBatchSize(), 1);
+            for (int i = 0; i < items.size(); i += batchSize) {
+                writeWithRetry(items.subList(i, Math.min(i + batchSize, items.size())));
+            }
+        }
+    }
+}
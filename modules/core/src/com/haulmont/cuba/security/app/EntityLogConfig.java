@@ -21,6 +21,7 @@ import com.haulmont.cuba.core.config.Property;
 import com.haulmont.cuba.core.config.Source;
 import com.haulmont.cuba.core.config.SourceType;
 import com.haulmont.cuba.core.config.defaults.DefaultBoolean;
+import com.haulmont.cuba.core.config.defaults.DefaultInt;
 
 /**
  * {@link com.haulmont.cuba.security.app.EntityLog} configuration parameters
@@ -35,4 +36,29 @@ public interface EntityLogConfig extends Config {
     @DefaultBoolean(true)
     boolean getEnabled();
     void setEnabled(boolean value);
-}
\ No newline at end of file
+
+    /**
+     * @return Whether the EntityLog items are saved asynchronously after commit of the business transaction
+     * by {@link EntityLogAsyncWriter} using JDBC batch inserts
+     */
+    @Property("cuba.entityLog.async")
+    @DefaultBoolean(false)
+    boolean getAsync();
+    void setAsync(boolean value);
+
+    /**
+     * @return Maximum number of EntityLog items waiting to be saved in asynchronous mode. If the queue is full,
+     * items are saved synchronously in the thread which has committed the transaction.
+     */
+    @Property("cuba.entityLog.asyncQueueCapacity")
+    @Source(type = SourceType.APP)
+    @DefaultInt(10000)
+    int getAsyncQueueCapacity();
+
+    /**
+     * @return Maximum number of EntityLog items saved by one JDBC batch in asynchronous mode
+     */
+    @Property("cuba.entityLog.asyncBatchSize")
+    @DefaultInt(100)
+    int getAsyncBatchSize();
+}
@@ -179,9 +179,17 @@ public class UserSessionLogBean implements UserSessionLog {
                         .setQuery(createQuery("select e from sec$SessionLogEntry e where e.finishedTs is null"));
                 List<SessionLogEntry> sessionLogEntries = dataManager.loadList(lc);
                 CommitContext cc = new CommitContext();
-                Set<UUID> activeSessionsIds = userSessionsAPI.getUserSessionsStream()
-                        .map(UserSession::getId)
-                        .collect(Collectors.toSet());
+                Set<UUID> activeSessionsIds;
+                try {
+                    // sessions can be stored on other cluster members in the partitioned mode
+                    activeSessionsIds = userSessionsAPI.getClusterUserSessionsStream()
+                            .map(UserSession::getId)
+                            .collect(Collectors.toSet());
+                } catch (IllegalStateException e) {
+                    log.warn("Unable to get user sessions of all cluster members, dead session records are not closed: {}",
+                            e.getMessage());
+                    return null;
+                }
                 for (SessionLogEntry entry : sessionLogEntries) {
                     if (activeSessionsIds.contains(entry.getSessionId())) {
                         continue;   // do not touch active session records
@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) 2008-2020 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.haulmont.cuba.security.app;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Chooses cluster members storing a user session in the partitioned mode of {@link UserSessions}.
+ * <p>
+ * Uses rendezvous (highest random weight) hashing: every member gets a weight computed from its name and the session
+ * id, and the members with the highest weights own the session. When a member joins or leaves the cluster, owners
+ * change only for sessions the member is one of the owners of.
+ */
+public class UserSessionPartitioner {
+
+    protected static final HashFunction HASH_FUNCTION = Hashing.murmur3_128();
+
+    /**
+     * @param sessionId user session id
+     * @param members   cluster member names
+     * @param count     number of owners
+     * @return up to {@code count} owners of the session, the first one is the primary owner
+     */
+    public static List<String> getOwners(UUID sessionId, List<String> members, int count) {
+        if (members.isEmpty() || count <= 0) {
+            return Collections.emptyList();
+        }
+        if (members.size() == 1) {
+            return Collections.singletonList(members.get(0));
+        }
+
+        Map<String, Long> weights = new HashMap<>(members.size());
+        for (String member : members) {
+            weights.put(member, getWeight(sessionId, member));
+        }
+        List<String> owners = new ArrayList<>(members);
+        owners.sort(Comparator.comparing((String member) -> weights.get(member)).reversed()
+                .thenComparing(Comparator.naturalOrder()));
+        return owners.size() > count ? new ArrayList<>(owners.subList(0, count)) : owners;
+    }
+
+    protected static long getWeight(UUID sessionId, String member) {
+        return HASH_FUNCTION.newHasher()
+                .putLong(sessionId.getMostSignificantBits())
+                .putLong(sessionId.getLeastSignificantBits())
+                .putString(member, StandardCharsets.UTF_8)
+                .hash()
+                .asLong();
+    }
+}
@@ -17,6 +17,7 @@ package com.haulmont.cuba.security.app;
 
 import com.haulmont.bali.util.Preconditions;
 import com.haulmont.cuba.core.app.ClusterListener;
+import com.haulmont.cuba.core.app.ClusterListenerAdapter;
 import com.haulmont.cuba.core.app.ClusterManagerAPI;
 import com.haulmont.cuba.core.app.ServerConfig;
 import com.haulmont.cuba.core.global.Configuration;
@@ -36,12 +37,21 @@ import javax.annotation.Nullable;
 import javax.inject.Inject;
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 /**
  * User sessions distributed cache.
+ * <p>
+ * By default, every session is replicated to all cluster members. If {@link ServerConfig#getUserSessionPartitioning()}
+ * is on, a session is stored on its owners chosen by {@link UserSessionPartitioner}, and other members fetch it
+ * on demand.
  */
 @Component(UserSessionsAPI.NAME)
 public class UserSessions implements UserSessionsAPI {
@@ -84,6 +94,136 @@ public class UserSessions implements UserSessionsAPI {
         }
     }
 
+    /**
+     * Request to return a user session to the requesting member in the partitioned mode.
+     */
+    public static class UserSessionFetchRequest implements Serializable {
+        private static final long serialVersionUID = 2309460231963428811L;
+
+        public final UUID requestId;
+        public final UUID sessionId;
+        public final String requester;
+
+        public UserSessionFetchRequest(UUID requestId, UUID sessionId, String requester) {
+            this.requestId = requestId;
+            this.sessionId = sessionId;
+            this.requester = requester;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("fetch %s for %s (request %s)", sessionId, requester, requestId);
+        }
+    }
+
+    /**
+     * Response to {@link UserSessionFetchRequest}, contains null if the member does not store the session.
+     */
+    public static class UserSessionFetchResponse implements Serializable {
+        private static final long serialVersionUID = -1946245317330466839L;
+
+        public final UUID requestId;
+        public final UUID sessionId;
+        public final UserSessionInfo info;
+
+        public UserSessionFetchResponse(UUID requestId, UUID sessionId, @Nullable UserSessionInfo info) {
+            this.requestId = requestId;
+            this.sessionId = sessionId;
+            this.info = info;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s: %s (request %s)", sessionId, info != null ? "found" : "not found", requestId);
+        }
+    }
+
+    /**
+     * Last used timestamps of sessions sent to their owners at once in the partitioned mode.
+     */
+    public static class UserSessionTouches implements Serializable {
+        private static final long serialVersionUID = 6016287213357291024L;
+
+        public final Map<UUID, Long> lastUsedTs;
+
+        public UserSessionTouches(Map<UUID, Long> lastUsedTs) {
+            this.lastUsedTs = lastUsedTs;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("touches of %d sessions", lastUsedTs.size());
+        }
+    }
+
+    /**
+     * Request to return all sessions stored on a member to the requesting member in the partitioned mode.
+     */
+    public static class UserSessionsListRequest implements Serializable {
+        private static final long serialVersionUID = -3301618730542213517L;
+
+        public final UUID requestId;
+        public final String requester;
+
+        public UserSessionsListRequest(UUID requestId, String requester) {
+            this.requestId = requestId;
+            this.requester = requester;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("list sessions for %s (request %s)", requester, requestId);
+        }
+    }
+
+    /**
+     * Response to {@link UserSessionsListRequest}, contains sessions stored on the responding member.
+     */
+    public static class UserSessionsListResponse implements Serializable {
+        private static final long serialVersionUID = 4417794404460393725L;
+
+        public final UUID requestId;
+        public final String member;
+        public final List<UserSessionInfo> sessions;
+
+        public UserSessionsListResponse(UUID requestId, String member, List<UserSessionInfo> sessions) {
+            this.requestId = requestId;
+            this.member = member;
+            this.sessions = sessions;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d sessions of %s (request %s)", sessions.size(), member, requestId);
+        }
+    }
+
+    protected static class PendingList {
+        protected final UUID requestId = UUID.randomUUID();
+        protected final Map<UUID, UserSessionInfo> sessions = new ConcurrentHashMap<>();
+        protected final Set<String> remainingMembers = ConcurrentHashMap.newKeySet();
+        protected final CompletableFuture<Void> result = new CompletableFuture<>();
+
+        protected PendingList(Collection<String> members) {
+            remainingMembers.addAll(members);
+        }
+
+        protected void add(UserSessionInfo usi) {
+            sessions.merge(usi.session.getId(), usi,
+                    (existing, received) -> existing.lastUsedTs >= received.lastUsedTs ? existing : received);
+        }
+    }
+
+    protected static class PendingFetch {
+        protected final UUID requestId = UUID.randomUUID();
+        protected final CompletableFuture<UserSessionInfo> result = new CompletableFuture<>();
+        protected final AtomicInteger remainingResponses;
+
+        protected PendingFetch(int expectedResponses) {
+            this.remainingResponses = new AtomicInteger(expectedResponses);
+        }
+    }
+
     private static final Logger log = LoggerFactory.getLogger(UserSessions.class);
 
     protected Map<UUID, UserSessionInfo> cache = new ConcurrentHashMap<>();
@@ -94,6 +234,28 @@ public class UserSessions implements UserSessionsAPI {
 
     protected volatile int touchTimeout = 1;
 
+    protected volatile boolean partitioned;
+
+    protected volatile int backupCount = 1;
+
+    protected volatile int nearCacheTimeout = 60;
+
+    protected volatile int fetchTimeoutMs = 2000;
+
+    protected volatile int notFoundCacheTimeoutMs = 1000;
+
+    // cluster members for which sessions were last distributed among owners
+    protected volatile List<String> partitionMembers = Collections.emptyList();
+
+    protected Set<UUID> touchedSessions = ConcurrentHashMap.newKeySet();
+
+    protected Map<UUID, PendingFetch> pendingFetches = new ConcurrentHashMap<>();
+
+    protected Map<UUID, PendingList> pendingLists = new ConcurrentHashMap<>();
+
+    // sessions not found by owners, with the time until which they are not requested again
+    protected Map<UUID, Long> notFoundSessions = new ConcurrentHashMap<>();
+
     protected ClusterManagerAPI clusterManager;
 
     protected UserSession NO_USER_SESSION;
@@ -128,6 +290,11 @@ public class UserSessions implements UserSessionsAPI {
         setExpirationTimeoutSec(serverConfig.getUserSessionExpirationTimeoutSec());
         setSendTimeoutSec(serverConfig.getUserSessionSendTimeoutSec());
         touchTimeout = serverConfig.getUserSessionTouchTimeoutSec();
+        partitioned = serverConfig.getUserSessionPartitioning();
+        backupCount = serverConfig.getUserSessionBackupCount();
+        nearCacheTimeout = serverConfig.getUserSessionNearCacheTimeoutSec();
+        fetchTimeoutMs = serverConfig.getUserSessionFetchTimeoutMs();
+        notFoundCacheTimeoutMs = serverConfig.getUserSessionNotFoundCacheTimeoutMs();
     }
 
     @Inject
@@ -153,6 +320,51 @@ public class UserSessions implements UserSessionsAPI {
                     }
                 }
         );
+        this.clusterManager.addListener(
+                UserSessionFetchRequest.class,
+                new ClusterListenerAdapter<UserSessionFetchRequest>() {
+                    @Override
+                    public void receive(UserSessionFetchRequest message) {
+                        receiveFetchRequest(message);
+                    }
+                }
+        );
+        this.clusterManager.addListener(
+                UserSessionFetchResponse.class,
+                new ClusterListenerAdapter<UserSessionFetchResponse>() {
+                    @Override
+                    public void receive(UserSessionFetchResponse message) {
+                        receiveFetchResponse(message);
+                    }
+                }
+        );
+        this.clusterManager.addListener(
+                UserSessionsListRequest.class,
+                new ClusterListenerAdapter<UserSessionsListRequest>() {
+                    @Override
+                    public void receive(UserSessionsListRequest message) {
+                        receiveListRequest(message);
+                    }
+                }
+        );
+        this.clusterManager.addListener(
+                UserSessionsListResponse.class,
+                new ClusterListenerAdapter<UserSessionsListResponse>() {
+                    @Override
+                    public void receive(UserSessionsListResponse message) {
+                        receiveListResponse(message);
+                    }
+                }
+        );
+        this.clusterManager.addListener(
+                UserSessionTouches.class,
+                new ClusterListenerAdapter<UserSessionTouches>() {
+                    @Override
+                    public void receive(UserSessionTouches message) {
+                        receiveTouches(message);
+                    }
+                }
+        );
     }
 
     protected void receiveClusterMessage(UserSessionInfo message) {
@@ -162,12 +374,62 @@ public class UserSessions implements UserSessionsAPI {
             removeSessionInfo(id);
         } else {
             UserSessionInfo usi = getSessionInfo(id);
+            if (usi == null && partitioned && !isOwner(id, clusterManager.getMembers())) {
+                // propagation of a session that is neither owned nor cached by this member
+                return;
+            }
             if (usi == null || usi.lastUsedTs < message.lastUsedTs) {
                 putSessionInfo(id, message);
             }
         }
     }
 
+    protected void receiveFetchRequest(UserSessionFetchRequest request) {
+        UserSessionInfo usi = getSessionInfo(request.sessionId);
+        clusterManager.send(request.requester, new UserSessionFetchResponse(request.requestId, request.sessionId, usi));
+    }
+
+    protected void receiveFetchResponse(UserSessionFetchResponse response) {
+        PendingFetch fetch = pendingFetches.get(response.sessionId);
+        if (fetch == null || !fetch.requestId.equals(response.requestId))
+            return;
+
+        if (response.info != null) {
+            fetch.result.complete(response.info);
+        } else if (fetch.remainingResponses.decrementAndGet() <= 0) {
+            fetch.result.complete(null);
+        }
+    }
+
+    protected void receiveListRequest(UserSessionsListRequest request) {
+        List<UserSessionInfo> sessions = getSessionInfoStream()
+                .filter(info -> !info.session.isSystem())
+                .collect(Collectors.toList());
+        clusterManager.send(request.requester,
+                new UserSessionsListResponse(request.requestId, clusterManager.getLocalMember(), sessions));
+    }
+
+    protected void receiveListResponse(UserSessionsListResponse response) {
+        PendingList list = pendingLists.get(response.requestId);
+        if (list == null)
+            return;
+
+        response.sessions.forEach(list::add);
+        list.remainingMembers.remove(response.member);
+        if (list.remainingMembers.isEmpty()) {
+            list.result.complete(null);
+        }
+    }
+
+    protected void receiveTouches(UserSessionTouches touches) {
+        for (Map.Entry<UUID, Long> entry : touches.lastUsedTs.entrySet()) {
+            UserSessionInfo usi = getSessionInfo(entry.getKey());
+            if (usi != null && usi.lastUsedTs < entry.getValue()) {
+                usi.lastUsedTs = entry.getValue();
+            }
+        }
+    }
+
     protected void receiveClusterState(byte[] state) {
         if (state == null || state.length == 0) {
             log.debug("Received empty user sessions cache");
@@ -189,6 +451,11 @@ public class UserSessions implements UserSessionsAPI {
     }
 
     protected byte[] sendClusterState() {
+        if (partitioned) {
+            // a joining member receives sessions it owns from other members on rebalancing
+            return new byte[0];
+        }
+
         List<UserSessionInfo> infoList = getSessionInfoStream().collect(Collectors.toList());
         if (infoList.isEmpty())
             return new byte[0];
@@ -213,7 +480,9 @@ public class UserSessions implements UserSessionsAPI {
         UserSessionInfo usi = new UserSessionInfo(session, timeSource.currentTimeMillis());
         putSessionInfo(session.getId(), usi);
         if (!session.isSystem()) {
-            if (serverConfig.getSyncNewUserSessionReplication())
+            if (partitioned)
+                sendToOwners(usi, serverConfig.getSyncNewUserSessionReplication());
+            else if (serverConfig.getSyncNewUserSessionReplication())
                 clusterManager.sendSync(usi);
             else
                 clusterManager.send(usi);
@@ -225,10 +494,13 @@ public class UserSessions implements UserSessionsAPI {
         UserSessionInfo usi = removeSessionInfo(session.getId());
         if (usi != null) {
             log.debug("Removed session: {}", usi);
-            if (!session.isSystem()) {
-                usi.lastUsedTs = 0;
-                clusterManager.send(usi);
-            }
+        } else if (partitioned && !session.isSystem()) {
+            // the session can be stored on its owners only
+            usi = new UserSessionInfo(session, timeSource.currentTimeMillis());
+        }
+        if (usi != null && !session.isSystem()) {
+            usi.lastUsedTs = 0;
+            clusterManager.send(usi);
         }
     }
 
@@ -280,6 +552,9 @@ public class UserSessions implements UserSessionsAPI {
             return NO_USER_SESSION;
 
         UserSessionInfo usi = getSessionInfo(id);
+        if (usi == null && partitioned) {
+            usi = fetchSessionInfo(id);
+        }
         if (usi != null) {
             if (touch) {
                 long now = timeSource.currentTimeMillis();
@@ -292,7 +567,10 @@ public class UserSessions implements UserSessionsAPI {
                 if (propagate && !usi.session.isSystem()) {
                     if (now > (usi.lastSentTs + toMillis(sendTimeout))) {
                         usi.lastSentTs = now;
-                        clusterManager.send(usi);
+                        if (partitioned)
+                            touchedSessions.add(id);
+                        else
+                            clusterManager.send(usi);
                     }
                 }
             }
@@ -365,9 +643,21 @@ public class UserSessions implements UserSessionsAPI {
         return getSessionInfoStream().map(info -> info.session);
     }
 
+    @Override
+    public Stream<UserSession> getClusterUserSessionsStream() {
+        if (!partitioned) {
+            return getUserSessionsStream();
+        }
+        return collectClusterSessionInfo().stream().map(info -> info.session);
+    }
+
     @Override
     public void killSession(UUID id) {
         UserSessionInfo usi = removeSessionInfo(id);
+        if (usi == null && partitioned) {
+            usi = fetchSessionInfo(id);
+            removeSessionInfo(id);
+        }
 
         if (usi != null) {
             log.debug("Killed session: {}", usi);
@@ -398,6 +688,13 @@ public class UserSessions implements UserSessionsAPI {
         log.trace("Processing eviction");
         long now = timeSource.currentTimeMillis();
 
+        if (partitioned) {
+            rebalance();
+            sendTouches();
+            processPartitionedEviction(now);
+            return;
+        }
+
         getSessionInfoStream()
                 .filter(info -> !info.session.isSystem() && now > (info.lastUsedTs + toMillis(expirationTimeout)))
                 .forEach(usi -> {
@@ -412,12 +709,236 @@ public class UserSessions implements UserSessionsAPI {
                 });
     }
 
+    protected void processPartitionedEviction(long now) {
+        notFoundSessions.values().removeIf(notFoundUntil -> now >= notFoundUntil);
+
+        List<String> members = clusterManager.getMembers();
+        String localMember = clusterManager.getLocalMember();
+
+        getSessionInfoStream()
+                .filter(info -> !info.session.isSystem())
+                .forEach(usi -> {
+                    UUID id = usi.session.getId();
+                    List<String> owners = getOwners(id, members);
+                    if (!isOwner(id, members)) {
+                        if (now > (usi.lastUsedTs + toMillis(nearCacheTimeout))) {
+                            log.trace("Removing session from near-cache: {}", usi);
+                            removeSessionInfo(id);
+                        }
+                    } else if (now > (usi.lastUsedTs + toMillis(expirationTimeout))) {
+                        removeSessionInfo(id);
+                        // backups remove the session silently, the primary owner notifies the cluster
+                        if (localMember == null || owners.isEmpty() || owners.get(0).equals(localMember)) {
+                            log.debug("Removing session due to timeout: {}", usi);
+
+                            userSessionLog.updateSessionLogRecord(usi.getSession(), SessionAction.EXPIRATION);
+
+                            usi.lastUsedTs = 0;
+                            clusterManager.send(usi);
+                        }
+                    }
+                });
+    }
+
+    /**
+     * Sends sessions stored on this member to members that became their owners after the cluster view change.
+     */
+    protected void rebalance() {
+        List<String> members = clusterManager.getMembers();
+        List<String> previousMembers = partitionMembers;
+        if (members.equals(previousMembers))
+            return;
+
+        partitionMembers = members;
+        String localMember = clusterManager.getLocalMember();
+        // on the first call, sessions are already stored on owners they were sent to on creation
+        if (localMember == null || previousMembers.isEmpty() || members.size() <= 1)
+            return;
+
+        int sent = 0;
+        for (UserSessionInfo usi : getSessionInfoStream().collect(Collectors.toList())) {
+            if (usi.session.isSystem())
+                continue;
+
+            UUID id = usi.session.getId();
+            List<String> previousOwners = getOwners(id, previousMembers);
+            if (!previousOwners.isEmpty() && !previousOwners.contains(localMember))
+                continue; // the session is in the near-cache of this member
+
+            for (String owner : getOwners(id, members)) {
+                if (!owner.equals(localMember) && !previousOwners.contains(owner)) {
+                    clusterManager.send(owner, usi);
+                    sent++;
+                }
+            }
+        }
+        log.debug("Cluster members changed to {}, sent {} sessions to new owners", members, sent);
+    }
+
+    /**
+     * Sends last used timestamps of sessions touched since the previous call to their owners,
+     * one message per owner.
+     */
+    protected void sendTouches() {
+        if (touchedSessions.isEmpty())
+            return;
+
+        List<String> members = clusterManager.getMembers();
+        String localMember = clusterManager.getLocalMember();
+        Map<String, Map<UUID, Long>> touchesByOwner = new HashMap<>();
+        for (Iterator<UUID> it = touchedSessions.iterator(); it.hasNext(); ) {
+            UUID id = it.next();
+            it.remove();
+
+            UserSessionInfo usi = getSessionInfo(id);
+            if (usi == null)
+                continue;
+
+            for (String owner : getOwners(id, members)) {
+                if (!owner.equals(localMember)) {
+                    touchesByOwner.computeIfAbsent(owner, k -> new HashMap<>()).put(id, usi.lastUsedTs);
+                }
+            }
+        }
+        touchesByOwner.forEach((owner, touches) -> clusterManager.send(owner, new UserSessionTouches(touches)));
+    }
+
+    protected void sendToOwners(UserSessionInfo usi, boolean sync) {
+        String localMember = clusterManager.getLocalMember();
+        boolean forceSync = sync && !clusterManager.getSyncSendingForCurrentThread();
+        if (forceSync) {
+            clusterManager.setSyncSendingForCurrentThread(true);
+        }
+        try {
+            for (String owner : getOwners(usi.session.getId(), clusterManager.getMembers())) {
+                if (!owner.equals(localMember)) {
+                    clusterManager.send(owner, usi);
+                }
+            }
+        } finally {
+            if (forceSync) {
+                clusterManager.setSyncSendingForCurrentThread(false);
+            }
+        }
+    }
+
+    /**
+     * Requests the session from its owners and waits for the first one that has it.
+     * The received session is put to the near-cache. If no owner has the session, it is not requested again
+     * during {@link ServerConfig#getUserSessionNotFoundCacheTimeoutMs()}.
+     */
+    @Nullable
+    protected UserSessionInfo fetchSessionInfo(UUID id) {
+        String localMember = clusterManager.getLocalMember();
+        if (localMember == null)
+            return null;
+
+        Long notFoundUntil = notFoundSessions.get(id);
+        if (notFoundUntil != null) {
+            if (timeSource.currentTimeMillis() < notFoundUntil)
+                return null;
+            notFoundSessions.remove(id, notFoundUntil);
+        }
+
+        List<String> members = clusterManager.getMembers();
+        // owners before the last view change still store the session until it is rebalanced
+        Set<String> targets = new LinkedHashSet<>(getOwners(id, members));
+        targets.addAll(getOwners(id, partitionMembers));
+        targets.remove(localMember);
+        targets.retainAll(members);
+        if (targets.isEmpty())
+            return null;
+
+        PendingFetch fetch = new PendingFetch(targets.size());
+        PendingFetch existingFetch = pendingFetches.putIfAbsent(id, fetch);
+        if (existingFetch != null) {
+            fetch = existingFetch;
+        } else {
+            for (String target : targets) {
+                clusterManager.send(target, new UserSessionFetchRequest(fetch.requestId, id, localMember));
+            }
+        }
+
+        try {
+            UserSessionInfo usi = fetch.result.get(fetchTimeoutMs, TimeUnit.MILLISECONDS);
+            if (usi != null) {
+                putSessionInfo(id, usi);
+            } else {
+                markNotFound(id);
+            }
+            return usi;
+        } catch (TimeoutException e) {
+            log.warn("Timeout fetching user session {} from {}", id, targets);
+            markNotFound(id);
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Error fetching user session " + id, e);
+        } finally {
+            pendingFetches.remove(id, fetch);
+        }
+    }
+
+    /**
+     * Requests sessions from all other cluster members and waits until every member responds.
+     * Sessions stored on several members are returned once.
+     *
+     * @throws IllegalStateException if some members have not responded in {@link ServerConfig#getUserSessionFetchTimeoutMs()}
+     */
+    protected Collection<UserSessionInfo> collectClusterSessionInfo() {
+        String localMember = clusterManager.getLocalMember();
+        Set<String> targets = new LinkedHashSet<>(clusterManager.getMembers());
+        targets.remove(localMember);
+
+        PendingList list = new PendingList(targets);
+        getSessionInfoStream().forEach(list::add);
+        if (localMember == null || targets.isEmpty())
+            return list.sessions.values();
+
+        pendingLists.put(list.requestId, list);
+        try {
+            for (String target : targets) {
+                clusterManager.send(target, new UserSessionsListRequest(list.requestId, localMember));
+            }
+            list.result.get(fetchTimeoutMs, TimeUnit.MILLISECONDS);
+            return list.sessions.values();
+        } catch (TimeoutException e) {
+            throw new IllegalStateException("Timeout collecting user sessions from " + list.remainingMembers);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while collecting user sessions", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Error collecting user sessions", e);
+        } finally {
+            pendingLists.remove(list.requestId);
+        }
+    }
+
+    protected void markNotFound(UUID id) {
+        if (notFoundCacheTimeoutMs > 0) {
+            notFoundSessions.put(id, timeSource.currentTimeMillis() + notFoundCacheTimeoutMs);
+        }
+    }
+
+    protected List<String> getOwners(UUID id, List<String> members) {
+        return UserSessionPartitioner.getOwners(id, members, backupCount + 1);
+    }
+
+    protected boolean isOwner(UUID id, List<String> members) {
+        String localMember = clusterManager.getLocalMember();
+        List<String> owners = getOwners(id, members);
+        return localMember == null || owners.isEmpty() || owners.contains(localMember);
+    }
+
     protected UserSessionInfo getSessionInfo(UUID id) {
         return cache.get(id);
     }
 
     protected void putSessionInfo(UUID id, UserSessionInfo info) {
         cache.put(id, info);
+        notFoundSessions.remove(id);
     }
 
     @Nullable
@@ -98,9 +98,24 @@ public interface UserSessionsAPI extends UserSessionFinder {
 
     /**
      * Stream of active user sessions.
+     * <p>
+     * If {@link com.haulmont.cuba.core.app.ServerConfig#getUserSessionPartitioning()} is on, contains only
+     * sessions stored on this cluster member. Use {@link #getClusterUserSessionsStream()} to find sessions of
+     * the whole cluster.
      */
     Stream<UserSession> getUserSessionsStream();
 
+    /**
+     * Stream of active user sessions of all cluster members.
+     * <p>
+     * If {@link com.haulmont.cuba.core.app.ServerConfig#getUserSessionPartitioning()} is on, requests sessions
+     * from other members and waits for their responses. Otherwise, returns the same sessions as
+     * {@link #getUserSessionsStream()}, because every session is replicated to all members.
+     *
+     * @throws IllegalStateException if some cluster members have not returned their sessions in time
+     */
+    Stream<UserSession> getClusterUserSessionsStream();
+
     /**
      * INTERNAL.
      *
@@ -64,6 +64,18 @@ public class UserSettingServiceBean implements UserSettingService {
         return value;
     }
 
+    @Override
+    public Map<String, String> loadSettings(ClientType clientType) {
+        Map<String, String> settings = new HashMap<>();
+        try (Transaction tx = persistence.createTransaction(new TransactionParams().setReadOnly(true))) {
+            for (UserSetting us : findUserSettingsList(clientType, null)) {
+                settings.put(us.getName(), us.getValue());
+            }
+            tx.commit();
+        }
+        return settings;
+    }
+
     @Override
     public void saveSetting(String name, String value) {
         saveSetting(null, name, value);
@@ -91,6 +103,39 @@ public class UserSettingServiceBean implements UserSettingService {
         }
     }
 
+    @Override
+    public void saveSettings(ClientType clientType, Map<String, String> settings) {
+        if (settings.isEmpty()) {
+            return;
+        }
+
+        try (Transaction tx = persistence.createTransaction()) {
+            EntityManager em = persistence.getEntityManager();
+
+            Map<String, UserSetting> existingSettings = new HashMap<>();
+            for (UserSetting us : findUserSettingsList(clientType, settings.keySet())) {
+                existingSettings.put(us.getName(), us);
+            }
+
+            for (Map.Entry<String, String> entry : settings.entrySet()) {
+                UserSetting us = existingSettings.get(entry.getKey());
+                if (us == null) {
+                    us = metadata.create(UserSetting.class);
+                    us.setUser(em.getReference(User.class, userSessionSource.getUserSession().getUser().getId()));
+                    us.setName(entry.getKey());
+                    us.setClientType(clientType);
+                    us.setValue(entry.getValue());
+
+                    em.persist(us);
+                } else {
+                    us.setValue(entry.getValue());
+                }
+            }
+
+            tx.commit();
+        }
+    }
+
     @Override
     public void deleteSettings(ClientType clientType, String name) {
         try (Transaction tx = persistence.createTransaction()) {
@@ -205,6 +250,25 @@ public class UserSettingServiceBean implements UserSettingService {
         return q.getFirstResult();
     }
 
+    /**
+     * @param names setting names, null to find all settings of the current user
+     */
+    protected List<UserSetting> findUserSettingsList(ClientType clientType, @Nullable Collection<String> names) {
+        EntityManager em = persistence.getEntityManager();
+
+        TypedQuery<UserSetting> q = em.createQuery(
+                "select s from sec$UserSetting s where s.user.id = :userId and s.clientType = :clientType"
+                        + (names != null ? " and s.name in :names" : ""),
+                UserSetting.class);
+        q.setParameter("userId", userSessionSource.getUserSession().getUser().getId());
+        q.setParameter("clientType", clientType == null ? null : clientType.getId());
+        if (names != null) {
+            q.setParameter("names", names);
+        }
+
+        return q.getResultList();
+    }
+
     protected Map<UUID, Presentation> copyPresentations(User fromUser, User toUser) {
         Map<UUID, Presentation> presentationMap = new HashMap<>();
         try (Transaction tx = persistence.createTransaction()) {
@@ -35,6 +35,7 @@ import java.util.Collections;
 import java.util.List;
 import java.util.UUID;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Component("cuba_UserInvalidationListener")
 public class UserInvalidationListener {
@@ -58,7 +59,7 @@ public class UserInvalidationListener {
         log.info("Handling user invalidation: {}", user.getLogin());
 
         try (Transaction tx = persistence.createTransaction()) {
-            List<UUID> sessionsIds = userSessionsAPI.getUserSessionsStream()
+            List<UUID> sessionsIds = getUserSessionsStream()
                     .filter(session -> session != null &&
                             (user.equals(session.getUser()) || user.equals(session.getSubstitutedUser())))
                     .map(UserSession::getId)
@@ -75,4 +76,13 @@ public class UserInvalidationListener {
             log.error("An error occurred while handling user invalidation for user: {}.", user.getLogin(), t);
         }
     }
+
+    protected Stream<UserSession> getUserSessionsStream() {
+        try {
+            return userSessionsAPI.getClusterUserSessionsStream();
+        } catch (IllegalStateException e) {
+            log.error("Unable to get user sessions of all cluster members, only sessions of this member are invalidated", e);
+            return userSessionsAPI.getUserSessionsStream();
+        }
+    }
 }
@@ -17,6 +17,8 @@
 package com.haulmont.cuba.security.sys;
 
 import com.google.common.base.Strings;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.haulmont.cuba.core.EntityManager;
 import com.haulmont.cuba.core.Persistence;
 import com.haulmont.cuba.core.Transaction;
@@ -38,9 +40,11 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
 
+import javax.annotation.PostConstruct;
 import javax.inject.Inject;
 import java.io.Serializable;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
 import java.util.stream.Collectors;
 
 /**
@@ -53,6 +57,9 @@ public class UserSessionManager {
 
     private final Logger log = LoggerFactory.getLogger(UserSessionManager.class);
 
+    protected static final PermissionType[] PERMISSION_TYPES = {PermissionType.ENTITY_OP, PermissionType.ENTITY_ATTR,
+            PermissionType.SPECIFIC, PermissionType.SCREEN, PermissionType.UI};
+
     public static final String NAME = "cuba_UserSessionManager";
 
     @Inject
@@ -85,6 +92,15 @@ public class UserSessionManager {
     @Inject
     protected AccessGroupDefinitionsComposer groupsComposer;
 
+    protected Cache<JoinedRoleKey, RoleDefinition> joinedRoles;
+
+    @PostConstruct
+    protected void init() {
+        joinedRoles = CacheBuilder.newBuilder()
+                .maximumSize(Math.max(serverConfig.getJoinedRolesCacheMaxSize(), 0))
+                .build();
+    }
+
     /**
      * Create a new session and fill it with security data. Must be called inside a transaction.
      *
@@ -189,7 +205,25 @@ public class UserSessionManager {
     }
 
     protected void compilePermissions(UserSession session, List<RoleDefinition> roles) {
-        session.setJoinedRole(buildJoinedRoleDefinition(roles));
+        session.setJoinedRole(getJoinedRoleDefinition(roles));
+    }
+
+    /**
+     * Returns the joined role definition shared by all sessions having roles with the same permissions.
+     * The returned instance must not be modified.
+     */
+    protected RoleDefinition getJoinedRoleDefinition(List<RoleDefinition> roles) {
+        List<RoleDefinition> sortedRoles = new ArrayList<>(roles);
+        sortedRoles.sort(Comparator.comparing(RoleDefinition::getName, Comparator.nullsFirst(Comparator.naturalOrder())));
+        if (serverConfig.getJoinedRolesCacheMaxSize() <= 0) {
+            return buildJoinedRoleDefinition(sortedRoles);
+        }
+        JoinedRoleKey key = new JoinedRoleKey(sortedRoles, serverConfig.getDefaultPermissionValuesConfigEnabled());
+        try {
+            return joinedRoles.get(key, () -> buildJoinedRoleDefinition(sortedRoles));
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Error joining roles " + key.roleNames, e.getCause());
+        }
     }
 
     protected RoleDefinition buildJoinedRoleDefinition(List<RoleDefinition> roles) {
@@ -295,7 +329,7 @@ public class UserSessionManager {
                     roles.add(role);
                 }
             }
-            RoleDefinition joinedRole = buildJoinedRoleDefinition(roles);
+            RoleDefinition joinedRole = getJoinedRoleDefinition(roles);
             result = PermissionsUtils.getResultingPermissionValue(joinedRole, permissionType, target,
                     rolesHelper.getPermissionUndefinedAccessPolicy());
             tx.commit();
@@ -327,4 +361,42 @@ public class UserSessionManager {
             }
         }
     }
+
+    /**
+     * Identifies a joined role by the names and permissions of the source roles, so that changed permissions
+     * of a role produce a different key and a stale joined role is never reused.
+     */
+    protected static class JoinedRoleKey {
+
+        protected final List<String> roleNames = new ArrayList<>();
+        protected final List<Object> permissions = new ArrayList<>();
+        protected final int hashCode;
+
+        protected JoinedRoleKey(List<RoleDefinition> roles, boolean defaultPermissionValuesEnabled) {
+            permissions.add(defaultPermissionValuesEnabled);
+            for (RoleDefinition role : roles) {
+                roleNames.add(role.getName());
+                for (PermissionType type : PERMISSION_TYPES) {
+                    // copied because definitions of roles stored in the database are mutable
+                    permissions.add(new HashMap<>(PermissionsUtils.getPermissionsByType(role, type).getExplicitPermissions()));
+                }
+            }
+            hashCode = Objects.hash(roleNames, permissions);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            JoinedRoleKey that = (JoinedRoleKey) o;
+            return hashCode == that.hashCode
+                    && roleNames.equals(that.roleNames)
+                    && permissions.equals(that.permissions);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
 }
@@ -459,6 +459,33 @@ public class DynamicAttributesTest {
         assertTrue(intCollection.contains(3));
     }
 
+    @Test
+    public void testStoreDynamicAttributesOfSeveralEntities() {
+        LoadContext<User> loadContext = LoadContext.create(User.class).setLoadDynamicAttributes(true);
+        loadContext.setQueryString("select u from sec$User u where u.login like 'user%' order by u.login");
+        List<User> users = dataManager.loadList(loadContext);
+        User loadedUser = users.get(0);
+        User loadedUser2 = users.get(1);
+
+        loadedUser.setValue("+userAttribute", "userName1");
+        loadedUser.setValue("+userIntCollectionAttribute", Lists.newArrayList(2, 3, 3));
+        loadedUser2.setValue("+userAttribute", "userName2");
+        loadedUser2.setValue("+userGroupAttribute", group2);
+        dataManager.commit(new CommitContext(loadedUser, loadedUser2));
+
+        users = dataManager.loadList(loadContext);
+        loadedUser = users.get(0);
+        loadedUser2 = users.get(1);
+        assertEquals("userName1", loadedUser.getValue("+userAttribute"));
+        List<Integer> intCollection = loadedUser.getValue("+userIntCollectionAttribute");
+        assertEquals(3, intCollection.size());
+        assertFalse(intCollection.contains(1));
+        assertTrue(intCollection.contains(2));
+        assertTrue(intCollection.contains(3));
+        assertEquals("userName2", loadedUser2.getValue("+userAttribute"));
+        assertEquals(group2, loadedUser2.getValue("+userGroupAttribute"));
+    }
+
     @Test
     public void testLoadDynamicAttributesForCompositeKeyEntity() {
         LoadContext<CompositeKeyEntity> loadContext = LoadContext.create(CompositeKeyEntity.class).setLoadDynamicAttributes(true);
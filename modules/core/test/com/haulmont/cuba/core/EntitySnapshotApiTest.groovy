@@ -21,6 +21,8 @@ import com.haulmont.cuba.core.app.EntitySnapshotAPI
 import com.haulmont.cuba.core.entity.EntitySnapshot
 import com.haulmont.cuba.core.global.AppBeans
 import com.haulmont.cuba.core.global.View
+import com.haulmont.cuba.core.sys.AppContext
+import com.haulmont.cuba.core.sys.CubaXStream
 import com.haulmont.cuba.security.entity.Group
 import com.haulmont.cuba.security.entity.Role
 import com.haulmont.cuba.security.entity.User
@@ -138,6 +140,68 @@ class EntitySnapshotApiTest extends Specification {
             snapshot3.getAuthor() == user
     }
 
+    def "Compressed snapshots and conversion of stored snapshots"() {
+        View viewRole = cont.metadata().getViewRepository().getView(Role.class, View.LOCAL)
+        def plainSnapshot = snapshotApi.createSnapshot(role, viewRole, new Date(100))
+
+        when:
+            AppContext.setProperty('cuba.entitySnapshotCompression', 'true')
+            def compressedSnapshot = snapshotApi.createSnapshot(role, viewRole, new Date(200))
+
+        then:
+            compressedSnapshot.getSnapshotXml().startsWith('deflate:')
+            compressedSnapshot.getViewXml().startsWith('deflate:')
+            !compressedSnapshot.getSnapshotXml().contains('testRole')
+            ((Role) snapshotApi.extractEntity(compressedSnapshot)).getName() == 'testRole'
+            snapshotApi.extractView(compressedSnapshot).containsProperty('name')
+            snapshotApi.getDifference(plainSnapshot, compressedSnapshot).getPropertyDiffs().isEmpty()
+
+        when:
+            def converted = snapshotApi.convertSnapshots(1)
+            def snapshots = getSnapshotsList()
+
+        then:
+            converted == 1
+            snapshots.size() == 2
+            snapshots.every { it.getSnapshotXml().startsWith('deflate:') }
+            snapshots.every { ((Role) snapshotApi.extractEntity(it)).getName() == 'testRole' }
+
+        cleanup:
+            AppContext.setProperty('cuba.entitySnapshotCompression', null)
+    }
+
+    def "Conversion of legacy XML snapshots keeps all attributes"() {
+        View viewRole = cont.metadata().getViewRepository().getView(Role.class, View.LOCAL)
+        def snapshot = snapshotApi.createSnapshot(role, viewRole, new Date(100))
+
+        Date updateTs = new Date(1000)
+        role.setUpdateTs(updateTs)
+        role.setUpdatedBy('legacy-user')
+        cont.persistence().runInTransaction { em ->
+            EntitySnapshot stored = em.find(EntitySnapshot, snapshot.getId())
+            stored.setSnapshotXml(new CubaXStream().toXML(role))
+            stored.setViewXml(new CubaXStream().toXML(viewRole))
+        }
+
+        when:
+            AppContext.setProperty('cuba.entitySnapshotCompression', 'true')
+            def converted = snapshotApi.convertSnapshots(10)
+            def snapshots = getSnapshotsList()
+
+        then:
+            converted == 1
+            snapshots.size() == 1
+            snapshots[0].getSnapshotXml().startsWith('deflate:')
+
+            Role restored = (Role) snapshotApi.extractEntity(snapshots[0])
+            restored.getName() == 'testRole'
+            restored.getUpdateTs() == updateTs
+            restored.getUpdatedBy() == 'legacy-user'
+
+        cleanup:
+            AppContext.setProperty('cuba.entitySnapshotCompression', null)
+    }
+
     private List<EntitySnapshot> getSnapshotsList() {
         def tx = cont.persistence().createTransaction()
         try {
@@ -22,6 +22,9 @@ import com.haulmont.bali.db.QueryRunner;
 import com.haulmont.bali.db.ResultSetHandler;
 import com.haulmont.cuba.core.entity.EntitySnapshot;
 import com.haulmont.cuba.core.global.*;
+import com.haulmont.cuba.core.sys.AbstractViewRepository;
+import com.haulmont.cuba.core.sys.FetchGroupDescription;
+import com.haulmont.cuba.core.sys.FetchGroupManager;
 import com.haulmont.cuba.security.entity.*;
 import com.haulmont.cuba.testmodel.multiplelinks.LinkEntity;
 import com.haulmont.cuba.testmodel.multiplelinks.MultiLinkEntity;
@@ -38,6 +41,7 @@ import org.slf4j.LoggerFactory;
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.UUID;
 
@@ -555,4 +559,68 @@ public class ViewTest {
             tx.end();
         }
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testFetchGroupCache() throws Exception {
+        FetchGroupManager fetchGroupManager = AppBeans.get(FetchGroupManager.NAME);
+        fetchGroupManager.invalidateCache();
+
+        View view = new View(User.class)
+                .addProperty("login")
+                .addProperty("group", new View(Group.class).addProperty("name"));
+        FetchGroupDescription description = fetchGroupManager.calculateFetchGroup(
+                "select u from sec$User u where u.login = :login", view, false, true);
+
+        View sameView = new View(User.class)
+                .addProperty("login")
+                .addProperty("group", new View(Group.class).addProperty("name"));
+        assertSame(description, fetchGroupManager.calculateFetchGroup(
+                "select u from sec$User u  where\n u.login = :login", sameView, false, true));
+        assertEquals(1, fetchGroupManager.getCacheSize());
+
+        View otherView = new View(User.class)
+                .addProperty("login")
+                .addProperty("group", new View(Group.class).addProperty("name"), FetchMode.BATCH);
+        FetchGroupDescription otherDescription = fetchGroupManager.calculateFetchGroup(
+                "select u from sec$User u where u.login = :login", otherView, false, true);
+        assertNotSame(description, otherDescription);
+        assertNotSame(description, fetchGroupManager.calculateFetchGroup(
+                "select u from sec$User u where u.login = :login", view, true, true));
+
+        ((AbstractViewRepository) metadata.getViewRepository()).reset();
+        assertEquals(0, fetchGroupManager.getCacheSize());
+    }
+
+    @Test
+    public void testPropertyPathsAndSignature() {
+        View groupView = new View(Group.class).addProperty("name");
+        View view = new View(User.class)
+                .addProperty("login")
+                .addProperty("group", groupView);
+
+        assertEquals(Arrays.asList("login", "group", "group.name"), view.getPropertyPaths());
+        String signature = view.getSignature();
+        assertSame(signature, view.getSignature());
+        assertEquals(signature, new View(User.class, "other")
+                .addProperty("login")
+                .addProperty("group", new View(Group.class, "other").addProperty("name"))
+                .getSignature());
+
+        groupView.addProperty("parent");
+        assertEquals(Arrays.asList("login", "group", "group.name", "group.parent"), view.getPropertyPaths());
+        assertNotEquals(signature, view.getSignature());
+    }
+
+    @Test
+    public void testRepositoryReturnsCopies() {
+        ViewRepository viewRepository = metadata.getViewRepository();
+        View view = viewRepository.getView(User.class, "user.edit");
+        view.getProperty("group").getView().addProperty("parent");
+
+        View otherView = viewRepository.getView(User.class, "user.edit");
+        assertNotSame(view, otherView);
+        assertEquals(view.getName(), otherView.getName());
+        assertNotEquals(view.getPropertyPaths(), otherView.getPropertyPaths());
+        assertEquals(viewRepository.getView(User.class, "user.edit").getSignature(), otherView.getSignature());
+    }
+}
@@ -0,0 +1,212 @@
+/*
+ * Copyright (c) 2008-2020 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.core.app;
+
+import com.haulmont.cuba.core.global.AppBeans;
+import com.haulmont.cuba.core.global.Configuration;
+import com.haulmont.cuba.core.sys.AppContext;
+import com.haulmont.cuba.testsupport.TestContainer;
+import org.jgroups.Message;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import java.io.Serializable;
+import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ClusterManagerBatchingTest {
+
+    @RegisterExtension
+    public static TestContainer cont = TestContainer.Common.INSTANCE;
+
+    private TestClusterManager clusterManager;
+
+    private List<Serializable> received = Collections.synchronizedList(new ArrayList<>());
+
+    @AfterEach
+    public void tearDown() {
+        if (clusterManager != null) {
+            clusterManager.batchScheduler.shutdownNow();
+            clusterManager.executor.shutdownNow();
+        }
+        AppContext.setProperty("cuba.cluster.messageBatchingInterval", null);
+        AppContext.setProperty("cuba.cluster.messageBatchMaxSize", null);
+    }
+
+    @Test
+    public void testFlushBySize() throws Exception {
+        createClusterManager(60000, 3);
+
+        clusterManager.addToBatch(new TestMessage("a"));
+        clusterManager.addToBatch(new TestMessage("b"));
+        assertNull(clusterManager.sent.poll(200, TimeUnit.MILLISECONDS));
+
+        clusterManager.addToBatch(new TestMessage("c"));
+        receive(clusterManager.sent.poll(5, TimeUnit.SECONDS));
+
+        assertEquals(Arrays.asList(new TestMessage("a"), new TestMessage("b"), new TestMessage("c")), received);
+        assertEquals(0, clusterManager.getMessagesCount());
+    }
+
+    @Test
+    public void testFlushByDelay() throws Exception {
+        createClusterManager(100, 500);
+
+        clusterManager.addToBatch(new TestMessage("a"));
+        clusterManager.addToBatch(new TestMessage("b"));
+        receive(clusterManager.sent.poll(5, TimeUnit.SECONDS));
+
+        assertEquals(Arrays.asList(new TestMessage("a"), new TestMessage("b")), received);
+        assertNull(clusterManager.sent.poll(300, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void testCoalescing() throws Exception {
+        createClusterManager(60000, 8);
+
+        clusterManager.addToBatch(new TestMessage("a"));
+        clusterManager.addToBatch(new TestIdempotentMessage("x"));
+        clusterManager.addToBatch(new TestMessage("b"));
+        clusterManager.addToBatch(new TestIdempotentMessage("y"));
+        clusterManager.addToBatch(new TestIdempotentMessage("x"));
+        clusterManager.addToBatch(new TestMessage("a"));
+        clusterManager.addToBatch(new TestIdempotentMessage("x"));
+        clusterManager.addToBatch(new TestMessage("c"));
+        receive(clusterManager.sent.poll(5, TimeUnit.SECONDS));
+
+        // only the last of equal idempotent messages is kept, other messages keep their order and duplicates
+        assertEquals(Arrays.asList(
+                new TestMessage("a"),
+                new TestMessage("b"),
+                new TestIdempotentMessage("y"),
+                new TestMessage("a"),
+                new TestIdempotentMessage("x"),
+                new TestMessage("c")),
+                received);
+        assertEquals(2, clusterManager.messagesStat.get(TestIdempotentMessage.class.getName()).getCoalescedMessages());
+        assertEquals(2, clusterManager.messagesStat.get(TestIdempotentMessage.class.getName()).getBatchedMessages());
+    }
+
+    @Test
+    public void testErrorsInBatch() throws Exception {
+        createClusterManager(60000, 4);
+
+        clusterManager.addListener(TestMessage.class, message -> {
+            if (((TestMessage) message).value.equals("fail")) {
+                throw new RuntimeException("Error processing message");
+            }
+            received.add(message);
+        });
+
+        clusterManager.addToBatch(new TestMessage("a"));
+        clusterManager.addToBatch(new TestMessage("fail"));
+        clusterManager.addToBatch(new NotSerializableMessage());
+        clusterManager.addToBatch(new TestMessage("b"));
+        receive(clusterManager.sent.poll(5, TimeUnit.SECONDS));
+
+        // the message which cannot be serialized is skipped, the failed listener does not stop the batch
+        assertEquals(Arrays.asList(new TestMessage("a"), new TestMessage("b")), received);
+    }
+
+    private void createClusterManager(int batchingInterval, int batchMaxSize) {
+        AppContext.setProperty("cuba.cluster.messageBatchingInterval", String.valueOf(batchingInterval));
+        AppContext.setProperty("cuba.cluster.messageBatchMaxSize", String.valueOf(batchMaxSize));
+
+        clusterManager = new TestClusterManager();
+        clusterManager.clusterConfig = AppBeans.get(Configuration.class).getConfig(ClusterConfig.class);
+        clusterManager.init();
+        clusterManager.addListener(TestMessage.class, received::add);
+        clusterManager.addListener(TestIdempotentMessage.class, received::add);
+    }
+
+    private void receive(Message message) {
+        assertNotNull(message, "Batch is not sent");
+        clusterManager.new ClusterReceiver().receive(message);
+    }
+
+    private static class TestClusterManager extends ClusterManager {
+
+        private BlockingQueue<Message> sent = new LinkedBlockingQueue<>();
+
+        @Override
+        protected void sendToChannel(Message msg) {
+            sent.add(msg);
+        }
+    }
+
+    private static class TestMessage implements Serializable {
+
+        private final String value;
+
+        public TestMessage(String value) {
+            this.value = value;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            return value.equals(((TestMessage) o).value);
+        }
+
+        @Override
+        public int hashCode() {
+            return value.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return "TestMessage{" + value + "}";
+        }
+    }
+
+    private static class TestIdempotentMessage implements IdempotentClusterMessage {
+
+        private final String key;
+
+        public TestIdempotentMessage(String key) {
+            this.key = key;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            return key.equals(((TestIdempotentMessage) o).key);
+        }
+
+        @Override
+        public int hashCode() {
+            return key.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return "TestIdempotentMessage{" + key + "}";
+        }
+    }
+
+    private static class NotSerializableMessage implements Serializable {
+
+        private final Object value = new Object();
+    }
+}
@@ -18,10 +18,12 @@
 package com.haulmont.cuba.core.app;
 
 import com.google.common.collect.Lists;
+import com.haulmont.cuba.core.Transaction;
 import com.haulmont.cuba.core.entity.SendingAttachment;
 import com.haulmont.cuba.core.entity.SendingMessage;
 import com.haulmont.cuba.core.global.*;
 import com.haulmont.cuba.core.sys.CubaMailSender;
+import com.haulmont.cuba.core.sys.persistence.PostgresDbmsFeatures;
 import com.haulmont.cuba.testsupport.TestContainer;
 import com.haulmont.cuba.testsupport.TestMailSender;
 import org.apache.commons.io.IOUtils;
@@ -180,6 +182,121 @@ public class EmailerTest {
         doTestAsynchronous(true);
     }
 
+    @Test
+    public void testAsynchronousBatch() throws Exception {
+        testMailSender.clearBuffer();
+
+        EmailInfo myInfo = EmailInfoBuilder.create()
+                .setAddresses("recipient1@example.com, recipient2@example.com, recipient3@example.com")
+                .setCaption("Test")
+                .setBody("Test Email Body")
+                .build();
+        List<SendingMessage> messages = emailer.sendEmailAsync(myInfo);
+        assertEquals(3, messages.size());
+
+        // all messages fail together and return to the queue
+        testMailSender.failPlease();
+        try {
+            emailer.processQueuedEmails();
+        } finally {
+            testMailSender.workNormallyPlease();
+        }
+        assertTrue(testMailSender.isEmpty());
+        for (SendingMessage message : messages) {
+            SendingMessage sendingMsg = reload(message);
+            assertEquals(SendingStatus.QUEUE, sendingMsg.getStatus());
+            assertEquals(1, sendingMsg.getAttemptsMade().intValue());
+        }
+
+        emailer.processQueuedEmails();
+        assertEquals(3, testMailSender.getBufferSize());
+        for (SendingMessage message : messages) {
+            SendingMessage sendingMsg = reload(message);
+            assertEquals(SendingStatus.SENT, sendingMsg.getStatus());
+            assertEquals(2, sendingMsg.getAttemptsMade().intValue());
+            assertNotNull(sendingMsg.getDateSent());
+        }
+    }
+
+    @Test
+    public void testDomainRateLimit() throws Exception {
+        Emailer emailerBean = (Emailer) emailer;
+        testMailSender.clearBuffer();
+        emailerConfig.setMaxMessagesPerDomainPerMinute(2);
+        try {
+            EmailInfo myInfo = EmailInfoBuilder.create()
+                    .setAddresses("recipient1@example.com, recipient2@example.com, recipient3@example.com, recipient@example.org")
+                    .setCaption("Test")
+                    .setBody("Test Email Body")
+                    .build();
+            List<SendingMessage> messages = emailer.sendEmailAsync(myInfo);
+            assertEquals(4, messages.size());
+
+            // two messages to example.com and the message to example.org are sent, the third one waits
+            emailer.processQueuedEmails();
+            assertEquals(3, testMailSender.getBufferSize());
+            int queued = 0;
+            for (SendingMessage message : messages) {
+                if (reload(message).getStatus() == SendingStatus.QUEUE) {
+                    queued++;
+                }
+            }
+            assertEquals(1, queued);
+
+            emailer.processQueuedEmails();
+            assertEquals(3, testMailSender.getBufferSize());
+
+            // the next minute
+            emailerBean.domainSendingWindows.clear();
+            testMailSender.clearBuffer();
+            emailer.processQueuedEmails();
+            assertEquals(1, testMailSender.getBufferSize());
+            for (SendingMessage message : messages) {
+                assertEquals(SendingStatus.SENT, reload(message).getStatus());
+            }
+        } finally {
+            emailerConfig.setMaxMessagesPerDomainPerMinute(0);
+            emailerBean.domainSendingWindows.clear();
+        }
+    }
+
+    @Test
+    public void testLockEmailsToSend() throws Exception {
+        Emailer emailerBean = (Emailer) emailer;
+
+        assertEquals("limit 5 for update skip locked",
+                String.format(new PostgresDbmsFeatures().getSkipLockedSelectClause(), 5));
+
+        EmailInfo myInfo = EmailInfoBuilder.create()
+                .setAddresses("recipient1@example.com, recipient2@example.com")
+                .setCaption("Test")
+                .setBody("Test Email Body")
+                .build();
+        List<SendingMessage> messages = emailer.sendEmailAsync(myInfo);
+
+        // HSQLDB does not support "for update skip locked", so the claiming statement is checked with a limit only
+        List<UUID> lockedIds = lockEmailsToSend(emailerBean);
+        for (SendingMessage message : messages) {
+            assertTrue(lockedIds.contains(message.getId()));
+        }
+
+        emailer.processQueuedEmails();
+        lockedIds = lockEmailsToSend(emailerBean);
+        for (SendingMessage message : messages) {
+            assertFalse(lockedIds.contains(message.getId()));
+        }
+    }
+
+    private List<UUID> lockEmailsToSend(Emailer emailerBean) {
+        Date sendTimeoutTime = DateUtils.addSeconds(timeSource.currentTimestamp(), -emailerConfig.getSendingTimeoutSec());
+        try (Transaction tx = cont.persistence().createTransaction()) {
+            List<UUID> lockedIds = emailerBean.lockEmailsToSend(cont.persistence().getEntityManager(),
+                    sendTimeoutTime, "limit %d");
+            tx.commit();
+            return lockedIds;
+        }
+    }
+
     @Test
     public void testFileStorageEmailBodyReturningToDbColumn() {
         emailerConfig.setFileStorageUsed(true);
@@ -27,6 +27,8 @@ import org.antlr.runtime.RecognitionException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 import java.util.Set;
@@ -1004,6 +1006,31 @@ public class QueryTransformerAstBasedTest {
     }
 
 
+    @Test
+    public void testReplaceWithGroupBy() throws RecognitionException {
+        DomainModel model = prepareDomainModel();
+
+        QueryTransformerAstBased transformer = new QueryTransformerAstBased(model,
+                "select u from sec$User u where u.login like :login order by u.version desc");
+        transformer.replaceWithGroupBy(Collections.singletonList("{E}.login"),
+                Arrays.asList("count({E})", "max({E}.version)"));
+        assertEquals(
+                "select u.login, count(u), max(u.version) from sec$User u where u.login like :login " +
+                        "group by u.login order by u.login",
+                transformer.getResult());
+
+        transformer = new QueryTransformerAstBased(model,
+                "select distinct u from sec$User u order by u.login");
+        transformer.replaceWithGroupBy(Collections.emptyList(), Arrays.asList("count({E})", "sum({E}.version)"));
+        assertEquals("select count(u), sum(u.version) from sec$User u", transformer.getResult());
+
+        QueryTransformerAstBased groupedTransformer = new QueryTransformerAstBased(model,
+                "select c from sec$GroupHierarchy h join h.parent.constraints c where h.group = ?1 " +
+                        "group by c.level having c.level > 0");
+        assertThrows(IllegalStateException.class, () ->
+                groupedTransformer.replaceWithGroupBy(Collections.emptyList(), Collections.singletonList("count({E})")));
+    }
+
     @Test
     public void testReplaceWithCount_distinct() throws RecognitionException {
         DomainModel model = prepareDomainModel();
@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2008-2020 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.core.global;
+
+import com.google.common.cache.CacheBuilder;
+import com.haulmont.cuba.core.sys.jpql.DomainModel;
+import com.haulmont.cuba.core.sys.jpql.JpqlSyntaxException;
+import com.haulmont.cuba.core.sys.jpql.QueryTreeCache;
+import com.haulmont.cuba.core.sys.jpql.model.EntityBuilder;
+import com.haulmont.cuba.core.sys.jpql.model.JpqlEntityModel;
+import com.haulmont.cuba.core.sys.jpql.transform.QueryTransformerAstBased;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class QueryTreeCacheTest {
+
+    private DomainModel model;
+    private QueryTreeCache queryTreeCache;
+
+    @BeforeEach
+    public void setUp() {
+        EntityBuilder builder = new EntityBuilder();
+        builder.startNewEntity("sec$User");
+        builder.addStringAttribute("login");
+        builder.addStringAttribute("name");
+        builder.addReferenceAttribute("group", "sec$Group");
+        JpqlEntityModel userEntity = builder.produce();
+
+        builder = new EntityBuilder();
+        builder.startNewEntity("sec$Group");
+        builder.addStringAttribute("name");
+        JpqlEntityModel groupEntity = builder.produce();
+
+        model = new DomainModel(userEntity, groupEntity);
+
+        queryTreeCache = new QueryTreeCache() {
+            {
+                enabled = true;
+                cache = CacheBuilder.newBuilder().maximumSize(10).recordStats().build();
+            }
+        };
+    }
+
+    @Test
+    public void transformationsDoNotAffectCachedTree() {
+        String query = "select u from sec$User u where u.login = :login order by u.name";
+
+        QueryTransformer transformer = createTransformer(query);
+        transformer.addJoinAndWhere("join {E}.group g", "g.name = :groupName");
+        transformer.replaceWithCount();
+        assertEquals("select count(u) from sec$User u join u.group g where (u.login = :login) and (g.name = :groupName)",
+                transformer.getResult());
+
+        transformer = createTransformer(query);
+        assertEquals(query, transformer.getResult());
+
+        QueryParser parser = createParser(query);
+        assertEquals("sec$User", parser.getEntityName());
+        assertEquals("u", parser.getEntityAlias());
+
+        assertEquals(1, queryTreeCache.getSize());
+        assertEquals(2, queryTreeCache.getStats().hitCount());
+    }
+
+    @Test
+    public void invalidQueriesAreNotCached() {
+        String query = "select e from sec$Unknown e";
+
+        for (int i = 0; i < 2; i++) {
+            try {
+                createParser(query).getEntityName();
+            } catch (JpqlSyntaxException e) {
+                // expected
+            }
+        }
+        assertEquals(0, queryTreeCache.getSize());
+    }
+
+    private QueryTransformer createTransformer(String query) {
+        return new QueryTransformerAstBased(model, query) {
+            {
+                queryTreeCache = QueryTreeCacheTest.this.queryTreeCache;
+            }
+        };
+    }
+
+    private QueryParser createParser(String query) {
+        return new QueryParserAstBased(model, query) {
+            {
+                queryTreeCache = QueryTreeCacheTest.this.queryTreeCache;
+            }
+        };
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright (c) 2008-2020 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.core.sys.entitycache;
+
+import com.google.common.collect.ImmutableSet;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StandardQueryCacheTest {
+
+    private StandardQueryCache queryCache;
+
+    @BeforeEach
+    public void setUp() {
+        queryCache = createCache(2);
+    }
+
+    private StandardQueryCache createCache(int maxSize) {
+        return new StandardQueryCache() {
+            {
+                queryCacheConfig = new QueryCacheConfig() {
+                    @Override
+                    public boolean getQueryCacheEnabled() {
+                        return true;
+                    }
+
+                    @Override
+                    public int getQueryCacheMaxSize() {
+                        return maxSize;
+                    }
+                };
+                init();
+            }
+        };
+    }
+
+    @Test
+    public void invalidateByType() {
+        QueryKey userQuery = createKey("select u from sec$User u");
+        QueryKey groupQuery = createKey("select g from sec$Group g");
+        queryCache.put(userQuery, createResult("sec$User", "sec$Group"));
+        queryCache.put(groupQuery, createResult("sec$Group"));
+
+        queryCache.invalidate("sec$User");
+
+        assertNull(queryCache.get(userQuery));
+        assertNotNull(queryCache.get(groupQuery));
+        assertEquals(0, indexedCount("sec$User"));
+        assertEquals(1, indexedCount("sec$Group"));
+
+        queryCache.invalidate(Collections.singleton("sec$Group"));
+
+        assertEquals(0, queryCache.size());
+        assertEquals(0, indexedCount("sec$Group"));
+        assertTrue(queryCache.typeIndex.isEmpty());
+    }
+
+    @Test
+    public void invalidateByKeyPrunesIndex() {
+        QueryKey query = createKey("select u from sec$User u");
+        queryCache.put(query, createResult("sec$User"));
+
+        queryCache.invalidate(query);
+
+        assertTrue(queryCache.typeIndex.isEmpty());
+    }
+
+    @Test
+    public void queryEvictedOnPutIsNotIndexed() {
+        queryCache = createCache(0);
+        queryCache.put(createKey("select u from sec$User u"), createResult("sec$User", "sec$Group"));
+
+        assertEquals(0, queryCache.size());
+        assertTrue(queryCache.typeIndex.isEmpty());
+    }
+
+    @Test
+    public void evictionCleansIndex() {
+        QueryKey query1 = createKey("select u from sec$User u where u.login = 'a'");
+        QueryKey query2 = createKey("select u from sec$User u where u.login = 'b'");
+        QueryKey query3 = createKey("select u from sec$User u where u.login = 'c'");
+        queryCache.put(query1, createResult("sec$User"));
+        queryCache.put(query2, createResult("sec$User"));
+        queryCache.put(query3, createResult("sec$User"));
+
+        assertEquals(2, queryCache.size());
+        assertEquals(2, indexedCount("sec$User"));
+        assertFalse(queryCache.typeIndex.get("sec$User").contains(query1));
+    }
+
+    @Test
+    public void replaceKeepsIndex() {
+        QueryKey query = createKey("select u from sec$User u");
+        queryCache.put(query, createResult("sec$User", "sec$Group"));
+        queryCache.put(createKey("select u from sec$User u"), createResult("sec$User"));
+
+        assertEquals(1, indexedCount("sec$User"));
+        assertEquals(0, indexedCount("sec$Group"));
+
+        queryCache.invalidate("sec$User");
+        assertNull(queryCache.get(query));
+    }
+
+    @Test
+    public void invalidateAllCleansIndex() {
+        queryCache.put(createKey("select u from sec$User u"), createResult("sec$User"));
+        queryCache.put(createKey("select g from sec$Group g"), createResult("sec$Group"));
+
+        queryCache.invalidateAll();
+
+        assertEquals(0, queryCache.size());
+        assertEquals(0, indexedCount("sec$User"));
+        assertEquals(0, indexedCount("sec$Group"));
+        assertTrue(queryCache.typeIndex.isEmpty());
+    }
+
+    private int indexedCount(String type) {
+        Set<QueryKey> keys = queryCache.typeIndex.get(type);
+        return keys == null ? 0 : keys.size();
+    }
+
+    private QueryKey createKey(String query) {
+        return new QueryKey(query, 0, 0, true, false, null, null, null);
+    }
+
+    private QueryResult createResult(String type, String... relatedTypes) {
+        return new QueryResult(Collections.emptyList(), type,
+                ImmutableSet.<String>builder().add(type).add(relatedTypes).build());
+    }
+}
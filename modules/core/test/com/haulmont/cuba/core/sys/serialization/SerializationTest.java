@@ -23,11 +23,14 @@ import com.haulmont.cuba.core.global.AppBeans;
 import com.haulmont.cuba.core.global.Metadata;
 import com.haulmont.cuba.core.global.View;
 import com.haulmont.cuba.core.global.ViewRepository;
+import com.haulmont.cuba.core.sys.AppContext;
 import com.haulmont.cuba.security.entity.*;
 import com.haulmont.cuba.testsupport.TestContainer;
 import org.junit.jupiter.api.*;
 import org.junit.jupiter.api.extension.RegisterExtension;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.util.BitSet;
 import java.util.EnumSet;
 import java.util.UUID;
@@ -246,6 +249,52 @@ public class SerializationTest {
         }
     }
 
+    @Test
+    public void testKryoRegisteredClassesAndThreadLocalBuffers() throws Exception {
+        View view = getView();
+        User user;
+        Transaction tx = cont.persistence().createTransaction();
+        try {
+            EntityManager em = cont.persistence().getEntityManager();
+            user = em.find(User.class, userId, view);
+            assertNotNull(user);
+            tx.commit();
+        } finally {
+            tx.end();
+        }
+
+        int defaultLength = new KryoSerialization().serialize(user).length;
+
+        KryoSerialization kryoSerialization;
+        AppContext.setProperty("cuba.kryo.registerClasses", "true");
+        AppContext.setProperty("cuba.kryo.useThreadLocalBuffers", "true");
+        try {
+            kryoSerialization = new KryoSerialization();
+        } finally {
+            AppContext.setProperty("cuba.kryo.registerClasses", null);
+            AppContext.setProperty("cuba.kryo.useThreadLocalBuffers", null);
+        }
+
+        byte[] bytes = kryoSerialization.serialize(user);
+        assertTrue(bytes.length < defaultLength);
+
+        for (int i = 0; i < 2; i++) {
+            User kryoUser = (User) kryoSerialization.deserialize(kryoSerialization.serialize(user));
+            assertEquals(user, kryoUser);
+            assertEquals(user.getGroup().getName(), kryoUser.getGroup().getName());
+            assertEquals(user.getUserRoles().get(0).getRole().getName(), kryoUser.getUserRoles().get(0).getRole().getName());
+
+            ByteArrayOutputStream bos = new ByteArrayOutputStream();
+            kryoSerialization.serialize(user, bos);
+            kryoUser = (User) kryoSerialization.deserialize(new ByteArrayInputStream(bos.toByteArray()));
+            assertEquals(user.getLogin(), kryoUser.getLogin());
+        }
+
+        bytes[0] = (byte) ~bytes[0];
+        byte[] corruptedBytes = bytes;
+        assertThrows(SerializationException.class, () -> kryoSerialization.deserialize(corruptedBytes));
+    }
+
     @Test
     public void testKryoBitSet() {
         BitSet set = new BitSet();
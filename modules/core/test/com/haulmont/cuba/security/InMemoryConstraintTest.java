@@ -17,8 +17,11 @@
 package com.haulmont.cuba.security;
 
 import com.haulmont.cuba.core.EntityManager;
+import com.haulmont.cuba.core.PersistenceSecurity;
 import com.haulmont.cuba.core.Transaction;
+import com.haulmont.cuba.core.entity.Entity;
 import com.haulmont.cuba.core.global.*;
+import com.haulmont.cuba.core.sys.InMemoryConstraintsResults;
 import com.haulmont.cuba.security.auth.AuthenticationManager;
 import com.haulmont.cuba.security.auth.Credentials;
 import com.haulmont.cuba.security.auth.LoginPasswordCredentials;
@@ -38,6 +41,7 @@ import java.util.Locale;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class InMemoryConstraintTest {
 
@@ -216,6 +220,38 @@ public class InMemoryConstraintTest {
         }
     }
 
+    @Test
+    public void testFilterCollectionByConstraints() throws LoginException {
+        AuthenticationManager lw = AppBeans.get(AuthenticationManager.NAME);
+        Credentials credentials = new LoginPasswordCredentials("constraintUser1", PASSWORD, Locale.getDefault());
+        UserSession userSession = lw.login(credentials).getSession();
+        assertNotNull(userSession);
+
+        UserSessionSource uss = AppBeans.get(UserSessionSource.class);
+        UserSession savedUserSession = uss.getUserSession();
+        ((TestUserSessionSource) uss).setUserSession(userSession);
+        try {
+            List<Entity> users;
+            try (Transaction tx = cont.persistence().createTransaction()) {
+                users = new ArrayList<>(cont.persistence().getEntityManager()
+                        .createQuery("select u from sec$User u where u.login like 'user%'", User.class)
+                        .getResultList());
+                tx.commit();
+            }
+            assertEquals(USERS_SIZE, users.size());
+
+            PersistenceSecurity persistenceSecurity = AppBeans.get(PersistenceSecurity.NAME);
+            assertTrue(persistenceSecurity.filterByConstraints(users));
+            assertEquals(11, users.size());
+            assertTrue(users.stream().allMatch(u -> ((User) u).getLogin().startsWith("user3")));
+
+            InMemoryConstraintsResults constraintsResults = AppBeans.get(InMemoryConstraintsResults.NAME);
+            assertTrue(constraintsResults.printStatistics().contains("sec$User: {E}.login.startsWith('user3')"));
+        } finally {
+            ((TestUserSessionSource) uss).setUserSession(savedUserSession);
+        }
+    }
+
     @Test
     public void testConstraintsOnFirst() throws LoginException {
         AuthenticationManager lw = AppBeans.get(AuthenticationManager.NAME);
@@ -222,4 +222,30 @@ public class PermissionTest {
             tx.end();
         }
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testJoinedRoleSharedBetweenSessions() throws LoginException {
+        AuthenticationManager lw = AppBeans.get(AuthenticationManager.NAME);
+        Credentials credentials = new LoginPasswordCredentials(USER_NAME, USER_PASSW, Locale.getDefault());
+        UserSession userSession1 = lw.login(credentials).getSession();
+        UserSession userSession2 = lw.login(credentials).getSession();
+
+        assertSame(userSession1.getJoinedRole(), userSession2.getJoinedRole());
+
+        Transaction tx = cont.persistence().createTransaction();
+        try {
+            Query q = cont.persistence().getEntityManager()
+                    .createNativeQuery("update SEC_PERMISSION set VALUE_ = 1 where ID = ?");
+            q.setParameter(1, permission1Id.toString());
+            q.executeUpdate();
+            tx.commit();
+        } finally {
+            tx.end();
+        }
+
+        UserSession userSession3 = lw.login(credentials).getSession();
+        assertNotSame(userSession1.getJoinedRole(), userSession3.getJoinedRole());
+        assertFalse(userSession1.isPermitted(PermissionType.SCREEN, PERM_TARGET_SCREEN));
+        assertTrue(userSession3.isPermitted(PermissionType.SCREEN, PERM_TARGET_SCREEN));
+    }
+}
@@ -0,0 +1,335 @@
+/*
+ * Copyright (c) 2008-2020 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.haulmont.cuba.security;
+
+import com.haulmont.cuba.core.app.ClusterListener;
+import com.haulmont.cuba.core.app.ClusterManager;
+import com.haulmont.cuba.core.global.AppBeans;
+import com.haulmont.cuba.core.global.Configuration;
+import com.haulmont.cuba.core.global.Metadata;
+import com.haulmont.cuba.core.sys.TimeSourceImpl;
+import com.haulmont.cuba.core.sys.serialization.SerializationSupport;
+import com.haulmont.cuba.security.app.UserManagementService;
+import com.haulmont.cuba.security.app.UserSessionLog;
+import com.haulmont.cuba.security.app.UserSessionPartitioner;
+import com.haulmont.cuba.security.app.UserSessions;
+import com.haulmont.cuba.security.entity.User;
+import com.haulmont.cuba.security.events.UserInvalidationEvent;
+import com.haulmont.cuba.security.global.UserSession;
+import com.haulmont.cuba.security.listener.UserInvalidationListener;
+import com.haulmont.cuba.testsupport.TestContainer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import java.io.Serializable;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class UserSessionsPartitioningTest {
+
+    @RegisterExtension
+    public static TestContainer cont = TestContainer.Common.INSTANCE;
+
+    private Map<String, TestClusterNode> cluster;
+
+    private AtomicLong clock;
+
+    @BeforeEach
+    public void setUp() {
+        cluster = new LinkedHashMap<>();
+        clock = new AtomicLong(System.currentTimeMillis());
+        addNode("node1");
+        addNode("node2");
+        addNode("node3");
+        addNode("node4");
+    }
+
+    @Test
+    public void testOwners() {
+        List<String> members = Arrays.asList("node1", "node2", "node3", "node4");
+        List<String> reducedMembers = Arrays.asList("node1", "node2", "node4");
+
+        for (int i = 0; i < 100; i++) {
+            UUID id = UUID.randomUUID();
+            List<String> owners = UserSessionPartitioner.getOwners(id, members, 2);
+            assertEquals(2, owners.size());
+            assertNotEquals(owners.get(0), owners.get(1));
+            assertEquals(owners, UserSessionPartitioner.getOwners(id, new ArrayList<>(members), 2));
+
+            if (!owners.contains("node3")) {
+                assertEquals(owners, UserSessionPartitioner.getOwners(id, reducedMembers, 2));
+            }
+        }
+
+        assertEquals(Collections.singletonList("node1"),
+                UserSessionPartitioner.getOwners(UUID.randomUUID(), Collections.singletonList("node1"), 2));
+    }
+
+    @Test
+    public void testFetchTouchAndRemove() {
+        UserSession session = createSession();
+        UUID id = session.getId();
+        node("node1").sessions.add(session);
+
+        List<String> owners = owners(id);
+        for (TestClusterNode node : cluster.values()) {
+            boolean stored = owners.contains(node.name) || node.name.equals("node1");
+            assertEquals(stored, node.sessions.contains(id), node.name);
+        }
+
+        TestClusterNode other = cluster.values().stream()
+                .filter(node -> !node.sessions.contains(id))
+                .findFirst()
+                .orElseThrow(IllegalStateException::new);
+
+        clock.addAndGet(5000);
+        UserSession fetched = other.sessions.getAndRefresh(id, true);
+        assertNotNull(fetched);
+        assertEquals(session.getUser().getLogin(), fetched.getUser().getLogin());
+        assertTrue(other.sessions.contains(id));
+
+        long lastUsedTs = other.sessions.lastUsedTs(id);
+        assertEquals(clock.get(), lastUsedTs);
+        for (String owner : owners) {
+            assertTrue(node(owner).sessions.lastUsedTs(id) < lastUsedTs);
+        }
+
+        other.sessions.processEviction();
+        for (String owner : owners) {
+            assertEquals(lastUsedTs, node(owner).sessions.lastUsedTs(id));
+        }
+
+        other.sessions.killSession(id);
+        for (TestClusterNode node : cluster.values()) {
+            assertFalse(node.sessions.contains(id), node.name);
+            assertNull(node.sessions.get(id));
+        }
+    }
+
+    @Test
+    public void testSessionNotFound() {
+        UUID id = UUID.randomUUID();
+        TestClusterNode requester = cluster.values().stream()
+                .filter(node -> !owners(id).contains(node.name))
+                .findFirst()
+                .orElseThrow(IllegalStateException::new);
+
+        assertNull(requester.sessions.get(id));
+        assertEquals(2, requester.fetchRequests);
+
+        // the missing session is not requested again for a while
+        clock.addAndGet(500);
+        assertNull(requester.sessions.get(id));
+        assertEquals(2, requester.fetchRequests);
+
+        clock.addAndGet(1000);
+        assertNull(requester.sessions.get(id));
+        assertEquals(4, requester.fetchRequests);
+
+        // a session added later is found at once
+        UserSession session = createSession();
+        node(owners(session.getId()).get(0)).sessions.add(session);
+        assertNotNull(requester.sessions.get(session.getId()));
+    }
+
+    @Test
+    public void testUserInvalidation() {
+        User user = AppBeans.get(Metadata.class).create(User.class);
+        user.setLogin("user-" + user.getId());
+
+        List<UUID> ids = new ArrayList<>();
+        for (String name : Arrays.asList("node1", "node2", "node3", "node1", "node2", "node3")) {
+            UserSession session = new UserSession(UUID.randomUUID(), user, Collections.emptyList(), Locale.ENGLISH, false);
+            ids.add(session.getId());
+            node(name).sessions.add(session);
+        }
+        UserSession otherSession = createSession();
+        node("node1").sessions.add(otherSession);
+
+        TestClusterNode invalidating = node("node4");
+        Set<UUID> clusterIds = invalidating.sessions.getClusterUserSessionsStream()
+                .map(UserSession::getId)
+                .collect(Collectors.toSet());
+        assertTrue(clusterIds.containsAll(ids));
+        assertTrue(clusterIds.contains(otherSession.getId()));
+
+        UserInvalidationListener listener = new UserInvalidationListener() {
+            {
+                userSessionsAPI = invalidating.sessions;
+                userManagementService = AppBeans.get(UserManagementService.class);
+                persistence = cont.persistence();
+            }
+        };
+        listener.handleUserInvalidation(new UserInvalidationEvent(user));
+
+        // sessions of the user are killed on all members, not only on the member handling the invalidation
+        for (TestClusterNode node : cluster.values()) {
+            for (UUID id : ids) {
+                assertFalse(node.sessions.contains(id), node.name);
+            }
+            assertNull(node.sessions.get(ids.get(0)));
+        }
+        for (String owner : owners(otherSession.getId())) {
+            assertTrue(node(owner).sessions.contains(otherSession.getId()), owner);
+        }
+    }
+
+    @Test
+    public void testRebalance() {
+        List<UUID> ids = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            UserSession session = createSession();
+            ids.add(session.getId());
+            node("node1").sessions.add(session);
+        }
+        for (TestClusterNode node : cluster.values()) {
+            node.sessions.processEviction();
+        }
+
+        addNode("node5");
+        for (TestClusterNode node : cluster.values()) {
+            node.sessions.processEviction();
+        }
+        for (UUID id : ids) {
+            for (String owner : owners(id)) {
+                assertTrue(node(owner).sessions.contains(id), owner);
+            }
+        }
+
+        cluster.remove("node1");
+        for (TestClusterNode node : cluster.values()) {
+            node.sessions.processEviction();
+        }
+        for (UUID id : ids) {
+            for (String owner : owners(id)) {
+                assertTrue(node(owner).sessions.contains(id), owner);
+            }
+        }
+    }
+
+    private TestClusterNode node(String name) {
+        return cluster.get(name);
+    }
+
+    private void addNode(String name) {
+        cluster.put(name, new TestClusterNode(name, cluster, clock));
+    }
+
+    private List<String> owners(UUID id) {
+        return UserSessionPartitioner.getOwners(id, new ArrayList<>(cluster.keySet()), 2);
+    }
+
+    private UserSession createSession() {
+        User user = AppBeans.get(Metadata.class).create(User.class);
+        user.setLogin("user-" + user.getId());
+        return new UserSession(UUID.randomUUID(), user, Collections.emptyList(), Locale.ENGLISH, false);
+    }
+
+    /**
+     * Cluster member delivering messages to other members of the map synchronously.
+     */
+    private static class TestClusterNode extends ClusterManager {
+
+        private final String name;
+        private final Map<String, TestClusterNode> cluster;
+        private final TestUserSessions sessions;
+        private int fetchRequests;
+
+        private TestClusterNode(String name, Map<String, TestClusterNode> cluster, AtomicLong clock) {
+            this.name = name;
+            this.cluster = cluster;
+            this.sessions = new TestUserSessions(this, clock);
+        }
+
+        @Override
+        public void send(Serializable message) {
+            for (TestClusterNode node : new ArrayList<>(cluster.values())) {
+                if (node != this) {
+                    node.deliver(message);
+                }
+            }
+        }
+
+        @Override
+        public void sendSync(Serializable message) {
+            send(message);
+        }
+
+        @Override
+        public void send(String member, Serializable message) {
+            if (message instanceof UserSessions.UserSessionFetchRequest) {
+                fetchRequests++;
+            }
+            TestClusterNode node = cluster.get(member);
+            if (node != null) {
+                node.deliver(message);
+            }
+        }
+
+        @Override
+        public List<String> getMembers() {
+            return new ArrayList<>(cluster.keySet());
+        }
+
+        @Override
+        public String getLocalMember() {
+            return name;
+        }
+
+        @SuppressWarnings("unchecked")
+        private void deliver(Serializable message) {
+            Serializable copy = (Serializable) SerializationSupport.deserialize(SerializationSupport.serialize(message));
+            ClusterListener<Serializable> listener = listeners.get(copy.getClass().getName());
+            if (listener != null) {
+                listener.receive(copy);
+            }
+        }
+    }
+
+    private static class TestUserSessions extends UserSessions {
+
+        private TestUserSessions(TestClusterNode clusterNode, AtomicLong clock) {
+            timeSource = new TimeSourceImpl() {
+                @Override
+                public long currentTimeMillis() {
+                    return clock.get();
+                }
+            };
+            metadata = AppBeans.get(Metadata.class);
+            userSessionLog = AppBeans.get(UserSessionLog.class);
+            setConfiguration(AppBeans.get(Configuration.class));
+            setClusterManager(clusterNode);
+            partitioned = true;
+            backupCount = 1;
+            sendTimeout = 1;
+            touchTimeout = 1;
+        }
+
+        private boolean contains(UUID id) {
+            return cache.containsKey(id);
+        }
+
+        private long lastUsedTs(UUID id) {
+            return cache.get(id).lastUsedTs;
+        }
+    }
+}
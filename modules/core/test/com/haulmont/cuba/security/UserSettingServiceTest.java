@@ -29,6 +29,9 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.extension.RegisterExtension;
 import org.junit.jupiter.api.Test;
 
+import java.util.HashMap;
+import java.util.Map;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNull;
 
@@ -79,4 +82,26 @@ public class UserSettingServiceTest {
         val = uss.loadSetting(ClientType.WEB, "test-setting");
         assertEquals("test-value", val);
     }
+
+    @Test
+    public void testLoadAndSaveSeveralSettings() {
+        assertEquals(0, uss.loadSettings(ClientType.WEB).size());
+
+        uss.saveSetting(ClientType.WEB, "test-setting-1", "test-value-1");
+        uss.saveSetting(ClientType.DESKTOP, "test-setting-2", "test-value-2");
+
+        Map<String, String> settings = new HashMap<>();
+        settings.put("test-setting-1", "test-value-1-changed");
+        settings.put("test-setting-2", "test-value-2");
+        uss.saveSettings(ClientType.WEB, settings);
+
+        Map<String, String> loaded = uss.loadSettings(ClientType.WEB);
+        assertEquals(2, loaded.size());
+        assertEquals("test-value-1-changed", loaded.get("test-setting-1"));
+        assertEquals("test-value-2", loaded.get("test-setting-2"));
+
+        loaded = uss.loadSettings(ClientType.DESKTOP);
+        assertEquals(1, loaded.size());
+        assertEquals("test-value-2", loaded.get("test-setting-2"));
+    }
 }
@@ -16,8 +16,11 @@
 
 package spec.cuba.core.config
 
+import com.haulmont.bali.db.QueryRunner
+import com.haulmont.cuba.core.app.ConfigStorageAPI
 import com.haulmont.cuba.core.global.AppBeans
 import com.haulmont.cuba.core.global.Configuration
+import com.haulmont.cuba.core.sys.AppContext
 import com.haulmont.cuba.testsupport.TestContainer
 import org.junit.ClassRule
 import spock.lang.Shared
@@ -59,4 +62,45 @@ class ConfigInterfaceTest extends Specification {
 
         config.setFoo(null)
     }
+
+    def "cached values are refreshed when properties are changed"() {
+
+        def config = configuration.getConfig(TestConfig)
+        config.setDatabaseProp('value-1')
+
+        expect:
+
+        config.getDatabaseProp() == 'value-1'
+
+        when: "the property is changed in the database without invalidation"
+
+        new QueryRunner(cont.persistence().getDataSource())
+                .update("update SYS_CONFIG set VALUE_ = 'value-2' where NAME = 'cuba.test.databaseProp'")
+
+        then: "the cached value is returned"
+
+        config.getDatabaseProp() == 'value-1'
+
+        when: "DB-stored properties are invalidated"
+
+        AppBeans.get(ConfigStorageAPI).clearCache()
+
+        then: "the new value is returned by all config instances"
+
+        config.getDatabaseProp() == 'value-2'
+        configuration.getConfig(TestConfig).getDatabaseProp() == 'value-2'
+
+        when: "the property is overridden in app properties"
+
+        AppContext.setProperty('cuba.test.databaseProp', 'app-value')
+
+        then:
+
+        config.getDatabaseProp() == 'app-value'
+
+        cleanup:
+
+        AppContext.setProperty('cuba.test.databaseProp', null)
+        config.setDatabaseProp(null)
+    }
 }
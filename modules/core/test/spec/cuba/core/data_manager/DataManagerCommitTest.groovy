@@ -16,14 +16,20 @@
 
 package spec.cuba.core.data_manager
 
+import ch.qos.logback.classic.Level
+import ch.qos.logback.classic.Logger
+import ch.qos.logback.classic.LoggerContext
 import com.haulmont.cuba.core.entity.KeyValueEntity
 import com.haulmont.cuba.core.entity.contracts.Id
 import com.haulmont.cuba.core.global.*
+import com.haulmont.cuba.core.sys.AppContext
 import com.haulmont.cuba.testmodel.sales.Customer
 import com.haulmont.cuba.testmodel.sales.Order
 import com.haulmont.cuba.testmodel.sales.TestOrderChangedEventListener
+import com.haulmont.cuba.testsupport.TestAppender
 import com.haulmont.cuba.testsupport.TestContainer
 import org.junit.ClassRule
+import org.slf4j.LoggerFactory
 import spock.lang.Shared
 import spock.lang.Specification
 
@@ -210,6 +216,57 @@ class DataManagerCommitTest extends Specification {
         cont.deleteRecord(order, customer)
     }
 
+    def "commit in bulk mode"() {
+        def customers = (1..10).collect { new Customer(name: "bulk-$it") }
+        def orders = customers.collect { new Order(number: it.name, customer: it) }
+        dataManager.commit(new CommitContext(orders + customers))
+
+        def loaded = dataManager.load(Customer)
+                .query('select c from test$Customer c where c.name like :name')
+                .parameter('name', 'bulk-%')
+                .list()
+        loaded.each { it.name = it.name + '-changed' }
+        def newCustomer = new Customer(name: 'bulk-new')
+
+        AppContext.setProperty('cuba.bulkCommitBatchSize', '4')
+
+        def appender = new TestAppender()
+        appender.start()
+        Logger logger = ((LoggerContext) LoggerFactory.getILoggerFactory()).getLogger('eclipselink.sql')
+        Level level = logger.getLevel()
+        logger.setLevel(Level.DEBUG)
+        logger.addAppender(appender)
+
+        when:
+        def committedEntities = dataManager.commit(
+                new CommitContext(loaded + newCustomer).setBulkMode(true))
+
+        then:
+        committedEntities.size() == 11
+        committedEntities.every { !entityStates.isNew(it) }
+
+        // 10 changed instances are loaded by 3 queries of at most 4 ids, not one by one
+        appender.filterMessages { it.contains('SELECT') && it.contains('FROM TEST_CUSTOMER') && it.contains(' IN (') }
+                .count() == 3
+        appender.filterMessages { it.contains('SELECT') && it.contains('FROM TEST_CUSTOMER') && it.contains('ID = ?') }
+                .count() == 0
+
+        dataManager.load(Customer)
+                .query('select c from test$Customer c where c.name like :name')
+                .parameter('name', 'bulk-%-changed')
+                .list().size() == 10
+        dataManager.load(Id.of(newCustomer)).optional().isPresent()
+
+        cleanup:
+        logger.detachAppender(appender)
+        logger.setLevel(level)
+        AppContext.setProperty('cuba.bulkCommitBatchSize', null)
+
+        cont.deleteRecord(orders as Order[])
+        cont.deleteRecord(customers as Customer[])
+        cont.deleteRecord(newCustomer)
+    }
+
     protected CommitContext commitContextFor(Customer customer, Order order) {
         new CommitContext()
                 .addInstanceToCommit(customer)
@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2008-2020 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package spec.cuba.core.data_manager
+
+import com.haulmont.cuba.core.entity.Entity
+import com.haulmont.cuba.core.global.AppBeans
+import com.haulmont.cuba.core.global.CommitContext
+import com.haulmont.cuba.core.global.DataManager
+import com.haulmont.cuba.core.global.EntityStates
+import com.haulmont.cuba.core.global.LoadContext
+import com.haulmont.cuba.testmodel.sales.Customer
+import com.haulmont.cuba.testsupport.TestContainer
+import org.junit.ClassRule
+import spock.lang.Shared
+import spock.lang.Specification
+
+import java.util.stream.Collectors
+
+class DataManagerLoadStreamTest extends Specification {
+
+    @Shared @ClassRule
+    public TestContainer cont = TestContainer.Common.INSTANCE
+
+    private DataManager dataManager
+    private EntityStates entityStates
+    private List<Customer> customers = []
+
+    void setup() {
+        dataManager = AppBeans.get(DataManager)
+        entityStates = AppBeans.get(EntityStates)
+
+        // more than one chunk with the default fetch size
+        1201.times { i ->
+            Customer customer = cont.metadata().create(Customer)
+            customer.name = 'stream-' + String.format('%04d', i)
+            customers.add(customer)
+        }
+        dataManager.commit(new CommitContext(customers))
+    }
+
+    void cleanup() {
+        cont.deleteRecord(customers as Entity[])
+    }
+
+    def "stream returns all instances in query order"() {
+        def context = LoadContext.create(Customer)
+                .setQuery(LoadContext.createQuery('select c from test$Customer c where c.name like :name order by c.name')
+                .setParameter('name', 'stream-%'))
+                .setView('_local')
+
+        when:
+        List<Customer> loaded
+        def stream = dataManager.loadStream(context)
+        try {
+            loaded = stream.collect(Collectors.toList())
+        } finally {
+            stream.close()
+        }
+
+        then:
+        loaded.size() == customers.size()
+        loaded[0].name == 'stream-0000'
+        loaded[1200].name == 'stream-1200'
+        loaded.every { entityStates.isDetached(it) }
+    }
+
+    def "stream respects paging"() {
+        when:
+        List<Customer> loaded
+        def stream = dataManager.load(Customer)
+                .query('select c from test$Customer c where c.name like :name order by c.name')
+                .parameter('name', 'stream-%')
+                .firstResult(1000)
+                .maxResults(100)
+                .stream()
+        try {
+            loaded = stream.collect(Collectors.toList())
+        } finally {
+            stream.close()
+        }
+
+        then:
+        loaded.size() == 100
+        loaded[0].name == 'stream-1000'
+    }
+}
@@ -339,6 +339,31 @@ class DataManagerTest extends Specification {
         cont.deleteRecord(product1)
     }
 
+    def "load by collection of ids in parallel batches"() {
+
+        def products = (1..5).collect { new Product(name: "p$it", quantity: it) }
+        dataManager.commit(new CommitContext(products))
+
+        AppContext.setProperty('cuba.parallelLoadByIdsThreads', '3')
+        AppContext.setProperty('cuba.parallelLoadByIdsBatchSize', '2')
+
+        when:
+
+        def loadContext = LoadContext.create(Product).setIds(products.reverse()*.id)
+        def list = dataManager.loadList(loadContext)
+
+        then:
+
+        list == products.reverse()
+        list.every { AppBeans.get(EntityStates).isDetached(it) }
+
+        cleanup:
+
+        AppContext.setProperty('cuba.parallelLoadByIdsThreads', null)
+        AppContext.setProperty('cuba.parallelLoadByIdsBatchSize', null)
+        cont.deleteRecord(products as Product[])
+    }
+
     def "load by collection of composite ids"() {
 
         def id1 = new EntityKey(tenant: 1, entityId: 1)
@@ -16,6 +16,9 @@
 
 package spec.cuba.core.entity_fetcher
 
+import ch.qos.logback.classic.Level
+import ch.qos.logback.classic.Logger
+import ch.qos.logback.classic.LoggerContext
 import com.haulmont.bali.db.QueryRunner
 import com.haulmont.cuba.core.Persistence
 import com.haulmont.cuba.core.entity.contracts.Id
@@ -31,9 +34,11 @@ import com.haulmont.cuba.testmodel.many2many.Many2ManyRef
 import com.haulmont.cuba.testmodel.not_persistent.CustomerWithNonPersistentRef
 import com.haulmont.cuba.testmodel.sales.Customer
 import com.haulmont.cuba.testmodel.sales.Status
+import com.haulmont.cuba.testsupport.TestAppender
 import com.haulmont.cuba.testsupport.TestContainer
 import org.eclipse.persistence.queries.FetchGroupTracker
 import org.junit.ClassRule
+import org.slf4j.LoggerFactory
 import spock.lang.Shared
 import spock.lang.Specification
 
@@ -106,4 +111,51 @@ class EntityFetcherTest extends Specification {
         cleanup:
         cont.deleteRecord(entity)
     }
+
+    def "fetching a number of entities reloads detached references together"() {
+        def refs = (1..3).collect { new Many2ManyRef(name: "ref$it") }
+        dataManager.commit(refs as Many2ManyRef[])
+
+        def view = ViewBuilder.of(Many2ManyA).addAll('ref.name').build()
+        def instances = refs.collect { new Many2ManyA(ref: it) } + new Many2ManyA(ref: refs[0])
+
+        def appender = new TestAppender()
+        appender.start()
+        Logger logger = ((LoggerContext) LoggerFactory.getILoggerFactory()).getLogger('eclipselink.sql')
+        Level level = logger.getLevel()
+        logger.setLevel(Level.DEBUG)
+
+        boolean allManaged = false
+        List<String> refNames = null
+        boolean sameRef = false
+
+        when:
+        persistence.runInTransaction { em ->
+            instances.each { em.persist(it) }
+
+            logger.addAppender(appender)
+            try {
+                entityFetcher.fetch(instances, instances.collect { view }, false)
+            } finally {
+                logger.detachAppender(appender)
+            }
+
+            allManaged = instances.every { it.ref != null && entityStates.isManaged(it.ref) }
+            refNames = instances.collect { it.ref.name }
+            sameRef = instances[0].ref.is(instances[3].ref)
+        }
+
+        then:
+        allManaged
+        refNames == ['ref1', 'ref2', 'ref3', 'ref1']
+        sameRef
+
+        // three distinct references are reloaded by a single query
+        appender.filterMessages { it.contains('SELECT') && it.contains('FROM TEST_MANY2MANY_REF') }.count() == 1
+
+        cleanup:
+        logger.setLevel(level)
+        cont.deleteRecord(instances as Many2ManyA[])
+        cont.deleteRecord(refs as Many2ManyRef[])
+    }
 }
@@ -21,12 +21,20 @@ import com.haulmont.cuba.core.PersistenceTools
 import com.haulmont.cuba.core.app.importexport.EntityImportExportAPI
 import com.haulmont.cuba.core.app.importexport.EntityImportViewBuilderAPI
 import com.haulmont.cuba.core.global.*
+import com.haulmont.cuba.core.sys.AppContext
+import com.haulmont.cuba.security.app.EntityLogAsyncWriter
+import com.haulmont.cuba.security.app.EntityLogConfig
 import com.haulmont.cuba.security.entity.EntityLogItem
 import com.haulmont.cuba.security.entity.Group
 import com.haulmont.cuba.security.entity.User
 import com.haulmont.cuba.testmodel.entity_log.EntityLogA
 import com.haulmont.cuba.testmodel.entity_log.EntityLogB
+import org.apache.commons.io.FileUtils
+import org.springframework.core.task.AsyncTaskExecutor
 import spock.lang.Issue
+import spock.util.concurrent.PollingConditions
+
+import java.nio.file.Files
 
 class EntityLogTest extends AbstractEntityLogTest {
 
@@ -272,6 +280,104 @@ class EntityLogTest extends AbstractEntityLogTest {
         loggedValueMatches(logItem, 'group', 'Company')
     }
 
+    def "Entity log items are saved asynchronously after commit"() {
+        given:
+        def config = AppBeans.get(Configuration).getConfig(EntityLogConfig)
+        config.setAsync(true)
+
+        when:
+        withTransaction { EntityManager em ->
+            user1Id = createAndSaveUser(em, [login: 'test-async', name: 'test-async-name'])
+        }
+
+        then:
+        new PollingConditions(timeout: 10).eventually {
+            def items = getEntityLogItems('sec$User', user1Id)
+            assert items.size() == 1
+            assert items[0].type == EntityLogItem.Type.CREATE
+            assert items[0].user != null
+            assert loggedValueMatches(items[0], 'name', 'test-async-name')
+        }
+
+        cleanup:
+        config.setAsync(false)
+    }
+
+    def "Entity log items which cannot be saved are spooled and saved later"() {
+        given:
+        def writer = new FailingEntityLogAsyncWriter(AppBeans.get(Configuration))
+        writer.persistence = cont.persistence()
+        writer.spoolDir = Files.createTempDirectory('entitylog').toFile()
+
+        def entityId = UUID.randomUUID()
+        EntityLogItem item = createEntityLogItem(entityId)
+
+        when: "saving fails"
+        writer.failing = true
+        writer.writeWithRetry([item])
+
+        then: "the item is spooled"
+        writer.spoolDir.listFiles().length == 1
+        getEntityLogItems('sec$User', entityId).isEmpty()
+
+        when: "the database is available again"
+        writer.failing = false
+        writer.processSpool()
+
+        then: "the spooled item is saved and the file is removed"
+        getEntityLogItems('sec$User', entityId).size() == 1
+        writer.spoolDir.listFiles().length == 0
+
+        cleanup:
+        FileUtils.deleteQuietly(writer.spoolDir)
+        cont.deleteRecord('SEC_ENTITY_LOG', item.id)
+    }
+
+    def "Entity log items are saved synchronously when the queue is full and on stop"() {
+        given:
+        AppContext.setProperty('cuba.entityLog.asyncQueueCapacity', '1')
+        def writer = new EntityLogAsyncWriter(AppBeans.get(Configuration))
+        writer.persistence = cont.persistence()
+        // the writer task is never run, so items stay in the queue
+        writer.taskExecutor = Stub(AsyncTaskExecutor)
+
+        def queuedId = UUID.randomUUID()
+        def overflowId = UUID.randomUUID()
+        def queuedItem = createEntityLogItem(queuedId)
+        def overflowItem = createEntityLogItem(overflowId)
+
+        when: "the queue is full"
+        writer.enqueue(queuedItem)
+        writer.enqueue(overflowItem)
+
+        then: "the item which does not fit is saved at once"
+        writer.queueSize == 1
+        getEntityLogItems('sec$User', queuedId).isEmpty()
+        getEntityLogItems('sec$User', overflowId).size() == 1
+
+        when: "the writer is stopped"
+        writer.stop()
+
+        then: "the queued item is saved"
+        writer.queueSize == 0
+        getEntityLogItems('sec$User', queuedId).size() == 1
+
+        cleanup:
+        AppContext.setProperty('cuba.entityLog.asyncQueueCapacity', null)
+        cont.deleteRecord('SEC_ENTITY_LOG', queuedItem.id, overflowItem.id)
+    }
+
+    protected EntityLogItem createEntityLogItem(UUID entityId) {
+        EntityLogItem item = cont.metadata().create(EntityLogItem)
+        item.eventTs = AppBeans.get(TimeSource).currentTimestamp()
+        item.type = EntityLogItem.Type.MODIFY
+        item.entity = 'sec$User'
+        item.user = AppBeans.get(UserSessionSource).userSession.user
+        item.objectEntityId = entityId
+        item.changes = 'name=' + entityId
+        item
+    }
+
     protected def createAndSaveUser(EntityManager em, Map params) {
         User user = cont.metadata().create(User)
 
@@ -283,4 +389,25 @@ class EntityLogTest extends AbstractEntityLogTest {
         user.getId()
     }
 
+    static class FailingEntityLogAsyncWriter extends EntityLogAsyncWriter {
+
+        boolean failing
+
+        FailingEntityLogAsyncWriter(Configuration configuration) {
+            super(configuration)
+        }
+
+        @Override
+        protected void write(List<EntityLogItem> items) {
+            if (failing) {
+                throw new RuntimeException('Database is not available')
+            }
+            super.write(items)
+        }
+
+        @Override
+        protected long getRetryDelay(int attempt) {
+            return 0
+        }
+    }
 }
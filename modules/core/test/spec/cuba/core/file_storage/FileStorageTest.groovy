@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) 2008-2020 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package spec.cuba.core.file_storage
+
+import com.haulmont.cuba.core.app.FileStorageAPI
+import com.haulmont.cuba.core.app.filestorage.FileStorage
+import com.haulmont.cuba.core.entity.FileDescriptor
+import com.haulmont.cuba.core.global.AppBeans
+import com.haulmont.cuba.core.global.FileStorageException
+import com.haulmont.cuba.testsupport.TestContainer
+import org.apache.commons.codec.digest.DigestUtils
+import org.apache.commons.io.FileUtils
+import org.apache.commons.io.IOUtils
+import org.junit.ClassRule
+import spock.lang.Shared
+import spock.lang.Specification
+
+import java.nio.file.Files
+
+class FileStorageTest extends Specification {
+
+    @Shared @ClassRule
+    public TestContainer cont = TestContainer.Common.INSTANCE
+
+    private FileStorageAPI fileStorage
+    private FileDescriptor fd
+    private byte[] content
+
+    void setup() {
+        fileStorage = AppBeans.get(FileStorageAPI)
+
+        fd = cont.metadata().create(FileDescriptor)
+        fd.name = 'test.bin'
+        fd.extension = 'bin'
+        fd.createDate = new Date()
+
+        content = new byte[200 * 1024]
+        new Random(42).nextBytes(content)
+    }
+
+    void cleanup() {
+        fileStorage.removeFile(fd)
+    }
+
+    def "save stream returns content hash"() {
+        when:
+        def hash = fileStorage.saveStreamWithHash(fd, new ByteArrayInputStream(content))
+
+        then:
+        hash == DigestUtils.sha256Hex(content)
+        fd.contentHash == hash
+        fileStorage.loadFile(fd) == content
+    }
+
+    def "save stream writes all storage roots synchronously"() {
+        given:
+        def storage = fileStorage as FileStorage
+        def roots = storage.storageRoots
+        def secondaryRoot = Files.createTempDirectory('filestorage').toFile()
+        storage.storageRoots = [roots[0], secondaryRoot] as File[]
+
+        when:
+        fileStorage.saveStream(fd, new ByteArrayInputStream(content))
+
+        then:
+        def copy = new File(storage.getStorageDir(secondaryRoot, fd), storage.getFileName(fd))
+        copy.bytes == content
+        fd.contentHash == DigestUtils.sha256Hex(content)
+
+        cleanup:
+        storage.storageRoots = roots
+        FileUtils.deleteQuietly(secondaryRoot)
+    }
+
+    def "ranged read returns part of the file"() {
+        given:
+        fileStorage.saveFile(fd, content)
+
+        when:
+        byte[] part
+        def stream = fileStorage.openStream(fd, 100_000, 1000)
+        try {
+            part = IOUtils.toByteArray(stream)
+        } finally {
+            stream.close()
+        }
+
+        then:
+        part == Arrays.copyOfRange(content, 100_000, 101_000)
+    }
+
+    def "ranged read is bounded by the end of the file"() {
+        given:
+        fileStorage.saveFile(fd, content)
+
+        when:
+        byte[] part
+        def stream = fileStorage.openStream(fd, content.length - 10, 1000)
+        try {
+            part = IOUtils.toByteArray(stream)
+        } finally {
+            stream.close()
+        }
+
+        then:
+        part == Arrays.copyOfRange(content, content.length - 10, content.length)
+    }
+
+    def "file size is taken from the stored file"() {
+        given:
+        fileStorage.saveFile(fd, content)
+        fd.size = 1
+
+        expect:
+        fileStorage.getFileSize(fd) == content.length
+    }
+
+    def "missing file is reported by all read methods"() {
+        when:
+        fileStorage.loadFile(fd)
+
+        then:
+        def e1 = thrown(FileStorageException)
+        e1.type == FileStorageException.Type.FILE_NOT_FOUND
+
+        when:
+        fileStorage.openStream(fd, 0, 10)
+
+        then:
+        def e2 = thrown(FileStorageException)
+        e2.type == FileStorageException.Type.FILE_NOT_FOUND
+
+        when:
+        fileStorage.getFileSize(fd)
+
+        then:
+        def e3 = thrown(FileStorageException)
+        e3.type == FileStorageException.Type.FILE_NOT_FOUND
+    }
+}
@@ -21,8 +21,11 @@ import com.haulmont.cuba.core.Persistence
 import com.haulmont.cuba.core.app.queryresults.QueryResultsManager
 import com.haulmont.cuba.core.entity.QueryResult
 import com.haulmont.cuba.core.global.AppBeans
+import com.haulmont.cuba.core.global.LoadContext
 import com.haulmont.cuba.core.global.Metadata
 import com.haulmont.cuba.core.global.UserSessionSource
+import com.haulmont.cuba.core.sys.AppContext
+import com.haulmont.cuba.security.entity.User
 import com.haulmont.cuba.security.app.UserSessions
 import com.haulmont.cuba.security.global.UserSession
 import com.haulmont.cuba.testsupport.TestContainer
@@ -98,4 +101,127 @@ class QueryResultsManagerTest extends Specification {
         userSessions.remove(session1)
         userSessions.remove(session2)
     }
+
+    def "save previous query results on the database side"() {
+        AppContext.setProperty('cuba.queryResultsInsertSelect', 'true')
+        def sessionId = AppBeans.get(UserSessionSource).userSession.id
+        def manager = createManager()
+
+        def allUsersQuery = LoadContext.createQuery('select u from sec$User u')
+        def adminQuery = LoadContext.createQuery('select u from sec$User u where u.login = :login')
+                .setParameter('login', 'admin')
+
+        when: "results of the first query are saved"
+
+        def context = LoadContext.create(User).setQuery(adminQuery).setQueryKey(10)
+        context.prevQueries.add(allUsersQuery)
+        manager.savePreviousQueryResults(context)
+
+        then: "rows are written by INSERT ... SELECT without loading ids"
+
+        def allIds = persistence.callInTransaction { em -> em.createQuery('select u.id from sec$User u').resultList } as Set
+        savedIds(sessionId, 10) == allIds
+        manager.insertSelectCalls == 1
+        manager.insertCalls == 0
+
+        when: "results of the nested query restricted by the previous results are saved"
+
+        // a stale row of the same key which is not selected by the nested query
+        def converter = persistence.dbTypeConverter
+        new QueryRunner(persistence.getDataSource()).update(
+                "insert into SYS_QUERY_RESULT (SESSION_ID, QUERY_KEY, ENTITY_ID) values (?, ?, ?)",
+                [converter.getSqlObject(sessionId), 10, converter.getSqlObject(UUID.randomUUID())] as Object[])
+
+        context = LoadContext.create(User).setQuery(LoadContext.createQuery('select u from sec$User u')).setQueryKey(10)
+        context.prevQueries.addAll([allUsersQuery, adminQuery])
+        manager.savePreviousQueryResults(context)
+
+        then:
+
+        def adminIds = persistence.callInTransaction { em ->
+            em.createQuery('select u.id from sec$User u where u.login = \'admin\'').resultList
+        } as Set
+        adminIds.size() == 1
+        savedIds(sessionId, 10) == adminIds
+        savedIds(sessionId, manager.getStagingQueryKey(10)).isEmpty()
+        manager.insertSelectCalls == 2
+        manager.insertCalls == 0
+
+        cleanup:
+
+        AppContext.setProperty('cuba.queryResultsInsertSelect', null)
+    }
+
+    def "save previous query results by loading ids if the DBMS cannot insert from the target table"() {
+        AppContext.setProperty('cuba.queryResultsInsertSelect', 'true')
+        def sessionId = AppBeans.get(UserSessionSource).userSession.id
+        def manager = createManager()
+        manager.insertFromTargetTableSupported = false
+
+        def allUsersQuery = LoadContext.createQuery('select u from sec$User u')
+        def adminQuery = LoadContext.createQuery('select u from sec$User u where u.login = :login')
+                .setParameter('login', 'admin')
+
+        def context = LoadContext.create(User).setQuery(adminQuery).setQueryKey(11)
+        context.prevQueries.add(allUsersQuery)
+        manager.savePreviousQueryResults(context)
+
+        when:
+
+        context = LoadContext.create(User).setQuery(LoadContext.createQuery('select u from sec$User u')).setQueryKey(11)
+        context.prevQueries.addAll([allUsersQuery, adminQuery])
+        manager.savePreviousQueryResults(context)
+
+        then:
+
+        def adminIds = persistence.callInTransaction { em ->
+            em.createQuery('select u.id from sec$User u where u.login = \'admin\'').resultList
+        } as Set
+        savedIds(sessionId, 11) == adminIds
+        manager.insertSelectCalls == 1
+        manager.insertCalls == 1
+
+        cleanup:
+
+        AppContext.setProperty('cuba.queryResultsInsertSelect', null)
+    }
+
+    private TestQueryResultsManager createManager() {
+        def manager = new TestQueryResultsManager()
+        AppContext.getApplicationContext().getAutowireCapableBeanFactory().autowireBean(manager)
+        return manager
+    }
+
+    private Set savedIds(UUID sessionId, int queryKey) {
+        persistence.callInTransaction { em ->
+            em.createQuery('select e.entityId from sys$QueryResult e where e.sessionId = :sessionId and e.queryKey = :queryKey')
+                    .setParameter('sessionId', sessionId)
+                    .setParameter('queryKey', queryKey)
+                    .resultList
+        } as Set
+    }
+
+    static class TestQueryResultsManager extends QueryResultsManager {
+
+        boolean insertFromTargetTableSupported = true
+        int insertSelectCalls
+        int insertCalls
+
+        @Override
+        protected boolean canInsertSelect(LoadContext loadContext) {
+            return super.canInsertSelect(loadContext) && (insertFromTargetTableSupported || loadContext.prevQueries.size() <= 1)
+        }
+
+        @Override
+        protected void insertSelect(LoadContext loadContext, LoadContext.Query contextQuery, int queryKey) {
+            insertSelectCalls++
+            super.insertSelect(loadContext, contextQuery, queryKey)
+        }
+
+        @Override
+        void insert(int queryKey, List idList) {
+            insertCalls++
+            super.insert(queryKey, idList)
+        }
+    }
 }
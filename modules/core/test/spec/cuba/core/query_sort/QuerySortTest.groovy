@@ -2,9 +2,13 @@ package spec.cuba.core.query_sort
 
 import com.haulmont.cuba.core.app.JpqlQueryBuilder
 import com.haulmont.cuba.core.app.JpqlSortExpressionProvider
+import com.haulmont.cuba.core.app.SortJpqlGenerator
 import com.haulmont.cuba.core.global.AppBeans
+import com.haulmont.cuba.core.global.CommitContext
+import com.haulmont.cuba.core.global.DataManager
 import com.haulmont.cuba.core.global.Metadata
 import com.haulmont.cuba.core.global.Sort
+import com.haulmont.cuba.testmodel.sales.Order
 import com.haulmont.cuba.testsupport.TestContainer
 import com.haulmont.cuba.testsupport.TestJpqlSortExpressionProvider
 import org.junit.ClassRule
@@ -193,4 +197,207 @@ class QuerySortTest extends Specification {
 
         queryBuilder.getResultQueryString() == 'select e from sys$EntitySnapshot e left join e.author e_author order by e.snapshotDate desc, e_author.login desc, e_author.name desc, e.id desc'
     }
+
+    def "keyset pagination"() {
+
+        JpqlQueryBuilder queryBuilder
+        def userId = UUID.randomUUID()
+
+        when: "by identifier only"
+
+        queryBuilder = AppBeans.get(JpqlQueryBuilder)
+        queryBuilder.setQueryString('select u from sec$User u')
+                .setQueryParameters([:])
+                .setKeysetValues([userId])
+                .setEntityName('sec$User')
+
+        then:
+
+        queryBuilder.getResultQueryString() == 'select u from sec$User u where ((u.id > :_keyset0)) order by u.id'
+        queryBuilder.getResultParameters() == [_keyset0: userId]
+
+        when: "by single property"
+
+        queryBuilder = AppBeans.get(JpqlQueryBuilder)
+        queryBuilder.setQueryString('select u from sec$User u')
+                .setQueryParameters([:])
+                .setSort(Sort.by('name'))
+                .setKeysetValues(['Smith', userId])
+                .setEntityName('sec$User')
+
+        then:
+
+        queryBuilder.getResultQueryString() == 'select u from sec$User u where ((u.name > :_keyset0) or (u.name = :_keyset0 and u.id > :_keyset1)) order by u.name, u.id'
+        queryBuilder.getResultParameters() == [_keyset0: 'Smith', _keyset1: userId]
+
+        when: "desc"
+
+        queryBuilder = AppBeans.get(JpqlQueryBuilder)
+        queryBuilder.setQueryString('select u from sec$User u')
+                .setQueryParameters([:])
+                .setSort(Sort.by(Sort.Direction.DESC, 'name'))
+                .setKeysetValues(['Smith', userId])
+                .setEntityName('sec$User')
+
+        then:
+
+        queryBuilder.getResultQueryString() == 'select u from sec$User u where ((u.name < :_keyset0) or (u.name = :_keyset0 and u.id < :_keyset1)) order by u.name desc, u.id desc'
+
+        when: "by reference property"
+
+        queryBuilder = AppBeans.get(JpqlQueryBuilder)
+        queryBuilder.setQueryString('select u from sec$User u')
+                .setQueryParameters([:])
+                .setSort(Sort.by('group.name'))
+                .setKeysetValues(['Company', userId])
+                .setEntityName('sec$User')
+        queryBuilder.getResultQueryString()
+
+        then:
+
+        thrown(IllegalArgumentException)
+
+        when: "wrong number of values"
+
+        queryBuilder = AppBeans.get(JpqlQueryBuilder)
+        queryBuilder.setQueryString('select u from sec$User u')
+                .setQueryParameters([:])
+                .setSort(Sort.by('name'))
+                .setKeysetValues(['Smith'])
+                .setEntityName('sec$User')
+        queryBuilder.getResultQueryString()
+
+        then:
+
+        thrown(IllegalArgumentException)
+    }
+
+    def "keyset pagination with identifier in sort"() {
+
+        def userId = UUID.randomUUID()
+
+        when:
+
+        JpqlQueryBuilder queryBuilder = AppBeans.get(JpqlQueryBuilder)
+        queryBuilder.setQueryString('select u from sec$User u')
+                .setQueryParameters([:])
+                .setSort(Sort.by('name', 'id'))
+                .setKeysetValues(['Smith', userId, userId])
+                .setEntityName('sec$User')
+
+        then: "the trailing identifier is not compared twice"
+
+        queryBuilder.getResultQueryString() == 'select u from sec$User u where ((u.name > :_keyset0) or (u.name = :_keyset0 and u.id > :_keyset1)) order by u.name, u.id'
+        queryBuilder.getResultParameters() == [_keyset0: 'Smith', _keyset1: userId]
+    }
+
+    def "keyset parameter replaces the sort property as a whole path"() {
+
+        SortJpqlGenerator generator = AppBeans.get(SortJpqlGenerator)
+        def login = AppBeans.get(Metadata).getClassNN('sec$User').getPropertyPath('login')
+
+        expect:
+
+        generator.getKeysetValueExpression(login, '{E}.login', '_keyset0') == ':_keyset0'
+        generator.getKeysetValueExpression(login, 'coalesce({E}.loginLowerCase, {E}.login)', '_keyset0') ==
+                'coalesce({E}.loginLowerCase, :_keyset0)'
+        generator.getKeysetValueExpression(login, 'upper({E}.login)', '_keyset1') == 'upper(:_keyset1)'
+
+        when:
+
+        generator.getKeysetValueExpression(login, 'concat({E}.login, {E}.login)', '_keyset0')
+
+        then:
+
+        thrown(IllegalArgumentException)
+
+        when:
+
+        generator.getKeysetValueExpression(login, 'upper({E}.loginLowerCase)', '_keyset0')
+
+        then:
+
+        thrown(IllegalArgumentException)
+    }
+
+    def "keyset pagination with order function"() {
+
+        JpqlQueryBuilder queryBuilder
+        TestJpqlSortExpressionProvider sortExpressionProvider
+        def orderId = UUID.randomUUID()
+
+        setup:
+        sortExpressionProvider = AppBeans.get(JpqlSortExpressionProvider)
+        Metadata metadata = AppBeans.get(Metadata)
+        sortExpressionProvider.addToUpperPath(metadata.getClassNN('test$Order').getPropertyPath('number'))
+
+        when:
+
+        queryBuilder = AppBeans.get(JpqlQueryBuilder)
+        queryBuilder.setQueryString('select e from test$Order e')
+                .setQueryParameters([:])
+                .setSort(Sort.by('number'))
+                .setKeysetValues(['kp-1', orderId])
+                .setEntityName('test$Order')
+
+        then:
+
+        queryBuilder.getResultQueryString().replace(' ', '') == 'select e from test$Order e where ((upper(e.number) > upper(:_keyset0)) or (upper(e.number) = upper(:_keyset0) and e.id > :_keyset1)) order by upper(e.number) asc nulls first, e.id'.replace(' ', '')
+        queryBuilder.getResultParameters() == [_keyset0: 'kp-1', _keyset1: orderId]
+
+        cleanup:
+        sortExpressionProvider.resetToUpperPaths()
+    }
+
+    def "keyset pagination pages through data sorted with order function"() {
+
+        TestJpqlSortExpressionProvider sortExpressionProvider
+        DataManager dataManager = AppBeans.get(DataManager)
+        List<Order> orders
+
+        setup:
+        sortExpressionProvider = AppBeans.get(JpqlSortExpressionProvider)
+        Metadata metadata = AppBeans.get(Metadata)
+        sortExpressionProvider.addToUpperPath(metadata.getClassNN('test$Order').getPropertyPath('number'))
+
+        // plain comparison puts upper case values first, so the predicate must use the same function as the sort
+        orders = ['kp-a', 'KP-B', 'kp-c', 'KP-C', 'KP-D', 'kp-e', 'kp-c'].collect { number ->
+            Order order = metadata.create(Order)
+            order.number = number
+            return order
+        }
+        dataManager.commit(new CommitContext(orders))
+
+        when:
+
+        List<Order> loaded = []
+        List<Integer> pageSizes = []
+        List<Order> page = dataManager.load(Order)
+                .query('select e from test$Order e where lower(e.number) like :number')
+                .parameter('number', 'kp-%')
+                .sort(Sort.by('number'))
+                .maxResults(3)
+                .list()
+        while (!page.isEmpty()) {
+            loaded.addAll(page)
+            pageSizes.add(page.size())
+            page = dataManager.load(Order)
+                    .query('select e from test$Order e where lower(e.number) like :number')
+                    .parameter('number', 'kp-%')
+                    .sort(Sort.by('number'))
+                    .after(page.last())
+                    .maxResults(3)
+                    .list()
+        }
+
+        then:
+
+        pageSizes == [3, 3, 1]
+        loaded.collect { it.id } as Set == orders.collect { it.id } as Set
+        loaded.collect { it.number.toUpperCase() } == ['KP-A', 'KP-B', 'KP-C', 'KP-C', 'KP-C', 'KP-D', 'KP-E']
+
+        cleanup:
+        sortExpressionProvider.resetToUpperPaths()
+        cont.deleteRecord('TEST_ORDER', *orders.collect { it.id })
+    }
 }
@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2008-2020 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package spec.cuba.core.roles
+
+import com.haulmont.cuba.core.app.AttributeSecuritySupport
+import com.haulmont.cuba.core.global.AppBeans
+import com.haulmont.cuba.core.global.UserSessionSource
+import com.haulmont.cuba.core.global.View
+import com.haulmont.cuba.security.entity.Access
+import com.haulmont.cuba.security.entity.EntityAttrAccess
+import com.haulmont.cuba.security.entity.User
+import com.haulmont.cuba.security.global.UserSession
+import com.haulmont.cuba.security.role.BasicRoleDefinition
+import com.haulmont.cuba.security.role.RoleDefinition
+import com.haulmont.cuba.testsupport.TestContainer
+import org.junit.ClassRule
+import spock.lang.Shared
+import spock.lang.Specification
+
+class RestrictedViewCacheTest extends Specification {
+
+    @Shared
+    @ClassRule
+    public TestContainer cont = TestContainer.Common.INSTANCE
+
+    UserSession userSession
+    RoleDefinition defaultRole
+    Access defaultPolicy
+    AttributeSecuritySupport attributeSecuritySupport
+    View view
+
+    def setup() {
+        userSession = AppBeans.get(UserSessionSource).getUserSession()
+        defaultRole = userSession.joinedRole
+        defaultPolicy = userSession.permissionUndefinedAccessPolicy
+        attributeSecuritySupport = AppBeans.get(AttributeSecuritySupport)
+        view = new View(User, false)
+                .addProperty('login')
+                .addProperty('name')
+    }
+
+    def cleanup() {
+        userSession.joinedRole = defaultRole
+        userSession.permissionUndefinedAccessPolicy = defaultPolicy
+    }
+
+    def "different roles get different not permitted paths"() {
+        userSession.permissionUndefinedAccessPolicy = Access.ALLOW
+
+        when:
+        userSession.joinedRole = denyingRole('login')
+        def paths1 = attributeSecuritySupport.getNotPermittedPaths(view)
+        def paths2 = attributeSecuritySupport.getNotPermittedPaths(view)
+
+        then:
+        paths1 == ['login'] as Set
+        paths2.is(paths1)
+
+        when:
+        userSession.joinedRole = BasicRoleDefinition.builder().build()
+
+        then:
+        attributeSecuritySupport.getNotPermittedPaths(view).isEmpty()
+    }
+
+    def "different undefined access policies get different not permitted paths"() {
+        userSession.joinedRole = BasicRoleDefinition.builder().build()
+
+        when:
+        userSession.permissionUndefinedAccessPolicy = Access.ALLOW
+
+        then:
+        attributeSecuritySupport.getNotPermittedPaths(view).isEmpty()
+
+        when:
+        userSession.permissionUndefinedAccessPolicy = Access.DENY
+
+        then:
+        attributeSecuritySupport.getNotPermittedPaths(view) == ['login', 'name'] as Set
+    }
+
+    def "changed role definition is not served stale"() {
+        userSession.permissionUndefinedAccessPolicy = Access.ALLOW
+
+        when:
+        userSession.joinedRole = denyingRole('login')
+
+        then:
+        attributeSecuritySupport.getNotPermittedPaths(view) == ['login'] as Set
+
+        when: "permissions are changed by building a new role definition"
+        userSession.joinedRole = denyingRole('name')
+
+        then:
+        attributeSecuritySupport.getNotPermittedPaths(view) == ['name'] as Set
+    }
+
+    private static RoleDefinition denyingRole(String attribute) {
+        BasicRoleDefinition.builder()
+                .withEntityAttributePermission(User, attribute, EntityAttrAccess.DENY)
+                .build()
+    }
+}
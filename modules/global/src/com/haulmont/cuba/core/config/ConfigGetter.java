@@ -22,7 +22,9 @@ package com.haulmont.cuba.core.config;
 import com.haulmont.cuba.core.config.type.TypeFactory;
 
 import java.lang.reflect.Method;
+import java.math.BigDecimal;
 import java.util.NoSuchElementException;
+import java.util.UUID;
 
 /**
  * Implementation of configuration getter methods.
@@ -38,6 +40,8 @@ public class ConfigGetter extends ConfigAccessorMethod {
 
     private TypeFactory factory;
 
+    private final boolean immutableType;
+
     /**
      * Create a new ConfigGetter instance.
      *
@@ -51,6 +55,25 @@ public class ConfigGetter extends ConfigAccessorMethod {
         sourceType = ConfigUtil.getSourceType(configInterface, method);
 //        if (!String.class.equals(method.getReturnType()))
         factory = TypeFactory.getInstance(configInterface, method);
+        immutableType = isImmutableType(method.getReturnType());
+    }
+
+    private static boolean isImmutableType(Class<?> type) {
+        return type.isPrimitive()
+                || type.isEnum()
+                || String.class.equals(type)
+                || Boolean.class.equals(type)
+                || Character.class.equals(type)
+                || Number.class.isAssignableFrom(type) && (type.getName().startsWith("java.lang.") || BigDecimal.class.equals(type))
+                || UUID.class.equals(type);
+    }
+
+    /**
+     * @return true if the value returned by this getter can be cached by {@link ConfigHandler}: the source of
+     * the property is cacheable and the returned value cannot be modified by the caller
+     */
+    public boolean isCacheable(ConfigPersister persister) {
+        return immutableType && persister.isCacheable(sourceType);
     }
 
     /**
@@ -21,12 +21,24 @@ package com.haulmont.cuba.core.config;
 
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Configuration interface method handler.
+ * <p>
+ * Values returned by getters without arguments are cached if the property source and the return type allow it
+ * (see {@link ConfigGetter#isCacheable(ConfigPersister)}). Cached values are discarded on the next invocation
+ * after {@link #invalidateCachedValues()} is called.
  *
  */
 public class ConfigHandler implements InvocationHandler {
+
+    private static final AtomicLong valuesVersion = new AtomicLong();
+
+    private static final Object NULL_VALUE = new Object();
+
     /**
      * The configuration source.
      */
@@ -36,6 +48,10 @@ public class ConfigHandler implements InvocationHandler {
      */
     private final Class<?> configInterface;
 
+    private final Map<Method, ConfigMethod> configMethods = new ConcurrentHashMap<>();
+
+    private volatile CachedValues cachedValues = new CachedValues(-1);
+
     /**
      * Create a new ConfigHandler instance.
      *
@@ -75,7 +91,49 @@ public class ConfigHandler implements InvocationHandler {
      */
     @Override
     public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
-        ConfigMethod configMethod = ConfigMethods.getInstance(configInterface, method);
+        ConfigMethod configMethod = configMethods.get(method);
+        if (configMethod == null) {
+            configMethod = ConfigMethods.getInstance(configInterface, method);
+            configMethods.put(method, configMethod);
+        }
+
+        if ((args == null || args.length == 0)
+                && configMethod instanceof ConfigGetter
+                && ((ConfigGetter) configMethod).isCacheable(persister)) {
+            // read the version before the value, so a value loaded concurrently with a change
+            // is stored only in the outdated snapshot
+            long version = valuesVersion.get();
+            CachedValues values = cachedValues;
+            if (values.version != version) {
+                values = new CachedValues(version);
+                cachedValues = values;
+            }
+            Object value = values.values.get(method);
+            if (value == null) {
+                value = configMethod.invoke(this, args, proxy);
+                values.values.put(method, value == null ? NULL_VALUE : value);
+                return value;
+            }
+            return value == NULL_VALUE ? null : value;
+        }
+
         return configMethod.invoke(this, args, proxy);
-  }
+    }
+
+    /**
+     * Discards cached values of all configuration interfaces. Must be invoked after a change of a property
+     * value in a cacheable source.
+     */
+    public static void invalidateCachedValues() {
+        valuesVersion.incrementAndGet();
+    }
+
+    private static class CachedValues {
+        private final long version;
+        private final Map<Method, Object> values = new ConcurrentHashMap<>();
+
+        private CachedValues(long version) {
+            this.version = version;
+        }
+    }
 }
\ No newline at end of file
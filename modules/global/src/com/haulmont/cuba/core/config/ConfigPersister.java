@@ -20,4 +20,12 @@ public interface ConfigPersister {
     String getProperty(SourceType sourceType, String name);
 
     void setProperty(SourceType sourceType, String name, String value);
+
+    /**
+     * @return true if values of the given source can be cached by {@link ConfigHandler} until
+     * {@link ConfigHandler#invalidateCachedValues()} is invoked
+     */
+    default boolean isCacheable(SourceType sourceType) {
+        return false;
+    }
 }
\ No newline at end of file
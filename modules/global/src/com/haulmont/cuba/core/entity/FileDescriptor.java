@@ -47,6 +47,9 @@ public class FileDescriptor extends StandardEntity implements TenantEntity {
     @Column(name = "CREATE_DATE")
     private Date createDate;
 
+    @Column(name = "CONTENT_HASH", length = 64)
+    private String contentHash;
+
     @SystemLevel
     @Column(name = "SYS_TENANT_ID")
     protected String sysTenantId;
@@ -95,6 +98,17 @@ public class FileDescriptor extends StandardEntity implements TenantEntity {
         this.size = size;
     }
 
+    /**
+     * @return hex-encoded SHA-256 hash of the file contents, set when the file is saved into the file storage
+     */
+    public String getContentHash() {
+        return contentHash;
+    }
+
+    public void setContentHash(String contentHash) {
+        this.contentHash = contentHash;
+    }
+
     public String getSysTenantId() {
         return sysTenantId;
     }
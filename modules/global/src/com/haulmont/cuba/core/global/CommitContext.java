@@ -40,6 +40,7 @@ public class CommitContext implements Serializable {
     protected boolean discardCommitted;
     protected boolean authorizationRequired;
     protected boolean joinTransaction;
+    protected boolean bulkMode;
     protected ValidationMode validationMode = ValidationMode.DEFAULT;
     protected Map<String, Object> dbHints = new HashMap<>();
     protected List<Class> validationGroups;
@@ -230,6 +231,27 @@ public class CommitContext implements Serializable {
         return this;
     }
 
+    /**
+     * @return true if the context is committed in bulk mode
+     * @see #setBulkMode(boolean)
+     */
+    public boolean isBulkMode() {
+        return bulkMode;
+    }
+
+    /**
+     * Enables bulk mode intended for committing a large number of new or changed instances, e.g. when importing data.
+     * In this mode instances are processed grouped by entity, and detached instances of each entity are loaded
+     * by a few queries before merging instead of one query per instance.
+     * <p>
+     * To send insert and update statements to the database in JDBC batches, also set
+     * {@code eclipselink.jdbc.batch-writing} and {@code eclipselink.jdbc.batch-writing.size} application properties.
+     */
+    public CommitContext setBulkMode(boolean bulkMode) {
+        this.bulkMode = bulkMode;
+        return this;
+    }
+
     private View getViewFromRepository(Entity entity, String viewName) {
         Metadata metadata = AppBeans.get(Metadata.NAME);
         return metadata.getViewRepository().getView(metadata.getClass(entity.getClass()), viewName);
@@ -27,6 +27,7 @@ import com.haulmont.cuba.core.entity.contracts.Id;
 import javax.annotation.CheckReturnValue;
 import javax.annotation.Nullable;
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * Central interface to provide CRUD functionality. Can be used on both middle and client tiers.
@@ -64,6 +65,26 @@ public interface DataManager {
     @CheckReturnValue
     <E extends Entity> List<E> loadList(LoadContext<E> context);
 
+    /**
+     * Loads entity instances as a stream backed by a database cursor, without materializing the whole result list.
+     * <p>Instances are read from the database and processed by security and dynamic attributes in chunks of the size
+     * defined by the {@code cuba.loadStreamFetchSize} application property, so the memory consumption stays bounded
+     * regardless of the result set size. Paging parameters of the query are respected.</p>
+     * <p>The returned stream holds an open transaction and must be closed after use, preferably in
+     * try-with-resources block:</p>
+     * <pre>
+     *     try (Stream&lt;Customer&gt; stream = dataManager.loadStream(context)) {
+     *         stream.forEach(customer -&gt; export(customer));
+     *     }
+     * </pre>
+     * <p>On the client tier, instances are loaded from the middleware page by page, the next page is requested
+     * when the previous one has been consumed.</p>
+     * @param context   {@link LoadContext} object, defining what and how to load
+     * @return          a stream of detached instances
+     */
+    @CheckReturnValue
+    <E extends Entity> Stream<E> loadStream(LoadContext<E> context);
+
     /**
      * Returns the number of entity instances for the given query passed in the {@link LoadContext}.
      * @param context   defines the query
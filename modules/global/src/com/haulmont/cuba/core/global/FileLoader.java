@@ -28,8 +28,14 @@ import java.util.function.Supplier;
 public interface FileLoader {
     String NAME = "cuba_FileLoader";
 
+    /**
+     * Algorithm of the content hash set to {@link FileDescriptor#getContentHash()} when a file is saved.
+     */
+    String CONTENT_HASH_ALGORITHM = "SHA-256";
+
     /**
      * Save an InputStream contents into file storage on middleware.
+     * Sets the content hash of the saved contents to the file descriptor.
      *
      * @param fd                  file descriptor
      * @param inputStreamSupplier input stream supplier
@@ -42,6 +48,7 @@ public interface FileLoader {
 
     /**
      * Save an InputStream contents into file storage on middleware.
+     * Sets the content hash of the saved contents to the file descriptor.
      *
      * @param fd                  file descriptor
      * @param inputStreamSupplier input stream supplier.
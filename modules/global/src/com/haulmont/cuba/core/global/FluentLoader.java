@@ -25,6 +25,7 @@ import javax.annotation.CheckReturnValue;
 import javax.persistence.TemporalType;
 import java.util.*;
 import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 public class FluentLoader<E extends Entity<K>, K> {
 
@@ -96,6 +97,17 @@ public class FluentLoader<E extends Entity<K>, K> {
         return dataManager.loadList(loadContext);
     }
 
+    /**
+     * Loads entities as a stream backed by a database cursor. The stream must be closed after use.
+     *
+     * @see DataManager#loadStream(LoadContext)
+     */
+    @CheckReturnValue
+    public Stream<E> stream() {
+        LoadContext<E> loadContext = createLoadContext();
+        return dataManager.loadStream(loadContext);
+    }
+
     /**
      * Loads a single instance and wraps it in Optional.
      */
@@ -446,6 +458,9 @@ public class FluentLoader<E extends Entity<K>, K> {
         private int maxResults;
         private boolean cacheable;
         private Condition condition;
+        private Sort sort;
+        private List<Object> keysetValues;
+        private E keysetEntity;
 
         ByQuery(FluentLoader<E, K> loader, String queryString) {
             Preconditions.checkNotEmptyString(queryString, "queryString is empty");
@@ -489,10 +504,24 @@ public class FluentLoader<E extends Entity<K>, K> {
             loadContext.getQuery().setFirstResult(firstResult);
             loadContext.getQuery().setMaxResults(maxResults);
             loadContext.getQuery().setCacheable(cacheable);
+            loadContext.getQuery().setSort(sort);
+            loadContext.getQuery().setKeysetValues(keysetEntity != null ? getKeysetValues(keysetEntity) : keysetValues);
 
             return loadContext;
         }
 
+        private List<Object> getKeysetValues(E entity) {
+            List<Object> values = new ArrayList<>();
+            if (sort != null) {
+                for (Sort.Order order : sort.getOrders()) {
+                    values.add(entity.getValueEx(order.getProperty()));
+                }
+            }
+            // the identifier is ignored by the data store if the sort already contains it
+            values.add(entity.getId());
+            return values;
+        }
+
         /**
          * Loads a list of entities.
          */
@@ -501,6 +530,16 @@ public class FluentLoader<E extends Entity<K>, K> {
             return loader.dataManager.loadList(loadContext);
         }
 
+        /**
+         * Loads entities as a stream backed by a database cursor. The stream must be closed after use.
+         *
+         * @see DataManager#loadStream(LoadContext)
+         */
+        public Stream<E> stream() {
+            LoadContext<E> loadContext = createLoadContext();
+            return loader.dataManager.loadStream(loadContext);
+        }
+
         /**
          * Loads a single instance and wraps it in Optional.
          */
@@ -663,6 +702,38 @@ public class FluentLoader<E extends Entity<K>, K> {
             return this;
         }
 
+        /**
+         * Sets sort of the query results.
+         */
+        public ByQuery<E, K> sort(Sort sort) {
+            this.sort = sort;
+            return this;
+        }
+
+        /**
+         * Enables keyset (seek) pagination: loads instances that follow the given values of the sort properties
+         * and identifier in the sort order.
+         *
+         * @see LoadContext.Query#setKeysetValues(List)
+         */
+        public ByQuery<E, K> keyset(Object... values) {
+            this.keysetValues = Arrays.asList(values);
+            this.keysetEntity = null;
+            return this;
+        }
+
+        /**
+         * Enables keyset (seek) pagination: loads instances that follow the given instance in the sort order.
+         * Usually it is the last instance of the previous page. The sort properties must be loaded in the instance.
+         *
+         * @see LoadContext.Query#setKeysetValues(List)
+         */
+        public ByQuery<E, K> after(E lastEntity) {
+            this.keysetEntity = lastEntity;
+            this.keysetValues = null;
+            return this;
+        }
+
         /**
          * Indicates that the query results should be cached.
          * By default, queries are not cached.
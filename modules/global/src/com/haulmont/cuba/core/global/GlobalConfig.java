@@ -185,6 +185,13 @@ public interface GlobalConfig extends Config {
     @DefaultInt(100)
     int getNumberIdCacheSize();
 
+    /**
+     * @return maximum number of parsed JPQL queries kept in memory by {@code QueryTreeCache}. 0 disables the cache.
+     */
+    @Property("cuba.jpqlParseCacheMaxSize")
+    @DefaultInt(1000)
+    int getJpqlParseCacheMaxSize();
+
     @Property("cuba.anonymousSessionId")
     @Factory(factory = UuidTypeFactory.class)
     @Nullable
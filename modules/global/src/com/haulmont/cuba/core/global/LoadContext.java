@@ -359,6 +359,7 @@ public class LoadContext<E extends Entity> implements DataLoadContext, Serializa
         private boolean cacheable;
         private Condition condition;
         private Sort sort;
+        private List<Object> keysetValues;
 
         /**
          * @param queryString JPQL query string. Only named parameters are supported.
@@ -491,6 +492,30 @@ public class LoadContext<E extends Entity> implements DataLoadContext, Serializa
             return this;
         }
 
+        /**
+         * @return values of the sort keys after which the requested page starts, or null if keyset pagination is not used
+         */
+        @Nullable
+        public List<Object> getKeysetValues() {
+            return keysetValues;
+        }
+
+        /**
+         * Enables keyset (seek) pagination. Instead of skipping {@code firstResult} rows, the database is asked for the
+         * rows that follow the given position in the sort order, so a deep page costs the same as the first one.
+         * <p>The values must correspond to the properties of the {@link #setSort(Sort) sort} followed by the entity
+         * identifier, and should be taken from the last instance of the previous page. The identifier can be omitted if
+         * the sort already contains it. If no sort is specified, the instances are ordered by identifier and the only
+         * value is the identifier itself.
+         * Sort properties must be non-null persistent datatype attributes of the loaded entity.
+         * @param values sort key values of the last loaded instance, or null to disable keyset pagination
+         * @return this query instance for chaining
+         */
+        public Query setKeysetValues(@Nullable List<Object> values) {
+            this.keysetValues = values == null ? null : new ArrayList<>(values);
+            return this;
+        }
+
         /**
          * Indicates that the query results should be cached.
          * @return the same query instance
@@ -535,6 +560,7 @@ public class LoadContext<E extends Entity> implements DataLoadContext, Serializa
             query.cacheable = cacheable;
             query.condition = condition == null ? null : condition.copy();
             query.sort = sort;
+            query.keysetValues = keysetValues == null ? null : new ArrayList<>(keysetValues);
             return query;
         }
 
@@ -548,6 +574,7 @@ public class LoadContext<E extends Entity> implements DataLoadContext, Serializa
             if (firstResult != query.firstResult) return false;
             if (maxResults != query.maxResults) return false;
             if (!parameters.equals(query.parameters)) return false;
+            if (!Objects.equals(keysetValues, query.keysetValues)) return false;
             return queryString.equals(query.queryString);
         }
 
@@ -557,6 +584,7 @@ public class LoadContext<E extends Entity> implements DataLoadContext, Serializa
             result = 31 * result + queryString.hashCode();
             result = 31 * result + firstResult;
             result = 31 * result + maxResults;
+            result = 31 * result + Objects.hashCode(keysetValues);
             return result;
         }
 
@@ -568,6 +596,7 @@ public class LoadContext<E extends Entity> implements DataLoadContext, Serializa
                     ", sort=" + sort +
                     ", firstResult=" + firstResult +
                     ", maxResults=" + maxResults +
+                    (keysetValues == null ? "" : ", keysetValues=" + keysetValues) +
                     "}";
             return StringHelper.removeExtraSpaces(stringResult.replace('\n', ' '));
         }
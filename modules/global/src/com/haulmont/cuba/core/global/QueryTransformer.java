@@ -16,6 +16,7 @@
  */
 package com.haulmont.cuba.core.global;
 
+import java.util.List;
 import java.util.Set;
 
 /**
@@ -46,6 +47,15 @@ public interface QueryTransformer {
     /** Replaces <code>select e.f1, e.f2, ...</code> clause with <code>select count(e) ...</code> */
     void replaceWithCount();
 
+    /**
+     * Replaces <code>select e from ...</code> clause with <code>select g1, g2, a1, a2 from ...</code> where
+     * <code>g1, g2</code> are group expressions and <code>a1, a2</code> are aggregate expressions, adds
+     * <code>group by g1, g2 order by g1, g2</code> and removes the existing 'order by' clause.
+     * Expressions can contain the main entity alias placeholder, e.g. <code>{E}.status</code> or <code>sum({E}.amount)</code>.
+     * If no group expressions are specified, the query returns a single row of aggregate values.
+     */
+    void replaceWithGroupBy(List<String> groupExpressions, List<String> aggregateExpressions);
+
     /** Replaces <code>select e from ...</code> clause with <code>select e.pkName from ...</code> */
     void replaceWithSelectId(String pkName);
 
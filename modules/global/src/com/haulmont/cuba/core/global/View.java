@@ -104,6 +104,10 @@ public class View implements Serializable {
 
     private boolean loadPartialEntities;
 
+    private transient int modCount;
+
+    private transient volatile Closure closure;
+
     public View(Class<? extends Entity> entityClass) {
         this(entityClass, "", true);
     }
@@ -167,8 +171,9 @@ public class View implements Serializable {
 
                 if (sourcePropertyView != null && isNotEmpty(sourcePropertyView.getProperties())) {
 
-                    Map<String, ViewProperty> thisViewProperties = thisProperties.get(sourcePropertyName).getView().properties;
-                    putProperties(thisViewProperties, sourcePropertyView.getProperties());
+                    View thisPropertyView = thisProperties.get(sourcePropertyName).getView();
+                    thisPropertyView.modCount++;
+                    putProperties(thisPropertyView.properties, sourcePropertyView.getProperties());
                 }
 
             } else {
@@ -224,12 +229,14 @@ public class View implements Serializable {
      */
     public View addProperty(String name, @Nullable View view, FetchMode fetchMode) {
         properties.put(name, new ViewProperty(name, view, fetchMode));
+        modCount++;
         return this;
     }
 
     @Deprecated
     public View addProperty(String name, @Nullable View view, boolean lazy) {
         properties.put(name, new ViewProperty(name, view, lazy));
+        modCount++;
         return this;
     }
 
@@ -241,6 +248,7 @@ public class View implements Serializable {
      */
     public View addProperty(String name, View view) {
         properties.put(name, new ViewProperty(name, view));
+        modCount++;
         return this;
     }
 
@@ -251,6 +259,7 @@ public class View implements Serializable {
      */
     public View addProperty(String name) {
         properties.put(name, new ViewProperty(name, null));
+        modCount++;
         return this;
     }
 
@@ -317,6 +326,38 @@ public class View implements Serializable {
         return this;
     }
 
+    /**
+     * Returns paths of all properties of this view including properties of nested views, for example
+     * {@code group} and {@code group.name}.
+     * <p>
+     * The list is computed on first access and reused until this view or any of its nested views is modified.
+     *
+     * @return unmodifiable list of property paths
+     */
+    public List<String> getPropertyPaths() {
+        return getClosure().propertyPaths;
+    }
+
+    /**
+     * Returns a string describing the structure of this view: entity classes, properties, fetch modes and
+     * nested views, without view names. Views having equal signatures define the same graph of objects,
+     * so the signature can be used as a cache key.
+     * <p>
+     * The signature is computed on first access and reused until this view or any of its nested views is modified.
+     */
+    public String getSignature() {
+        return getClosure().signature;
+    }
+
+    private Closure getClosure() {
+        Closure closure = this.closure;
+        if (closure == null || !closure.isValid()) {
+            closure = new Closure(this);
+            this.closure = closure;
+        }
+        return closure;
+    }
+
     /**
      * DEPRECATED since v.6
      */
@@ -366,4 +407,67 @@ public class View implements Serializable {
         }
         return result;
     }
+
+    /**
+     * Data derived from the whole graph of views. Remembers modification counters of all views of the graph
+     * to detect changes made after the data was computed.
+     */
+    private static class Closure {
+
+        private final View[] views;
+        private final int[] modCounts;
+        private final List<String> propertyPaths;
+        private final String signature;
+
+        private Closure(View root) {
+            Set<View> graph = Collections.newSetFromMap(new IdentityHashMap<>());
+            List<String> paths = new ArrayList<>();
+            StringBuilder sb = new StringBuilder();
+            collect(root, "", graph, paths, sb, Collections.newSetFromMap(new IdentityHashMap<>()));
+
+            views = graph.toArray(new View[0]);
+            modCounts = new int[views.length];
+            for (int i = 0; i < views.length; i++) {
+                modCounts[i] = views[i].modCount;
+            }
+            propertyPaths = Collections.unmodifiableList(paths);
+            signature = sb.toString();
+        }
+
+        private void collect(View view, String prefix, Set<View> graph, List<String> paths, StringBuilder sb,
+                             Set<View> branch) {
+            graph.add(view);
+            branch.add(view);
+            sb.append(view.getEntityClass().getName()).append('{');
+            for (ViewProperty property : view.getProperties()) {
+                String path = prefix + property.getName();
+                paths.add(path);
+                sb.append(property.getName());
+                if (property.getFetchMode() != FetchMode.AUTO) {
+                    sb.append(':').append(property.getFetchMode());
+                }
+                View propertyView = property.getView();
+                if (propertyView != null) {
+                    if (branch.contains(propertyView)) {
+                        // recursive view, the graph is cut here
+                        sb.append('^');
+                    } else {
+                        collect(propertyView, path + ".", graph, paths, sb, branch);
+                    }
+                }
+                sb.append(',');
+            }
+            sb.append('}');
+            branch.remove(view);
+        }
+
+        private boolean isValid() {
+            for (int i = 0; i < views.length; i++) {
+                if (views[i].modCount != modCounts[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
 }
\ No newline at end of file
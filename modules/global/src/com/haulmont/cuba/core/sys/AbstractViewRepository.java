@@ -43,6 +43,7 @@ import java.io.Reader;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
@@ -72,6 +73,18 @@ public class AbstractViewRepository implements ViewRepository {
 
     protected ReadWriteLock lock = new ReentrantReadWriteLock();
 
+    /**
+     * Private copies of deployed views which are never modified and can be read without locking.
+     * The map is filled on lookups under the read lock and replaced by an empty one whenever the storage changes,
+     * so readers see either previous or current state of the repository.
+     */
+    protected volatile Map<MetaClass, Map<String, View>> snapshot = new ConcurrentHashMap<>();
+
+    /**
+     * Incremented whenever the deployed views are changed or reset.
+     */
+    protected final AtomicLong version = new AtomicLong();
+
     protected void checkInitialized() {
         if (!initialized) {
             lock.readLock().unlock();
@@ -93,6 +106,8 @@ public class AbstractViewRepository implements ViewRepository {
         StopWatch initTiming = new Slf4JStopWatch("ViewRepository.init." + getClass().getSimpleName());
 
         storage.clear();
+        snapshot = new ConcurrentHashMap<>();
+        version.incrementAndGet();
         readFileNames.clear();
 
         String configName = AppContext.getProperty("cuba.viewsConfig");
@@ -153,6 +168,16 @@ public class AbstractViewRepository implements ViewRepository {
 
     public void reset() {
         initialized = false;
+        snapshot = new ConcurrentHashMap<>();
+        version.incrementAndGet();
+    }
+
+    /**
+     * @return number that changes whenever the deployed views are changed or the repository is reset,
+     * so that objects built from the views can detect that they are stale
+     */
+    public long getVersion() {
+        return version.get();
     }
 
     /**
@@ -204,12 +229,26 @@ public class AbstractViewRepository implements ViewRepository {
             return null;
         }
 
+        if (initialized) {
+            Map<String, View> views = snapshot.get(metaClass);
+            View view = views == null ? null : views.get(name);
+            if (view != null) {
+                return copyView(view);
+            }
+        }
+
         lock.readLock().lock();
         try {
             checkInitialized();
 
             View view = retrieveView(metaClass, name, new HashSet<>());
-            return copyView(view);
+            if (view == null) {
+                return null;
+            }
+            // the storage cannot be changed by writers while the read lock is held
+            View snapshotView = copyView(view);
+            snapshot.computeIfAbsent(metaClass, k -> new ConcurrentHashMap<>()).put(name, snapshotView);
+            return copyView(snapshotView);
         } finally {
             lock.readLock().unlock();
         }
@@ -553,6 +592,8 @@ public class AbstractViewRepository implements ViewRepository {
 
         views.put(view.getName(), view);
         storage.put(metaClass, views);
+        snapshot = new ConcurrentHashMap<>();
+        version.incrementAndGet();
     }
 
     protected List<View> getAllInitialized() {
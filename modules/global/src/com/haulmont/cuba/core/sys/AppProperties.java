@@ -20,6 +20,7 @@ import com.google.common.base.Joiner;
 import com.google.common.base.Splitter;
 import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.Multimap;
+import com.haulmont.cuba.core.config.ConfigHandler;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.text.StringSubstitutor;
 
@@ -78,6 +79,7 @@ public class AppProperties {
         for (String name : System.getProperties().stringPropertyNames()) {
             systemProperties.put(name, System.getProperty(name));
         }
+        ConfigHandler.invalidateCachedValues();
     }
 
     /**
@@ -253,5 +255,6 @@ public class AppProperties {
             properties.remove(key);
         else
             properties.put(key, value);
+        ConfigHandler.invalidateCachedValues();
     }
 }
\ No newline at end of file
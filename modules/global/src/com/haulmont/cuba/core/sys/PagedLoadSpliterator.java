@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2008-2019 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.core.sys;
+
+import com.haulmont.bali.util.Preconditions;
+import com.haulmont.cuba.core.entity.Entity;
+import com.haulmont.cuba.core.global.LoadContext;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * INTERNAL.
+ * Loads entity instances page by page through a {@code loadList()} method. Used to stream instances where
+ * a database cursor cannot be held open, e.g. on the client tier.
+ * <p>
+ * A page is loaded only when the previous one has been consumed. Paging parameters of the source query are
+ * respected: the stream starts at its first result and stops after its max results.
+ */
+public class PagedLoadSpliterator<E extends Entity> extends Spliterators.AbstractSpliterator<E> {
+
+    protected final LoadContext<E> context;
+    protected final int pageSize;
+    protected final Function<LoadContext<E>, List<E>> pageLoader;
+
+    protected final int firstResult;
+    protected final int maxResults;
+
+    protected int loaded;
+    protected boolean lastPage;
+    protected Iterator<E> page = Collections.emptyIterator();
+
+    /**
+     * Creates a stream of instances loaded by pages.
+     *
+     * @param context    load context, it is not modified
+     * @param pageSize   number of instances loaded at once
+     * @param pageLoader function loading a list of instances for a load context
+     * @return stream of instances
+     */
+    public static <E extends Entity> Stream<E> stream(LoadContext<E> context, int pageSize,
+                                                      Function<LoadContext<E>, List<E>> pageLoader) {
+        if (context.getQuery() == null || !context.getIds().isEmpty()) {
+            // nothing to page through
+            return pageLoader.apply(context).stream();
+        }
+        return StreamSupport.stream(new PagedLoadSpliterator<>(context, pageSize, pageLoader), false);
+    }
+
+    protected PagedLoadSpliterator(LoadContext<E> context, int pageSize,
+                                   Function<LoadContext<E>, List<E>> pageLoader) {
+        super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL);
+        Preconditions.checkNotNullArgument(context.getQuery(), "query is null");
+        if (pageSize <= 0)
+            throw new IllegalArgumentException("pageSize must be positive");
+
+        this.context = context;
+        this.pageSize = pageSize;
+        this.pageLoader = pageLoader;
+        this.firstResult = context.getQuery().getFirstResult();
+        this.maxResults = context.getQuery().getMaxResults();
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super E> action) {
+        if (!page.hasNext()) {
+            if (lastPage) {
+                return false;
+            }
+            loadNextPage();
+            if (!page.hasNext()) {
+                return false;
+            }
+        }
+        action.accept(page.next());
+        return true;
+    }
+
+    @SuppressWarnings("unchecked")
+    protected void loadNextPage() {
+        int size = maxResults > 0 ? Math.min(pageSize, maxResults - loaded) : pageSize;
+        if (size <= 0) {
+            lastPage = true;
+            page = Collections.emptyIterator();
+            return;
+        }
+
+        LoadContext<E> pageContext = (LoadContext<E>) context.copy();
+        pageContext.getQuery().setFirstResult(firstResult + loaded);
+        pageContext.getQuery().setMaxResults(size);
+
+        List<E> list = pageLoader.apply(pageContext);
+        loaded += list.size();
+        lastPage = list.size() < size;
+        page = list.iterator();
+    }
+}
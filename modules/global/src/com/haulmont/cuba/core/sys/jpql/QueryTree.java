@@ -26,7 +26,7 @@ import org.antlr.runtime.tree.TreeVisitor;
 import org.antlr.runtime.tree.TreeVisitorAction;
 import org.apache.commons.lang3.StringUtils;
 
-
+import javax.annotation.Nullable;
 import java.util.List;
 import java.util.stream.Stream;
 
@@ -57,6 +57,26 @@ public class QueryTree {
         new TreeVisitor().visit(tree, idVarSelector);
     }
 
+    protected QueryTree(DomainModel model, String queryString, CommonTree tree) {
+        this.model = model;
+        this.queryString = queryString;
+        this.tree = tree;
+
+        this.idVarSelector = new IdVarSelector(model);
+        new TreeVisitor().visit(tree, idVarSelector);
+    }
+
+    /**
+     * Creates a deep copy of this tree which can be transformed independently of the original.
+     *
+     * @return the copy, or null if the tree contains nodes which cannot be duplicated
+     */
+    @Nullable
+    public QueryTree copy() {
+        CommonTree treeCopy = copyNode(tree);
+        return treeCopy != null ? new QueryTree(model, queryString, treeCopy) : null;
+    }
+
     public DomainModel getModel() {
         return model;
     }
@@ -155,6 +175,27 @@ public class QueryTree {
         return visitor;
     }
 
+    @Nullable
+    protected CommonTree copyNode(CommonTree node) {
+        // custom nodes duplicate their children, plain nodes do not, so children are always replaced by own copies
+        CommonTree copy = (CommonTree) node.dupNode();
+        if (copy.getClass() != node.getClass()) {
+            return null;
+        }
+        for (int i = 0; i < node.getChildCount(); i++) {
+            CommonTree childCopy = copyNode((CommonTree) node.getChild(i));
+            if (childCopy == null) {
+                return null;
+            }
+            if (i < copy.getChildCount()) {
+                copy.setChild(i, childCopy);
+            } else {
+                copy.addChild(childCopy);
+            }
+        }
+        return copy;
+    }
+
     @SuppressWarnings("unchecked")
     protected <T> Stream<T> generateChildrenByClass(CommonTree commonTree, Class<T> clazz) {
         return commonTree.getChildren().stream()
@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2008-2020 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.core.sys.jpql;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.haulmont.cuba.core.global.GlobalConfig;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.inject.Inject;
+
+/**
+ * Bounded cache of parsed JPQL queries used by {@link com.haulmont.cuba.core.global.QueryParserAstBased} and
+ * {@link com.haulmont.cuba.core.sys.jpql.transform.QueryTransformerAstBased} to avoid running the ANTLR parser
+ * over the same query strings again.
+ * <p>
+ * Cached trees are never modified: parsers read them as is, transformers get their own copies.
+ */
+@Component(QueryTreeCache.NAME)
+public class QueryTreeCache {
+
+    public static final String NAME = "cuba_QueryTreeCache";
+
+    @Inject
+    protected GlobalConfig globalConfig;
+
+    protected Cache<String, QueryTree> cache;
+
+    protected boolean enabled;
+
+    @PostConstruct
+    protected void init() {
+        int maxSize = globalConfig.getJpqlParseCacheMaxSize();
+        enabled = maxSize > 0;
+        cache = CacheBuilder.newBuilder()
+                .maximumSize(Math.max(maxSize, 0))
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Returns a parsed tree of the query, which must not be modified by the caller.
+     *
+     * @throws JPA2RecognitionException if the query cannot be parsed
+     */
+    public QueryTree getTree(DomainModel model, String query) {
+        if (!enabled) {
+            return new QueryTree(model, query);
+        }
+        QueryTree queryTree = cache.getIfPresent(query);
+        if (queryTree == null || queryTree.getModel() != model) {
+            queryTree = new QueryTree(model, query);
+            // trees with errors are not cached to report them on each call
+            if (queryTree.getInvalidIdVarNodes().isEmpty()) {
+                cache.put(query, queryTree);
+            }
+        }
+        return queryTree;
+    }
+
+    /**
+     * Returns a parsed tree of the query, which can be modified by the caller.
+     *
+     * @throws JPA2RecognitionException if the query cannot be parsed
+     */
+    public QueryTree getTreeCopy(DomainModel model, String query) {
+        if (!enabled) {
+            return new QueryTree(model, query);
+        }
+        QueryTree cached = cache.getIfPresent(query);
+        if (cached != null && cached.getModel() == model) {
+            QueryTree copy = cached.copy();
+            if (copy != null) {
+                return copy;
+            }
+        }
+        QueryTree queryTree = new QueryTree(model, query);
+        if (queryTree.getInvalidIdVarNodes().isEmpty()) {
+            QueryTree copy = queryTree.copy();
+            if (copy != null) {
+                cache.put(query, queryTree);
+                return copy;
+            }
+        }
+        return queryTree;
+    }
+
+    public CacheStats getStats() {
+        return cache.stats();
+    }
+
+    public long getSize() {
+        return cache.size();
+    }
+
+    public long getMaxSize() {
+        return globalConfig.getJpqlParseCacheMaxSize();
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+}
@@ -19,6 +19,7 @@ package com.haulmont.cuba.core.sys.jpql.transform;
 
 import com.haulmont.cuba.core.global.QueryTransformer;
 import com.haulmont.cuba.core.sys.jpql.*;
+import com.haulmont.cuba.core.sys.jpql.antlr2.JPA2Lexer;
 import com.haulmont.cuba.core.sys.jpql.tree.*;
 import org.antlr.runtime.RecognitionException;
 import org.antlr.runtime.tree.CommonTree;
@@ -28,6 +29,7 @@ import org.springframework.beans.factory.config.BeanDefinition;
 import org.springframework.context.annotation.Scope;
 import org.springframework.stereotype.Component;
 
+import javax.inject.Inject;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
@@ -44,6 +46,9 @@ public class QueryTransformerAstBased implements QueryTransformer {
     protected QueryTree queryTree;
     protected QueryTreeTransformer queryTransformer;
     protected QueryTreeAnalyzer queryAnalyzer;
+
+    @Inject
+    protected QueryTreeCache queryTreeCache;
     protected Set<String> addedParams = new HashSet<>();
 
     public QueryTransformerAstBased(DomainModel model, String query) {
@@ -68,7 +73,7 @@ public class QueryTransformerAstBased implements QueryTransformer {
     protected QueryTree getTree() {
         if (queryTree == null) {
             try {
-                queryTree = new QueryTree(model, query);
+                queryTree = queryTreeCache != null ? queryTreeCache.getTreeCopy(model, query) : new QueryTree(model, query);
             } catch (JPA2RecognitionException e) {
                 throw new JpqlSyntaxException(format("Errors found for input JPQL:[%s]\n%s", StringUtils.strip(query), e.getMessage()));
             }
@@ -211,6 +216,35 @@ public class QueryTransformerAstBased implements QueryTransformer {
         getTransformer().removeOrderBy();
     }
 
+    @Override
+    public void replaceWithGroupBy(List<String> groupExpressions, List<String> aggregateExpressions) {
+        EntityVariable entityReference = createMainSelectedPathNodeVariableNN();
+        String variableName = entityReference.getVariableName();
+
+        List<String> groupItems = groupExpressions.stream()
+                .map(expression -> replaceEntityPlaceholder(expression, variableName))
+                .collect(Collectors.toList());
+        List<String> selectedItems = new ArrayList<>(groupItems);
+        for (String expression : aggregateExpressions) {
+            selectedItems.add(replaceEntityPlaceholder(expression, variableName));
+        }
+        if (selectedItems.isEmpty())
+            throw new IllegalArgumentException("Neither group nor aggregate expressions are specified");
+
+        StringBuilder sb = new StringBuilder("select ").append(String.join(", ", selectedItems))
+                .append(" from ").append(entityReference.getEntityName()).append(" ").append(variableName);
+        if (!groupItems.isEmpty()) {
+            String groupBy = String.join(", ", groupItems);
+            sb.append(" group by ").append(groupBy).append(" order by ").append(groupBy);
+        }
+
+        CommonTree groupQueryTree = parseGroupQuery(sb.toString());
+        getTransformer().replaceWithGroupBy(
+                groupQueryTree.getFirstChildWithType(JPA2Lexer.T_SELECTED_ITEMS),
+                groupQueryTree.getFirstChildWithType(JPA2Lexer.T_GROUP_BY),
+                groupQueryTree.getFirstChildWithType(JPA2Lexer.T_ORDER_BY));
+    }
+
     @Override
     public void replaceEntityName(String newName) {
         getTransformer().replaceEntityName(newName, getAnalyzer().getMainIdentificationVariableNode());
@@ -283,6 +317,15 @@ public class QueryTransformerAstBased implements QueryTransformer {
         }
     }
 
+    protected CommonTree parseGroupQuery(String groupQuery) {
+        try {
+            return Parser.parse(groupQuery, true);
+        } catch (RecognitionException | JPA2RecognitionException e) {
+            throw new JpqlSyntaxException(format("Errors found while parsing group query:[%s] for query:[%s]\n%s",
+                    StringUtils.strip(groupQuery), StringUtils.strip(query), e.getMessage()));
+        }
+    }
+
     protected String replaceEntityPlaceholder(String value, String variableName) {
         if (value.contains(ALIAS_PLACEHOLDER)) {
             return value.replace(ALIAS_PLACEHOLDER, variableName);
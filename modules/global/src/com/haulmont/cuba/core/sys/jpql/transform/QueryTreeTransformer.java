@@ -31,6 +31,7 @@ import org.antlr.runtime.tree.CommonTree;
 import org.antlr.runtime.tree.Tree;
 import org.antlr.runtime.tree.TreeVisitor;
 
+import javax.annotation.Nullable;
 import java.util.*;
 
 import static com.haulmont.cuba.core.sys.jpql.JPATreeNodes.*;
@@ -160,6 +161,38 @@ public class QueryTreeTransformer {
         queryTree.getAstTree().freshenParentAndChildIndexes();
     }
 
+    public void replaceWithGroupBy(Tree selectedItems, @Nullable Tree groupBy, @Nullable Tree orderBy) {
+        if (queryTree.getAstGroupByNode() != null)
+            throw new IllegalStateException("Cannot replace with group by if the query is already grouped");
+
+        CommonTree tree = queryTree.getAstTree();
+        tree.setChild(queryTree.getAstSelectedItemsNode().getChildIndex(), selectedItems);
+
+        Tree sourceOrderBy = queryTree.getAstOrderByNode();
+        if (sourceOrderBy != null) {
+            tree.deleteChild(sourceOrderBy.getChildIndex());
+        }
+
+        Tree lastNode = queryTree.getAstWhereNode() != null ? queryTree.getAstWhereNode() : queryTree.getAstFromNode();
+        List<Tree> endingNodes = new ArrayList<>();
+        int deletionCount = tree.getChildCount() - lastNode.getChildIndex() - 1;
+        for (int i = 0; i < deletionCount; i++) {
+            endingNodes.add((Tree) tree.deleteChild(lastNode.getChildIndex() + 1));
+        }
+
+        if (groupBy != null) {
+            tree.addChild(groupBy);
+        }
+        for (Tree endingNode : endingNodes) {
+            tree.addChild(endingNode);
+        }
+        if (orderBy != null) {
+            tree.addChild(orderBy);
+        }
+
+        tree.freshenParentAndChildIndexes();
+    }
+
     public boolean removeDistinct() {
         Tree selectedItems = queryTree.getAstSelectedItemsNode();
         boolean isDistinct = "distinct".equalsIgnoreCase(selectedItems.getChild(0).getText());
@@ -32,6 +32,8 @@ import com.esotericsoftware.reflectasm.ConstructorAccess;
 import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.HashMultimap;
 import com.google.common.collect.ImmutableList;
+import com.google.common.hash.Hashing;
+import com.haulmont.chile.core.model.MetaClass;
 import com.haulmont.chile.core.model.impl.MetaClassImpl;
 import com.haulmont.chile.core.model.impl.MetaPropertyImpl;
 import com.haulmont.cuba.core.entity.BaseEntityInternalAccess;
@@ -39,6 +41,7 @@ import com.haulmont.cuba.core.entity.BaseGenericIdEntity;
 import com.haulmont.cuba.core.entity.Entity;
 import com.haulmont.cuba.core.global.AppBeans;
 import com.haulmont.cuba.core.global.Configuration;
+import com.haulmont.cuba.core.global.Metadata;
 import com.haulmont.cuba.core.sys.AppContext;
 import de.javakaffee.kryoserializers.*;
 import de.javakaffee.kryoserializers.cglib.CGLibProxySerializer;
@@ -66,6 +69,9 @@ import java.io.*;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
 import java.util.function.Function;
 import java.util.regex.Pattern;
@@ -81,10 +87,26 @@ public class KryoSerialization implements Serialization {
     protected static final List<String> INCLUDED_VALUE_HOLDER_FIELDS =
             ImmutableList.of("value", "isInstantiated", "mapping", "sourceAttributeName", "relationshipSourceObject");
 
+    /**
+     * IDs of classes registered by {@link #initClassRegistry()} start from this value to not intersect with
+     * IDs assigned by Kryo to its own and explicitly registered classes.
+     */
+    protected static final int REGISTRATION_ID_OFFSET = 1000;
+
+    protected static final int MAX_RETAINED_BUFFER_SIZE = 1024 * 1024;
+
     protected boolean onlySerializable;
     protected KryoSerializationConfig config;
     protected GenericObjectPool<Kryo> pool;
 
+    protected List<Class<?>> registeredClasses;
+    protected int registrationHash;
+
+    protected boolean useThreadLocalBuffers;
+    protected final ThreadLocal<Output> threadOutput = new ThreadLocal<>();
+    protected final ThreadLocal<Output> threadBytesOutput = new ThreadLocal<>();
+    protected final ThreadLocal<Input> threadInput = new ThreadLocal<>();
+
     public KryoSerialization() {
         this(true);
     }
@@ -100,6 +122,11 @@ public class KryoSerialization implements Serialization {
         Configuration configuration = AppBeans.get(Configuration.NAME);
         config = configuration.getConfig(KryoSerializationConfig.class);
 
+        useThreadLocalBuffers = config.getUseThreadLocalBuffers();
+        if (config.getRegisterClasses()) {
+            initClassRegistry();
+        }
+
         int poolSize = config.getMaxPoolSize();
         GenericObjectPoolConfig<Kryo> poolConfig = new GenericObjectPoolConfig<>();
         poolConfig.setMaxIdle(poolSize);
@@ -114,6 +141,48 @@ public class KryoSerialization implements Serialization {
         log.debug("Kryo context pool created");
     }
 
+    /**
+     * Builds the list of classes registered in each Kryo instance: common JDK classes and entity classes sorted
+     * by name. The hash of this list is written to serialized data and checked on deserialization to ensure that
+     * the other side has the same registrations.
+     */
+    protected void initClassRegistry() {
+        Metadata metadata = AppBeans.get(Metadata.NAME);
+
+        List<Class<?>> classes = new ArrayList<>(getCommonRegisteredClasses());
+        metadata.getSession().getClasses().stream()
+                .map(MetaClass::getJavaClass)
+                .filter(Objects::nonNull)
+                .distinct()
+                .sorted(Comparator.comparing(Class::getName))
+                .forEach(classes::add);
+        registeredClasses = classes;
+
+        String names = classes.stream()
+                .map(Class::getName)
+                .collect(Collectors.joining("\n"));
+        registrationHash = Hashing.murmur3_32().hashString(names, StandardCharsets.UTF_8).asInt();
+
+        log.info("Kryo class registration is enabled: {} classes, hash {}",
+                classes.size(), Integer.toHexString(registrationHash));
+    }
+
+    protected List<Class<?>> getCommonRegisteredClasses() {
+        return Arrays.asList(
+                Object[].class, byte[].class, int[].class, long[].class, String[].class,
+                ArrayList.class, LinkedList.class, HashSet.class, LinkedHashSet.class,
+                HashMap.class, LinkedHashMap.class, TreeMap.class,
+                UUID.class, Date.class, java.sql.Date.class, java.sql.Time.class, java.sql.Timestamp.class,
+                BigDecimal.class, BigInteger.class, Locale.class);
+    }
+
+    /**
+     * @return hash of the class registrations or 0 if classes are not registered
+     */
+    public int getRegistrationHash() {
+        return registeredClasses != null ? registrationHash : 0;
+    }
+
     protected Kryo newKryoInstance() {
         Kryo kryo = new Kryo(new DefaultClassResolver(), new CubaMapReferenceResolver());
         kryo.setInstantiatorStrategy(new CubaInstantiatorStrategy());
@@ -166,20 +235,26 @@ public class KryoSerialization implements Serialization {
 
         registerEntitySerializer(kryo);
 
+        if (registeredClasses != null) {
+            // must be registered after default serializers are set to use them for the registered classes
+            for (int i = 0; i < registeredClasses.size(); i++) {
+                kryo.register(registeredClasses.get(i), REGISTRATION_ID_OFFSET + i);
+            }
+        }
+
         return kryo;
     }
 
     @Override
     public void serialize(Object object, OutputStream os) {
         withKryoFromPool(kryo -> {
-            try (Output output = new CubaOutput(os)) {
-                if (object instanceof BaseGenericIdEntity
-                        && BaseEntityInternalAccess.isManaged((BaseGenericIdEntity) object)) {
-                    BaseEntityInternalAccess.setDetached((BaseGenericIdEntity) object, true);
-                }
-                kryo.writeClassAndObject(output, object);
+            Output output = acquireOutput(os);
+            try (Output closeableOutput = output) {
+                writeObject(kryo, closeableOutput, object);
             } catch (Exception e) {
                 throw new SerializationException(e);
+            } finally {
+                releaseOutput(output);
             }
             return null;
         });
@@ -188,19 +263,45 @@ public class KryoSerialization implements Serialization {
     @Override
     public Object deserialize(InputStream is) {
         return withKryoFromPool(kryo -> {
-            try (Input input = new Input(is)) {
-                return kryo.readClassAndObject(input);
+            Input input = acquireInput(is);
+            try (Input closeableInput = input) {
+                return readObject(kryo, closeableInput);
             } catch (Exception e) {
                 throw new SerializationException(e);
+            } finally {
+                releaseInput(input);
             }
         });
     }
 
     @Override
     public byte[] serialize(Object object) {
-        ByteArrayOutputStream bos = new ByteArrayOutputStream();
-        serialize(object, bos);
-        return bos.toByteArray();
+        if (!useThreadLocalBuffers) {
+            ByteArrayOutputStream bos = new ByteArrayOutputStream();
+            serialize(object, bos);
+            return bos.toByteArray();
+        }
+
+        return withKryoFromPool(kryo -> {
+            // removed from the thread local while in use, so that nested calls get their own buffer
+            Output output = threadBytesOutput.get();
+            if (output != null) {
+                threadBytesOutput.remove();
+            } else {
+                output = new Output(4096, -1);
+            }
+            try {
+                writeObject(kryo, output, object);
+                return output.toBytes();
+            } catch (Exception e) {
+                throw new SerializationException(e);
+            } finally {
+                output.clear();
+                if (output.getBuffer().length <= MAX_RETAINED_BUFFER_SIZE) {
+                    threadBytesOutput.set(output);
+                }
+            }
+        });
     }
 
     @Override
@@ -209,7 +310,79 @@ public class KryoSerialization implements Serialization {
             return null;
         }
 
-        return deserialize(new ByteArrayInputStream(bytes));
+        if (!useThreadLocalBuffers) {
+            return deserialize(new ByteArrayInputStream(bytes));
+        }
+
+        return withKryoFromPool(kryo -> {
+            try {
+                return readObject(kryo, new Input(bytes));
+            } catch (Exception e) {
+                throw new SerializationException(e);
+            }
+        });
+    }
+
+    protected void writeObject(Kryo kryo, Output output, Object object) {
+        if (object instanceof BaseGenericIdEntity
+                && BaseEntityInternalAccess.isManaged((BaseGenericIdEntity) object)) {
+            BaseEntityInternalAccess.setDetached((BaseGenericIdEntity) object, true);
+        }
+        if (registeredClasses != null) {
+            output.writeInt(registrationHash);
+        }
+        kryo.writeClassAndObject(output, object);
+    }
+
+    protected Object readObject(Kryo kryo, Input input) {
+        if (registeredClasses != null) {
+            int hash = input.readInt();
+            if (hash != registrationHash) {
+                throw new SerializationException(String.format("Kryo class registrations do not match: " +
+                                "expected hash %s, received %s. Check that all application blocks have the same " +
+                                "entities and the same value of 'cuba.kryo.registerClasses' property",
+                        Integer.toHexString(registrationHash), Integer.toHexString(hash)));
+            }
+        }
+        return kryo.readClassAndObject(input);
+    }
+
+    protected Output acquireOutput(OutputStream os) {
+        if (useThreadLocalBuffers) {
+            Output output = threadOutput.get();
+            if (output != null) {
+                threadOutput.remove();
+                output.setOutputStream(os);
+                return output;
+            }
+        }
+        return new CubaOutput(os);
+    }
+
+    protected void releaseOutput(Output output) {
+        if (useThreadLocalBuffers) {
+            output.setOutputStream(null);
+            threadOutput.set(output);
+        }
+    }
+
+    protected Input acquireInput(InputStream is) {
+        if (useThreadLocalBuffers) {
+            Input input = threadInput.get();
+            if (input != null) {
+                threadInput.remove();
+                input.setInputStream(is);
+                return input;
+            }
+        }
+        return new Input(is);
+    }
+
+    protected void releaseInput(Input input) {
+        if (useThreadLocalBuffers) {
+            input.setInputStream(null);
+            threadInput.set(input);
+        }
     }
 
     public Object copy(Object object) {
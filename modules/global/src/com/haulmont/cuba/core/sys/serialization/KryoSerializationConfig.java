@@ -9,6 +9,7 @@ import com.haulmont.cuba.core.config.Config;
 import com.haulmont.cuba.core.config.Property;
 import com.haulmont.cuba.core.config.Source;
 import com.haulmont.cuba.core.config.SourceType;
+import com.haulmont.cuba.core.config.defaults.DefaultBoolean;
 import com.haulmont.cuba.core.config.defaults.DefaultInt;
 import com.haulmont.cuba.core.config.defaults.DefaultLong;
 
@@ -31,4 +32,19 @@ public interface KryoSerializationConfig extends Config {
     @DefaultLong(10000)
     @Property("cuba.kryo.maxBorrowWaitMillis")
     long getMaxBorrowWaitMillis();
+
+    /**
+     * @return whether to register entity classes from metadata and common JDK classes with fixed IDs, so that
+     * class names are not written to serialized data. Must have the same value in all application blocks.
+     */
+    @DefaultBoolean(false)
+    @Property("cuba.kryo.registerClasses")
+    boolean getRegisterClasses();
+
+    /**
+     * @return whether to reuse thread-local input and output buffers instead of allocating new ones on each call.
+     */
+    @DefaultBoolean(false)
+    @Property("cuba.kryo.useThreadLocalBuffers")
+    boolean getUseThreadLocalBuffers();
 }
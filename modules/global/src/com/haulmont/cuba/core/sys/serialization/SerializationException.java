@@ -20,6 +20,10 @@ package com.haulmont.cuba.core.sys.serialization;
  * Exception while serialize/deserialize java objects
  */
 public class SerializationException extends RuntimeException {
+    public SerializationException(String message) {
+        super(message);
+    }
+
     public SerializationException(String message, Throwable cause) {
         super(message, cause);
     }
@@ -20,6 +20,7 @@ import com.haulmont.cuba.core.global.ClientType;
 import com.haulmont.cuba.security.entity.User;
 
 import javax.annotation.Nullable;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -38,12 +39,28 @@ public interface UserSettingService {
     /** Load settings for the current user. Returns null if no such setting found. */
     String loadSetting(ClientType clientType, String name);
 
+    /**
+     * Load all settings of the current user with one query.
+     *
+     * @param clientType client type
+     * @return map of setting names to values
+     */
+    Map<String, String> loadSettings(ClientType clientType);
+
     /** Save settings for the current user and null client type */
     void saveSetting(String name, String value);
 
     /** Save settings for the current user */
     void saveSetting(ClientType clientType, String name, @Nullable String value);
 
+    /**
+     * Save several settings for the current user in one transaction.
+     *
+     * @param clientType client type
+     * @param settings   map of setting names to values
+     */
+    void saveSettings(ClientType clientType, Map<String, String> settings);
+
     /** Delete settings for the current user */
     void deleteSettings(ClientType clientType, String name);
 
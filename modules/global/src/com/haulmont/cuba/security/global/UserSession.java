@@ -455,7 +455,8 @@ public class UserSession implements Serializable {
      * Returns an instance of {@link RoleDefinition} interface. It can be used to retrieve information about user permissions.
      * <p>
      * If you need to modify user permissions, use {@code RoleDefBuilder} to construct a suitable role and then
-     * apply it using {@link UserSession#setJoinedRole} method.
+     * apply it using {@link UserSession#setJoinedRole} method. The returned instance can be shared by sessions
+     * of users having the same roles, so it must not be modified.
      */
     public RoleDefinition getJoinedRole() {
         return joinedRole;
@@ -464,7 +465,8 @@ public class UserSession implements Serializable {
     /**
      * Sets {@code joinedRole} to the UserSession. After that user will only have permissions defined in the specified role.
      * <p>
-     * Use {@code RoleDefinitionBuilder} to construct a suitable role.
+     * Use {@code RoleDefinitionBuilder} to construct a suitable role. The role must not be modified after it is set,
+     * as results computed for it can be cached by the role instance.
      */
     public void setJoinedRole(RoleDefinition joinedRole) {
         this.joinedRole = joinedRole;
@@ -61,6 +61,11 @@ public class AccessConstraintMethodPredicate implements ConstraintPredicate<Enti
         }
     }
 
+    @Override
+    public String toString() {
+        return className + "#" + methodName;
+    }
+
     protected Object writeReplace() {
         return new AccessConstraintMethodInfo(className, methodName, argClassName);
     }
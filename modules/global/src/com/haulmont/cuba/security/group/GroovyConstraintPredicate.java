@@ -13,9 +13,18 @@ public class GroovyConstraintPredicate<T extends Entity> implements ConstraintPr
         this.groovyScript = groovyScript;
     }
 
+    public String getGroovyScript() {
+        return groovyScript;
+    }
+
     @Override
     public boolean test(T o) {
         Security security = AppBeans.get(Security.class);
         return (boolean) security.evaluateConstraintScript(o, groovyScript);
     }
+
+    @Override
+    public String toString() {
+        return groovyScript;
+    }
 }
\ No newline at end of file
@@ -117,18 +117,21 @@ public final class PermissionsUtils {
                                                      String target) {
         Integer permissionValue = null;
         Map<String, Integer> explicitPermissions = permissionsContainer.getExplicitPermissions();
+        if (explicitPermissions.isEmpty()) {
+            return null;
+        }
         if (permissionsContainer instanceof EntityPermissionsContainer) {
-            String[] split = target.split(":");
-            if (split.length == 2) {
+            String operation = getTargetPart(target, 1);
+            if (operation != null) {
                 //e.g. *:create
-                String wildcardTarget = "*:" + split[1];
+                String wildcardTarget = "*:" + operation;
                 permissionValue = explicitPermissions.get(wildcardTarget);
             }
         } else if (permissionsContainer instanceof EntityAttributePermissionsContainer) {
-            String[] split = target.split(":");
-            if (split.length == 2) {
+            String entityName = getTargetPart(target, 0);
+            if (entityName != null) {
                 //e.g. sec$User:*
-                String wildcardTarget = split[0] + ":*";
+                String wildcardTarget = entityName + ":*";
                 permissionValue = explicitPermissions.get(wildcardTarget);
                 if (permissionValue == null) {
                     permissionValue = explicitPermissions.get("*:*");
@@ -142,6 +145,25 @@ public final class PermissionsUtils {
         return permissionValue;
     }
 
+    /**
+     * Returns a part of the target consisting of two parts delimited by ':', same as {@code target.split(":")[index]}.
+     * Common targets with a single delimiter are handled without splitting.
+     *
+     * @return the part or null if the target does not consist of two parts
+     */
+    @Nullable
+    private static String getTargetPart(String target, int index) {
+        int pos = target.indexOf(':');
+        if (pos < 0) {
+            return null;
+        }
+        if (pos < target.length() - 1 && target.indexOf(':', pos + 1) < 0) {
+            return index == 0 ? target.substring(0, pos) : target.substring(pos + 1);
+        }
+        String[] split = target.split(":");
+        return split.length == 2 ? split[index] : null;
+    }
+
     private static Integer getPermissionUndefinedAccessValue(PermissionType type,
                                                              Access permissionUndefinedAccessPolicy) {
         if (permissionUndefinedAccessPolicy == Access.DENY) return Access.DENY.getId();
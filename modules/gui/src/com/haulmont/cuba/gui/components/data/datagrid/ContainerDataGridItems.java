@@ -243,6 +243,13 @@ public class ContainerDataGridItems<E extends Entity>
             public Object getItemValue(MetaPropertyPath property, Object itemId) {
                 return container.getItem(itemId).getValueEx(property);
             }
+
+            @SuppressWarnings("unchecked")
+            @Override
+            protected Map<AggregationInfo, Object> loadAggregateValues(AggregationInfo[] aggregationInfos,
+                                                                       Collection itemIds) {
+                return loadAggregateValues(container, aggregationInfos, itemIds);
+            }
         };
     }
 }
\ No newline at end of file
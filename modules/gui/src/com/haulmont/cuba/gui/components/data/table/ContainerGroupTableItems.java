@@ -309,6 +309,12 @@ public class ContainerGroupTableItems<E extends Entity<K>, K>
         return 0;
     }
 
+    @Override
+    protected boolean canLoadAggregates(Collection<?> itemIds) {
+        // items of the only root group cannot be told apart from all items
+        return super.canLoadAggregates(itemIds) && !(hasGroups() && roots.size() == 1);
+    }
+
     @Override
     public boolean hasGroups() {
         return roots != null;
@@ -78,9 +78,24 @@ public class ContainerTableItems<E extends Entity> implements EntityTableItems<E
             public Object getItemValue(MetaPropertyPath property, Object itemId) {
                 return ContainerTableItems.this.getItemValue(itemId, property);
             }
+
+            @SuppressWarnings("unchecked")
+            @Override
+            protected Map<AggregationInfo, Object> loadAggregateValues(AggregationInfo[] aggregationInfos,
+                                                                       Collection itemIds) {
+                return canLoadAggregates(itemIds) ? loadAggregateValues(container, aggregationInfos, itemIds) : null;
+            }
         };
     }
 
+    /**
+     * @param itemIds identifiers of aggregated items
+     * @return true if the items are all items of the container, so their totals can be loaded by the loader
+     */
+    protected boolean canLoadAggregates(Collection<?> itemIds) {
+        return itemIds.size() == container.getItems().size();
+    }
+
     public CollectionContainer<E> getContainer() {
         return container;
     }
@@ -17,20 +17,30 @@
 package com.haulmont.cuba.gui.data.impl;
 
 import com.haulmont.chile.core.datatypes.Datatypes;
+import com.haulmont.chile.core.model.MetaProperty;
 import com.haulmont.chile.core.model.MetaPropertyPath;
 import com.haulmont.chile.core.model.Range;
 import com.haulmont.cuba.core.global.AppBeans;
+import com.haulmont.cuba.core.global.MetadataTools;
+import com.haulmont.cuba.core.global.QueryTransformer;
 import com.haulmont.cuba.core.global.UserSessionSource;
 import com.haulmont.cuba.gui.components.AggregationInfo;
 import com.haulmont.cuba.gui.data.aggregation.Aggregation;
 import com.haulmont.cuba.gui.data.aggregation.AggregationStrategy;
 import com.haulmont.cuba.gui.data.aggregation.Aggregations;
+import com.haulmont.cuba.gui.model.CollectionContainer;
+import com.haulmont.cuba.gui.model.CollectionLoader;
+import com.haulmont.cuba.gui.model.HasLoader;
 
 import javax.annotation.Nullable;
+import java.math.BigDecimal;
 import java.util.*;
 import java.util.stream.Collectors;
 
 public abstract class AggregatableDelegate<K> {
+
+    protected static final String AGGREGATE_NAME_PREFIX = "aggregate";
+
     public Map<AggregationInfo, String> aggregate(AggregationInfo[] aggregationInfos, Collection<K> itemIds) {
         if (aggregationInfos == null || aggregationInfos.length == 0) {
             throw new NullPointerException("Aggregation must be executed at least by one field");
@@ -40,9 +50,13 @@ public abstract class AggregatableDelegate<K> {
     }
 
     protected Map<AggregationInfo, String> doAggregation(Collection<K> itemIds, AggregationInfo[] aggregationInfos) {
+        Map<AggregationInfo, Object> loadedValues = loadAggregateValues(aggregationInfos, itemIds);
+
         Map<AggregationInfo, String> aggregationResults = new HashMap<>();
         for (AggregationInfo aggregationInfo : aggregationInfos) {
-            final Object value = doPropertyAggregation(aggregationInfo, itemIds);
+            final Object value = loadedValues != null
+                    ? loadedValues.get(aggregationInfo)
+                    : doPropertyAggregation(aggregationInfo, itemIds);
 
             String formattedValue;
             if (aggregationInfo.getFormatter() != null) {
@@ -92,6 +106,11 @@ public abstract class AggregatableDelegate<K> {
             throw new NullPointerException("Aggregation must be executed at least by one field");
         }
 
+        Map<AggregationInfo, Object> loadedValues = loadAggregateValues(aggregationInfos, itemIds);
+        if (loadedValues != null) {
+            return loadedValues;
+        }
+
         Map<AggregationInfo, Object> aggregationResults = new HashMap<>();
 
         for (AggregationInfo aggregationInfo : aggregationInfos) {
@@ -102,6 +121,132 @@ public abstract class AggregatableDelegate<K> {
         return aggregationResults;
     }
 
+    /**
+     * Returns aggregate values computed by the database instead of the items in memory.
+     * Implementations return null if the values must be computed in memory.
+     *
+     * @param aggregationInfos aggregations to compute
+     * @param itemIds          identifiers of items to aggregate
+     * @return values by aggregations, or null
+     */
+    @Nullable
+    protected Map<AggregationInfo, Object> loadAggregateValues(AggregationInfo[] aggregationInfos,
+                                                               Collection<K> itemIds) {
+        return null;
+    }
+
+    /**
+     * Loads totals of a paged container by {@link CollectionLoader#loadAggregates(Map)}, so that a footer shows
+     * values over all entities selected by the loader and not only over the loaded page.
+     * <p>
+     * Returns null, so the values are computed in memory, if the container is not paged, the items are a subset
+     * of the container (e.g. a group), the loader uses a load delegate, or an aggregation uses a custom strategy
+     * or a non-persistent attribute. Totals loaded from the database do not include unsaved changes.
+     *
+     * @param container        container of the items
+     * @param aggregationInfos aggregations to compute
+     * @param itemIds          identifiers of items to aggregate
+     * @return values by aggregations, or null
+     */
+    @Nullable
+    protected Map<AggregationInfo, Object> loadAggregateValues(CollectionContainer<?> container,
+                                                               AggregationInfo[] aggregationInfos,
+                                                               Collection<K> itemIds) {
+        if (!(container instanceof HasLoader)
+                || !(((HasLoader) container).getLoader() instanceof CollectionLoader)) {
+            return null;
+        }
+        CollectionLoader<?> loader = (CollectionLoader<?>) ((HasLoader) container).getLoader();
+        if ((loader.getMaxResults() <= 0 && loader.getFirstResult() <= 0)
+                || loader.getQuery() == null
+                || loader.getLoadDelegate() != null
+                || itemIds.size() != container.getItems().size()) {
+            return null;
+        }
+
+        Map<String, String> expressions = new LinkedHashMap<>();
+        for (int i = 0; i < aggregationInfos.length; i++) {
+            String expression = getAggregateExpression(aggregationInfos[i]);
+            if (expression == null) {
+                return null;
+            }
+            expressions.put(AGGREGATE_NAME_PREFIX + i, expression);
+        }
+
+        Map<String, Object> values = loader.loadAggregates(expressions);
+
+        Map<AggregationInfo, Object> aggregationResults = new HashMap<>();
+        for (int i = 0; i < aggregationInfos.length; i++) {
+            AggregationInfo aggregationInfo = aggregationInfos[i];
+            aggregationResults.put(aggregationInfo,
+                    convertLoadedValue(aggregationInfo, values.get(AGGREGATE_NAME_PREFIX + i)));
+        }
+        return aggregationResults;
+    }
+
+    /**
+     * @return JPQL aggregate expression, or null if the aggregation cannot be computed by the database
+     */
+    @Nullable
+    protected String getAggregateExpression(AggregationInfo aggregationInfo) {
+        MetaPropertyPath propertyPath = aggregationInfo.getPropertyPath();
+        if (aggregationInfo.getStrategy() != null
+                || aggregationInfo.getType() == AggregationInfo.Type.CUSTOM
+                || propertyPath == null
+                || !propertyPath.getRange().isDatatype()) {
+            return null;
+        }
+
+        MetadataTools metadataTools = AppBeans.get(MetadataTools.NAME);
+        for (MetaProperty metaProperty : propertyPath.getMetaProperties()) {
+            if (!metadataTools.isPersistent(metaProperty) || metaProperty.getRange().getCardinality().isMany()) {
+                return null;
+            }
+        }
+
+        String path = QueryTransformer.ALIAS_PLACEHOLDER + "." + propertyPath.toPathString();
+        switch (aggregationInfo.getType()) {
+            case COUNT:
+                return "count(" + path + ")";
+            case AVG:
+                return "avg(" + path + ")";
+            case MAX:
+                return "max(" + path + ")";
+            case MIN:
+                return "min(" + path + ")";
+            case SUM:
+                return "sum(" + path + ")";
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Converts a value returned by the database to the type produced by the in-memory aggregation.
+     */
+    @Nullable
+    protected Object convertLoadedValue(AggregationInfo aggregationInfo, @Nullable Object value) {
+        if (!(value instanceof Number)) {
+            return value;
+        }
+        Number number = (Number) value;
+        if (aggregationInfo.getType() == AggregationInfo.Type.COUNT) {
+            return number.intValue();
+        }
+
+        Class resultClass = Aggregations.get(aggregationInfo.getPropertyPath().getRangeJavaClass()).getResultClass();
+        if (resultClass == BigDecimal.class) {
+            return number instanceof BigDecimal ? number : new BigDecimal(number.toString());
+        } else if (resultClass == Double.class) {
+            return number.doubleValue();
+        } else if (resultClass == Long.class) {
+            return number.longValue();
+        } else if (resultClass == Integer.class) {
+            return number.intValue();
+        }
+        return number;
+    }
+
     @SuppressWarnings("unchecked")
     protected Object doPropertyAggregation(AggregationInfo aggregationInfo, Collection<K> itemIds) {
         List items;
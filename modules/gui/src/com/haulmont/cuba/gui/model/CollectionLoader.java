@@ -23,8 +23,10 @@ import com.haulmont.cuba.core.global.View;
 import com.haulmont.cuba.gui.screen.InstallSubject;
 import com.haulmont.cuba.gui.screen.Subscribe;
 
+import javax.annotation.Nullable;
 import java.util.EventObject;
 import java.util.List;
+import java.util.Map;
 import java.util.function.Consumer;
 import java.util.function.Function;
 
@@ -96,6 +98,49 @@ public interface CollectionLoader<E extends Entity> extends BaseCollectionLoader
      */
     void setLoadDelegate(Function<LoadContext<E>, List<E>> delegate);
 
+    /**
+     * Loads groups of entities using a {@code GROUP BY} query built from the query, condition and parameters of
+     * this loader. Only group values, counts and aggregates are loaded, the container is not changed.
+     * <p>
+     * For example, to show totals of orders by status and then by customer:
+     * <pre>
+     *     Map&lt;String, String&gt; aggregates = Collections.singletonMap("amount", "sum({E}.amount)");
+     *     List&lt;EntityGroup&gt; statuses = ordersDl.loadGroups(null, "status", aggregates);
+     *     List&lt;EntityGroup&gt; customers = ordersDl.loadGroups(statuses.get(0), "customer.name", aggregates);
+     * </pre>
+     *
+     * @param parent     group to load subgroups of, or null to load root groups
+     * @param property   path of the property to group by. References in the path are joined by {@code left join},
+     *                   so entities with a null reference form a group with null value
+     * @param aggregates JPQL aggregate expressions by names, the {@code {E}} placeholder denotes the loaded entity
+     * @return groups ordered by the value of the grouping property
+     * @throws IllegalStateException if the loader has no query or uses a load delegate
+     * @throws IllegalArgumentException if the property is not found or the path contains a collection attribute
+     */
+    List<EntityGroup> loadGroups(@Nullable EntityGroup parent, String property, Map<String, String> aggregates);
+
+    /**
+     * Loads values of aggregate expressions computed over all entities selected by the query, condition and
+     * parameters of this loader, e.g. totals for a table footer. The container is not changed.
+     *
+     * @param aggregates JPQL aggregate expressions by names, the {@code {E}} placeholder denotes the loaded entity
+     * @return values of aggregate expressions by their names
+     * @throws IllegalStateException if the loader has no query or uses a load delegate
+     */
+    Map<String, Object> loadAggregates(Map<String, String> aggregates);
+
+    /**
+     * Loads a page of entities belonging to the given group. The entities are merged into the {@code DataContext}
+     * if it is set; the container is not changed.
+     *
+     * @param group       group loaded by {@link #loadGroups(EntityGroup, String, Map)}
+     * @param firstResult position of the first entity in the group
+     * @param maxResults  maximum number of entities to load
+     * @return loaded entities
+     * @throws IllegalStateException if the loader has no query or uses a load delegate
+     */
+    List<E> loadGroupItems(EntityGroup group, int firstResult, int maxResults);
+
     /**
      * Event sent before loading entities.
      * <p>
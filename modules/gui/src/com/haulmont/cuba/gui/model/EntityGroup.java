@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2008-2020 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.gui.model;
+
+import javax.annotation.Nullable;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Group of entities loaded by {@link CollectionLoader#loadGroups(EntityGroup, String, Map)}.
+ * <p>
+ * Contains the value of the grouping property, the number of entities in the group and the values of aggregate
+ * expressions computed by the database. Entities of the group are not loaded, use
+ * {@link CollectionLoader#loadGroupItems(EntityGroup, int, int)} to load them page by page.
+ */
+public class EntityGroup {
+
+    private final EntityGroup parent;
+    private final String property;
+    private final Object value;
+    private final long count;
+    private final Map<String, Object> aggregates;
+    private final Map<String, Object> groupValues;
+
+    public EntityGroup(@Nullable EntityGroup parent, String property, @Nullable Object value, long count,
+                       Map<String, Object> aggregates) {
+        this.parent = parent;
+        this.property = property;
+        this.value = value;
+        this.count = count;
+        this.aggregates = Collections.unmodifiableMap(new LinkedHashMap<>(aggregates));
+
+        Map<String, Object> groupValues = new LinkedHashMap<>();
+        if (parent != null) {
+            groupValues.putAll(parent.getGroupValues());
+        }
+        groupValues.put(property, value);
+        this.groupValues = Collections.unmodifiableMap(groupValues);
+    }
+
+    /**
+     * Returns the parent group or null if this is a root group.
+     */
+    @Nullable
+    public EntityGroup getParent() {
+        return parent;
+    }
+
+    /**
+     * Returns the path of the grouping property, e.g. {@code customer.name}.
+     */
+    public String getProperty() {
+        return property;
+    }
+
+    /**
+     * Returns the value of the grouping property shared by all entities of the group.
+     */
+    @Nullable
+    public Object getValue() {
+        return value;
+    }
+
+    /**
+     * Returns the number of entities in the group.
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Returns values of aggregate expressions by their names.
+     */
+    public Map<String, Object> getAggregates() {
+        return aggregates;
+    }
+
+    /**
+     * Returns values of grouping properties of this group and all its parents, starting from the root group.
+     */
+    public Map<String, Object> getGroupValues() {
+        return groupValues;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        EntityGroup that = (EntityGroup) o;
+        return groupValues.equals(that.groupValues);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(groupValues);
+    }
+
+    @Override
+    public String toString() {
+        return "EntityGroup{" + groupValues + ", count=" + count + "}";
+    }
+}
@@ -18,7 +18,11 @@ package com.haulmont.cuba.gui.model.impl;
 
 import com.haulmont.bali.events.EventHub;
 import com.haulmont.bali.events.Subscription;
+import com.haulmont.chile.core.model.MetaClass;
+import com.haulmont.chile.core.model.MetaProperty;
+import com.haulmont.chile.core.model.MetaPropertyPath;
 import com.haulmont.cuba.core.entity.Entity;
+import com.haulmont.cuba.core.entity.KeyValueEntity;
 import com.haulmont.cuba.core.global.*;
 import com.haulmont.cuba.core.global.queryconditions.Condition;
 import com.haulmont.cuba.gui.model.*;
@@ -34,6 +38,12 @@ import java.util.function.Function;
  */
 public class CollectionLoaderImpl<E extends Entity> implements CollectionLoader<E>, LoaderSupportsApplyToSelected {
 
+    protected static final String GROUP_VALUE_PROPERTY = "groupValue";
+    protected static final String GROUP_COUNT_PROPERTY = "groupCount";
+    protected static final String GROUP_AGGREGATE_PROPERTY = "groupAggregate";
+    protected static final String GROUP_PARAMETER_PREFIX = "_groupValue";
+    protected static final String GROUP_JOIN_ALIAS_PREFIX = "groupRef";
+
     private ApplicationContext applicationContext;
 
     protected DataContext dataContext;
@@ -76,6 +86,14 @@ public class CollectionLoaderImpl<E extends Entity> implements CollectionLoader<
         return applicationContext.getBean(QueryStringProcessor.NAME, QueryStringProcessor.class);
     }
 
+    protected QueryTransformerFactory getQueryTransformerFactory() {
+        return applicationContext.getBean(QueryTransformerFactory.NAME, QueryTransformerFactory.class);
+    }
+
+    protected MetadataTools getMetadataTools() {
+        return applicationContext.getBean(MetadataTools.NAME, MetadataTools.class);
+    }
+
     @Nullable
     @Override
     public DataContext getDataContext() {
@@ -110,9 +128,11 @@ public class CollectionLoaderImpl<E extends Entity> implements CollectionLoader<
         }
 
         if (dataContext != null) {
+            // merge in bulk to process references shared by the loaded instances only once
+            dataContext.merge(list, new MergeOptions().setFresh(true));
             List<E> mergedList = new ArrayList<>(list.size());
             for (E entity : list) {
-                mergedList.add(dataContext.merge(entity, new MergeOptions().setFresh(true)));
+                mergedList.add(dataContext.find(entity));
             }
             container.setItems(mergedList);
         } else {
@@ -156,6 +176,178 @@ public class CollectionLoaderImpl<E extends Entity> implements CollectionLoader<
         return loadContext;
     }
 
+    @Override
+    public List<EntityGroup> loadGroups(@Nullable EntityGroup parent, String property, Map<String, String> aggregates) {
+        List<String> names = new ArrayList<>(aggregates.keySet());
+        List<KeyValueEntity> rows = loadGroupValues(parent, Collections.singletonList(property), names, aggregates);
+
+        List<EntityGroup> groups = new ArrayList<>(rows.size());
+        for (KeyValueEntity row : rows) {
+            Number count = row.getValue(GROUP_COUNT_PROPERTY);
+            groups.add(new EntityGroup(parent, property, row.getValue(GROUP_VALUE_PROPERTY + 0),
+                    count != null ? count.longValue() : 0, getAggregateValues(row, names)));
+        }
+        return groups;
+    }
+
+    @Override
+    public Map<String, Object> loadAggregates(Map<String, String> aggregates) {
+        if (aggregates.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        List<String> names = new ArrayList<>(aggregates.keySet());
+        List<KeyValueEntity> rows = loadGroupValues(null, Collections.emptyList(), names, aggregates);
+        return rows.isEmpty() ? Collections.emptyMap() : getAggregateValues(rows.get(0), names);
+    }
+
+    @Override
+    public List<E> loadGroupItems(EntityGroup group, int firstResult, int maxResults) {
+        checkGroupingAvailable();
+
+        LoadContext<E> loadContext = createLoadContext();
+        LoadContext.Query loadQuery = loadContext.getQuery();
+
+        Map<String, Object> parameters = new HashMap<>(loadQuery.getParameters());
+        QueryTransformer transformer = getQueryTransformerFactory().transformer(loadQuery.getQueryString());
+        Map<String, String> joinAliases = new HashMap<>();
+        addGroupConditions(transformer, group, parameters, joinAliases, loadQuery.getQueryString());
+        loadQuery.setQueryString(transformer.getResult());
+        loadQuery.setParameters(parameters);
+        loadQuery.setFirstResult(firstResult);
+        loadQuery.setMaxResults(maxResults);
+
+        List<E> list = getDataManager().loadList(loadContext);
+
+        if (dataContext != null) {
+            dataContext.merge(list, new MergeOptions().setFresh(true));
+            List<E> mergedList = new ArrayList<>(list.size());
+            for (E entity : list) {
+                mergedList.add(dataContext.find(entity));
+            }
+            return mergedList;
+        }
+        return list;
+    }
+
+    protected List<KeyValueEntity> loadGroupValues(@Nullable EntityGroup parent, List<String> groupProperties,
+                                                   List<String> aggregateNames, Map<String, String> aggregates) {
+        checkGroupingAvailable();
+
+        MetaClass metaClass = container.getEntityMetaClass();
+        String queryString = getQueryStringProcessor().process(this.query, metaClass.getJavaClass());
+        Map<String, Object> parameters = new HashMap<>(this.parameters);
+
+        QueryTransformer transformer = getQueryTransformerFactory().transformer(queryString);
+        Map<String, String> joinAliases = new HashMap<>();
+        addGroupConditions(transformer, parent, parameters, joinAliases, queryString);
+
+        ValueLoadContext loadContext = ValueLoadContext.create();
+        loadContext.setStoreName(getMetadataTools().getStoreName(metaClass));
+
+        List<String> groupExpressions = new ArrayList<>(groupProperties.size());
+        for (int i = 0; i < groupProperties.size(); i++) {
+            groupExpressions.add(getGroupPath(transformer, groupProperties.get(i), joinAliases, queryString));
+            loadContext.addProperty(GROUP_VALUE_PROPERTY + i);
+        }
+
+        List<String> aggregateExpressions = new ArrayList<>(aggregateNames.size() + 1);
+        if (!groupProperties.isEmpty()) {
+            aggregateExpressions.add("count(" + QueryTransformer.ALIAS_PLACEHOLDER + ")");
+            loadContext.addProperty(GROUP_COUNT_PROPERTY);
+        }
+        for (int i = 0; i < aggregateNames.size(); i++) {
+            aggregateExpressions.add(aggregates.get(aggregateNames.get(i)));
+            loadContext.addProperty(GROUP_AGGREGATE_PROPERTY + i);
+        }
+
+        transformer.replaceWithGroupBy(groupExpressions, aggregateExpressions);
+
+        ValueLoadContext.Query valuesQuery = loadContext.setQueryString(transformer.getResult());
+        valuesQuery.setCondition(condition);
+        valuesQuery.setParameters(parameters);
+        loadContext.setSoftDeletion(softDeletion);
+
+        return getDataManager().loadValues(loadContext);
+    }
+
+    protected void checkGroupingAvailable() {
+        if (query == null)
+            throw new IllegalStateException("query is null");
+        if (delegate != null)
+            throw new IllegalStateException("Cannot load groups if load delegate is set");
+    }
+
+    protected void addGroupConditions(QueryTransformer transformer, @Nullable EntityGroup group,
+                                      Map<String, Object> parameters, Map<String, String> joinAliases,
+                                      String queryString) {
+        if (group == null) {
+            return;
+        }
+        int index = 0;
+        for (Map.Entry<String, Object> entry : group.getGroupValues().entrySet()) {
+            String path = getGroupPath(transformer, entry.getKey(), joinAliases, queryString);
+            if (entry.getValue() == null) {
+                transformer.addWhere(path + " is null");
+            } else {
+                String paramName;
+                do {
+                    // skip names of the loader's own parameters
+                    paramName = GROUP_PARAMETER_PREFIX + index++;
+                } while (parameters.containsKey(paramName));
+                transformer.addWhere(path + " = :" + paramName);
+                parameters.put(paramName, entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * Returns JPQL path of a grouping property. Each reference in the path is joined by {@code left join}, because
+     * an implicit inner join would drop entities with a null reference together with their group.
+     *
+     * @param transformer transformer of the query
+     * @param property    path of the property relative to the loaded entity
+     * @param joinAliases aliases of already joined references by their JPQL paths
+     * @param queryString source query, used to choose aliases not clashing with its own variables
+     * @return JPQL path of the property
+     */
+    protected String getGroupPath(QueryTransformer transformer, String property, Map<String, String> joinAliases,
+                                  String queryString) {
+        MetaClass metaClass = container.getEntityMetaClass();
+        MetaPropertyPath propertyPath = metaClass.getPropertyPath(property);
+        if (propertyPath == null)
+            throw new IllegalArgumentException(String.format("Property '%s' is not found in %s", property, metaClass));
+
+        String path = QueryTransformer.ALIAS_PLACEHOLDER;
+        for (MetaProperty metaProperty : propertyPath.getMetaProperties()) {
+            if (metaProperty.getRange().getCardinality().isMany())
+                throw new IllegalArgumentException(String.format(
+                        "Cannot group by '%s' because '%s' is a collection", property, metaProperty.getName()));
+
+            path = path + "." + metaProperty.getName();
+            if (metaProperty.getRange().isClass() && !getMetadataTools().isEmbedded(metaProperty)) {
+                String alias = joinAliases.get(path);
+                if (alias == null) {
+                    int index = joinAliases.size();
+                    do {
+                        alias = GROUP_JOIN_ALIAS_PREFIX + index++;
+                    } while (queryString.contains(alias));
+                    transformer.addJoin("left join " + path + " " + alias);
+                    joinAliases.put(path, alias);
+                }
+                path = alias;
+            }
+        }
+        return path;
+    }
+
+    protected Map<String, Object> getAggregateValues(KeyValueEntity row, List<String> aggregateNames) {
+        Map<String, Object> values = new LinkedHashMap<>(aggregateNames.size());
+        for (int i = 0; i < aggregateNames.size(); i++) {
+            values.put(aggregateNames.get(i), row.getValue(GROUP_AGGREGATE_PROPERTY + i));
+        }
+        return values;
+    }
+
     protected View resolveView() {
         View view = this.view;
         if (view == null && viewName != null) {
@@ -69,6 +69,8 @@ public class DataContextImpl implements DataContext {
 
     protected boolean disableListeners;
 
+    protected Set<Entity> deferredChangedEntities;
+
     protected DataContextImpl parentContext;
 
     protected Function<CommitContext, Set<Entity>> commitDelegate;
@@ -177,16 +179,24 @@ public class DataContextImpl implements DataContext {
         checkNotNullArgument(entities, "options object is null");
 
         List<Entity> managedList = new ArrayList<>(entities.size());
+        boolean deferring = startDeferringChangeEvents();
         disableListeners = true;
         try {
             Set<Entity> merged = Sets.newIdentityHashSet();
+            Map<Entity, Entity> mergedRoots = new IdentityHashMap<>();
 
             for (Entity entity : entities) {
-                Entity managed = internalMerge(entity, merged, true, options);
+                // the same instance can be passed several times, merge it only once
+                Entity managed = mergedRoots.get(entity);
+                if (managed == null) {
+                    managed = internalMerge(entity, merged, true, options);
+                    mergedRoots.put(entity, managed);
+                }
                 managedList.add(managed);
             }
         } finally {
             disableListeners = false;
+            fireDeferredChangeEvents(deferring);
         }
         return EntitySet.of(managedList);
     }
@@ -220,7 +230,11 @@ public class DataContextImpl implements DataContext {
 
             if (getEntityStates().isNew(managed)) {
                 modifiedInstances.add(managed);
-                fireChangeListener(managed);
+                if (deferredChangedEntities != null) {
+                    deferredChangedEntities.add(managed);
+                } else {
+                    fireChangeListener(managed);
+                }
             }
             return managed;
         } else {
@@ -229,12 +243,38 @@ public class DataContextImpl implements DataContext {
             }
 
             if (managed != entity) {
-                mergeState(entity, managed, mergedSet, isRoot, options);
+                // a fresh instance of the same version cannot bring new values of local attributes
+                boolean unchanged = options.isFresh() && isUnchanged(entity, managed);
+                mergeState(entity, managed, mergedSet, isRoot, options, unchanged);
             }
             return managed;
         }
     }
 
+    /**
+     * Starts collecting change events of newly merged instances to send them after the whole graph is merged.
+     *
+     * @return true if collecting is started by this invocation, false if it is already in progress
+     */
+    protected boolean startDeferringChangeEvents() {
+        if (deferredChangedEntities != null) {
+            return false;
+        }
+        deferredChangedEntities = new LinkedHashSet<>();
+        return true;
+    }
+
+    protected void fireDeferredChangeEvents(boolean deferring) {
+        if (!deferring) {
+            return;
+        }
+        Set<Entity> entities = deferredChangedEntities;
+        deferredChangedEntities = null;
+        for (Entity entity : entities) {
+            fireChangeListener(entity);
+        }
+    }
+
     protected Entity copyEntity(Entity srcEntity) {
         Entity dstEntity;
         try {
@@ -247,11 +287,21 @@ public class DataContextImpl implements DataContext {
     }
 
     protected void mergeState(Entity srcEntity, Entity dstEntity, Set<Entity> mergedSet, boolean isRoot, MergeOptions options) {
+        mergeState(srcEntity, dstEntity, mergedSet, isRoot, options, false);
+    }
+
+    /**
+     * @param unchanged if true, local attributes of the instances are equal, so only system state and references
+     *                  are merged
+     */
+    protected void mergeState(Entity srcEntity, Entity dstEntity, Set<Entity> mergedSet, boolean isRoot,
+                              MergeOptions options, boolean unchanged) {
         EntityStates entityStates = getEntityStates();
 
         boolean srcNew = entityStates.isNew(srcEntity);
         boolean dstNew = entityStates.isNew(dstEntity);
 
+        // system state includes dynamic attributes and security state which can change without a version bump
         mergeSystemState(srcEntity, dstEntity, isRoot, options);
 
         MetaClass metaClass = getMetadata().getClassNN(srcEntity.getClass());
@@ -259,7 +309,8 @@ public class DataContextImpl implements DataContext {
 
         for (MetaProperty property : metaClass.getProperties()) {
             String propertyName = property.getName();
-            if (!property.getRange().isClass()                                             // local
+            if (!unchanged
+                    && !property.getRange().isClass()                                      // local
                     && property != primaryKeyProperty                                      // not PK
                     && (srcNew || entityStates.isLoaded(srcEntity, propertyName))          // loaded src
                     && (dstNew || entityStates.isLoaded(dstEntity, propertyName))) {       // loaded dst
@@ -326,6 +377,43 @@ public class DataContextImpl implements DataContext {
         }
     }
 
+    /**
+     * Returns true if the existing managed instance has the same version as the source instance, is not modified
+     * in this context and has all attributes loaded in the source instance.
+     */
+    protected boolean isUnchanged(Entity srcEntity, Entity dstEntity) {
+        if (!(srcEntity instanceof Versioned) || !(dstEntity instanceof Versioned)
+                || !(srcEntity instanceof FetchGroupTracker) || !(dstEntity instanceof FetchGroupTracker)) {
+            return false;
+        }
+        EntityStates entityStates = getEntityStates();
+        if (entityStates.isNew(srcEntity) || entityStates.isNew(dstEntity)) {
+            return false;
+        }
+        Object srcVersion = ((Versioned) srcEntity).getVersion();
+        if (srcVersion == null || !srcVersion.equals(((Versioned) dstEntity).getVersion())
+                || modifiedInstances.contains(dstEntity)) {
+            return false;
+        }
+        FetchGroup srcFetchGroup = ((FetchGroupTracker) srcEntity)._persistence_getFetchGroup();
+        FetchGroup dstFetchGroup = ((FetchGroupTracker) dstEntity)._persistence_getFetchGroup();
+        return srcFetchGroup != null && dstFetchGroup != null
+                && dstFetchGroup.getAttributeNames().containsAll(srcFetchGroup.getAttributeNames());
+    }
+
+    protected boolean containsSameElements(@Nullable Object currentValue, Collection<Entity> managedRefs) {
+        if (!(currentValue instanceof Collection) || ((Collection) currentValue).size() != managedRefs.size()) {
+            return false;
+        }
+        Iterator<Entity> managedIt = managedRefs.iterator();
+        for (Object element : (Collection) currentValue) {
+            if (element != managedIt.next()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     protected void setPropertyValue(Entity entity, MetaProperty property, @Nullable Object value) {
         setPropertyValue(entity, property, value, true);
     }
@@ -405,6 +493,11 @@ public class DataContextImpl implements DataContext {
                 Entity managedRef = internalMerge(entity, mergedSet, false, options);
                 managedRefs.add(managedRef);
             }
+            Object currentValue = managedEntity.getValue(property.getName());
+            if (currentValue instanceof ObservableList && containsSameElements(currentValue, managedRefs)) {
+                // keep the existing collection to avoid notifying its listeners
+                return;
+            }
             List<Entity> dstList = createObservableList(managedRefs, managedEntity);
             setPropertyValue(managedEntity, property, dstList);
 
@@ -437,6 +530,11 @@ public class DataContextImpl implements DataContext {
                 Entity managedRef = internalMerge(entity, mergedSet, false, options);
                 managedRefs.add(managedRef);
             }
+            Object currentValue = managedEntity.getValue(property.getName());
+            if (currentValue instanceof ObservableSet && containsSameElements(currentValue, managedRefs)) {
+                // keep the existing collection to avoid notifying its listeners
+                return;
+            }
             Set<Entity> dstList = createObservableSet(managedRefs, managedEntity);
             setPropertyValue(managedEntity, property, dstList);
 
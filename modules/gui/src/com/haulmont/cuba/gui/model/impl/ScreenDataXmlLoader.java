@@ -26,9 +26,12 @@ import com.haulmont.cuba.core.entity.Entity;
 import com.haulmont.cuba.core.global.*;
 import com.haulmont.cuba.core.global.queryconditions.Condition;
 import com.haulmont.cuba.core.global.queryconditions.ConditionXmlLoader;
+import com.haulmont.cuba.core.sys.AbstractViewRepository;
 import com.haulmont.cuba.core.sys.ViewLoader;
 import com.haulmont.cuba.gui.model.*;
+import com.haulmont.cuba.gui.xml.layout.ScreenXmlDocumentCache;
 import org.apache.commons.lang3.RandomStringUtils;
+import org.dom4j.Document;
 import org.dom4j.Element;
 import org.springframework.stereotype.Component;
 
@@ -59,6 +62,9 @@ public class ScreenDataXmlLoader {
     @Inject
     protected ConditionXmlLoader conditionXmlLoader;
 
+    @Inject
+    protected ScreenXmlDocumentCache screenXmlDocumentCache;
+
     public void load(ScreenData screenData, Element element, @Nullable ScreenData hostScreenData) {
         Preconditions.checkNotNullArgument(screenData, "screenData is null");
         Preconditions.checkNotNullArgument(element, "element is null");
@@ -391,6 +397,17 @@ public class ScreenDataXmlLoader {
     }
 
     protected View loadAdHocView(Element viewElem, Class<Entity> entityClass) {
+        // descriptors are shared by screens, so the view is built once and copied for each screen
+        Document document = viewElem.getDocument();
+        if (document != null && viewRepository instanceof AbstractViewRepository) {
+            long viewsVersion = ((AbstractViewRepository) viewRepository).getVersion();
+            return screenXmlDocumentCache.getBlueprint(document)
+                    .getAdHocView(viewElem, viewsVersion, () -> buildAdHocView(viewElem, entityClass));
+        }
+        return buildAdHocView(viewElem, entityClass);
+    }
+
+    protected View buildAdHocView(Element viewElem, Class<Entity> entityClass) {
         ViewLoader.ViewInfo viewInfo = viewLoader.getViewInfo(viewElem, metadata.getClassNN(entityClass));
         View.ViewParams viewParams = viewLoader.getViewParams(viewInfo, a -> viewRepository.getView(viewInfo.getMetaClass(), a));
         View view = new View(viewParams);
@@ -210,7 +210,7 @@ public class PresentationsImpl implements Presentations {
 
     @Override
     public void commit() {
-        if (!needToUpdate.isEmpty() || !needToRemove.isEmpty()) {
+        if (isModified()) {
             DataService ds = AppBeans.get(DataService.NAME);
 
             CommitContext ctx = new CommitContext(
@@ -218,14 +218,45 @@ public class PresentationsImpl implements Presentations {
                     Collections.unmodifiableSet(needToRemove)
             );
             Set<Entity> commitResult = ds.commit(ctx);
-            commited(commitResult);
+            afterCommit(commitResult);
+        }
+    }
 
-            clearCommitList();
+    /**
+     * @return true if there are presentations to save or remove
+     */
+    public boolean isModified() {
+        return !needToUpdate.isEmpty() || !needToRemove.isEmpty();
+    }
 
-            firePresentationsSetChanged();
+    /**
+     * Adds presentations to save and remove to the given context, so they can be committed together with
+     * presentations of other components. {@link #afterCommit(Set)} must be invoked with the commit result.
+     *
+     * @param ctx commit context
+     */
+    public void addChanges(CommitContext ctx) {
+        for (Presentation p : needToUpdate) {
+            ctx.addInstanceToCommit(p);
+        }
+        for (Presentation p : needToRemove) {
+            ctx.addInstanceToRemove(p);
         }
     }
 
+    /**
+     * Updates presentations with committed instances and clears the lists of changes.
+     *
+     * @param commitResult committed instances, can contain presentations of other components
+     */
+    public void afterCommit(Set<Entity> commitResult) {
+        commited(commitResult);
+
+        clearCommitList();
+
+        firePresentationsSetChanged();
+    }
+
     public void commited(Set<Entity> entities) {
         for (Entity entity : entities) {
             if (entity.equals(def))
@@ -291,6 +322,35 @@ public class PresentationsImpl implements Presentations {
         }
     }
 
+    /**
+     * @return id of the component the presentations belong to
+     */
+    public String getComponentId() {
+        return name;
+    }
+
+    /**
+     * @return true if presentations are already loaded
+     */
+    public boolean isLoaded() {
+        return presentations != null;
+    }
+
+    /**
+     * Sets presentations loaded together with presentations of other components. Does nothing if presentations
+     * are already loaded.
+     *
+     * @param list presentations of the component available to the current user
+     */
+    public void setLoadedPresentations(Collection<Presentation> list) {
+        if (presentations == null) {
+            presentations = new LinkedHashMap<>(list.size());
+            for (final Presentation p : list) {
+                presentations.put(p.getId(), p);
+            }
+        }
+    }
+
     private void checkLoad() {
         if (presentations == null) {
             DataService ds = AppBeans.get(DataService.NAME);
@@ -308,10 +368,7 @@ public class PresentationsImpl implements Presentations {
 
             final List<Presentation> list = ds.loadList(ctx);
 
-            presentations = new LinkedHashMap<>(list.size());
-            for (final Presentation p : list) {
-                presentations.put(p.getId(), p);
-            }
+            setLoadedPresentations(list);
         }
     }
 
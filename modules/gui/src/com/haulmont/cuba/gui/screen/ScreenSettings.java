@@ -16,18 +16,26 @@
 
 package com.haulmont.cuba.gui.screen;
 
+import com.haulmont.cuba.core.entity.Entity;
+import com.haulmont.cuba.core.global.CommitContext;
+import com.haulmont.cuba.core.global.DataManager;
+import com.haulmont.cuba.core.global.LoadContext;
+import com.haulmont.cuba.core.global.UserSessionSource;
 import com.haulmont.cuba.gui.components.HasDataLoadingSettings;
 import com.haulmont.cuba.gui.components.HasPresentations;
 import com.haulmont.cuba.gui.components.HasSettings;
 import com.haulmont.cuba.gui.presentations.Presentations;
+import com.haulmont.cuba.gui.presentations.PresentationsImpl;
 import com.haulmont.cuba.gui.settings.Settings;
+import com.haulmont.cuba.security.entity.Presentation;
 import org.apache.commons.lang3.StringUtils;
 import org.dom4j.Element;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
 
-import java.util.UUID;
+import javax.inject.Inject;
+import java.util.*;
 
 import static com.haulmont.bali.util.Preconditions.checkNotNullArgument;
 import static com.haulmont.cuba.gui.ComponentsHelper.walkComponents;
@@ -38,6 +46,11 @@ public class ScreenSettings {
 
     private static final Logger log = LoggerFactory.getLogger(ScreenSettings.class);
 
+    @Inject
+    protected DataManager dataManager;
+    @Inject
+    protected UserSessionSource userSessionSource;
+
     /**
      * Apply settings for screen.
      *
@@ -48,6 +61,8 @@ public class ScreenSettings {
         checkNotNullArgument(screen);
         checkNotNullArgument(settings);
 
+        prefetchPresentations(screen);
+
         walkComponents(
                 screen.getWindow(),
                 (component, name) -> {
@@ -105,6 +120,7 @@ public class ScreenSettings {
         checkNotNullArgument(screen);
         checkNotNullArgument(settings);
 
+        List<Presentations> presentationsList = new ArrayList<>();
         walkComponents(
                 screen.getWindow(),
                 (component, name) -> {
@@ -121,7 +137,7 @@ public class ScreenSettings {
                             e.addAttribute("presentation", def != null ? def.toString() : "");
                             Presentations presentations = ((HasPresentations) component).getPresentations();
                             if (presentations != null) {
-                                presentations.commit();
+                                presentationsList.add(presentations);
                             }
                         }
                         if (modified) {
@@ -130,6 +146,88 @@ public class ScreenSettings {
                     }
                 }
         );
+        commitPresentations(presentationsList);
         settings.commit();
     }
+
+    /**
+     * Loads presentations of all components of the screen using presentations with one query.
+     *
+     * @param screen screen
+     */
+    protected void prefetchPresentations(Screen screen) {
+        Map<String, List<PresentationsImpl>> notLoaded = new HashMap<>();
+        walkComponents(
+                screen.getWindow(),
+                (component, name) -> {
+                    if (component instanceof HasPresentations
+                            && ((HasPresentations) component).isUsePresentations()) {
+                        Presentations presentations = ((HasPresentations) component).getPresentations();
+                        if (presentations instanceof PresentationsImpl
+                                && !((PresentationsImpl) presentations).isLoaded()) {
+                            PresentationsImpl presentationsImpl = (PresentationsImpl) presentations;
+                            notLoaded.computeIfAbsent(presentationsImpl.getComponentId(), k -> new ArrayList<>())
+                                    .add(presentationsImpl);
+                        }
+                    }
+                }
+        );
+        if (notLoaded.size() < 2) {
+            // a single component loads its presentations itself
+            return;
+        }
+
+        LoadContext<Presentation> ctx = LoadContext.create(Presentation.class)
+                .setQuery(LoadContext.createQuery("select p from sec$Presentation p " +
+                        "where p.componentId in :components and (p.user is null or p.user.id = :userId)")
+                        .setParameter("components", notLoaded.keySet())
+                        .setParameter("userId", userSessionSource.getUserSession().getCurrentOrSubstitutedUser().getId()))
+                .setView("app");
+
+        Map<String, List<Presentation>> presentationsByComponent = new HashMap<>();
+        for (Presentation presentation : dataManager.loadList(ctx)) {
+            presentationsByComponent.computeIfAbsent(presentation.getComponentId(), k -> new ArrayList<>())
+                    .add(presentation);
+        }
+        log.trace("Prefetched presentations of components {}", notLoaded.keySet());
+
+        notLoaded.forEach((componentId, presentationsList) -> {
+            List<Presentation> loaded = presentationsByComponent.getOrDefault(componentId, Collections.emptyList());
+            for (PresentationsImpl presentations : presentationsList) {
+                presentations.setLoadedPresentations(loaded);
+            }
+        });
+    }
+
+    /**
+     * Commits changed presentations of several components with one call.
+     *
+     * @param presentationsList presentations of screen components
+     */
+    protected void commitPresentations(List<Presentations> presentationsList) {
+        List<PresentationsImpl> modified = new ArrayList<>();
+        for (Presentations presentations : presentationsList) {
+            if (!(presentations instanceof PresentationsImpl)) {
+                presentations.commit();
+            } else if (((PresentationsImpl) presentations).isModified()) {
+                modified.add((PresentationsImpl) presentations);
+            }
+        }
+        if (modified.isEmpty()) {
+            return;
+        }
+        if (modified.size() == 1) {
+            modified.get(0).commit();
+            return;
+        }
+
+        CommitContext ctx = new CommitContext();
+        for (PresentationsImpl presentations : modified) {
+            presentations.addChanges(ctx);
+        }
+        Set<Entity> commitResult = dataManager.commit(ctx);
+        for (PresentationsImpl presentations : modified) {
+            presentations.afterCommit(commitResult);
+        }
+    }
 }
\ No newline at end of file
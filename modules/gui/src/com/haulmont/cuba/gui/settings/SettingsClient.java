@@ -32,4 +32,14 @@ public interface SettingsClient {
     void setSetting(String name, @Nullable String value);
 
     void deleteSettings(String name);
+
+    /**
+     * Runs the given action. Implementations may collect settings set by the action and save them together
+     * after the action completes.
+     *
+     * @param action action saving settings, e.g. of several screens
+     */
+    default void saveSettingsInBatch(Runnable action) {
+        action.run();
+    }
 }
\ No newline at end of file
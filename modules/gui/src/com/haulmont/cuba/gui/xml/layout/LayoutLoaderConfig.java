@@ -21,6 +21,7 @@ import com.haulmont.cuba.gui.components.mainwindow.*;
 import com.haulmont.cuba.gui.xml.layout.loaders.*;
 import org.springframework.stereotype.Component;
 
+import java.lang.reflect.Constructor;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -31,6 +32,9 @@ public class LayoutLoaderConfig {
 
     protected Map<String, Class<? extends ComponentLoader>> loaders = new ConcurrentHashMap<>();
 
+    protected Map<Class<? extends ComponentLoader>, Constructor<? extends ComponentLoader>> loaderConstructors =
+            new ConcurrentHashMap<>();
+
     protected Class<? extends WindowLoader> windowLoader = WindowLoader.class;
     protected Class<? extends FragmentLoader> fragmentLoader = FragmentLoader.class;
 
@@ -146,6 +150,21 @@ public class LayoutLoaderConfig {
         return loaders.get(name);
     }
 
+    /**
+     * @param loaderClass loader class
+     * @return public no-argument constructor of the loader class, looked up once per class
+     * @throws NoSuchMethodException if the class has no such constructor
+     */
+    public Constructor<? extends ComponentLoader> getLoaderConstructor(Class<? extends ComponentLoader> loaderClass)
+            throws NoSuchMethodException {
+        Constructor<? extends ComponentLoader> constructor = loaderConstructors.get(loaderClass);
+        if (constructor == null) {
+            constructor = loaderClass.getConstructor();
+            loaderConstructors.put(loaderClass, constructor);
+        }
+        return constructor;
+    }
+
     public void registerWindowLoader(Class<? extends WindowLoader> loader) {
         windowLoader = loader;
     }
@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 2008-2016 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.gui.xml.layout;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.haulmont.cuba.core.global.View;
+import org.dom4j.Element;
+
+import java.util.function.Supplier;
+
+/**
+ * Objects derived from a processed screen descriptor which are built once and reused by all screens
+ * opened from the same descriptor.
+ * <p>
+ * A blueprint is obtained from {@link ScreenXmlDocumentCache#getBlueprint(org.dom4j.Document)} and is dropped
+ * together with its document, so a modified descriptor gets a new blueprint.
+ */
+public class ScreenBlueprint {
+
+    // elements are compared by identity
+    protected final Cache<Element, AdHocView> adHocViews = CacheBuilder.newBuilder().weakKeys().build();
+
+    /**
+     * Returns a view defined inline in the descriptor. The view is built once per element and
+     * {@code viewsVersion}, every caller receives its own copy.
+     *
+     * @param viewElement  inline {@code view} element of the descriptor
+     * @param viewsVersion version of the view repository the view depends on
+     * @param builder      builds the view if there is no actual one
+     * @return copy of the view
+     */
+    public View getAdHocView(Element viewElement, long viewsVersion, Supplier<View> builder) {
+        AdHocView adHocView = adHocViews.getIfPresent(viewElement);
+        if (adHocView == null || adHocView.viewsVersion != viewsVersion) {
+            adHocView = new AdHocView(viewsVersion, builder.get());
+            adHocViews.put(viewElement, adHocView);
+        }
+        return View.copy(adHocView.view);
+    }
+
+    protected static class AdHocView {
+        protected final long viewsVersion;
+        protected final View view;
+
+        protected AdHocView(long viewsVersion, View view) {
+            this.viewsVersion = viewsVersion;
+            this.view = view;
+        }
+    }
+}
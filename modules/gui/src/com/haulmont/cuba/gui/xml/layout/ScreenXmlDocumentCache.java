@@ -22,10 +22,17 @@ import org.dom4j.Document;
 import org.springframework.stereotype.Component;
 
 import javax.annotation.Nullable;
+import java.util.concurrent.ExecutionException;
 
+/**
+ * Caches processed screen descriptors by their source XML and by resource path,
+ * and {@link ScreenBlueprint}s of the cached descriptors.
+ */
 @Component("cuba_ScreenXmlDocumentCache")
 public class ScreenXmlDocumentCache {
     protected Cache<String, Document> cache;
+    protected Cache<String, ResourceDocument> resourceCache;
+    protected Cache<Document, ScreenBlueprint> blueprintCache;
 
     public ScreenXmlDocumentCache() {
         this(100);
@@ -33,6 +40,9 @@ public class ScreenXmlDocumentCache {
 
     protected ScreenXmlDocumentCache(int cacheDescriptorsCount) {
         cache = CacheBuilder.newBuilder().maximumSize(cacheDescriptorsCount).build();
+        resourceCache = CacheBuilder.newBuilder().maximumSize(cacheDescriptorsCount).build();
+        // blueprints live as long as their documents are referenced by the caches or by opened screens
+        blueprintCache = CacheBuilder.newBuilder().weakKeys().build();
     }
 
     public void put(String xml, Document document) {
@@ -44,7 +54,56 @@ public class ScreenXmlDocumentCache {
         return cache.getIfPresent(xml);
     }
 
+    /**
+     * Caches a document loaded from the resource.
+     *
+     * @param resourcePath  path to the resource containing the XML
+     * @param lastModified  last modification time of the resource
+     * @param document      processed document
+     */
+    public void put(String resourcePath, long lastModified, Document document) {
+        resourceCache.put(resourcePath, new ResourceDocument(lastModified, document));
+    }
+
+    /**
+     * @param resourcePath path to the resource containing the XML
+     * @param lastModified current last modification time of the resource
+     * @return document cached for the resource, or null if there is no document or the resource has been modified
+     */
+    @Nullable
+    public Document get(String resourcePath, long lastModified) {
+        ResourceDocument resourceDocument = resourceCache.getIfPresent(resourcePath);
+        if (resourceDocument == null || resourceDocument.lastModified != lastModified) {
+            return null;
+        }
+        return resourceDocument.document;
+    }
+
+    /**
+     * @param document processed document
+     * @return blueprint of the document, created on first access
+     */
+    public ScreenBlueprint getBlueprint(Document document) {
+        try {
+            return blueprintCache.get(document, ScreenBlueprint::new);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Unable to create screen blueprint", e);
+        }
+    }
+
     public void invalidateAll() {
         cache.invalidateAll();
+        resourceCache.invalidateAll();
+        blueprintCache.invalidateAll();
+    }
+
+    protected static class ResourceDocument {
+        protected final long lastModified;
+        protected final Document document;
+
+        protected ResourceDocument(long lastModified, Document document) {
+            this.lastModified = lastModified;
+            this.document = document;
+        }
     }
 }
\ No newline at end of file
@@ -26,6 +26,7 @@ import org.apache.commons.io.IOUtils;
 import org.dom4j.Document;
 import org.dom4j.Element;
 import org.perf4j.StopWatch;
+import org.springframework.core.io.Resource;
 import org.springframework.stereotype.Component;
 
 import javax.inject.Inject;
@@ -62,13 +63,33 @@ public class ScreenXmlLoader {
     public Element load(String resourcePath, String id, Map<String, Object> params) {
         StopWatch xmlLoadWatch = UIPerformanceLogger.createStopWatch(ScreenLifeCycle.XML, id);
 
-        String template = loadTemplate(resourcePath);
-        Document document = getDocument(template, params);
+        // the descriptor is read again only if the resource has been modified
+        long lastModified = getLastModified(resourcePath);
+        Document document = lastModified > 0 ? screenXmlCache.get(resourcePath, lastModified) : null;
+        if (document == null) {
+            String template = loadTemplate(resourcePath);
+            document = getDocument(template, params);
+            if (lastModified > 0) {
+                screenXmlCache.put(resourcePath, lastModified, document);
+            }
+        }
 
         xmlLoadWatch.stop();
         return document.getRootElement();
     }
 
+    /**
+     * @return last modification time of the resource, or 0 if it cannot be determined
+     */
+    protected long getLastModified(String resourcePath) {
+        Resource resource = resources.getResource(resourcePath);
+        try {
+            return resource.exists() ? resource.lastModified() : 0;
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
     protected String loadTemplate(String resourcePath) {
         try (InputStream stream = resources.getResourceAsStream(resourcePath)) {
             if (stream == null) {
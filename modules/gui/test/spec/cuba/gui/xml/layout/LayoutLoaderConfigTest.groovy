@@ -0,0 +1,51 @@
+/*
+ * Copyright (c) 2008-2019 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package spec.cuba.gui.xml.layout
+
+import com.haulmont.cuba.gui.components.Button
+import com.haulmont.cuba.gui.xml.layout.LayoutLoaderConfig
+import com.haulmont.cuba.gui.xml.layout.loaders.ButtonLoader
+import spock.lang.Specification
+
+class LayoutLoaderConfigTest extends Specification {
+
+    LayoutLoaderConfig config = new LayoutLoaderConfig()
+
+    def "loader constructor is looked up once per class"() {
+        when:
+        def first = config.getLoaderConstructor(ButtonLoader)
+        def second = config.getLoaderConstructor(ButtonLoader)
+
+        then:
+        first.is(second)
+        first.newInstance() instanceof ButtonLoader
+        config.getLoader(Button.NAME) == ButtonLoader
+    }
+
+    def "loader without public no-argument constructor is rejected"() {
+        when:
+        config.getLoaderConstructor(NoDefaultConstructorLoader)
+
+        then:
+        thrown(NoSuchMethodException)
+    }
+
+    static class NoDefaultConstructorLoader extends ButtonLoader {
+        NoDefaultConstructorLoader(String arg) {
+        }
+    }
+}
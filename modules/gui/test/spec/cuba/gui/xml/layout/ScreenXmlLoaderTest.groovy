@@ -0,0 +1,159 @@
+/*
+ * Copyright (c) 2008-2019 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package spec.cuba.gui.xml.layout
+
+import com.haulmont.bali.util.Dom4j
+import com.haulmont.cuba.core.global.Resources
+import com.haulmont.cuba.core.global.View
+import com.haulmont.cuba.gui.xml.layout.ScreenXmlDocumentCache
+import com.haulmont.cuba.gui.xml.layout.ScreenXmlLoader
+import com.haulmont.cuba.security.entity.User
+import org.dom4j.Document
+import org.springframework.core.io.Resource
+import spock.lang.Specification
+
+import java.nio.charset.StandardCharsets
+
+class ScreenXmlLoaderTest extends Specification {
+
+    static final String PATH = 'com/company/app/test-screen.xml'
+
+    TestScreenXmlLoader loader
+    Resources resources
+    Resource resource
+
+    String content = '<window caption="first"/>'
+    long lastModified = 1000
+
+    void setup() {
+        resource = Stub(Resource) {
+            exists() >> true
+            lastModified() >> { lastModified }
+        }
+        resources = Stub(Resources) {
+            getResource(PATH) >> resource
+            getResourceAsStream(PATH) >> { new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)) }
+        }
+
+        loader = new TestScreenXmlLoader()
+        loader.resources = resources
+        loader.screenXmlCache = new ScreenXmlDocumentCache()
+    }
+
+    def "unchanged descriptor is served from the cache"() {
+        when:
+        def first = loader.load(PATH, 'test-screen', [:])
+        def second = loader.load(PATH, 'test-screen', [:])
+
+        then:
+        first.is(second)
+        loader.templatesLoaded == 1
+        loader.documentsCreated == 1
+    }
+
+    def "changed descriptor is reloaded"() {
+        when:
+        def first = loader.load(PATH, 'test-screen', [:])
+
+        content = '<window caption="second"/>'
+        lastModified = 2000
+
+        def second = loader.load(PATH, 'test-screen', [:])
+
+        then:
+        !first.is(second)
+        first.attributeValue('caption') == 'first'
+        second.attributeValue('caption') == 'second'
+        loader.templatesLoaded == 2
+        loader.documentsCreated == 2
+
+        when:
+        def third = loader.load(PATH, 'test-screen', [:])
+
+        then:
+        third.is(second)
+        loader.templatesLoaded == 2
+    }
+
+    def "blueprint is reused while the document is cached"() {
+        def cache = loader.screenXmlCache
+
+        when:
+        def document = loader.load(PATH, 'test-screen', [:]).document
+
+        then:
+        cache.getBlueprint(document).is(cache.getBlueprint(document))
+
+        when:
+        lastModified = 2000
+        def reloaded = loader.load(PATH, 'test-screen', [:]).document
+
+        then:
+        !cache.getBlueprint(reloaded).is(cache.getBlueprint(document))
+    }
+
+    def "ad-hoc view is built once per views version and copied for each caller"() {
+        def document = Dom4j.readDocument('<window><data><instance><view/></instance></data></window>')
+        def blueprint = loader.screenXmlCache.getBlueprint(document)
+        def element = document.rootElement.element('data').element('instance').element('view')
+        int built = 0
+        def builder = {
+            built++
+            new View(User, false).addProperty('login')
+        }
+
+        when:
+        def first = blueprint.getAdHocView(element, 1, builder)
+        def second = blueprint.getAdHocView(element, 1, builder)
+
+        then:
+        built == 1
+        !first.is(second)
+        first.containsProperty('login')
+        second.containsProperty('login')
+
+        when:
+        first.addProperty('name')
+
+        then:
+        !blueprint.getAdHocView(element, 1, builder).containsProperty('name')
+
+        when:
+        blueprint.getAdHocView(element, 2, builder)
+
+        then:
+        built == 2
+    }
+
+    static class TestScreenXmlLoader extends ScreenXmlLoader {
+
+        int templatesLoaded
+        int documentsCreated
+
+        @Override
+        protected String loadTemplate(String resourcePath) {
+            templatesLoaded++
+            return super.loadTemplate(resourcePath)
+        }
+
+        @Override
+        protected Document createDocument(String template, Map<String, Object> params) {
+            documentsCreated++
+            return Dom4j.readDocument(template)
+        }
+    }
+}
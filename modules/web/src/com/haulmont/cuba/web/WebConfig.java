@@ -111,6 +111,14 @@ public interface WebConfig extends Config {
     @DefaultInt(20)
     int getMaxTabCount();
 
+    /**
+     * @return whether all settings of the user are loaded with one middleware call on the first access to settings
+     * in the UI session. Settings missing after that are not requested from the middleware.
+     */
+    @Property("cuba.web.prefetchUserSettings")
+    @DefaultBoolean(false)
+    boolean getPrefetchUserSettings();
+
     /**
      * @return Request execution time in seconds, after which a message log will be logged.
      */
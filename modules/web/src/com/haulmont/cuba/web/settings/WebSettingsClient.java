@@ -21,24 +21,35 @@ import com.haulmont.cuba.core.global.ClientType;
 import com.haulmont.cuba.gui.executors.IllegalConcurrentAccessException;
 import com.haulmont.cuba.gui.settings.SettingsClient;
 import com.haulmont.cuba.security.app.UserSettingService;
+import com.haulmont.cuba.web.WebConfig;
 import com.vaadin.server.VaadinSession;
 import org.springframework.stereotype.Component;
 
 import javax.annotation.Nullable;
 import javax.inject.Inject;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Optional;
 
 /**
  * User settings provider for web application. Caches settings in HTTP session.
+ * <p>
+ * If {@link WebConfig#getPrefetchUserSettings()} is on, all settings of the user are loaded at once on the first
+ * access.
  */
 @Component(SettingsClient.NAME)
 public class WebSettingsClient implements SettingsClient {
 
+    protected static final String PREFETCHED_ATTRIBUTE = SettingsClient.NAME + ".prefetched";
+    protected static final String PENDING_SETTINGS_ATTRIBUTE = SettingsClient.NAME + ".pending";
+
     @Inject
     protected UserSettingService userSettingService;
 
+    @Inject
+    protected WebConfig webConfig;
+
     @Override
     public String getSetting(String name) {
         Map<String, Optional<String>> settings = getCache();
@@ -47,6 +58,11 @@ public class WebSettingsClient implements SettingsClient {
             return cached.orElse(null);
         }
 
+        if (Boolean.TRUE.equals(getSession().getAttribute(PREFETCHED_ATTRIBUTE))) {
+            settings.put(name, Optional.empty());
+            return null;
+        }
+
         String setting = userSettingService.loadSetting(ClientType.WEB, name);
         settings.put(name, Optional.ofNullable(setting));
 
@@ -56,36 +72,87 @@ public class WebSettingsClient implements SettingsClient {
     @Override
     public void setSetting(String name, @Nullable String value) {
         getCache().put(name, Optional.ofNullable(value));
-        userSettingService.saveSetting(ClientType.WEB, name, value);
+
+        Map<String, String> pendingSettings = getPendingSettings();
+        if (pendingSettings != null) {
+            pendingSettings.put(name, value);
+        } else {
+            userSettingService.saveSetting(ClientType.WEB, name, value);
+        }
     }
 
     @Override
     public void deleteSettings(String name) {
         getCache().put(name, Optional.empty());
+
+        Map<String, String> pendingSettings = getPendingSettings();
+        if (pendingSettings != null) {
+            pendingSettings.remove(name);
+        }
         userSettingService.deleteSettings(ClientType.WEB, name);
     }
 
-    public void clearCache() {
-        VaadinSession session = VaadinSession.getCurrent();
-        if (session == null || !session.hasLock()) {
-            throw new IllegalConcurrentAccessException("Illegal access to settings client from background thread");
+    /**
+     * Runs the given action and saves settings set by it with one middleware call after the action completes.
+     *
+     * @param action action saving settings, e.g. of several screens
+     */
+    @Override
+    public void saveSettingsInBatch(Runnable action) {
+        VaadinSession session = getSession();
+        if (session.getAttribute(PENDING_SETTINGS_ATTRIBUTE) != null) {
+            // already inside a batch
+            action.run();
+            return;
+        }
+
+        Map<String, String> pendingSettings = new LinkedHashMap<>();
+        session.setAttribute(PENDING_SETTINGS_ATTRIBUTE, pendingSettings);
+        try {
+            action.run();
+        } finally {
+            session.setAttribute(PENDING_SETTINGS_ATTRIBUTE, null);
+            if (!pendingSettings.isEmpty()) {
+                userSettingService.saveSettings(ClientType.WEB, pendingSettings);
+            }
         }
+    }
 
+    public void clearCache() {
+        VaadinSession session = getSession();
         session.setAttribute(SettingsClient.NAME, null);
+        session.setAttribute(PREFETCHED_ATTRIBUTE, null);
     }
 
     protected Map<String, Optional<String>> getCache() {
-        VaadinSession session = VaadinSession.getCurrent();
-        if (session == null || !session.hasLock()) {
-            throw new IllegalConcurrentAccessException("Illegal access to settings client from background thread");
-        }
+        VaadinSession session = getSession();
 
         @SuppressWarnings("unchecked")
         Map<String, Optional<String>> settings = (Map<String, Optional<String>>) session.getAttribute(SettingsClient.NAME);
         if (settings == null) {
             settings = new HashMap<>();
+            if (webConfig.getPrefetchUserSettings()) {
+                for (Map.Entry<String, String> entry : userSettingService.loadSettings(ClientType.WEB).entrySet()) {
+                    settings.put(entry.getKey(), Optional.ofNullable(entry.getValue()));
+                }
+                session.setAttribute(PREFETCHED_ATTRIBUTE, true);
+            }
             session.setAttribute(SettingsClient.NAME, settings);
         }
         return settings;
     }
-}
\ No newline at end of file
+
+    @SuppressWarnings("unchecked")
+    @Nullable
+    protected Map<String, String> getPendingSettings() {
+        return (Map<String, String>) getSession().getAttribute(PENDING_SETTINGS_ATTRIBUTE);
+    }
+
+    protected VaadinSession getSession() {
+        VaadinSession session = VaadinSession.getCurrent();
+        if (session == null || !session.hasLock()) {
+            throw new IllegalConcurrentAccessException("Illegal access to settings client from background thread");
+        }
+        return session;
+    }
+}
@@ -54,6 +54,7 @@ import com.haulmont.cuba.gui.screen.compatibility.*;
 import com.haulmont.cuba.gui.screen.event.ScreenClosedEvent;
 import com.haulmont.cuba.gui.screen.event.ScreenOpenedEvent;
 import com.haulmont.cuba.gui.settings.Settings;
+import com.haulmont.cuba.gui.settings.SettingsClient;
 import com.haulmont.cuba.gui.settings.SettingsImpl;
 import com.haulmont.cuba.gui.sys.*;
 import com.haulmont.cuba.gui.theme.ThemeConstants;
@@ -144,6 +145,8 @@ public class WebScreens implements Screens, WindowManager {
     protected ClientConfig clientConfig;
     @Inject
     protected ScreenProfilerImpl screenProfiler;
+    @Inject
+    protected SettingsClient settingsClient;
 
     @Inject
     protected List<ControllerDependencyInjector> dependencyInjectors;
@@ -1555,13 +1558,15 @@ public class WebScreens implements Screens, WindowManager {
     }
 
     public void saveScreenSettings() {
-        Screen rootScreen = getOpenedScreens().getRootScreen();
+        settingsClient.saveSettingsInBatch(() -> {
+            Screen rootScreen = getOpenedScreens().getRootScreen();
 
-        saveSettings(rootScreen);
+            saveSettings(rootScreen);
 
-        getOpenedWorkAreaScreensStream().forEach(UiControllerUtils::saveSettings);
+            getOpenedWorkAreaScreensStream().forEach(UiControllerUtils::saveSettings);
 
-        getDialogScreensStream().forEach(UiControllerUtils::saveSettings);
+            getDialogScreensStream().forEach(UiControllerUtils::saveSettings);
+        });
     }
 
     /**
@@ -17,11 +17,18 @@
 package spec.cuba.web.datacontext
 
 import com.haulmont.cuba.core.app.DataService
+import com.haulmont.cuba.core.entity.KeyValueEntity
 import com.haulmont.cuba.core.global.DataManager
+import com.haulmont.cuba.core.global.LoadContext
 import com.haulmont.cuba.core.global.Metadata
+import com.haulmont.cuba.core.global.ValueLoadContext
+import com.haulmont.cuba.gui.components.AggregationInfo
+import com.haulmont.cuba.gui.components.data.table.ContainerTableItems
 import com.haulmont.cuba.gui.model.CollectionContainer
 import com.haulmont.cuba.gui.model.CollectionLoader
 import com.haulmont.cuba.gui.model.DataComponents
+import com.haulmont.cuba.gui.model.EntityGroup
+import com.haulmont.cuba.security.entity.User
 import com.haulmont.cuba.web.container.CubaTestContainer
 import com.haulmont.cuba.web.testmodel.datacontext.Foo
 import com.haulmont.cuba.web.testsupport.TestContainer
@@ -132,4 +139,196 @@ class CollectionLoaderTest extends Specification {
 
         1 * preLoadListener.accept({ it.loadContext.query.queryString == 'select e from test$Foo e where e.name = :name' })
     }
+
+    def "load groups and items of a group"() {
+        CollectionLoader<Foo> loader = factory.createCollectionLoader()
+        CollectionContainer<Foo> container = factory.createCollectionContainer(Foo)
+        loader.setContainer(container)
+        loader.setQuery('select e from test$Foo e order by e.name')
+
+        KeyValueEntity row = new KeyValueEntity()
+        row.setValue('groupValue0', 'a')
+        row.setValue('groupCount', 2L)
+        row.setValue('groupAggregate0', 'z')
+
+        ValueLoadContext groupsContext = null
+        LoadContext itemsContext = null
+
+        TestServiceProxy.mock(DataService, Mock(DataService) {
+            loadValues(_) >> { ValueLoadContext context -> groupsContext = context; [reserialize(row)] }
+            loadList(_) >> { LoadContext context -> itemsContext = context; [reserialize(new Foo())] }
+        })
+
+        when:
+
+        List<EntityGroup> groups = loader.loadGroups(null, 'name', [max: 'max({E}.name)'])
+
+        then:
+
+        groupsContext.query.queryString == 'select e.name, count(e), max(e.name) from test$Foo e group by e.name order by e.name'
+        groups.size() == 1
+        groups[0].value == 'a'
+        groups[0].count == 2
+        groups[0].aggregates == [max: 'z']
+        container.getItems() == []
+
+        when:
+
+        List<Foo> items = loader.loadGroupItems(groups[0], 10, 5)
+
+        then:
+
+        itemsContext.query.queryString == 'select e from test$Foo e where e.name = :_groupValue0 order by e.name'
+        itemsContext.query.parameters['_groupValue0'] == 'a'
+        itemsContext.query.firstResult == 10
+        itemsContext.query.maxResults == 5
+        items.size() == 1
+        container.getItems() == []
+    }
+
+    def "group conditions do not override loader parameters"() {
+        CollectionLoader<Foo> loader = factory.createCollectionLoader()
+        CollectionContainer<Foo> container = factory.createCollectionContainer(Foo)
+        loader.setContainer(container)
+        loader.setQuery('select e from test$Foo e where e.name <> :_groupValue0')
+        loader.setParameter('_groupValue0', 'b')
+
+        LoadContext itemsContext = null
+
+        TestServiceProxy.mock(DataService, Mock(DataService) {
+            loadList(_) >> { LoadContext context -> itemsContext = context; [] }
+        })
+
+        when:
+
+        loader.loadGroupItems(new EntityGroup(null, 'name', 'a', 1, [:]), 0, 10)
+
+        then:
+
+        itemsContext.query.queryString.contains('e.name = :_groupValue1')
+        itemsContext.query.parameters == [_groupValue0: 'b', _groupValue1: 'a']
+    }
+
+    def "groups cannot be loaded with load delegate"() {
+        CollectionLoader<Foo> loader = factory.createCollectionLoader()
+        CollectionContainer<Foo> container = factory.createCollectionContainer(Foo)
+        loader.setContainer(container)
+        loader.setQuery('select e from test$Foo e')
+        loader.setLoadDelegate({ [] })
+
+        when:
+
+        loader.loadGroups(null, 'name', [:])
+
+        then:
+
+        thrown(IllegalStateException)
+
+        when:
+
+        loader.loadGroupItems(new EntityGroup(null, 'name', 'a', 1, [:]), 0, 10)
+
+        then:
+
+        thrown(IllegalStateException)
+    }
+
+    def "references in grouping paths are joined by left join"() {
+        CollectionLoader<User> loader = factory.createCollectionLoader()
+        CollectionContainer<User> container = factory.createCollectionContainer(User)
+        loader.setContainer(container)
+        loader.setQuery('select u from sec$User u')
+
+        KeyValueEntity row = new KeyValueEntity()
+        row.setValue('groupValue0', null)
+        row.setValue('groupCount', 3L)
+
+        ValueLoadContext groupsContext = null
+        LoadContext itemsContext = null
+
+        TestServiceProxy.mock(DataService, Mock(DataService) {
+            loadValues(_) >> { ValueLoadContext context -> groupsContext = context; [reserialize(row)] }
+            loadList(_) >> { LoadContext context -> itemsContext = context; [] }
+        })
+
+        when:
+
+        List<EntityGroup> groups = loader.loadGroups(null, 'group.name', [:])
+
+        then:
+
+        groupsContext.query.queryString.contains('left join u.group groupRef0')
+        groupsContext.query.queryString.contains('group by groupRef0.name')
+        !groupsContext.query.queryString.contains('u.group.name')
+        groups[0].value == null
+        groups[0].count == 3
+
+        when:
+
+        loader.loadGroupItems(groups[0], 0, 10)
+
+        then:
+
+        itemsContext.query.queryString.contains('left join u.group groupRef0')
+        itemsContext.query.queryString.contains('groupRef0.name is null')
+    }
+
+    def "grouping by a collection is rejected"() {
+        CollectionLoader<User> loader = factory.createCollectionLoader()
+        CollectionContainer<User> container = factory.createCollectionContainer(User)
+        loader.setContainer(container)
+        loader.setQuery('select u from sec$User u')
+
+        when:
+
+        loader.loadGroups(null, 'userRoles.role', [:])
+
+        then:
+
+        thrown(IllegalArgumentException)
+    }
+
+    def "footer totals of a paged container are loaded by the loader"() {
+        CollectionLoader<Foo> loader = factory.createCollectionLoader()
+        CollectionContainer<Foo> container = factory.createCollectionContainer(Foo)
+        loader.setContainer(container)
+        loader.setQuery('select e from test$Foo e')
+        loader.setMaxResults(2)
+
+        container.setItems([new Foo(name: 'a'), new Foo(name: 'b')])
+
+        KeyValueEntity row = new KeyValueEntity()
+        row.setValue('groupAggregate0', 5L)
+
+        ValueLoadContext totalsContext = null
+
+        TestServiceProxy.mock(DataService, Mock(DataService) {
+            loadValues(_) >> { ValueLoadContext context -> totalsContext = context; [reserialize(row)] }
+        })
+
+        def tableItems = new ContainerTableItems(container)
+        def aggregationInfo = new AggregationInfo()
+        aggregationInfo.setPropertyPath(metadata.getClassNN(Foo).getPropertyPath('name'))
+        aggregationInfo.setType(AggregationInfo.Type.COUNT)
+
+        when:
+
+        def totals = tableItems.aggregateValues([aggregationInfo] as AggregationInfo[], tableItems.getItemIds())
+
+        then:
+
+        totalsContext.query.queryString == 'select count(e.name) from test$Foo e'
+        totals[aggregationInfo] == 5
+
+        when:
+
+        totalsContext = null
+        def firstItemTotals = tableItems.aggregateValues([aggregationInfo] as AggregationInfo[],
+                [container.items[0].id])
+
+        then:
+
+        totalsContext == null
+        firstItemTotals[aggregationInfo] == 1
+    }
 }
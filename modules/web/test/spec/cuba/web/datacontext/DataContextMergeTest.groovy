@@ -18,6 +18,7 @@ package spec.cuba.web.datacontext
 
 import com.haulmont.chile.core.model.Instance
 import com.haulmont.cuba.core.entity.BaseEntityInternalAccess
+import com.haulmont.cuba.core.entity.CategoryAttributeValue
 import com.haulmont.cuba.core.entity.SecurityState
 import com.haulmont.cuba.core.global.EntityStates
 import com.haulmont.cuba.core.global.Metadata
@@ -701,6 +702,89 @@ class DataContextMergeTest extends Specification {
         new UUID(val, 0)
     }
 
+    def "bulk merge of instances with shared references"() {
+        DataContext context = factory.createDataContext()
+        def changed = []
+        context.addChangeListener { changed.add(it.entity) }
+
+        Customer customer = new Customer(name: 'c1')
+        Order order1 = new Order(customer: customer)
+        Order order2 = new Order(customer: customer)
+
+        when:
+
+        def merged = context.merge([order1, order2, order1])
+
+        then: "each new instance is merged and reported once"
+
+        merged.size() == 2
+        changed.size() == 3
+        changed.count { it instanceof Customer } == 1
+        context.find(Order, order1.id).customer.is(context.find(Order, order2.id).customer)
+    }
+
+    def "fresh merge of unchanged instance keeps its collections"() {
+        DataContext context = factory.createDataContext()
+
+        Order order1 = new Order(version: 1)
+        OrderLine line1 = new OrderLine(order: order1, version: 1)
+        order1.orderLines = [line1]
+        makeDetached(order1)
+        makeDetached(line1)
+        ((FetchGroupTracker) order1)._persistence_setFetchGroup(
+                new EntityFetchGroup('id', 'version', 'deleteTs', 'orderLines'))
+
+        Order order2 = new Order(id: order1.id, version: 1)
+        OrderLine line2 = new OrderLine(id: line1.id, order: order2, version: 1)
+        order2.orderLines = [line2]
+        makeDetached(order2)
+        makeDetached(line2)
+        ((FetchGroupTracker) order2)._persistence_setFetchGroup(
+                new EntityFetchGroup('id', 'version', 'deleteTs', 'orderLines'))
+
+        def mergedOrder = context.merge(order1)
+        def mergedLines = mergedOrder.orderLines
+
+        when:
+
+        context.merge([order2], new MergeOptions().setFresh(true))
+
+        then:
+
+        context.find(Order, order1.id).is(mergedOrder)
+        mergedOrder.orderLines.is(mergedLines)
+        mergedOrder.orderLines.size() == 1
+    }
+
+    def "fresh merge of unchanged instance updates dynamic attributes and security state"() {
+        DataContext context = factory.createDataContext()
+
+        Order order1 = new Order(version: 1)
+        makeDetached(order1)
+        ((FetchGroupTracker) order1)._persistence_setFetchGroup(new EntityFetchGroup('id', 'version', 'deleteTs'))
+        order1.setDynamicAttributes([attr: new CategoryAttributeValue(code: 'attr', stringValue: 'old')])
+        BaseEntityInternalAccess.setSecurityState(order1, new SecurityState())
+
+        def mergedOrder = context.merge(order1)
+
+        Order order2 = new Order(id: order1.id, version: 1)
+        makeDetached(order2)
+        ((FetchGroupTracker) order2)._persistence_setFetchGroup(new EntityFetchGroup('id', 'version', 'deleteTs'))
+        order2.setDynamicAttributes([attr: new CategoryAttributeValue(code: 'attr', stringValue: 'new')])
+        def securityState = new SecurityState()
+        BaseEntityInternalAccess.setSecurityState(order2, securityState)
+
+        when:
+
+        context.merge([order2], new MergeOptions().setFresh(true))
+
+        then:
+
+        context.find(Order, order1.id).is(mergedOrder)
+        mergedOrder.getDynamicAttributes()['attr'].stringValue == 'new'
+        BaseEntityInternalAccess.getSecurityState(mergedOrder).is(securityState)
+    }
+
     private void makeDetached(def entity) {
         entityStates.makeDetached(entity)
     }
@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2008-2019 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package spec.cuba.web.datacontext
+
+import com.haulmont.cuba.core.app.DataService
+import com.haulmont.cuba.core.global.DataManager
+import com.haulmont.cuba.core.global.LoadContext
+import com.haulmont.cuba.core.sys.PagedLoadSpliterator
+import com.haulmont.cuba.web.container.CubaTestContainer
+import com.haulmont.cuba.web.testmodel.datacontext.Foo
+import com.haulmont.cuba.web.testsupport.TestContainer
+import com.haulmont.cuba.web.testsupport.proxy.TestServiceProxy
+import org.junit.ClassRule
+import spock.lang.Shared
+import spock.lang.Specification
+
+import java.util.stream.Collectors
+
+class DataManagerLoadStreamTest extends Specification {
+
+    @Shared @ClassRule
+    public TestContainer cont = CubaTestContainer.Common.INSTANCE
+
+    List<Foo> foos = (0..6).collect { new Foo(name: "foo$it") }
+    List<LoadContext.Query> queries = []
+
+    void cleanup() {
+        TestServiceProxy.clear()
+    }
+
+    def "instances are loaded page by page when the stream is consumed"() {
+        def context = LoadContext.create(Foo).setQuery(LoadContext.createQuery('select e from test$Foo e'))
+
+        when:
+
+        def stream = PagedLoadSpliterator.stream(context, 3, this.&loadPage)
+
+        then:
+
+        queries.isEmpty()
+
+        when:
+
+        def first = stream.iterator().next()
+
+        then:
+
+        first.name == 'foo0'
+        queries.size() == 1
+
+        when:
+
+        def names = PagedLoadSpliterator.stream(context, 3, this.&loadPage)
+                .map { it.name }
+                .collect(Collectors.toList())
+
+        then:
+
+        names == foos*.name
+        queries[1..-1].collect { [it.firstResult, it.maxResults] } == [[0, 3], [3, 3], [6, 3]]
+        context.query.firstResult == 0
+        context.query.maxResults == 0
+    }
+
+    def "paging parameters of the query are respected"() {
+        def context = LoadContext.create(Foo).setQuery(
+                LoadContext.createQuery('select e from test$Foo e').setFirstResult(2).setMaxResults(4))
+
+        when:
+
+        def names = PagedLoadSpliterator.stream(context, 3, this.&loadPage)
+                .map { it.name }
+                .collect(Collectors.toList())
+
+        then:
+
+        names == ['foo2', 'foo3', 'foo4', 'foo5']
+        queries.collect { [it.firstResult, it.maxResults] } == [[2, 3], [5, 1]]
+    }
+
+    def "client DataManager streams instances from the middleware"() {
+        TestServiceProxy.mock(DataService, Mock(DataService) {
+            loadList(_) >> { LoadContext context -> loadPage(context) }
+        })
+        def dataManager = cont.getBean(DataManager)
+
+        when:
+
+        def names = dataManager.loadStream(LoadContext.create(Foo)
+                .setQuery(LoadContext.createQuery('select e from test$Foo e')))
+                .map { it.name }
+                .collect(Collectors.toList())
+
+        then:
+
+        names == foos*.name
+        queries.size() == 1
+        queries[0].maxResults == 500
+    }
+
+    protected List<Foo> loadPage(LoadContext<Foo> context) {
+        def query = context.query
+        queries << query
+        int from = Math.min(query.firstResult, foos.size())
+        int to = query.maxResults > 0 ? Math.min(from + query.maxResults, foos.size()) : foos.size()
+        return foos.subList(from, to)
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2008-2020 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package spec.cuba.web.settings
+
+import com.haulmont.cuba.core.global.CommitContext
+import com.haulmont.cuba.core.global.DataManager
+import com.haulmont.cuba.core.global.LoadContext
+import com.haulmont.cuba.gui.components.Table
+import com.haulmont.cuba.gui.components.Window
+import com.haulmont.cuba.gui.presentations.PresentationsImpl
+import com.haulmont.cuba.gui.screen.Screen
+import com.haulmont.cuba.gui.screen.ScreenSettings
+import com.haulmont.cuba.gui.screen.UiControllerUtils
+import com.haulmont.cuba.security.entity.Presentation
+import spec.cuba.web.WebSpec
+
+@SuppressWarnings("GroovyAccessibility")
+class ScreenSettingsTest extends WebSpec {
+
+    DataManager screenDataManager = Mock()
+
+    ScreenSettings screenSettings
+
+    void setup() {
+        screenSettings = new ScreenSettings()
+        screenSettings.dataManager = screenDataManager
+        screenSettings.userSessionSource = sessionSource
+    }
+
+    def "presentations of all tables of a screen are loaded with one query"() {
+        def table1 = createTable('table1')
+        def table2 = createTable('table2')
+        def table3 = createTable('table3')
+        def screen = createScreen(table1, table2, table3)
+
+        def presentation1 = createPresentation('table1')
+        def presentation2 = createPresentation('table2')
+
+        when:
+        screenSettings.prefetchPresentations(screen)
+
+        then:
+        1 * screenDataManager.loadList({ LoadContext ctx ->
+            ctx.query.parameters['components'] as Set == ['table1', 'table2', 'table3'] as Set
+        }) >> [presentation1, presentation2]
+
+        table1.presentations.loaded
+        table1.presentations.presentationIds as List == [presentation1.id]
+        table2.presentations.presentationIds as List == [presentation2.id]
+        table3.presentations.presentationIds.isEmpty()
+    }
+
+    def "a single table loads its presentations itself"() {
+        def table = createTable('table1')
+        def screen = createScreen(table)
+
+        when:
+        screenSettings.prefetchPresentations(screen)
+
+        then:
+        0 * screenDataManager.loadList(_)
+        !table.presentations.loaded
+    }
+
+    def "changed presentations of several tables are committed together"() {
+        def table1 = createTable('table1')
+        def table2 = createTable('table2')
+        def table3 = createTable('table3')
+
+        def presentation1 = createPresentation('table1')
+        def presentation2 = createPresentation('table2')
+
+        [table1, table2, table3].each { it.presentations.setLoadedPresentations([]) }
+        table1.presentations.add(presentation1)
+        table2.presentations.add(presentation2)
+
+        when:
+        screenSettings.commitPresentations([table1.presentations, table2.presentations, table3.presentations])
+
+        then:
+        1 * screenDataManager.commit({ CommitContext ctx ->
+            ctx.commitInstances as Set == [presentation1, presentation2] as Set
+        }) >> ([presentation1, presentation2] as Set)
+
+        !table1.presentations.modified
+        !table2.presentations.modified
+        !table3.presentations.modified
+    }
+
+    protected Table createTable(String id) {
+        PresentationsImpl presentations = null
+        Table table = Mock(Table) {
+            getId() >> id
+            isUsePresentations() >> true
+            getPresentations() >> { presentations }
+        }
+        presentations = new PresentationsImpl(table)
+        return table
+    }
+
+    protected Screen createScreen(Table... tables) {
+        def window = Mock(Window) {
+            getOwnComponents() >> tables.toList()
+        }
+        def screen = new Screen() {}
+        UiControllerUtils.setFrame(screen, window)
+        return screen
+    }
+
+    protected Presentation createPresentation(String componentId) {
+        def presentation = metadata.create(Presentation)
+        presentation.componentId = componentId
+        presentation.name = componentId
+        presentation.user = sessionSource.userSession.user
+        return presentation
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2008-2020 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package spec.cuba.web.settings
+
+import com.haulmont.cuba.core.global.ClientType
+import com.haulmont.cuba.security.app.UserSettingService
+import com.haulmont.cuba.web.WebConfig
+import com.haulmont.cuba.web.settings.WebSettingsClient
+import spec.cuba.web.WebSpec
+
+@SuppressWarnings("GroovyAccessibility")
+class WebSettingsClientTest extends WebSpec {
+
+    UserSettingService userSettingService = Mock()
+
+    def "all settings are loaded with one call when prefetch is on"() {
+        def settingsClient = createSettingsClient(true)
+
+        when:
+        def first = settingsClient.getSetting('first')
+        def second = settingsClient.getSetting('second')
+        def missing = settingsClient.getSetting('missing')
+
+        then:
+        1 * userSettingService.loadSettings(ClientType.WEB) >> [first: 'value1', second: 'value2']
+        0 * userSettingService.loadSetting(_, _)
+
+        first == 'value1'
+        second == 'value2'
+        missing == null
+    }
+
+    def "settings are loaded one by one and cached when prefetch is off"() {
+        def settingsClient = createSettingsClient(false)
+
+        when:
+        def first = settingsClient.getSetting('first')
+        def firstAgain = settingsClient.getSetting('first')
+        def missing = settingsClient.getSetting('missing')
+        def missingAgain = settingsClient.getSetting('missing')
+
+        then:
+        0 * userSettingService.loadSettings(_)
+        1 * userSettingService.loadSetting(ClientType.WEB, 'first') >> 'value1'
+        1 * userSettingService.loadSetting(ClientType.WEB, 'missing') >> null
+
+        first == 'value1'
+        firstAgain == 'value1'
+        missing == null
+        missingAgain == null
+    }
+
+    def "settings set in a batch are saved with one call"() {
+        def settingsClient = createSettingsClient(false)
+
+        when:
+        settingsClient.saveSettingsInBatch {
+            settingsClient.setSetting('first', 'value1')
+            settingsClient.saveSettingsInBatch {
+                settingsClient.setSetting('second', 'value2')
+            }
+            settingsClient.setSetting('first', 'value3')
+        }
+
+        then:
+        0 * userSettingService.saveSetting(_, _, _)
+        1 * userSettingService.saveSettings(ClientType.WEB, [first: 'value3', second: 'value2'])
+
+        settingsClient.getSetting('first') == 'value3'
+        settingsClient.getSetting('second') == 'value2'
+
+        when: "a setting is set outside of a batch"
+        settingsClient.setSetting('third', 'value4')
+
+        then:
+        1 * userSettingService.saveSetting(ClientType.WEB, 'third', 'value4')
+        0 * userSettingService.saveSettings(_, _)
+    }
+
+    protected WebSettingsClient createSettingsClient(boolean prefetch) {
+        def settingsClient = new WebSettingsClient()
+        settingsClient.userSettingService = userSettingService
+        settingsClient.webConfig = Mock(WebConfig) {
+            getPrefetchUserSettings() >> prefetch
+        }
+        return settingsClient
+    }
+}